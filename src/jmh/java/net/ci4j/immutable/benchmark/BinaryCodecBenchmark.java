@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import net.ci4j.immutable.binary.BinaryCodec;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.json.JsonDecoder;
+import net.ci4j.immutable.json.JsonEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading back a map of records with {@link BinaryCodec}, against JSON with {@link JsonEncoder} and
+ * {@link JsonDecoder}, and against the default Java serialization of the clojure collections. The keys and the
+ * record fields are keywords, which only the binary format and Java serialization keep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class BinaryCodecBenchmark
+{
+	private static final JsonDecoder KEYWORDS = JsonDecoder.DEFAULT.withKeywordKeys(true);
+
+	@Param({"10000"})
+	public int size;
+
+	private ImmutableMap<Object, Object> map;
+
+	private byte[] binary;
+
+	private byte[] json;
+
+	private byte[] serialized;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		final StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < size; i++)
+		{
+			builder.append(":id").append(i).append(" {:name \"record ").append(i).append("\" :score ").append(i * 0.5)
+				.append(" :price ").append(i).append(".25M :active true :tags [\"a\" \"b\" ").append(i % 7).append("]} ");
+		}
+		map = ImmutableMap.fromString(builder.append('}').toString());
+		binary = writeBinary();
+		json = writeJson();
+		serialized = writeSerialized();
+	}
+
+	@Benchmark
+	public byte[] writeBinary()
+	{
+		return BinaryCodec.toBytes(map);
+	}
+
+	@Benchmark
+	public byte[] writeJson()
+	{
+		return JsonEncoder.DEFAULT.writeString(map).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public byte[] writeSerialized() throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(map.getRaw());
+		}
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public Object readBinary()
+	{
+		return BinaryCodec.fromBytes(binary);
+	}
+
+	@Benchmark
+	public Object readJson() throws IOException
+	{
+		return KEYWORDS.read(new ByteArrayInputStream(json));
+	}
+
+	@Benchmark
+	public Object readSerialized() throws IOException, ClassNotFoundException
+	{
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized)))
+		{
+			return in.readObject();
+		}
+	}
+}
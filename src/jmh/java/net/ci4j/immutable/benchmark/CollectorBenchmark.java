@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Collecting a stream with the immutable collectors against collecting into a java.util collection and copying
+ * it with {@code create}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class CollectorBenchmark
+{
+	@Param({"1000", "1000000"})
+	public int size;
+
+	private ImmutableList<Long> source;
+
+	@Setup
+	public void setup()
+	{
+		final Long[] items = new Long[size];
+		for (int i = 0; i < size; i++)
+		{
+			items[i] = (long) i;
+		}
+		source = ImmutableList.create(items);
+	}
+
+	@Benchmark
+	public ImmutableList<Long> listCollector()
+	{
+		return source.stream().collect(ImmutableList.collector());
+	}
+
+	@Benchmark
+	public ImmutableList<Long> listViaArrayList()
+	{
+		return ImmutableList.create(source.stream().collect(Collectors.toList()));
+	}
+
+	@Benchmark
+	public ImmutableSet<Long> setCollector()
+	{
+		return source.stream().collect(ImmutableSet.collector());
+	}
+
+	@Benchmark
+	public ImmutableSet<Long> setViaHashSet()
+	{
+		return ImmutableSet.create(source.stream().collect(Collectors.toSet()));
+	}
+
+	@Benchmark
+	public ImmutableMap<Long, Long> mapCollector()
+	{
+		return source.stream().collect(ImmutableMap.collector(i -> i, i -> i));
+	}
+
+	@Benchmark
+	public ImmutableMap<Long, Long> mapViaHashMap()
+	{
+		return ImmutableMap.create(source.stream().collect(Collectors.toMap(Function.identity(), Function.identity())));
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.ListDiff;
+import net.ci4j.immutable.collections.MapDiff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diffing a collection with a version of it carrying 10 edits, skipping the shared nodes against a full walk
+ * looking up every entry of each side in the other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class DiffBenchmark
+{
+	@Param({"1000", "1000000"})
+	public int size;
+
+	private ImmutableList<Long> list;
+
+	private ImmutableList<Long> editedList;
+
+	private ImmutableMap<Long, Long> map;
+
+	private ImmutableMap<Long, Long> editedMap;
+
+	@Setup
+	public void setup()
+	{
+		final Long[] items = new Long[size];
+		for (int i = 0; i < size; i++)
+		{
+			items[i] = (long) i;
+		}
+		list = ImmutableList.create(items);
+		map = list.stream().collect(ImmutableMap.collector(item -> item, item -> item));
+		editedList = list;
+		editedMap = map;
+		for (int i = 0; i < 10; i++)
+		{
+			final long key = (long) size * i / 10;
+			editedList = editedList.assocN((int) key, -key);
+			editedMap = i % 3 == 0 ? editedMap.without(key) : editedMap.assoc(key, -key);
+		}
+		editedMap = editedMap.assoc(-1L, -1L);
+	}
+
+	@Benchmark
+	public ListDiff<Long> listDiff()
+	{
+		return list.diff(editedList);
+	}
+
+	@Benchmark
+	public Map<Integer, Long> listDiffFullScan()
+	{
+		final Map<Integer, Long> changed = new HashMap<>();
+		for (int i = 0; i < size; i++)
+		{
+			if (!Objects.equals(list.get(i), editedList.get(i)))
+			{
+				changed.put(i, editedList.get(i));
+			}
+		}
+		return changed;
+	}
+
+	@Benchmark
+	public MapDiff<Long, Long> mapDiff()
+	{
+		return map.diff(editedMap);
+	}
+
+	@Benchmark
+	public Map<Long, Long> mapDiffFullScan()
+	{
+		final Map<Long, Long> diff = new HashMap<>();
+		for (Map.Entry<Long, Long> entry : map.entrySet())
+		{
+			final Long newValue = editedMap.get(entry.getKey());
+			if (!Objects.equals(entry.getValue(), newValue))
+			{
+				diff.put(entry.getKey(), newValue);
+			}
+		}
+		for (Map.Entry<Long, Long> entry : editedMap.entrySet())
+		{
+			if (!map.containsKey(entry.getKey()))
+			{
+				diff.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return diff;
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.IFn;
+import clojure.lang.RT;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.edn.EdnDecoder;
+import net.ci4j.immutable.edn.EdnEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading an EDN document of records with {@link EdnDecoder}, from a string and from a reader, against
+ * {@code clojure.core/read-string} and {@code clojure.edn/read-string} called through their vars, and writing it
+ * back with {@link EdnEncoder} against {@code pr-str}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class EdnBenchmark
+{
+	private static final IFn EDN_READ_STRING;
+
+	private static final IFn PR_STR = RT.var("clojure.core", "pr-str");
+
+	static
+	{
+		ClojureRT.require("clojure.edn");
+		EDN_READ_STRING = RT.var("clojure.edn", "read-string");
+	}
+
+	@Param({"10000"})
+	public int size;
+
+	private String edn;
+
+	private Object value;
+
+	@Setup
+	public void setup()
+	{
+		final StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < size; i++)
+		{
+			builder.append(":id").append(i).append(" {:name \"record ").append(i).append("\" :score ").append(i * 0.5)
+				.append(" :price ").append(i).append(".25M :active true :tags #{:a :b ").append(i % 7).append("}} ");
+		}
+		edn = builder.append('}').toString();
+		value = EdnDecoder.DEFAULT.read(edn);
+	}
+
+	@Benchmark
+	public Object readString()
+	{
+		return ClojureRT.readString(edn);
+	}
+
+	@Benchmark
+	public Object ednReadString()
+	{
+		return EDN_READ_STRING.invoke(edn);
+	}
+
+	@Benchmark
+	public Object decoder()
+	{
+		return EdnDecoder.DEFAULT.read(edn);
+	}
+
+	@Benchmark
+	public Object decoderReader() throws IOException
+	{
+		return EdnDecoder.DEFAULT.read(new StringReader(edn));
+	}
+
+	@Benchmark
+	public Object prStr()
+	{
+		return PR_STR.invoke(value);
+	}
+
+	@Benchmark
+	public Object encoder()
+	{
+		return EdnEncoder.writeString(value);
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Equality of two equal versions sharing all but one path, through the wrappers (which skip shared nodes) against
+ * the equals of the underlying clojure collections. The unshared case compares two maps built separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class EqualityBenchmark
+{
+	@Param({"1000", "1000000"})
+	public int size;
+
+	private ImmutableList<Long> list;
+
+	private ImmutableList<Long> listCopy;
+
+	private ImmutableSet<Long> set;
+
+	private ImmutableSet<Long> setCopy;
+
+	private ImmutableMap<Long, Long> map;
+
+	private ImmutableMap<Long, Long> mapCopy;
+
+	private ImmutableMap<Long, Long> mapRebuilt;
+
+	@Setup
+	public void setup()
+	{
+		final Long[] items = new Long[size];
+		for (int i = 0; i < size; i++)
+		{
+			items[i] = (long) i;
+		}
+		final Long middle = items[size / 2];
+		list = ImmutableList.create(items);
+		listCopy = list.assocN(size / 2, -1L).assocN(size / 2, middle);
+		set = ImmutableSet.create(items);
+		setCopy = set.cons(-1L).withMutations(trans -> trans.remove(-1L));
+		map = list.stream().collect(ImmutableMap.collector(item -> item, item -> item));
+		mapCopy = map.assoc(middle, -1L).assoc(middle, middle);
+		mapRebuilt = list.stream().collect(ImmutableMap.collector(item -> item, item -> item));
+	}
+
+	@Benchmark
+	public boolean listEquals()
+	{
+		return list.equals(listCopy);
+	}
+
+	@Benchmark
+	public boolean listEqualsClojure()
+	{
+		return list.getRaw().equals(listCopy.getRaw());
+	}
+
+	@Benchmark
+	public boolean setEquals()
+	{
+		return set.equals(setCopy);
+	}
+
+	@Benchmark
+	public boolean setEqualsClojure()
+	{
+		return set.getRaw().equals(setCopy.getRaw());
+	}
+
+	@Benchmark
+	public boolean mapEquals()
+	{
+		return map.equals(mapCopy);
+	}
+
+	@Benchmark
+	public boolean mapEqualsClojure()
+	{
+		return map.getRaw().equals(mapCopy.getRaw());
+	}
+
+	@Benchmark
+	public boolean mapEqualsUnshared()
+	{
+		return map.equals(mapRebuilt);
+	}
+
+	@Benchmark
+	public boolean mapEqualsUnsharedClojure()
+	{
+		return map.getRaw().equals(mapRebuilt.getRaw());
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.ITransientCollection;
+import clojure.lang.ITransientMap;
+import clojure.lang.PersistentHashMap;
+import clojure.lang.PersistentHashSet;
+import clojure.lang.PersistentVector;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@code fold} scales with the number of fork/join workers, against the sequential reduce.
+ * <p>
+ * {@code clojure.core.reducers} forks into the pool of the calling task, so each fold is submitted to a pool of
+ * {@code threads} workers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@SuppressWarnings("unchecked")
+public class FoldBenchmark
+{
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	@Param({"1", "2", "4", "8"})
+	public int threads;
+
+	private ImmutableList<Long> list;
+
+	private ImmutableMap<Long, Long> map;
+
+	private ImmutableSet<Long> set;
+
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setup()
+	{
+		final ITransientCollection vector = PersistentVector.EMPTY.asTransient();
+		final ITransientMap hashMap = PersistentHashMap.EMPTY.asTransient();
+		final ITransientCollection hashSet = PersistentHashSet.EMPTY.asTransient();
+		for (long i = 0; i < size; i++)
+		{
+			final Long item = i;
+			vector.conj(item);
+			hashMap.assoc(item, item);
+			hashSet.conj(item);
+		}
+		list = new ImmutableList<>((PersistentVector) vector.persistent());
+		map = new ImmutableMap<>((PersistentHashMap) hashMap.persistent());
+		set = new ImmutableSet<>((PersistentHashSet) hashSet.persistent());
+		pool = new ForkJoinPool(threads);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public long reduceList()
+	{
+		return list.reduce(0L, (Long acc, Long item) -> acc + item);
+	}
+
+	@Benchmark
+	public long foldList()
+	{
+		return pool.submit(() -> list.fold(() -> 0L, Long::sum, (Long acc, Long item) -> acc + item)).join();
+	}
+
+	@Benchmark
+	public long foldMap()
+	{
+		return pool.submit(() -> map.fold(() -> 0L, Long::sum, (Long acc, Long key, Long value) -> acc + value)).join();
+	}
+
+	@Benchmark
+	public long foldSet()
+	{
+		return pool.submit(() -> set.fold(() -> 0L, Long::sum, (Long acc, Long item) -> acc + item)).join();
+	}
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.IFn;
+import clojure.lang.IPersistentVector;
+import clojure.lang.ITransientVector;
+import clojure.lang.PersistentVector;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.fn.Fn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ImmutableList} hot paths against the raw {@link PersistentVector} it wraps and against
+ * {@link ArrayList}.
+ * <p>
+ * The java.util variants copy the list before modifying it, so every benchmark measures the cost of
+ * producing a new list while leaving the original untouched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@SuppressWarnings("unchecked")
+public class ImmutableListBenchmark
+{
+	private static final IFn SUM = Fn.fn((Long acc, Long item) -> acc + item);
+
+	@Param({"8", "1000", "100000", "10000000"})
+	public int size;
+
+	private ImmutableList<Long> list;
+
+	private PersistentVector raw;
+
+	private ArrayList<Long> javaList;
+
+	private Long[] batch;
+
+	private int middle;
+
+	@Setup
+	public void setup()
+	{
+		final ITransientVector trans = PersistentVector.EMPTY.asTransient();
+		javaList = new ArrayList<>(size);
+		for (long i = 0; i < size; i++)
+		{
+			final Long item = i;
+			trans.conj(item);
+			javaList.add(item);
+		}
+		raw = (PersistentVector) trans.persistent();
+		list = new ImmutableList<>(raw);
+		batch = new Long[32];
+		for (int i = 0; i < batch.length; i++)
+		{
+			batch[i] = (long) -i;
+		}
+		middle = size / 2;
+	}
+
+	@Benchmark
+	public ImmutableList<Long> consWrapper()
+	{
+		return list.cons(-1L);
+	}
+
+	@Benchmark
+	public IPersistentVector consRaw()
+	{
+		return raw.cons(-1L);
+	}
+
+	@Benchmark
+	public List<Long> consJava()
+	{
+		final ArrayList<Long> copy = new ArrayList<>(javaList);
+		copy.add(-1L);
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableList<Long> consAllWrapper()
+	{
+		return list.consAll(batch);
+	}
+
+	@Benchmark
+	public Object consAllRaw()
+	{
+		final ITransientVector trans = raw.asTransient();
+		for (Long item : batch)
+		{
+			trans.conj(item);
+		}
+		return trans.persistent();
+	}
+
+	@Benchmark
+	public List<Long> consAllJava()
+	{
+		final ArrayList<Long> copy = new ArrayList<>(javaList.size() + batch.length);
+		copy.addAll(javaList);
+		for (Long item : batch)
+		{
+			copy.add(item);
+		}
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableList<Long> assocNWrapper()
+	{
+		return list.assocN(middle, -1L);
+	}
+
+	@Benchmark
+	public IPersistentVector assocNRaw()
+	{
+		return raw.assocN(middle, -1L);
+	}
+
+	@Benchmark
+	public List<Long> assocNJava()
+	{
+		final ArrayList<Long> copy = new ArrayList<>(javaList);
+		copy.set(middle, -1L);
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableList<Long> insertWrapper()
+	{
+		return list.insert(middle, -1L);
+	}
+
+	@Benchmark
+	public Object insertRaw()
+	{
+		return ClojureRT.INSERT_NTH_IN_VEC.invoke(raw, middle, -1L);
+	}
+
+	@Benchmark
+	public List<Long> insertJava()
+	{
+		final ArrayList<Long> copy = new ArrayList<>(javaList.size() + 1);
+		copy.addAll(javaList);
+		copy.add(middle, -1L);
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableList<Long> dissocNWrapper()
+	{
+		return list.dissocN(middle);
+	}
+
+	@Benchmark
+	public Object dissocNRaw()
+	{
+		return ClojureRT.REMOVE_NTH_IN_VEC.invoke(raw, middle);
+	}
+
+	@Benchmark
+	public List<Long> dissocNJava()
+	{
+		final ArrayList<Long> copy = new ArrayList<>(javaList);
+		copy.remove(middle);
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableList<Long> concatWrapper()
+	{
+		return list.concat(list);
+	}
+
+	@Benchmark
+	public List<Long> concatJava()
+	{
+		final ArrayList<Long> copy = new ArrayList<>(javaList.size() * 2);
+		copy.addAll(javaList);
+		copy.addAll(javaList);
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableList<Long> pageWrapper()
+	{
+		return list.drop(middle).take(32).cons(-1L);
+	}
+
+	@Benchmark
+	public List<Long> pageJava()
+	{
+		final ArrayList<Long> page = new ArrayList<>(javaList.subList(middle, Math.min(size, middle + 32)));
+		page.add(-1L);
+		return page;
+	}
+
+	@Benchmark
+	public ImmutableList<Long> filterWrapper()
+	{
+		return list.filter(it -> (it & 1) == 0);
+	}
+
+	@Benchmark
+	public Object filterRaw()
+	{
+		final ITransientVector trans = PersistentVector.EMPTY.asTransient();
+		for (Object item : raw)
+		{
+			if ((((Long) item) & 1) == 0)
+			{
+				trans.conj(item);
+			}
+		}
+		return trans.persistent();
+	}
+
+	@Benchmark
+	public List<Long> filterJava()
+	{
+		final ArrayList<Long> result = new ArrayList<>();
+		for (Long item : javaList)
+		{
+			if ((item & 1) == 0)
+			{
+				result.add(item);
+			}
+		}
+		return result;
+	}
+
+	@Benchmark
+	public Long reduceWrapper()
+	{
+		return list.reduce(0L, (acc, item) -> acc + item);
+	}
+
+	@Benchmark
+	public Object reduceRaw()
+	{
+		return raw.reduce(SUM, 0L);
+	}
+
+	@Benchmark
+	public long reduceJava()
+	{
+		long acc = 0;
+		for (Long item : javaList)
+		{
+			acc += item;
+		}
+		return acc;
+	}
+}
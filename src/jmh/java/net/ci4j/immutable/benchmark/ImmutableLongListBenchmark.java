@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableLongList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Compares {@link ImmutableLongList} against a boxed {@link ImmutableList} of the same longs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ImmutableLongListBenchmark
+{
+	@Param({"8", "1000", "100000", "10000000"})
+	public int size;
+
+	private ImmutableList<Long> boxed;
+
+	private ImmutableLongList primitive;
+
+	private int middle;
+
+	@Setup
+	public void setup()
+	{
+		primitive = ImmutableLongList.create(LongStream.range(0, size));
+		boxed = ImmutableList.create(LongStream.range(0, size).boxed().toArray(Long[]::new));
+		middle = size / 2;
+	}
+
+	@Benchmark
+	public ImmutableList<Long> consBoxed()
+	{
+		return boxed.cons(-1L);
+	}
+
+	@Benchmark
+	public ImmutableLongList consPrimitive()
+	{
+		return primitive.consLong(-1L);
+	}
+
+	@Benchmark
+	public ImmutableList<Long> assocNBoxed()
+	{
+		return boxed.assocN(middle, -1L);
+	}
+
+	@Benchmark
+	public ImmutableLongList assocNPrimitive()
+	{
+		return primitive.assocN(middle, -1L);
+	}
+
+	@Benchmark
+	public long sumBoxed()
+	{
+		long sum = 0;
+		for (Long item : boxed)
+		{
+			sum += item;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long sumPrimitive()
+	{
+		return primitive.reduce(0L, Long::sum);
+	}
+
+	@Benchmark
+	public long streamSumPrimitive()
+	{
+		return primitive.stream().sum();
+	}
+}
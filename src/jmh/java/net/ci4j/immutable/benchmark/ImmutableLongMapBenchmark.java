@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.ITransientMap;
+import clojure.lang.PersistentHashMap;
+import net.ci4j.immutable.collections.ImmutableLongMap;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.impl.PersistentLongMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ImmutableLongMap} against an {@link ImmutableMap} of boxed {@link Long} keys.
+ * <p>
+ * Lookups walk a sequence of keys spread over the whole key space, so the boxed variant pays for
+ * boxing and {@code hasheq} on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ImmutableLongMapBenchmark
+{
+	private static final long STRIDE = 7919;
+
+	@Param({"8", "1000", "100000", "10000000"})
+	public int size;
+
+	private ImmutableMap<Long, Object> boxed;
+
+	private ImmutableLongMap<Object> primitive;
+
+	private long cursor;
+
+	@Setup
+	public void setup()
+	{
+		final ITransientMap trans = PersistentHashMap.EMPTY.asTransient();
+		PersistentLongMap longMap = PersistentLongMap.EMPTY;
+		for (long i = 0; i < size; i++)
+		{
+			final Long value = i;
+			trans.assoc(i * STRIDE, value);
+			longMap = longMap.assoc(i * STRIDE, value);
+		}
+		boxed = new ImmutableMap<>((PersistentHashMap) trans.persistent());
+		primitive = new ImmutableLongMap<>(longMap);
+	}
+
+	private long nextKey()
+	{
+		cursor = cursor + 1 < size ? cursor + 1 : 0;
+		return cursor * STRIDE;
+	}
+
+	@Benchmark
+	public Object getBoxed()
+	{
+		return boxed.get(nextKey());
+	}
+
+	@Benchmark
+	public Object getPrimitive()
+	{
+		return primitive.get(nextKey());
+	}
+
+	@Benchmark
+	public ImmutableMap<Long, Object> assocBoxed()
+	{
+		return boxed.assoc(nextKey(), this);
+	}
+
+	@Benchmark
+	public ImmutableLongMap<Object> assocPrimitive()
+	{
+		return primitive.assoc(nextKey(), this);
+	}
+
+	@Benchmark
+	public ImmutableMap<Long, Object> withoutBoxed()
+	{
+		return boxed.without(nextKey());
+	}
+
+	@Benchmark
+	public ImmutableLongMap<Object> withoutPrimitive()
+	{
+		return primitive.without(nextKey());
+	}
+}
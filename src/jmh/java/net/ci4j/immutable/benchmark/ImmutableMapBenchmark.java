@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.IFn;
+import clojure.lang.ITransientMap;
+import clojure.lang.Keyword;
+import clojure.lang.PersistentHashMap;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.fn.Fn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ImmutableMap} hot paths against the raw {@link PersistentHashMap} it wraps and against
+ * {@link HashMap}.
+ * <p>
+ * The java.util variants copy the map before modifying it, so every benchmark measures the cost of
+ * producing a new map while leaving the original untouched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@SuppressWarnings("unchecked")
+public class ImmutableMapBenchmark
+{
+	private static final IFn INC = Fn.fn((Long it) -> it + 1);
+
+	private static final Object NESTED = "nested";
+
+	private static final Object[] PATH = {NESTED, Keyword.intern("a"), Keyword.intern("b"), Keyword.intern("c")};
+
+	@Param({"8", "1000", "100000", "10000000"})
+	public int size;
+
+	private ImmutableMap<Object, Object> map;
+
+	private APersistentMap raw;
+
+	private HashMap<Object, Object> javaMap;
+
+	private HashMap<Object, Object> batch;
+
+	private Long existingKey;
+
+	private Long[] updateKeys;
+
+	@Setup
+	public void setup()
+	{
+		final ITransientMap trans = PersistentHashMap.EMPTY.asTransient();
+		javaMap = new HashMap<>(size * 2);
+		for (long i = 0; i < size; i++)
+		{
+			final Long item = i;
+			trans.assoc(item, item);
+			javaMap.put(item, item);
+		}
+		final Object nested = ClojureRT.readString("{:a {:b {:c 1}}}");
+		trans.assoc(NESTED, nested);
+		javaMap.put(NESTED, nested);
+		raw = (APersistentMap) trans.persistent();
+		map = new ImmutableMap<>(raw);
+		batch = new HashMap<>();
+		for (long i = 0; i < 32; i++)
+		{
+			batch.put(-i - 1, i);
+		}
+		existingKey = (long) size / 2;
+		updateKeys = new Long[Math.min(size, 32)];
+		for (int i = 0; i < updateKeys.length; i++)
+		{
+			// the value instance stored in the map, so writing it back is an identical assoc
+			updateKeys[i] = (Long) raw.valAt((long) i * size / updateKeys.length);
+		}
+	}
+
+	@Benchmark
+	public ImmutableMap<Object, Object> assocWrapper()
+	{
+		return map.assoc(-1L, -1L);
+	}
+
+	@Benchmark
+	public Object assocRaw()
+	{
+		return raw.assoc(-1L, -1L);
+	}
+
+	@Benchmark
+	public Map<Object, Object> assocJava()
+	{
+		final HashMap<Object, Object> copy = new HashMap<>(javaMap);
+		copy.put(-1L, -1L);
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableMap<Object, Object> assocAllWrapper()
+	{
+		return map.assocAll(batch);
+	}
+
+	@Benchmark
+	public Object assocAllRaw()
+	{
+		final ITransientMap trans = ((PersistentHashMap) raw).asTransient();
+		for (Map.Entry<Object, Object> entry : batch.entrySet())
+		{
+			trans.assoc(entry.getKey(), entry.getValue());
+		}
+		return trans.persistent();
+	}
+
+	@Benchmark
+	public Map<Object, Object> assocAllJava()
+	{
+		final HashMap<Object, Object> copy = new HashMap<>(javaMap);
+		copy.putAll(batch);
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableMap<Object, Object> updateWrapper()
+	{
+		return map.update(existingKey, it -> (Long) it + 1);
+	}
+
+	@Benchmark
+	public Object updateRaw()
+	{
+		return ClojureRT.UPDATE.invoke(raw, existingKey, INC);
+	}
+
+	@Benchmark
+	public Map<Object, Object> updateJava()
+	{
+		final HashMap<Object, Object> copy = new HashMap<>(javaMap);
+		copy.compute(existingKey, (k, v) -> (Long) v + 1);
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableMap<Object, Object> updateInWrapper()
+	{
+		return map.updateIn(ClojureRT.pathSeq(PATH), it -> (Long) it + 1);
+	}
+
+	@Benchmark
+	public Object updateInRaw()
+	{
+		return ClojureRT.UPDATE_IN.invoke(raw, ClojureRT.pathSeq(PATH), INC);
+	}
+
+	@Benchmark
+	public Object getWrapper()
+	{
+		return map.get(existingKey);
+	}
+
+	@Benchmark
+	public Object getRaw()
+	{
+		return raw.valAt(existingKey);
+	}
+
+	@Benchmark
+	public Object getJava()
+	{
+		return javaMap.get(existingKey);
+	}
+
+	/**
+	 * A reducer applying a batch of value updates to existing keys, one assoc at a time.
+	 */
+	@Benchmark
+	public ImmutableMap<Object, Object> assocExistingWrapper()
+	{
+		ImmutableMap<Object, Object> result = map;
+		for (Long key : updateKeys)
+		{
+			result = result.assoc(key, -1L);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public Object assocExistingRaw()
+	{
+		APersistentMap result = raw;
+		for (Long key : updateKeys)
+		{
+			result = (APersistentMap) result.assoc(key, -1L);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public ImmutableMap<Object, Object> withMutationsWrapper()
+	{
+		return map.withMutations(t -> {
+			for (Long key : updateKeys)
+			{
+				t.put(key, -1L);
+			}
+		});
+	}
+
+	/**
+	 * A reducer writing back the values that are already in the state, the no-op path.
+	 */
+	@Benchmark
+	public ImmutableMap<Object, Object> assocIdenticalWrapper()
+	{
+		ImmutableMap<Object, Object> result = map;
+		for (Long key : updateKeys)
+		{
+			result = result.assoc(key, key);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public Object assocIdenticalRaw()
+	{
+		APersistentMap result = raw;
+		for (Long key : updateKeys)
+		{
+			result = (APersistentMap) result.assoc(key, key);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.APersistentSet;
+import clojure.lang.ITransientCollection;
+import clojure.lang.ITransientSet;
+import clojure.lang.PersistentHashSet;
+import net.ci4j.immutable.collections.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ImmutableSet} hot paths against the raw {@link PersistentHashSet} it wraps and against
+ * {@link HashSet}.
+ * <p>
+ * The java.util variants copy the set before modifying it, so every benchmark measures the cost of
+ * producing a new set while leaving the original untouched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ImmutableSetBenchmark
+{
+	@Param({"8", "1000", "100000", "10000000"})
+	public int size;
+
+	private ImmutableSet<Long> set;
+
+	private APersistentSet raw;
+
+	private HashSet<Long> javaSet;
+
+	private Long[] batch;
+
+	private Long existingItem;
+
+	@Setup
+	public void setup()
+	{
+		final ITransientCollection trans = PersistentHashSet.EMPTY.asTransient();
+		javaSet = new HashSet<>(size * 2);
+		for (long i = 0; i < size; i++)
+		{
+			final Long item = i;
+			trans.conj(item);
+			javaSet.add(item);
+		}
+		raw = (APersistentSet) trans.persistent();
+		set = new ImmutableSet<>(raw);
+		batch = new Long[32];
+		for (int i = 0; i < batch.length; i++)
+		{
+			batch[i] = (long) -i - 1;
+		}
+		existingItem = (long) size / 2;
+	}
+
+	@Benchmark
+	public ImmutableSet<Long> consWrapper()
+	{
+		return set.cons(-1L);
+	}
+
+	@Benchmark
+	public Object consRaw()
+	{
+		return raw.cons(-1L);
+	}
+
+	@Benchmark
+	public Set<Long> consJava()
+	{
+		final HashSet<Long> copy = new HashSet<>(javaSet);
+		copy.add(-1L);
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableSet<Long> consAllWrapper()
+	{
+		return set.consAll(batch);
+	}
+
+	@Benchmark
+	public Object consAllRaw()
+	{
+		final ITransientCollection trans = ((PersistentHashSet) raw).asTransient();
+		for (Long item : batch)
+		{
+			trans.conj(item);
+		}
+		return trans.persistent();
+	}
+
+	@Benchmark
+	public Set<Long> consAllJava()
+	{
+		final HashSet<Long> copy = new HashSet<>(javaSet);
+		copy.addAll(Arrays.asList(batch));
+		return copy;
+	}
+
+	@Benchmark
+	public ImmutableSet<Long> filterWrapper()
+	{
+		return set.filter(it -> (it & 1) == 0);
+	}
+
+	@Benchmark
+	public Object filterRaw()
+	{
+		final ITransientSet trans = (ITransientSet) ((PersistentHashSet) raw).asTransient();
+		for (Object item : raw)
+		{
+			if ((((Long) item) & 1) != 0)
+			{
+				trans.disjoin(item);
+			}
+		}
+		return trans.persistent();
+	}
+
+	@Benchmark
+	public Set<Long> filterJava()
+	{
+		final HashSet<Long> result = new HashSet<>();
+		for (Long item : javaSet)
+		{
+			if ((item & 1) == 0)
+			{
+				result.add(item);
+			}
+		}
+		return result;
+	}
+
+	@Benchmark
+	public boolean containsWrapper()
+	{
+		return set.contains(existingItem);
+	}
+
+	@Benchmark
+	public boolean containsRaw()
+	{
+		return raw.contains(existingItem);
+	}
+
+	@Benchmark
+	public boolean containsJava()
+	{
+		return javaSet.contains(existingItem);
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.APersistentVector;
+import net.ci4j.immutable.collections.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summing a list of longs through the different ways of iterating an {@link ImmutableList}: the iterator, indexed
+ * {@code get}, the iterator based {@code forEach} of the clojure vector, {@code forEach} and {@code forEachChunk}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class IterationBenchmark
+{
+	@Param({"1000", "10000000"})
+	public int size;
+
+	private ImmutableList<Long> source;
+
+	private long total;
+
+	@Setup
+	public void setup()
+	{
+		final Long[] items = new Long[size];
+		for (int i = 0; i < size; i++)
+		{
+			items[i] = (long) i;
+		}
+		source = ImmutableList.create(items);
+	}
+
+	@Benchmark
+	public long iterator()
+	{
+		long sum = 0;
+		for (Long item : source)
+		{
+			sum += item;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long indexed()
+	{
+		long sum = 0;
+		for (int i = 0, n = source.size(); i < n; i++)
+		{
+			sum += source.get(i);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long vectorForEach()
+	{
+		total = 0;
+		((APersistentVector) source.getRaw()).forEach(item -> total += (Long) item);
+		return total;
+	}
+
+	@Benchmark
+	public long forEach()
+	{
+		total = 0;
+		source.forEach(item -> total += item);
+		return total;
+	}
+
+	@Benchmark
+	public long forEachChunk()
+	{
+		total = 0;
+		source.forEachChunk((chunk, offset, length) -> {
+			long sum = 0;
+			for (int i = offset, end = offset + length; i < end; i++)
+			{
+				sum += (Long) chunk[i];
+			}
+			total += sum;
+		});
+		return total;
+	}
+}
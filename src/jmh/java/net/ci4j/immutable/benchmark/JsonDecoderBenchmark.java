@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import net.ci4j.immutable.clojure_utils.ClojureJson;
+import net.ci4j.immutable.json.JsonDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a JSON document of records with {@link JsonDecoder} from a string and from a byte stream, against
+ * {@code cheshire.core/parse-string} called through its var.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class JsonDecoderBenchmark
+{
+	private static final JsonDecoder KEYWORDS = JsonDecoder.DEFAULT.withKeywordKeys(true);
+
+	@Param({"10000"})
+	public int size;
+
+	private String json;
+
+	private byte[] bytes;
+
+	@Setup
+	public void setup()
+	{
+		final StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < size; i++)
+		{
+			builder.append(i > 0 ? "," : "").append("\"id").append(i).append("\":{\"name\":\"record ").append(i)
+				.append("\",\"score\":").append(i * 0.5).append(",\"active\":true,\"tags\":[\"a\",\"b\",").append(i % 7).append("]}");
+		}
+		json = builder.append('}').toString();
+		bytes = json.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public Object cheshire()
+	{
+		return ClojureJson.PARSE_STRING.invoke(json);
+	}
+
+	@Benchmark
+	public Object cheshireKeywords()
+	{
+		return ClojureJson.PARSE_STRING.invoke(json, true);
+	}
+
+	@Benchmark
+	public Object decoder()
+	{
+		return JsonDecoder.DEFAULT.read(json);
+	}
+
+	@Benchmark
+	public Object decoderKeywords()
+	{
+		return KEYWORDS.read(json);
+	}
+
+	@Benchmark
+	public Object decoderStream() throws IOException
+	{
+		return JsonDecoder.DEFAULT.read(new ByteArrayInputStream(bytes));
+	}
+}
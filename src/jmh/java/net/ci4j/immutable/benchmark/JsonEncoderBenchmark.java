@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.Keyword;
+import net.ci4j.immutable.clojure_utils.ClojureJson;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.json.JsonCache;
+import net.ci4j.immutable.json.JsonEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a map of records as JSON with {@link JsonEncoder} to a byte stream, against
+ * {@code cheshire.core/generate-string} called through its var and encoded to bytes, as a response would be.
+ * The {@code afterUpdate} benchmarks change one record of the map and write it again, as after a store dispatch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class JsonEncoderBenchmark
+{
+	@Param({"10000"})
+	public int size;
+
+	private ImmutableMap<Object, Object> map;
+
+	private CountingStream out;
+
+	private JsonEncoder cachedEncoder;
+
+	private int dispatch;
+
+	@Setup
+	public void setup()
+	{
+		final StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < size; i++)
+		{
+			builder.append(":id").append(i).append(" {:name \"record ").append(i).append("\" :score ").append(i * 0.5)
+				.append(" :active true :tags [\"a\" \"b\" ").append(i % 7).append("]} ");
+		}
+		map = ImmutableMap.fromString(builder.append('}').toString());
+		out = new CountingStream();
+		cachedEncoder = JsonEncoder.DEFAULT.withCache(new JsonCache());
+		cachedEncoder.writeString(map);
+	}
+
+	@Benchmark
+	public long cheshire() throws IOException
+	{
+		out.write(((String) ClojureJson.GENERATE_STRING.invoke(map.getRaw())).getBytes(StandardCharsets.UTF_8));
+		return out.count;
+	}
+
+	@Benchmark
+	public long encoderString() throws IOException
+	{
+		out.write(JsonEncoder.DEFAULT.writeString(map).getBytes(StandardCharsets.UTF_8));
+		return out.count;
+	}
+
+	@Benchmark
+	public long encoderStream() throws IOException
+	{
+		map.writeJson(out);
+		return out.count;
+	}
+
+	@Benchmark
+	public long uncachedAfterUpdate() throws IOException
+	{
+		JsonEncoder.DEFAULT.write(update(), out);
+		return out.count;
+	}
+
+	@Benchmark
+	public long cachedAfterUpdate() throws IOException
+	{
+		cachedEncoder.write(update(), out);
+		return out.count;
+	}
+
+	private ImmutableMap<Object, Object> update()
+	{
+		final Keyword id = Keyword.intern("id" + (dispatch++ % size));
+		return map.assoc(id, ((APersistentMap) map.get(id)).assoc(Keyword.intern("active"), false));
+	}
+
+	/**
+	 * Discards the bytes, so that only the encoding is measured.
+	 */
+	private static final class CountingStream extends OutputStream
+	{
+		long count;
+
+		@Override
+		public void write(int b)
+		{
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.APersistentMap;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.object.ImmutableBean;
+import net.ci4j.immutable.object.Lens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing a 4 key enum path of a bean through a precompiled {@link Lens} against the {@code valInEnum} and
+ * {@code assocInWithEnum} methods of {@link ImmutableBean}, which map the enum names over a seq on each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class LensBenchmark
+{
+	public enum Field
+	{
+		K0, K1, K2, K3, K4, K5, K6, K7, K8, K9, K10, K11, K12, K13, K14, K15
+	}
+
+	public static class State16 extends ImmutableBean<State16>
+	{
+		public static final State16 EMPTY = create(State16.class);
+
+		@Override
+		protected Class<State16> getConcreteClass()
+		{
+			return State16.class;
+		}
+
+		@Override
+		public State16 refEmpty()
+		{
+			return EMPTY;
+		}
+	}
+
+	private static final Lens PATH = Lens.ofEnums(Field.K3, Field.K7, Field.K11, Field.K15);
+
+	private State16 state;
+
+	private long counter;
+
+	@Setup
+	public void setup()
+	{
+		state = ImmutableBean.create(State16.class, (APersistentMap) ClojureRT.eval(
+			"(letfn [(level [d] (into {} (for [i (range 16)] [(str \"K\" i) (if (zero? d) i (level (dec d)))])))] (level 3))"));
+	}
+
+	@Benchmark
+	public Object valInEnum()
+	{
+		return state.valInEnum(null, Field.K3, Field.K7, Field.K11, Field.K15);
+	}
+
+	@Benchmark
+	public Object lensGet()
+	{
+		return PATH.get(state);
+	}
+
+	@Benchmark
+	public State16 assocInWithEnum()
+	{
+		return state.assocInWithEnum(counter++, Field.K3, Field.K7, Field.K11, Field.K15);
+	}
+
+	@Benchmark
+	public State16 lensSet()
+	{
+		return PATH.set(state, counter++);
+	}
+
+	@Benchmark
+	public State16 lensUpdate()
+	{
+		return PATH.update(state, (Long value) -> value + 1);
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.ArraySeq;
+import clojure.lang.IFn;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.collections.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nested path operations on a state of 4 levels of 16-entry maps, the Java loops of {@link ImmutableMap} against
+ * the {@code clojure.core} functions called through their vars with a seq of the keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class NestedPathBenchmark
+{
+	private static final IFn INC = ClojureRT.eval("inc");
+
+	private ImmutableMap<Object, Object> state;
+
+	private long counter;
+
+	@Setup
+	public void setup()
+	{
+		state = new ImmutableMap<>((APersistentMap) ClojureRT.eval(
+			"(letfn [(level [d] (into {} (for [i (range 16)] [(str \"k\" i) (if (zero? d) i (level (dec d)))])))] (level 3))"));
+	}
+
+	@Benchmark
+	public Object getIn()
+	{
+		return state.getIn("k3", "k7", "k11", "k15");
+	}
+
+	@Benchmark
+	public Object getInClojure()
+	{
+		return ClojureRT.GET_IN.invoke(state.getRaw(), ArraySeq.create("k3", "k7", "k11", "k15"));
+	}
+
+	@Benchmark
+	public ImmutableMap<Object, Object> assocIn()
+	{
+		return state.assocIn(counter++, "k3", "k7", "k11", "k15");
+	}
+
+	@Benchmark
+	public Object assocInClojure()
+	{
+		return ClojureRT.ASSOC_IN.invoke(state.getRaw(), ArraySeq.create("k3", "k7", "k11", "k15"), counter++);
+	}
+
+	@Benchmark
+	public ImmutableMap<Object, Object> updateIn()
+	{
+		return state.updateIn((Long value) -> value + 1, "k3", "k7", "k11", "k15");
+	}
+
+	@Benchmark
+	public Object updateInClojure()
+	{
+		return ClojureRT.UPDATE_IN.invoke(state.getRaw(), ArraySeq.create("k3", "k7", "k11", "k15"), INC);
+	}
+
+	@Benchmark
+	public ImmutableMap<Object, Object> assocIn16Paths()
+	{
+		ImmutableMap<Object, Object> result = state;
+		for (int i = 0; i < 16; i++)
+		{
+			result = result.assocIn(counter++, "k3", "k7", "k11", "k" + i);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public ImmutableMap<Object, Object> assocIn16PathsTransient()
+	{
+		return state.withMutations(trans -> {
+			for (int i = 0; i < 16; i++)
+			{
+				trans.assocIn(counter++, "k3", "k7", "k11", "k" + i);
+			}
+		});
+	}
+
+	@Benchmark
+	public Object assocIn16PathsClojure()
+	{
+		Object result = state.getRaw();
+		for (int i = 0; i < 16; i++)
+		{
+			result = ClojureRT.ASSOC_IN.invoke(result, ArraySeq.create("k3", "k7", "k11", "k" + i), counter++);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.APersistentSet;
+import clojure.lang.APersistentVector;
+import clojure.lang.ITransientCollection;
+import clojure.lang.PersistentHashSet;
+import clojure.lang.PersistentVector;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@code parallelStream()} of {@link ImmutableList} and {@link ImmutableSet}, which split along the trie,
+ * against the default iterator based parallel streams of the raw clojure collections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ParallelStreamBenchmark
+{
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	private ImmutableList<Long> list;
+
+	private ImmutableSet<Long> set;
+
+	@Setup
+	public void setup()
+	{
+		final ITransientCollection vector = PersistentVector.EMPTY.asTransient();
+		final ITransientCollection hashSet = PersistentHashSet.EMPTY.asTransient();
+		for (long i = 0; i < size; i++)
+		{
+			final Long item = i;
+			vector.conj(item);
+			hashSet.conj(item);
+		}
+		list = new ImmutableList<>((PersistentVector) vector.persistent());
+		set = new ImmutableSet<>((PersistentHashSet) hashSet.persistent());
+	}
+
+	@Benchmark
+	public long listWrapper()
+	{
+		return list.parallelStream().mapToLong(Long::longValue).sum();
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public long listRaw()
+	{
+		return ((APersistentVector) list.getRaw()).parallelStream().mapToLong(item -> (Long) item).sum();
+	}
+
+	@Benchmark
+	public long setWrapper()
+	{
+		return set.parallelStream().mapToLong(Long::longValue).sum();
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public long setRaw()
+	{
+		return ((APersistentSet) set.getRaw()).parallelStream().mapToLong(item -> (Long) item).sum();
+	}
+}
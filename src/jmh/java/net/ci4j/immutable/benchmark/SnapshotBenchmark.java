@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import net.ci4j.immutable.binary.Snapshot;
+import net.ci4j.immutable.collections.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading reference data and reading 1000 of its records: parsing JSON with {@link ImmutableMap#fromJson(String)}
+ * against mapping a {@link Snapshot}, and the lookups alone on each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class SnapshotBenchmark
+{
+	@Param({"100000"})
+	public int size;
+
+	private String json;
+
+	private Path file;
+
+	private ImmutableMap<String, Object> parsed;
+
+	private ImmutableMap<String, Object> mapped;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		final StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < size; i++)
+		{
+			builder.append(i > 0 ? "," : "").append("\"id").append(i).append("\":{\"name\":\"record ").append(i)
+				.append("\",\"score\":").append(i * 0.5).append(",\"tags\":[\"a\",\"b\",").append(i % 7).append("]}");
+		}
+		json = builder.append('}').toString();
+		parsed = ImmutableMap.fromJson(json);
+		file = Files.createTempFile("snapshot", ".bin");
+		Snapshot.write(parsed, file);
+		mapped = Snapshot.readMap(file);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		Files.delete(file);
+	}
+
+	@Benchmark
+	public Object loadJson()
+	{
+		return lookups(ImmutableMap.fromJson(json));
+	}
+
+	@Benchmark
+	public Object loadSnapshot() throws IOException
+	{
+		return lookups(Snapshot.readMap(file));
+	}
+
+	@Benchmark
+	public Object lookupsParsed()
+	{
+		return lookups(parsed);
+	}
+
+	@Benchmark
+	public Object lookupsMapped()
+	{
+		return lookups(mapped);
+	}
+
+	private Object lookups(ImmutableMap<String, Object> map)
+	{
+		Object last = null;
+		for (int i = 0; i < 1000; i++)
+		{
+			last = map.getIn("id" + (i * 97 % size), "name");
+		}
+		return last;
+	}
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.benchmark;
+
+import clojure.lang.ISeq;
+import clojure.lang.PersistentTreeMap;
+import clojure.lang.RT;
+import net.ci4j.immutable.collections.impl.PersistentBTreeMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PersistentBTreeMap}, with boxed and with primitive long keys, against clojure's red-black
+ * {@link PersistentTreeMap}.
+ * <p>
+ * Lookups and scans start from keys in a shuffled order so that every operation starts from a cold path.
+ * Bulk loads build the whole map from a {@link TreeMap}: the red-black tree by assoc, the B+ tree by packing leaves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class SortedMapBenchmark
+{
+	static
+	{
+		// clojure fails to boot when PersistentTreeMap is the first of its classes to be initialised
+		RT.var("clojure.core", "compare");
+	}
+
+	private static final long STRIDE = 7919;
+
+	private static final int SCAN = 100;
+
+	@Param({"1000", "1000000"})
+	public int size;
+
+	private TreeMap<Long, Object> source;
+
+	private PersistentTreeMap redBlack;
+
+	private PersistentBTreeMap bTree;
+
+	private PersistentBTreeMap longBTree;
+
+	private long[] keys;
+
+	private int cursor;
+
+	@Setup
+	public void setup()
+	{
+		source = new TreeMap<>();
+		PersistentTreeMap tree = PersistentTreeMap.EMPTY;
+		for (long i = 0; i < size; i++)
+		{
+			final Long value = i;
+			source.put(i * STRIDE, value);
+			tree = tree.assoc(i * STRIDE, value);
+		}
+		redBlack = tree;
+		bTree = PersistentBTreeMap.create(null, source);
+		longBTree = PersistentBTreeMap.createLong(source);
+
+		final Random random = new Random(42);
+		keys = new long[size];
+		for (int i = 0; i < size; i++)
+		{
+			keys[i] = i * STRIDE;
+		}
+		for (int i = size - 1; i > 0; i--)
+		{
+			final int j = random.nextInt(i + 1);
+			final long key = keys[i];
+			keys[i] = keys[j];
+			keys[j] = key;
+		}
+	}
+
+	private long nextKey()
+	{
+		cursor = cursor + 1 < size ? cursor + 1 : 0;
+		return keys[cursor];
+	}
+
+	@Benchmark
+	public Object getRedBlack()
+	{
+		return redBlack.valAt(nextKey());
+	}
+
+	@Benchmark
+	public Object getBTree()
+	{
+		return bTree.valAt(nextKey());
+	}
+
+	@Benchmark
+	public Object getLongBTree()
+	{
+		return longBTree.valAt(nextKey());
+	}
+
+	@Benchmark
+	public void scanRedBlack(Blackhole blackhole)
+	{
+		scan(redBlack.seqFrom(nextKey(), true), blackhole);
+	}
+
+	@Benchmark
+	public void scanBTree(Blackhole blackhole)
+	{
+		scan(bTree.seqFrom(nextKey(), true), blackhole);
+	}
+
+	@Benchmark
+	public void scanLongBTree(Blackhole blackhole)
+	{
+		scan(longBTree.seqFrom(nextKey(), true), blackhole);
+	}
+
+	private static void scan(ISeq seq, Blackhole blackhole)
+	{
+		for (int i = 0; i < SCAN && seq != null; i++, seq = seq.next())
+		{
+			blackhole.consume(seq.first());
+		}
+	}
+
+	@Benchmark
+	public PersistentTreeMap assocRedBlack()
+	{
+		return redBlack.assoc(nextKey(), this);
+	}
+
+	@Benchmark
+	public PersistentBTreeMap assocBTree()
+	{
+		return bTree.assoc(nextKey(), this);
+	}
+
+	@Benchmark
+	public PersistentBTreeMap assocLongBTree()
+	{
+		return longBTree.assoc(nextKey(), this);
+	}
+
+	@Benchmark
+	public PersistentTreeMap bulkLoadRedBlack()
+	{
+		PersistentTreeMap tree = PersistentTreeMap.EMPTY;
+		for (Map.Entry<Long, Object> entry : source.entrySet())
+		{
+			tree = tree.assoc(entry.getKey(), entry.getValue());
+		}
+		return tree;
+	}
+
+	@Benchmark
+	public PersistentBTreeMap bulkLoadBTree()
+	{
+		return PersistentBTreeMap.create(null, source);
+	}
+
+	@Benchmark
+	public PersistentBTreeMap bulkLoadLongBTree()
+	{
+		return PersistentBTreeMap.createLong(source);
+	}
+}
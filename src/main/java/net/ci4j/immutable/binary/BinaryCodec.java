@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.binary;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.APersistentSet;
+import clojure.lang.IPersistentList;
+import clojure.lang.IPersistentSet;
+import clojure.lang.IPersistentVector;
+import clojure.lang.ISeq;
+import clojure.lang.ITransientCollection;
+import clojure.lang.ITransientMap;
+import clojure.lang.PersistentArrayMap;
+import clojure.lang.PersistentHashMap;
+import clojure.lang.PersistentHashSet;
+import clojure.lang.PersistentList;
+import clojure.lang.PersistentVector;
+import net.ci4j.immutable.collections.ImmutableCollection;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.ImmutableSet;
+import net.ci4j.immutable.collections.impl.CollectionWalks;
+import net.ci4j.immutable.collections.impl.CollectionWalks.MapWalk;
+import net.ci4j.immutable.object.ImmutableBean;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A tagged binary format for immutable collections, written and read in one sequential pass.
+ * <p>
+ * Values are written as in {@link Snapshot}s, but the collections are inline: a map is {@code MAP, count} followed by
+ * its keys and values in turn, vectors, sets and lists are {@code tag, count} followed by their items. Maps are written
+ * through {@code kvreduce} and vectors leaf array by leaf array, and they are read back into transients.
+ * <pre>
+ *     BinaryCodec.write(state, out);
+ *     ...
+ *     ImmutableMap&lt;Keyword, Object&gt; state = BinaryCodec.readMap(in);
+ * </pre>
+ * Unlike JSON, keywords, symbols, sets, characters and the exact number types, {@link java.math.BigDecimal} scale
+ * included, are kept. The sorted collections are read back as hash maps and sets, and metadata is not written.
+ * The supported values are the ones of {@link Snapshot}.
+ * <p>
+ * {@link #writeValue(DataOutput, Object)} and {@link #readValue(DataInput)} write and read a single value as a part
+ * of a larger stream, for instance from {@code writeExternal} and {@code readExternal}. {@link ImmutableBean}s are
+ * serialized this way.
+ */
+public final class BinaryCodec
+{
+	private static final MapWalk<DataOutput> WRITE_ENTRIES = new MapWalk<>((out, key, value) -> {
+		writeValue(out, key);
+		writeValue(out, value);
+	});
+
+	/**
+	 * The largest map read into an array map.
+	 */
+	private static final int ARRAY_MAP_SIZE = 8;
+
+	private BinaryCodec()
+	{}
+
+	/**
+	 * Write the collection to the stream, which is flushed and left open.
+	 */
+	public static void write(ImmutableCollection<?> collection, OutputStream stream) throws IOException
+	{
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+		writeValue(out, collection);
+		out.flush();
+	}
+
+	public static byte[] toBytes(ImmutableCollection<?> collection)
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try
+		{
+			writeValue(new DataOutputStream(bytes), collection);
+		}
+		catch (IOException e)
+		{
+			// only a value which cannot be written can fail on a ByteArrayOutputStream
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Read a map from the stream, which is left open. Nothing is read past the map, pass a buffered stream.
+	 */
+	public static <K, V> ImmutableMap<K, V> readMap(InputStream in) throws IOException
+	{
+		return new ImmutableMap<>((APersistentMap) readValue(new DataInputStream(in)));
+	}
+
+	/**
+	 * Read a list from the stream, which is left open. Nothing is read past the list, pass a buffered stream.
+	 */
+	public static <E> ImmutableList<E> readList(InputStream in) throws IOException
+	{
+		return new ImmutableList<>((IPersistentVector) readValue(new DataInputStream(in)));
+	}
+
+	/**
+	 * Read a set from the stream, which is left open. Nothing is read past the set, pass a buffered stream.
+	 */
+	public static <E> ImmutableSet<E> readSet(InputStream in) throws IOException
+	{
+		return new ImmutableSet<>((APersistentSet) readValue(new DataInputStream(in)));
+	}
+
+	/**
+	 * Read the state of a bean from the stream, which is left open. Nothing is read past the state, pass a buffered
+	 * stream.
+	 */
+	public static <T extends ImmutableBean> T readBean(Class<T> clazz, InputStream in) throws IOException
+	{
+		return ImmutableBean.create(clazz, (APersistentMap) readValue(new DataInputStream(in)));
+	}
+
+	/**
+	 * @return the value of bytes written by {@link #toBytes(ImmutableCollection)}
+	 */
+	public static Object fromBytes(byte[] bytes)
+	{
+		try
+		{
+			return readValue(new DataInputStream(new ByteArrayInputStream(bytes)));
+		}
+		catch (IOException e)
+		{
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Write a value, scalar or collection, as a part of a larger output.
+	 *
+	 * @throws IllegalArgumentException if the value, or a value nested in it, is not supported
+	 */
+	public static void writeValue(DataOutput out, Object value) throws IOException
+	{
+		if (value instanceof ImmutableCollection)
+		{
+			value = ((ImmutableCollection) value).getRaw();
+		}
+		if (Tags.writeScalar(out, value))
+		{
+			return;
+		}
+		if (value instanceof Map)
+		{
+			writeMap(out, (Map<?, ?>) value);
+		}
+		else if (value instanceof IPersistentVector)
+		{
+			writeVector(out, (IPersistentVector) value);
+		}
+		else if (value instanceof IPersistentSet || value instanceof Set)
+		{
+			writeItems(out, Tags.SET, (Collection<?>) value);
+		}
+		else if (value instanceof IPersistentList || value instanceof ISeq)
+		{
+			writeItems(out, Tags.LIST, (Collection<?>) value);
+		}
+		else if (value instanceof List)
+		{
+			writeItems(out, Tags.VECTOR, (Collection<?>) value);
+		}
+		else
+		{
+			throw Tags.unsupported(value);
+		}
+	}
+
+	/**
+	 * Read a value written by {@link #writeValue(DataOutput, Object)}.
+	 */
+	public static Object readValue(DataInput in) throws IOException
+	{
+		final byte tag = in.readByte();
+		switch (tag)
+		{
+			case Tags.MAP:
+				final int size = in.readInt();
+				ITransientMap map = size <= ARRAY_MAP_SIZE ? PersistentArrayMap.EMPTY.asTransient() : PersistentHashMap.EMPTY.asTransient();
+				for (int i = 0; i < size; i++)
+				{
+					map = map.assoc(readValue(in), readValue(in));
+				}
+				return map.persistent();
+			case Tags.VECTOR:
+				return readItems(in, PersistentVector.EMPTY.asTransient());
+			case Tags.SET:
+				return readItems(in, PersistentHashSet.EMPTY.asTransient());
+			case Tags.LIST:
+				final int length = in.readInt();
+				final List<Object> items = new ArrayList<>(length);
+				for (int i = 0; i < length; i++)
+				{
+					items.add(readValue(in));
+				}
+				return PersistentList.create(items);
+			default:
+				return Tags.readScalar(in, tag);
+		}
+	}
+
+	private static Object readItems(DataInput in, ITransientCollection items) throws IOException
+	{
+		final int count = in.readInt();
+		for (int i = 0; i < count; i++)
+		{
+			items = items.conj(readValue(in));
+		}
+		return items.persistent();
+	}
+
+	private static void writeMap(DataOutput out, Map<?, ?> map) throws IOException
+	{
+		out.writeByte(Tags.MAP);
+		out.writeInt(map.size());
+		WRITE_ENTRIES.write(out, map);
+	}
+
+	private static void writeVector(DataOutput out, IPersistentVector vector) throws IOException
+	{
+		out.writeByte(Tags.VECTOR);
+		out.writeInt(vector.count());
+		CollectionWalks.writeItems(out, vector, BinaryCodec::writeValue);
+	}
+
+	private static void writeItems(DataOutput out, byte tag, Collection<?> items) throws IOException
+	{
+		out.writeByte(tag);
+		out.writeInt(items.size());
+		for (Object item : items)
+		{
+			writeValue(out, item);
+		}
+	}
+}
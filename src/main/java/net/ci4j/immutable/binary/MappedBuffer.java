@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read only file mapped in memory with long positions, in segments of 1GB since a single mapping is limited to 2GB.
+ * The reads which cross a segment boundary are assembled byte by byte.
+ */
+final class MappedBuffer
+{
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	private final MappedByteBuffer[] segments;
+
+	private final long size;
+
+	MappedBuffer(Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			this.size = channel.size();
+			this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+			for (int i = 0; i < segments.length; i++)
+			{
+				final long start = (long) i << SEGMENT_BITS;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, size - start));
+			}
+		}
+	}
+
+	long size()
+	{
+		return size;
+	}
+
+	byte get(long position)
+	{
+		return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+	}
+
+	int getInt(long position)
+	{
+		final int offset = (int) (position & SEGMENT_MASK);
+		if (offset <= SEGMENT_MASK - 3)
+		{
+			return segments[(int) (position >>> SEGMENT_BITS)].getInt(offset);
+		}
+		return (int) getSplit(position, 4);
+	}
+
+	long getLong(long position)
+	{
+		final int offset = (int) (position & SEGMENT_MASK);
+		if (offset <= SEGMENT_MASK - 7)
+		{
+			return segments[(int) (position >>> SEGMENT_BITS)].getLong(offset);
+		}
+		return getSplit(position, 8);
+	}
+
+	String getString(long position, int length)
+	{
+		final int offset = (int) (position & SEGMENT_MASK);
+		final byte[] bytes = new byte[length];
+		if (offset <= SEGMENT_MASK + 1 - length)
+		{
+			final ByteBuffer view = segments[(int) (position >>> SEGMENT_BITS)].duplicate();
+			view.position(offset);
+			view.get(bytes);
+		}
+		else
+		{
+			for (int i = 0; i < length; i++)
+			{
+				bytes[i] = get(position + i);
+			}
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private long getSplit(long position, int length)
+	{
+		long value = 0;
+		for (int i = 0; i < length; i++)
+		{
+			value = (value << 8) | (get(position + i) & 0xff);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.binary;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.IEditableCollection;
+import clojure.lang.IMapEntry;
+import clojure.lang.IPersistentCollection;
+import clojure.lang.IPersistentMap;
+import clojure.lang.ISeq;
+import clojure.lang.ITransientCollection;
+import clojure.lang.ITransientMap;
+import clojure.lang.MapEntry;
+import clojure.lang.PersistentArrayMap;
+import clojure.lang.PersistentHashMap;
+import clojure.lang.RT;
+import clojure.lang.Util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map node of a mapped snapshot. Lookups binary search the sorted key hashes in the file and decode only the
+ * candidate keys and the value found, nested maps and vectors being views too.
+ * <p>
+ * Any update first copies the entries into a {@link PersistentHashMap}, the nested values staying views, and applies
+ * to that copy. The copy is kept for the next updates and for serialization.
+ */
+final class MappedMap extends APersistentMap implements IEditableCollection
+{
+	private static final long serialVersionUID = 1L;
+
+	private final transient MappedSnapshot snapshot;
+
+	private final long node;
+
+	private final int count;
+
+	private transient volatile PersistentHashMap copy;
+
+	MappedMap(MappedSnapshot snapshot, long node)
+	{
+		this.snapshot = snapshot;
+		this.node = node;
+		this.count = snapshot.buffer.getInt(node + 1);
+	}
+
+	private long hashAt(int i)
+	{
+		return snapshot.buffer.getInt(node + 5 + 4L * i);
+	}
+
+	private long entryAt(int i)
+	{
+		return snapshot.buffer.getLong(node + 5 + 4L * count + 8L * i);
+	}
+
+	/**
+	 * @return the position of the entry of the key, -1 if not found
+	 */
+	private long find(Object key)
+	{
+		final int hash = Util.hasheq(key);
+		int low = 0;
+		int high = count - 1;
+		while (low < high)
+		{
+			final int mid = (low + high) >>> 1;
+			if (hashAt(mid) < hash)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		for (int i = low; i < count && hashAt(i) == hash; i++)
+		{
+			final long entry = entryAt(i);
+			if (Util.equiv(key, snapshot.slot(entry)))
+			{
+				return entry;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return find(key) >= 0;
+	}
+
+	@Override
+	public IMapEntry entryAt(Object key)
+	{
+		final long entry = find(key);
+		return entry >= 0 ? MapEntry.create(snapshot.slot(entry), snapshot.slot(snapshot.skip(entry))) : null;
+	}
+
+	@Override
+	public Object valAt(Object key)
+	{
+		return valAt(key, null);
+	}
+
+	@Override
+	public Object valAt(Object key, Object notFound)
+	{
+		final long entry = find(key);
+		return entry >= 0 ? snapshot.slot(snapshot.skip(entry)) : notFound;
+	}
+
+	@Override
+	public int count()
+	{
+		return count;
+	}
+
+	@Override
+	public Iterator iterator()
+	{
+		return new Iterator<Object>()
+		{
+			private int i;
+
+			@Override
+			public boolean hasNext()
+			{
+				return i < count;
+			}
+
+			@Override
+			public Object next()
+			{
+				if (i >= count) throw new NoSuchElementException();
+				final long entry = entryAt(i++);
+				return MapEntry.create(snapshot.slot(entry), snapshot.slot(snapshot.skip(entry)));
+			}
+		};
+	}
+
+	@Override
+	public ISeq seq()
+	{
+		return count > 0 ? RT.chunkIteratorSeq(iterator()) : null;
+	}
+
+	@Override
+	public IPersistentMap assoc(Object key, Object val)
+	{
+		return copy().assoc(key, val);
+	}
+
+	@Override
+	public IPersistentMap assocEx(Object key, Object val)
+	{
+		return copy().assocEx(key, val);
+	}
+
+	@Override
+	public IPersistentMap without(Object key)
+	{
+		return containsKey(key) ? copy().without(key) : this;
+	}
+
+	@Override
+	public IPersistentCollection empty()
+	{
+		return PersistentArrayMap.EMPTY;
+	}
+
+	@Override
+	public ITransientCollection asTransient()
+	{
+		return copy().asTransient();
+	}
+
+	private PersistentHashMap copy()
+	{
+		PersistentHashMap result = copy;
+		if (result == null)
+		{
+			ITransientMap trans = PersistentHashMap.EMPTY.asTransient();
+			for (int i = 0; i < count; i++)
+			{
+				final long entry = entryAt(i);
+				trans = trans.assoc(snapshot.slot(entry), snapshot.slot(snapshot.skip(entry)));
+			}
+			copy = result = (PersistentHashMap) trans.persistent();
+		}
+		return result;
+	}
+
+	/**
+	 * Serialized as a copy, the view being tied to the mapped file.
+	 */
+	private Object writeReplace()
+	{
+		return copy();
+	}
+}
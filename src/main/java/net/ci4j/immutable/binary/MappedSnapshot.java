@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.binary;
+
+import clojure.lang.ITransientCollection;
+import clojure.lang.PersistentHashSet;
+import clojure.lang.PersistentList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the slots and nodes of a mapped snapshot file. Maps and vectors are returned as views reading the file on
+ * access, sets and lists are decoded when they are reached.
+ */
+final class MappedSnapshot
+{
+	final MappedBuffer buffer;
+
+	MappedSnapshot(MappedBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	/**
+	 * @return the value of the slot at the position
+	 */
+	Object slot(long position)
+	{
+		final byte tag = buffer.get(position);
+		switch (tag)
+		{
+			case Tags.NULL:
+				return null;
+			case Tags.FALSE:
+				return Boolean.FALSE;
+			case Tags.TRUE:
+				return Boolean.TRUE;
+			case Tags.INT:
+				return buffer.getInt(position + 1);
+			case Tags.LONG:
+				return buffer.getLong(position + 1);
+			case Tags.FLOAT:
+				return Float.intBitsToFloat(buffer.getInt(position + 1));
+			case Tags.DOUBLE:
+				return Double.longBitsToDouble(buffer.getLong(position + 1));
+			case Tags.CHAR:
+				return (char) ((buffer.get(position + 1) & 0xff) << 8 | (buffer.get(position + 2) & 0xff));
+			case Tags.REF:
+				return node(buffer.getLong(position + 1));
+			default:
+				if (Tags.isText(tag))
+				{
+					return Tags.fromText(tag, buffer.getString(position + 5, buffer.getInt(position + 1)));
+				}
+				throw new IllegalStateException("Corrupted snapshot, unknown tag " + tag + " at " + position);
+		}
+	}
+
+	/**
+	 * @return the position following the slot at the position
+	 */
+	long skip(long position)
+	{
+		final byte tag = buffer.get(position);
+		switch (tag)
+		{
+			case Tags.NULL:
+			case Tags.FALSE:
+			case Tags.TRUE:
+				return position + 1;
+			case Tags.CHAR:
+				return position + 3;
+			case Tags.INT:
+			case Tags.FLOAT:
+				return position + 5;
+			default:
+				return Tags.isText(tag) ? position + 5 + buffer.getInt(position + 1) : position + 9;
+		}
+	}
+
+	Object node(long offset)
+	{
+		final byte tag = buffer.get(offset);
+		switch (tag)
+		{
+			case Tags.MAP:
+				return new MappedMap(this, offset);
+			case Tags.VECTOR:
+				return new MappedVector(this, offset);
+			case Tags.SET:
+				final int size = buffer.getInt(offset + 1);
+				ITransientCollection set = PersistentHashSet.EMPTY.asTransient();
+				for (int i = 0; i < size; i++)
+				{
+					set = set.conj(slot(buffer.getLong(offset + 5 + 8L * i)));
+				}
+				return set.persistent();
+			case Tags.LIST:
+				final int length = buffer.getInt(offset + 1);
+				final List<Object> items = new ArrayList<>(length);
+				for (int i = 0; i < length; i++)
+				{
+					items.add(slot(buffer.getLong(offset + 5 + 8L * i)));
+				}
+				return PersistentList.create(items);
+			default:
+				throw new IllegalStateException("Corrupted snapshot, no collection node at " + offset);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.binary;
+
+import clojure.lang.APersistentVector;
+import clojure.lang.IEditableCollection;
+import clojure.lang.IPersistentCollection;
+import clojure.lang.IPersistentStack;
+import clojure.lang.IPersistentVector;
+import clojure.lang.ITransientCollection;
+import clojure.lang.ITransientVector;
+import clojure.lang.PersistentVector;
+
+/**
+ * A vector node of a mapped snapshot, {@code nth} reads the offset of the item and decodes it. Like
+ * {@link MappedMap}, updates apply to a {@link PersistentVector} copy.
+ */
+final class MappedVector extends APersistentVector implements IEditableCollection
+{
+	private static final long serialVersionUID = 1L;
+
+	private final transient MappedSnapshot snapshot;
+
+	private final long node;
+
+	private final int count;
+
+	private transient volatile PersistentVector copy;
+
+	MappedVector(MappedSnapshot snapshot, long node)
+	{
+		this.snapshot = snapshot;
+		this.node = node;
+		this.count = snapshot.buffer.getInt(node + 1);
+	}
+
+	@Override
+	public Object nth(int i)
+	{
+		if (i < 0 || i >= count)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+		return snapshot.slot(snapshot.buffer.getLong(node + 5 + 8L * i));
+	}
+
+	@Override
+	public int count()
+	{
+		return count;
+	}
+
+	@Override
+	public IPersistentVector assocN(int i, Object val)
+	{
+		return copy().assocN(i, val);
+	}
+
+	@Override
+	public IPersistentVector cons(Object o)
+	{
+		return copy().cons(o);
+	}
+
+	@Override
+	public IPersistentStack pop()
+	{
+		return copy().pop();
+	}
+
+	@Override
+	public IPersistentCollection empty()
+	{
+		return PersistentVector.EMPTY;
+	}
+
+	@Override
+	public ITransientCollection asTransient()
+	{
+		return copy().asTransient();
+	}
+
+	private PersistentVector copy()
+	{
+		PersistentVector result = copy;
+		if (result == null)
+		{
+			ITransientVector trans = PersistentVector.EMPTY.asTransient();
+			for (int i = 0; i < count; i++)
+			{
+				trans = (ITransientVector) trans.conj(nth(i));
+			}
+			copy = result = (PersistentVector) trans.persistent();
+		}
+		return result;
+	}
+
+	/**
+	 * Serialized as a copy, the view being tied to the mapped file.
+	 */
+	private Object writeReplace()
+	{
+		return copy();
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.binary;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.APersistentSet;
+import clojure.lang.IPersistentVector;
+import net.ci4j.immutable.collections.ImmutableCollection;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.ImmutableSet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Binary snapshots of immutable collections, read back through a memory mapped file.
+ * <p>
+ * Reading a snapshot only maps the file and checks its header: the maps and vectors of the result are views which
+ * decode the entries they are asked for from the mapped file, so opening a large snapshot is instant and the parts
+ * which are never read stay off heap, in the page cache. Map lookups binary search a table of the key hashes and
+ * vector lookups read a table of item offsets. Sets and lists are decoded in full when they are reached.
+ * <pre>
+ *     Snapshot.write(referenceData, Paths.get("reference.snap"));
+ *     ...
+ *     ImmutableMap&lt;String, Object&gt; referenceData = Snapshot.readMap(Paths.get("reference.snap"));
+ * </pre>
+ * The views are regular clojure maps and vectors: updating them copies the updated level into a hash map or a vector,
+ * the untouched nested values staying views. The file must not be modified while a snapshot of it is in use.
+ * <p>
+ * Supported values are nil, booleans, ints, longs, floats, doubles, characters, strings, keywords, symbols,
+ * {@code BigInt}, {@link java.math.BigInteger}, {@link java.math.BigDecimal}, ratios and nested maps, vectors, sets,
+ * lists and immutable collections.
+ */
+public final class Snapshot
+{
+	static final byte[] MAGIC = "CI4JSNP1".getBytes(StandardCharsets.US_ASCII);
+
+	private static final int TRAILER = 8 + MAGIC.length;
+
+	private Snapshot()
+	{}
+
+	/**
+	 * Write the collection to the file, replacing it.
+	 */
+	public static void write(ImmutableCollection<?> collection, Path file) throws IOException
+	{
+		try (OutputStream stream = Files.newOutputStream(file))
+		{
+			final SnapshotWriter writer = new SnapshotWriter(stream);
+			writer.writeHeader();
+			writer.writeTrailer(writer.writeNode(collection));
+		}
+	}
+
+	public static <K, V> ImmutableMap<K, V> readMap(Path file) throws IOException
+	{
+		return new ImmutableMap<>((APersistentMap) read(file));
+	}
+
+	public static <E> ImmutableList<E> readList(Path file) throws IOException
+	{
+		return new ImmutableList<>((IPersistentVector) read(file));
+	}
+
+	public static <E> ImmutableSet<E> readSet(Path file) throws IOException
+	{
+		return new ImmutableSet<>((APersistentSet) read(file));
+	}
+
+	private static Object read(Path file) throws IOException
+	{
+		final MappedBuffer buffer = new MappedBuffer(file);
+		final long size = buffer.size();
+		if (size < MAGIC.length + TRAILER || !hasMagic(buffer, 0) || !hasMagic(buffer, size - MAGIC.length))
+		{
+			throw new IOException("Not a snapshot file: " + file);
+		}
+		return new MappedSnapshot(buffer).node(buffer.getLong(size - TRAILER));
+	}
+
+	private static boolean hasMagic(MappedBuffer buffer, long position)
+	{
+		final byte[] bytes = new byte[MAGIC.length];
+		for (int i = 0; i < bytes.length; i++)
+		{
+			bytes[i] = buffer.get(position + i);
+		}
+		return Arrays.equals(MAGIC, bytes);
+	}
+
+	static boolean isCollection(Object value)
+	{
+		return value instanceof ImmutableCollection || value instanceof Map || value instanceof Collection;
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.binary;
+
+import clojure.lang.IPersistentList;
+import clojure.lang.IPersistentSet;
+import clojure.lang.IPersistentVector;
+import clojure.lang.ISeq;
+import clojure.lang.Util;
+import net.ci4j.immutable.collections.ImmutableCollection;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the nodes of a snapshot children first, so the file is written in one sequential pass: a collection node
+ * is written after all the nested collections it refers to.
+ * <p>
+ * A map node is {@code MAP, count, hashes, offsets}: the {@code hasheq} of the keys sorted ascending, then the
+ * offsets of the matching entries, each entry being its key slot followed by its value slot. Vector, set and list
+ * nodes are {@code tag, count, offsets} of their item slots in order. A slot is a scalar or a {@code REF} to a node.
+ */
+final class SnapshotWriter
+{
+	private final PositionOutputStream position;
+
+	private final DataOutputStream out;
+
+	SnapshotWriter(OutputStream stream)
+	{
+		this.position = new PositionOutputStream(new BufferedOutputStream(stream, 1 << 16));
+		this.out = new DataOutputStream(position);
+	}
+
+	void writeHeader() throws IOException
+	{
+		out.write(Snapshot.MAGIC);
+	}
+
+	/**
+	 * @return the offset of the node of the collection
+	 */
+	long writeNode(Object collection) throws IOException
+	{
+		if (collection instanceof ImmutableCollection)
+		{
+			collection = ((ImmutableCollection) collection).getRaw();
+		}
+		if (collection instanceof Map)
+		{
+			return writeMap((Map<?, ?>) collection);
+		}
+		if (collection instanceof IPersistentVector)
+		{
+			return writeItems(Tags.VECTOR, (Collection<?>) collection);
+		}
+		if (collection instanceof IPersistentSet || collection instanceof Set)
+		{
+			return writeItems(Tags.SET, (Collection<?>) collection);
+		}
+		if (collection instanceof IPersistentList || collection instanceof ISeq)
+		{
+			return writeItems(Tags.LIST, (Collection<?>) collection);
+		}
+		if (collection instanceof List)
+		{
+			return writeItems(Tags.VECTOR, (Collection<?>) collection);
+		}
+		throw Tags.unsupported(collection);
+	}
+
+	void writeTrailer(long root) throws IOException
+	{
+		out.writeLong(root);
+		out.write(Snapshot.MAGIC);
+		out.flush();
+	}
+
+	private long writeMap(Map<?, ?> map) throws IOException
+	{
+		final int count = map.size();
+		final long[] order = new long[count];
+		final long[] offsets = new long[count];
+		int i = 0;
+		for (Map.Entry<?, ?> entry : map.entrySet())
+		{
+			final long keyRef = writeChild(entry.getKey());
+			final long valueRef = writeChild(entry.getValue());
+			offsets[i] = position.count;
+			writeSlot(entry.getKey(), keyRef);
+			writeSlot(entry.getValue(), valueRef);
+			// the signed hash in the high half sorts the entries by hash, the low half keeps the entry index
+			order[i] = ((long) Util.hasheq(entry.getKey()) << 32) | i;
+			i++;
+		}
+		Arrays.sort(order);
+		final long node = position.count;
+		out.writeByte(Tags.MAP);
+		out.writeInt(count);
+		for (long hashAndIndex : order)
+		{
+			out.writeInt((int) (hashAndIndex >> 32));
+		}
+		for (long hashAndIndex : order)
+		{
+			out.writeLong(offsets[(int) hashAndIndex]);
+		}
+		return node;
+	}
+
+	private long writeItems(byte tag, Collection<?> items) throws IOException
+	{
+		final long[] offsets = new long[items.size()];
+		int i = 0;
+		for (Object item : items)
+		{
+			final long ref = writeChild(item);
+			offsets[i++] = position.count;
+			writeSlot(item, ref);
+		}
+		final long node = position.count;
+		out.writeByte(tag);
+		out.writeInt(offsets.length);
+		for (long offset : offsets)
+		{
+			out.writeLong(offset);
+		}
+		return node;
+	}
+
+	/**
+	 * @return the offset of the node of a collection, -1 for a scalar which is written in its slot
+	 */
+	private long writeChild(Object value) throws IOException
+	{
+		return Snapshot.isCollection(value) ? writeNode(value) : -1;
+	}
+
+	private void writeSlot(Object value, long ref) throws IOException
+	{
+		if (ref >= 0)
+		{
+			out.writeByte(Tags.REF);
+			out.writeLong(ref);
+		}
+		else if (!Tags.writeScalar(out, value))
+		{
+			throw Tags.unsupported(value);
+		}
+	}
+
+	private static final class PositionOutputStream extends FilterOutputStream
+	{
+		private long count;
+
+		PositionOutputStream(OutputStream out)
+		{
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.binary;
+
+import clojure.lang.BigInt;
+import clojure.lang.Keyword;
+import clojure.lang.Ratio;
+import clojure.lang.Symbol;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The type tags of the binary formats and the encoding of the scalar values.
+ * <p>
+ * Every value starts with a one byte tag. Fixed size scalars follow with their big endian bytes, the others with an
+ * int length and their UTF-8 text: a keyword or a symbol as {@code ns/name}, numbers in their {@code toString} form.
+ * Only the layout following the collection tags differs between the formats.
+ */
+final class Tags
+{
+	static final byte NULL = 0;
+	static final byte FALSE = 1;
+	static final byte TRUE = 2;
+	static final byte INT = 3;
+	static final byte LONG = 4;
+	static final byte FLOAT = 5;
+	static final byte DOUBLE = 6;
+	static final byte CHAR = 7;
+	static final byte STRING = 8;
+	static final byte KEYWORD = 9;
+	static final byte SYMBOL = 10;
+	static final byte BIG_INT = 11;
+	static final byte BIG_INTEGER = 12;
+	static final byte BIG_DECIMAL = 13;
+	static final byte RATIO = 14;
+
+	/**
+	 * Offset of a collection node elsewhere in a snapshot.
+	 */
+	static final byte REF = 20;
+	static final byte MAP = 21;
+	static final byte VECTOR = 22;
+	static final byte SET = 23;
+	static final byte LIST = 24;
+
+	private Tags()
+	{}
+
+	/**
+	 * @return false if the value is not a scalar, nothing is written then
+	 */
+	static boolean writeScalar(DataOutput out, Object value) throws IOException
+	{
+		if (value == null)
+		{
+			out.writeByte(NULL);
+		}
+		else if (value instanceof Boolean)
+		{
+			out.writeByte((Boolean) value ? TRUE : FALSE);
+		}
+		else if (value instanceof Long)
+		{
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		}
+		else if (value instanceof String)
+		{
+			writeText(out, STRING, (String) value);
+		}
+		else if (value instanceof Keyword)
+		{
+			writeText(out, KEYWORD, ((Keyword) value).sym.toString());
+		}
+		else if (value instanceof Integer)
+		{
+			out.writeByte(INT);
+			out.writeInt((Integer) value);
+		}
+		else if (value instanceof Double)
+		{
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		}
+		else if (value instanceof Float)
+		{
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		}
+		else if (value instanceof Character)
+		{
+			out.writeByte(CHAR);
+			out.writeChar((Character) value);
+		}
+		else if (value instanceof Symbol)
+		{
+			writeText(out, SYMBOL, value.toString());
+		}
+		else if (value instanceof BigInt)
+		{
+			writeText(out, BIG_INT, ((BigInt) value).toBigInteger().toString());
+		}
+		else if (value instanceof BigInteger)
+		{
+			writeText(out, BIG_INTEGER, value.toString());
+		}
+		else if (value instanceof BigDecimal)
+		{
+			writeText(out, BIG_DECIMAL, value.toString());
+		}
+		else if (value instanceof Ratio)
+		{
+			writeText(out, RATIO, value.toString());
+		}
+		else
+		{
+			return false;
+		}
+		return true;
+	}
+
+	private static void writeText(DataOutput out, byte tag, String text) throws IOException
+	{
+		final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.writeByte(tag);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Read the payload of a scalar whose tag has already been read.
+	 */
+	static Object readScalar(DataInput in, byte tag) throws IOException
+	{
+		switch (tag)
+		{
+			case NULL:
+				return null;
+			case FALSE:
+				return Boolean.FALSE;
+			case TRUE:
+				return Boolean.TRUE;
+			case INT:
+				return in.readInt();
+			case LONG:
+				return in.readLong();
+			case FLOAT:
+				return in.readFloat();
+			case DOUBLE:
+				return in.readDouble();
+			case CHAR:
+				return in.readChar();
+			default:
+				if (isText(tag))
+				{
+					final byte[] bytes = new byte[in.readInt()];
+					in.readFully(bytes);
+					return fromText(tag, new String(bytes, StandardCharsets.UTF_8));
+				}
+				throw new IOException("Corrupted binary data, unknown tag " + tag);
+		}
+	}
+
+	/**
+	 * @return the value of a scalar with a text payload
+	 */
+	static Object fromText(byte tag, String text)
+	{
+		switch (tag)
+		{
+			case STRING:
+				return text;
+			case KEYWORD:
+				return Keyword.intern(text);
+			case SYMBOL:
+				return Symbol.intern(text);
+			case BIG_INT:
+				return BigInt.fromBigInteger(new BigInteger(text));
+			case BIG_INTEGER:
+				return new BigInteger(text);
+			case BIG_DECIMAL:
+				return new BigDecimal(text);
+			case RATIO:
+				final int slash = text.indexOf('/');
+				return new Ratio(new BigInteger(text.substring(0, slash)), new BigInteger(text.substring(slash + 1)));
+			default:
+				throw new IllegalArgumentException("Not a text tag: " + tag);
+		}
+	}
+
+	static boolean isText(byte tag)
+	{
+		return tag >= STRING && tag <= RATIO;
+	}
+
+	static IllegalArgumentException unsupported(Object value)
+	{
+		return new IllegalArgumentException("Unsupported type in binary format: " + value.getClass().getName());
+	}
+}
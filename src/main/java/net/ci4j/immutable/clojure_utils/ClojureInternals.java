@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.clojure_utils;
+
+import clojure.lang.APersistentSet;
+import clojure.lang.IPersistentMap;
+import clojure.lang.PersistentHashMap;
+
+import java.lang.reflect.Field;
+
+/**
+ * Read access to package-private internals of clojure collections, for traversals that need the underlying
+ * trie instead of the public seq/iterator API.
+ */
+public class ClojureInternals
+{
+	private static final Field SET_IMPL = field(APersistentSet.class, "impl");
+
+	private static final Field HASH_MAP_ROOT = field(PersistentHashMap.class, "root");
+
+	private static final Field HASH_MAP_HAS_NULL = field(PersistentHashMap.class, "hasNull");
+
+	private static final Field HASH_MAP_NULL_VALUE = field(PersistentHashMap.class, "nullValue");
+
+	private static final Class<?> ARRAY_NODE = nestedClass(PersistentHashMap.class, "ArrayNode");
+
+	private static final Field ARRAY_NODE_ARRAY = field(ARRAY_NODE, "array");
+
+	private static final Class<?> BITMAP_INDEXED_NODE = nestedClass(PersistentHashMap.class, "BitmapIndexedNode");
+
+	private static final Field BITMAP_INDEXED_NODE_ARRAY = field(BITMAP_INDEXED_NODE, "array");
+
+	private static final Field BITMAP_INDEXED_NODE_BITMAP = field(BITMAP_INDEXED_NODE, "bitmap");
+
+	private static final Field HASH_COLLISION_NODE_ARRAY = field(nestedClass(PersistentHashMap.class, "HashCollisionNode"), "array");
+
+	/**
+	 * @return the map backing the given set, its keys are the items of the set
+	 */
+	public static IPersistentMap setImpl(APersistentSet set)
+	{
+		return (IPersistentMap) get(SET_IMPL, set);
+	}
+
+	/**
+	 * @return the root node of the hash trie, null if the map holds no entry or only the null key
+	 */
+	public static Object hashMapRoot(PersistentHashMap map)
+	{
+		return get(HASH_MAP_ROOT, map);
+	}
+
+	/**
+	 * @return true if the map contains the null key, which is stored outside of the trie
+	 */
+	public static boolean hashMapHasNull(PersistentHashMap map)
+	{
+		return (Boolean) get(HASH_MAP_HAS_NULL, map);
+	}
+
+	/**
+	 * @return the value mapped to the null key
+	 */
+	public static Object hashMapNullValue(PersistentHashMap map)
+	{
+		return get(HASH_MAP_NULL_VALUE, map);
+	}
+
+	/**
+	 * @return true if the given trie node is an ArrayNode, whose array only holds child nodes (null for empty slots)
+	 */
+	public static boolean isArrayNode(Object node)
+	{
+		return node.getClass() == ARRAY_NODE;
+	}
+
+	/**
+	 * @return true if the given trie node is a BitmapIndexedNode, whose array holds a pair per bit of its bitmap
+	 */
+	public static boolean isBitmapIndexedNode(Object node)
+	{
+		return node.getClass() == BITMAP_INDEXED_NODE;
+	}
+
+	/**
+	 * @return the bitmap of a BitmapIndexedNode, the set bits are the hash fragments present in the node
+	 */
+	public static int nodeBitmap(Object node)
+	{
+		return (Integer) get(BITMAP_INDEXED_NODE_BITMAP, node);
+	}
+
+	/**
+	 * Array of a trie node.
+	 * <p>
+	 * For an ArrayNode it holds 32 child slots. For other nodes it holds (key, value) pairs, a pair with a null key
+	 * and a non-null value holds a child node, a pair with both null is an unused slot.
+	 */
+	public static Object[] nodeArray(Object node)
+	{
+		final Class<?> type = node.getClass();
+		if (type == ARRAY_NODE)
+		{
+			return (Object[]) get(ARRAY_NODE_ARRAY, node);
+		}
+		else if (type == BITMAP_INDEXED_NODE)
+		{
+			return (Object[]) get(BITMAP_INDEXED_NODE_ARRAY, node);
+		}
+		else
+		{
+			return (Object[]) get(HASH_COLLISION_NODE_ARRAY, node);
+		}
+	}
+
+	private static Object get(Field field, Object target)
+	{
+		try
+		{
+			return field.get(target);
+		}
+		catch (IllegalAccessException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Class<?> nestedClass(Class<?> outer, String name)
+	{
+		try
+		{
+			return Class.forName(outer.getName() + "$" + name, false, outer.getClassLoader());
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IllegalStateException("Incompatible clojure version, " + outer.getName() + "$" + name + " not found", e);
+		}
+	}
+
+	private static Field field(Class<?> type, String name)
+	{
+		try
+		{
+			final Field field = type.getDeclaredField(name);
+			field.setAccessible(true);
+			return field;
+		}
+		catch (NoSuchFieldException e)
+		{
+			throw new IllegalStateException("Incompatible clojure version, " + type.getName() + "." + name + " not found", e);
+		}
+	}
+}
@@ -71,7 +71,15 @@ public class ClojureRT
 	public static final IFn STR = var("clojure.core", "str");
 	public static final IFn INC = var("clojure.core", "inc");
 	public static final IFn DEC = var("clojure.core", "dec");
+	/**
+	 * @deprecated O(n) with a lazy seq allocation per item, use {@link net.ci4j.immutable.collections.ImmutableList#dissocN(int)} instead.
+	 */
+	@Deprecated
 	public static final IFn REMOVE_NTH_IN_VEC = eval("(fn [v i] (vec (concat (subvec v 0 i) (subvec v (inc i)))))");
+	/**
+	 * @deprecated O(n) with a lazy seq allocation per item, use {@link net.ci4j.immutable.collections.ImmutableList#insert(int, Object)} instead.
+	 */
+	@Deprecated
 	public static final IFn INSERT_NTH_IN_VEC = eval("(fn [v i o] (let [[before after] (split-at i v)] (vec (concat before [o] after))))");
 
 	public static final IFn SPEC_VALID = var("clojure.spec.alpha", "valid?");
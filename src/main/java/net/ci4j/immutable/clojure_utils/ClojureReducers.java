@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.clojure_utils;
+
+import clojure.lang.IDeref;
+import clojure.lang.IFn;
+import clojure.lang.IPersistentMap;
+import clojure.lang.PersistentHashMap;
+import net.ci4j.immutable.fn.Fn;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class ClojureReducers
+{
+	static {
+		ClojureRT.require("clojure.core.reducers");
+	}
+
+	/**
+	 * Default number of items reduced sequentially by one fork/join task, same as {@code clojure.core.reducers/fold}.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 512;
+
+	public static final IFn FOLD = ClojureRT.var("clojure.core.reducers", "fold");
+
+	private static final IDeref POOL = (IDeref) ClojureRT.var("clojure.core.reducers", "pool").deref();
+
+	private static final IFn FJ_INVOKE = Fn.fn((Callable<Object> task) -> ForkJoinTask.inForkJoinPool()
+		? ForkJoinTask.adapt(task).invoke()
+		: ((ForkJoinPool) POOL.deref()).invoke(ForkJoinTask.adapt(task)));
+
+	private static final IFn FJ_TASK = Fn.fn((Callable<Object> task) -> ForkJoinTask.adapt(task));
+
+	private static final IFn FJ_FORK = Fn.fn((ForkJoinTask<Object> task) -> task.fork());
+
+	private static final IFn FJ_JOIN = Fn.fn((ForkJoinTask<Object> task) -> task.join());
+
+	/**
+	 * Same as {@code clojure.core.reducers/fold} on a map, the reducer is called with (result, key, value).
+	 * <p>
+	 * Hash maps are folded through {@link PersistentHashMap#fold} directly, because the reducers library
+	 * fails with a ClassCastException when a hash map is folded from inside a fork/join worker thread.
+	 * Called from a worker, the fold runs on that worker's pool, otherwise on the reducers pool.
+	 */
+	public static Object fold(IPersistentMap map, int chunkSize, IFn combiner, IFn reducer)
+	{
+		if (map instanceof PersistentHashMap)
+		{
+			return ((PersistentHashMap) map).fold(chunkSize, combiner, reducer, FJ_INVOKE, FJ_TASK, FJ_FORK, FJ_JOIN);
+		}
+		return FOLD.invoke(chunkSize, combiner, reducer, map);
+	}
+}
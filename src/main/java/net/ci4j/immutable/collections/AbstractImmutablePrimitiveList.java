@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.core.Vec;
+import clojure.lang.IPersistentVector;
+import net.ci4j.immutable.collections.impl.PrimitiveVecs;
+import net.ci4j.immutable.collections.impl.StructuralEquals;
+
+import java.util.Spliterator;
+
+/**
+ * The trie and tail handling shared by {@link ImmutableLongList}, {@link ImmutableIntList} and
+ * {@link ImmutableDoubleList}. Items are kept in the primitive leaf arrays of a clojure primitive vector
+ * ({@code (vector-of :long)} and friends); subclasses read and write the typed arrays, this class copies them and
+ * rebuilds the vector around them, so that items are never boxed.
+ *
+ * @param <E> boxed item type
+ * @param <L> the concrete list type returned by updates
+ */
+@SuppressWarnings("unchecked")
+abstract class AbstractImmutablePrimitiveList<E, L extends AbstractImmutablePrimitiveList<E, L>> implements Iterable<E>, ImmutableCollection<IPersistentVector>
+{
+	final Vec vec;
+
+	private int hash;
+
+	/**
+	 * @param vec a clojure primitive vector of the item type, null for the empty list
+	 * @param empty the empty vector of the item type
+	 * @param type the {@code vector-of} type keyword of the items
+	 * @throws IllegalArgumentException if the given vector is not a primitive vector of the item type
+	 */
+	AbstractImmutablePrimitiveList(IPersistentVector vec, Vec empty, String type)
+	{
+		if (vec == null)
+		{
+			this.vec = empty;
+		}
+		else if (vec instanceof Vec && ((Vec) vec).am == empty.am)
+		{
+			this.vec = (Vec) vec;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Not a (vector-of :" + type + "): " + vec.getClass().getName());
+		}
+	}
+
+	abstract L wrap(Vec vec);
+
+	/**
+	 * @return a new primitive array of the item type
+	 */
+	abstract Object newArray(int length);
+
+	/**
+	 * @return {@code h} combined with the items of the leaf, the way {@link java.util.List#hashCode()} does
+	 */
+	abstract int hashLeaf(int h, Object leaf);
+
+	public int size()
+	{
+		return vec.cnt;
+	}
+
+	public boolean isEmpty()
+	{
+		return vec.cnt == 0;
+	}
+
+	/**
+	 * @return a copy of the tail with one more slot at its end, or a new leaf of one slot when the tail is full. The
+	 * caller sets the last slot and passes the array to {@link #withAppended(Object)}.
+	 */
+	final Object appendSlot()
+	{
+		final int tailLength = PrimitiveVecs.tailLength(vec);
+		if (tailLength < 32 && vec.cnt > 0)
+		{
+			final Object newTail = newArray(tailLength + 1);
+			System.arraycopy(vec.tail, 0, newTail, 0, tailLength);
+			return newTail;
+		}
+		return newArray(1);
+	}
+
+	/**
+	 * @param newTail the array returned by {@link #appendSlot()}, its last slot set
+	 */
+	final L withAppended(Object newTail)
+	{
+		final int tailLength = PrimitiveVecs.tailLength(vec);
+		return wrap(tailLength < 32 && vec.cnt > 0
+			? PrimitiveVecs.withTail(vec, newTail, tailLength + 1)
+			: PrimitiveVecs.pushTail(vec, newTail, 1));
+	}
+
+	/**
+	 * Append the first {@code length} items of a primitive array of the item type: the tail is filled first, then
+	 * the remaining items are pushed a leaf at a time.
+	 */
+	final L appendAll(Object items, int length)
+	{
+		if (length == 0)
+		{
+			return (L) this;
+		}
+		Vec result = vec;
+		int from = 0;
+		final int tailLength = PrimitiveVecs.tailLength(result);
+		if (tailLength < 32 && result.cnt > 0)
+		{
+			final int fill = Math.min(32 - tailLength, length);
+			final Object newTail = newArray(tailLength + fill);
+			System.arraycopy(result.tail, 0, newTail, 0, tailLength);
+			System.arraycopy(items, 0, newTail, tailLength, fill);
+			result = PrimitiveVecs.withTail(result, newTail, tailLength + fill);
+			from = fill;
+		}
+		while (from < length)
+		{
+			final int leafLength = Math.min(32, length - from);
+			final Object leaf = newArray(leafLength);
+			System.arraycopy(items, from, leaf, 0, leafLength);
+			result = PrimitiveVecs.pushTail(result, leaf, leafLength);
+			from += leafLength;
+		}
+		return wrap(result);
+	}
+
+	/**
+	 * @param newLeaf a copy of the leaf holding the item at the given index, with the item replaced
+	 */
+	final L withLeaf(int index, Object newLeaf)
+	{
+		return wrap(PrimitiveVecs.withLeaf(vec, index, newLeaf));
+	}
+
+	/**
+	 * @return a new primitive array of the item type holding all the items, leaf by leaf
+	 */
+	final Object copyItems()
+	{
+		final Object result = newArray(vec.cnt);
+		for (int i = 0; i < vec.cnt; i += 32)
+		{
+			System.arraycopy(vec.arrayFor(i), 0, result, i, Math.min(32, vec.cnt - i));
+		}
+		return result;
+	}
+
+	/**
+	 * @return a new list without the last item
+	 * @throws IllegalStateException if the list is empty
+	 */
+	public L pop()
+	{
+		return wrap((Vec) vec.pop());
+	}
+
+	@Override
+	public IPersistentVector getRaw()
+	{
+		return vec;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		final AbstractImmutablePrimitiveList<?, ?> that = (AbstractImmutablePrimitiveList<?, ?>) o;
+		if (vec.cnt != that.vec.cnt) return false;
+		if (hash != 0 && that.hash != 0 && hash != that.hash) return false;
+		return StructuralEquals.vecs(vec, that.vec);
+	}
+
+	/**
+	 * Same as {@link java.util.List#hashCode()} of the boxed items, computed once and cached.
+	 */
+	@Override
+	public int hashCode()
+	{
+		int h = hash;
+		if (h == 0)
+		{
+			h = 1;
+			for (int i = 0; i < vec.cnt; i += 32)
+			{
+				h = hashLeaf(h, vec.arrayFor(i));
+			}
+			hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "{" + "vector=" + vec + '}';
+	}
+
+	/**
+	 * The position bookkeeping of the primitive spliterators, which split on leaf boundaries.
+	 */
+	abstract static class LeafSpliterator
+	{
+		final Vec vec;
+
+		int index;
+
+		final int end;
+
+		LeafSpliterator(Vec vec, int index, int end)
+		{
+			this.vec = vec;
+			this.index = index;
+			this.end = end;
+		}
+
+		/**
+		 * Give the first half of the remaining items, cut on a leaf boundary, to a new spliterator.
+		 *
+		 * @return the start of the prefix, which ends at the new {@link #index}, or -1 if there is no leaf boundary
+		 * to split on
+		 */
+		final int splitPrefix()
+		{
+			final int mid = ((index + end) >>> 1) & ~0x1f;
+			if (mid <= index)
+			{
+				return -1;
+			}
+			final int from = index;
+			index = mid;
+			return from;
+		}
+
+		public long estimateSize()
+		{
+			return end - index;
+		}
+
+		public int characteristics()
+		{
+			return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+		}
+	}
+}
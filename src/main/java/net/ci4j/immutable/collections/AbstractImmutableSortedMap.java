@@ -0,0 +1,482 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.lang.IMapEntry;
+import clojure.lang.IPersistentMap;
+import net.ci4j.immutable.collections.impl.TreeRange;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The {@link NavigableMap} implementation shared by {@link ImmutableSortedMap} and {@link ImmutableBTreeMap}.
+ * A map is a {@link TreeRange} over a sorted clojure map, views narrow or reverse the range without copying.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @param <M> the concrete map type returned by views and updates
+ */
+@SuppressWarnings("unchecked")
+abstract class AbstractImmutableSortedMap<K, V, M extends AbstractImmutableSortedMap<K, V, M>> extends AbstractMap<K, V> implements NavigableMap<K, V>
+{
+	final TreeRange range;
+
+	AbstractImmutableSortedMap(TreeRange range)
+	{
+		this.range = range;
+	}
+
+	/**
+	 * @return a map of the concrete type over the given range
+	 */
+	abstract M wrap(TreeRange range);
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size()
+	{
+		return this.range.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty()
+	{
+		return this.range.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return this.range.entryAt(key) != null;
+	}
+
+	/**
+	 * Get the key-value pair by the given key.
+	 * @param key key
+	 * @return A {@link IMapEntry} object to access the key-value pair, null if the key is not in this map
+	 */
+	public IMapEntry entryAt(Object key)
+	{
+		return this.range.entryAt(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(Object key)
+	{
+		final IMapEntry entry = this.range.entryAt(key);
+		return entry != null ? (V) entry.val() : null;
+	}
+
+	@Override
+	@Deprecated
+	public V put(K key, V value)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public V remove(Object key)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public void putAll(Map<? extends K, ? extends V> m)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public void clear()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public Entry<K, V> pollFirstEntry()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public Entry<K, V> pollLastEntry()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * assoc[iate]. returns a new map that contains the mapping of key to val.
+	 * If the key is already mapped to the identical value, the original map is returned.
+	 *
+	 * @param key key
+	 * @param val value
+	 * @throws IllegalArgumentException if this map is a view and the key is outside of its bounds
+	 */
+	public M assoc(K key, V val)
+	{
+		if (!this.range.inRange(key))
+		{
+			throw new IllegalArgumentException("key out of range");
+		}
+		final IPersistentMap tree = this.range.tree();
+		final IPersistentMap newTree = tree.assoc(key, val);
+		return newTree != tree ? wrap(this.range.withTree(newTree)) : (M) this;
+	}
+
+	/**
+	 * Associate all entries from another Map
+	 * @param other The map to be associated into the current ImmutableSortedMap
+	 *
+	 * @return A new map contains entries from the original map and the other map
+	 * @throws IllegalArgumentException if this map is a view and a key is outside of its bounds
+	 */
+	public M assocAll(Map<? extends K, ? extends V> other)
+	{
+		final IPersistentMap tree = this.range.tree();
+		IPersistentMap newTree = tree;
+		for (Entry<? extends K, ? extends V> entry : other.entrySet())
+		{
+			if (!this.range.inRange(entry.getKey()))
+			{
+				throw new IllegalArgumentException("key out of range");
+			}
+			newTree = newTree.assoc(entry.getKey(), entry.getValue());
+		}
+		return newTree != tree ? wrap(this.range.withTree(newTree)) : (M) this;
+	}
+
+	/**
+	 * Return a new map without the given key mapping. Keys outside of the bounds of a view are ignored.
+	 * @param key key
+	 */
+	public M without(K key)
+	{
+		if (!this.range.inRange(key))
+		{
+			return (M) this;
+		}
+		final IPersistentMap tree = this.range.tree();
+		final IPersistentMap newTree = tree.without(key);
+		return newTree != tree ? wrap(this.range.withTree(newTree)) : (M) this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Comparator<? super K> comparator()
+	{
+		return this.range.comparator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Entry<K, V> firstEntry()
+	{
+		return this.range.first();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Entry<K, V> lastEntry()
+	{
+		return this.range.last();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public K firstKey()
+	{
+		final IMapEntry entry = this.range.first();
+		if (entry == null)
+		{
+			throw new NoSuchElementException();
+		}
+		return (K) entry.key();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public K lastKey()
+	{
+		final IMapEntry entry = this.range.last();
+		if (entry == null)
+		{
+			throw new NoSuchElementException();
+		}
+		return (K) entry.key();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Entry<K, V> lowerEntry(K key)
+	{
+		return this.range.lower(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public K lowerKey(K key)
+	{
+		return key(this.range.lower(key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Entry<K, V> floorEntry(K key)
+	{
+		return this.range.floor(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public K floorKey(K key)
+	{
+		return key(this.range.floor(key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Entry<K, V> ceilingEntry(K key)
+	{
+		return this.range.ceiling(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public K ceilingKey(K key)
+	{
+		return key(this.range.ceiling(key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Entry<K, V> higherEntry(K key)
+	{
+		return this.range.higher(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public K higherKey(K key)
+	{
+		return key(this.range.higher(key));
+	}
+
+	/**
+	 * @return the number of keys of this map before the given key in the order of this map.
+	 * O(log n) on an {@link ImmutableBTreeMap} only, O(n) on an {@link ImmutableSortedMap}, which walks the entries
+	 * before the key.
+	 */
+	public int rank(K key)
+	{
+		return this.range.rank(key);
+	}
+
+	/**
+	 * @return the entry at the given position in the order of this map.
+	 * O(log n) on an {@link ImmutableBTreeMap} only, O(n) on an {@link ImmutableSortedMap}, which walks the entries
+	 * before the index.
+	 * @throws IndexOutOfBoundsException if the index is negative or not less than the size of this map
+	 */
+	public Entry<K, V> select(int index)
+	{
+		return this.range.select(index);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public M descendingMap()
+	{
+		return wrap(this.range.descending());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImmutableSortedSet<K> navigableKeySet()
+	{
+		return new ImmutableSortedSet<>(this.range);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImmutableSortedSet<K> keySet()
+	{
+		return navigableKeySet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImmutableSortedSet<K> descendingKeySet()
+	{
+		return new ImmutableSortedSet<>(this.range.descending());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Entry<K, V>> entrySet()
+	{
+		return new AbstractSet<Entry<K, V>>()
+		{
+			@Override
+			public Iterator<Entry<K, V>> iterator()
+			{
+				return (Iterator) range.iterator();
+			}
+
+			@Override
+			public int size()
+			{
+				return range.size();
+			}
+
+			@Override
+			public boolean isEmpty()
+			{
+				return range.isEmpty();
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public M subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive)
+	{
+		return wrap(this.range.sub(true, fromKey, fromInclusive, true, toKey, toInclusive));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public M headMap(K toKey, boolean inclusive)
+	{
+		return wrap(this.range.sub(false, null, false, true, toKey, inclusive));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public M tailMap(K fromKey, boolean inclusive)
+	{
+		return wrap(this.range.sub(true, fromKey, inclusive, false, null, false));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public M subMap(K fromKey, K toKey)
+	{
+		return subMap(fromKey, true, toKey, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public M headMap(K toKey)
+	{
+		return headMap(toKey, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public M tailMap(K fromKey)
+	{
+		return tailMap(fromKey, true);
+	}
+
+	/**
+	 * @see {@link #size()}
+	 */
+	public int count()
+	{
+		return this.range.size();
+	}
+
+	private static <K> K key(IMapEntry entry)
+	{
+		return entry == null ? null : (K) entry.key();
+	}
+}
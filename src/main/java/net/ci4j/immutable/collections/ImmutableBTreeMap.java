@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import net.ci4j.immutable.collections.impl.PersistentBTreeMap;
+import net.ci4j.immutable.collections.impl.TreeRange;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * A typed immutable sorted map, backing by {@link PersistentBTreeMap}.
+ * <p>
+ * It has the same API as {@link ImmutableSortedMap}, with views sharing the same tree, and is meant for large
+ * ordered indexes: lookups and range scans walk wide nodes instead of one red-black node per entry,
+ * {@link #size()} of a view, {@link #rank(Object)} and {@link #select(int)} are O(log n), and the
+ * {@code create} factories bulk load the tree instead of inserting entries one by one.
+ * <p>
+ * Maps from {@link #refLongEmpty()}, {@link #createLong(Map)} and {@link #zipCreate(long[], Iterable)} store
+ * their keys as primitive longs, use {@link #getLong(long)}, {@link #containsLongKey(long)},
+ * {@link #assocLong(long, Object)} and {@link #withoutLong(long)} to avoid boxing the key. They are only meant for
+ * maps of {@link Long} keys.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+@SuppressWarnings("unchecked")
+public class ImmutableBTreeMap<K, V> extends AbstractImmutableSortedMap<K, V, ImmutableBTreeMap<K, V>> implements ImmutableCollection<PersistentBTreeMap>
+{
+	public static final ImmutableBTreeMap<Object, Object> EMPTY = new ImmutableBTreeMap<>(PersistentBTreeMap.EMPTY);
+
+	public static final ImmutableBTreeMap<Long, Object> LONG_EMPTY = new ImmutableBTreeMap<>(PersistentBTreeMap.EMPTY_LONG);
+
+	public static <K, V> ImmutableBTreeMap<K, V> refEmpty()
+	{
+		return (ImmutableBTreeMap<K, V>) EMPTY;
+	}
+
+	/**
+	 * @return an empty map storing its keys as primitive longs
+	 */
+	public static <V> ImmutableBTreeMap<Long, V> refLongEmpty()
+	{
+		return (ImmutableBTreeMap<Long, V>) LONG_EMPTY;
+	}
+
+	public ImmutableBTreeMap(PersistentBTreeMap map)
+	{
+		this(TreeRange.of(map != null ? map : PersistentBTreeMap.EMPTY));
+	}
+
+	private ImmutableBTreeMap(TreeRange range)
+	{
+		super(range);
+	}
+
+	/**
+	 * Obtain an empty ImmutableBTreeMap ordered by the given comparator
+	 *
+	 * @param comparator the comparator of keys
+	 * @return An empty ImmutableBTreeMap instance
+	 */
+	public static <K, V> ImmutableBTreeMap<K, V> empty(Comparator<? super K> comparator)
+	{
+		return new ImmutableBTreeMap<>(PersistentBTreeMap.create(comparator));
+	}
+
+	/**
+	 * Bulk load an ImmutableBTreeMap from a Map. The comparator of a {@link SortedMap} is kept, other maps are
+	 * ordered by the natural ordering of keys.
+	 *
+	 * @param map A map of initial entries
+	 * @return An ImmutableBTreeMap instance
+	 */
+	public static <K, V> ImmutableBTreeMap<K, V> create(Map<K, V> map)
+	{
+		if (map instanceof ImmutableBTreeMap)
+		{
+			return (ImmutableBTreeMap<K, V>) map;
+		}
+		final Comparator<? super K> comparator = map instanceof SortedMap ? ((SortedMap<K, V>) map).comparator() : null;
+		return create(comparator, map);
+	}
+
+	/**
+	 * Bulk load an ImmutableBTreeMap from a Map ordered by the given comparator
+	 *
+	 * @param comparator the comparator of keys, null for the natural ordering
+	 * @param map A map of initial entries
+	 * @return An ImmutableBTreeMap instance
+	 */
+	public static <K, V> ImmutableBTreeMap<K, V> create(Comparator<? super K> comparator, Map<? extends K, ? extends V> map)
+	{
+		return new ImmutableBTreeMap<>(PersistentBTreeMap.create(comparator, map != null ? map : ImmutableMap.EMPTY));
+	}
+
+	/**
+	 * Bulk load an ImmutableBTreeMap storing its keys as primitive longs
+	 *
+	 * @param map A map of initial entries
+	 * @return An ImmutableBTreeMap instance
+	 */
+	public static <V> ImmutableBTreeMap<Long, V> createLong(Map<? extends Number, ? extends V> map)
+	{
+		return new ImmutableBTreeMap<>(PersistentBTreeMap.createLong(map != null ? map : ImmutableMap.EMPTY));
+	}
+
+	/**
+	 * Bulk load an ImmutableBTreeMap storing its keys as primitive longs by zipping keys and values
+	 * @param keys {key1, key2, key3, ...}
+	 * @param values {value1, value2, value3, ...}
+	 * @param <V> value type
+	 * @return an ImmutableBTreeMap instance
+	 */
+	public static <V> ImmutableBTreeMap<Long, V> zipCreate(long[] keys, Iterable<V> values)
+	{
+		final Object[] vals = new Object[keys.length];
+		final Iterator<V> vIterator = values.iterator();
+		int n = 0;
+		while (n < keys.length && vIterator.hasNext())
+		{
+			vals[n++] = vIterator.next();
+		}
+		final long[] zippedKeys = n < keys.length ? Arrays.copyOf(keys, n) : keys;
+		return new ImmutableBTreeMap<>(PersistentBTreeMap.createLong(zippedKeys, vals));
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped,
+	 * or {@code null} if this map contains no mapping for the key.
+	 *
+	 * @param key the key whose associated value is to be returned
+	 * @return the value to which the specified key is mapped, or
+	 *         {@code null} if this map contains no mapping for the key
+	 */
+	public V getLong(long key)
+	{
+		if (this.range.isWhole())
+		{
+			return (V) getTree().valAt(key);
+		}
+		return get((Object) key);
+	}
+
+	/**
+	 * @return true if the key is mapped
+	 */
+	public boolean containsLongKey(long key)
+	{
+		if (this.range.isWhole())
+		{
+			return getTree().containsKey(key);
+		}
+		return containsKey((Object) key);
+	}
+
+	/**
+	 * assoc[iate]. returns a new map that contains the mapping of key to val.
+	 * If the key is already mapped to the identical value, the original map is returned.
+	 *
+	 * @param key key
+	 * @param val value
+	 */
+	public ImmutableBTreeMap<K, V> assocLong(long key, V val)
+	{
+		if (!this.range.isWhole())
+		{
+			return assoc((K) (Object) key, val);
+		}
+		final PersistentBTreeMap tree = getTree();
+		final PersistentBTreeMap newTree = tree.assoc(key, val);
+		return newTree != tree ? new ImmutableBTreeMap<>(newTree) : this;
+	}
+
+	/**
+	 * Return a new map without the given key mapping.
+	 * @param key key
+	 */
+	public ImmutableBTreeMap<K, V> withoutLong(long key)
+	{
+		if (!this.range.isWhole())
+		{
+			return without((K) (Object) key);
+		}
+		final PersistentBTreeMap tree = getTree();
+		final PersistentBTreeMap newTree = tree.without(key);
+		return newTree != tree ? new ImmutableBTreeMap<>(newTree) : this;
+	}
+
+	private PersistentBTreeMap getTree()
+	{
+		return (PersistentBTreeMap) this.range.tree();
+	}
+
+	@Override
+	ImmutableBTreeMap<K, V> wrap(TreeRange range)
+	{
+		return new ImmutableBTreeMap<>(range);
+	}
+
+	/**
+	 * @return the underlying tree. A view copies its entries into a new tree ordered by {@link #comparator()}.
+	 */
+	@Override
+	public PersistentBTreeMap getRaw()
+	{
+		return (PersistentBTreeMap) this.range.materialize();
+	}
+}
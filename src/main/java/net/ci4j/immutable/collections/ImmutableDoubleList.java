@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.core.Vec;
+import clojure.lang.IPersistentVector;
+import net.ci4j.immutable.collections.impl.PrimitiveVecs;
+
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A typed immutable list of primitive doubles backing by clojure primitive vector {@code (vector-of :double)}.
+ * <p>
+ * Items are stored in {@code double[]} leaves, reading, appending, updating and streaming never box them.
+ * Items are compared by their bits, so {@code assocN} of {@code -0.0} over {@code 0.0} is an update and of
+ * {@code NaN} over {@code NaN} is not.
+ *
+ * @author Zhizhi Deng
+ */
+public class ImmutableDoubleList extends AbstractImmutablePrimitiveList<Double, ImmutableDoubleList>
+{
+	private static final Vec EMPTY_VEC = PrimitiveVecs.empty("double");
+
+	public static final ImmutableDoubleList EMPTY = new ImmutableDoubleList(EMPTY_VEC);
+
+	/**
+	 * @param vec a clojure primitive vector created by {@code (vector-of :double)}
+	 * @throws IllegalArgumentException if the given vector is not a primitive double vector
+	 */
+	public ImmutableDoubleList(IPersistentVector vec)
+	{
+		super(vec, EMPTY_VEC, "double");
+	}
+
+	public static ImmutableDoubleList create(double... items)
+	{
+		return items == null || items.length == 0 ? EMPTY : EMPTY.consAll(items);
+	}
+
+	public static ImmutableDoubleList create(DoubleStream items)
+	{
+		return create(items.toArray());
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public double getDouble(int index)
+	{
+		return ((double[]) vec.arrayFor(index))[index & 0x1f];
+	}
+
+	/**
+	 * @return a new list with the item appended
+	 */
+	public ImmutableDoubleList consDouble(double item)
+	{
+		final double[] newTail = (double[]) appendSlot();
+		newTail[newTail.length - 1] = item;
+		return withAppended(newTail);
+	}
+
+	/**
+	 * @return a new list with the items appended
+	 */
+	public ImmutableDoubleList consAll(double... items)
+	{
+		return appendAll(items, items.length);
+	}
+
+	/**
+	 * @return a new list with the item at the index replaced, this list if it holds the same double there
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public ImmutableDoubleList assocN(int index, double item)
+	{
+		final double[] leaf = (double[]) vec.arrayFor(index);
+		if (Double.doubleToLongBits(leaf[index & 0x1f]) == Double.doubleToLongBits(item))
+		{
+			return this;
+		}
+		final double[] newLeaf = leaf.clone();
+		newLeaf[index & 0x1f] = item;
+		return withLeaf(index, newLeaf);
+	}
+
+	/**
+	 * Reduce the items with the given function without boxing them.
+	 *
+	 * @param identity the initial value
+	 * @param reducer  a function that combines the accumulated value with the next item
+	 * @return the reduced result
+	 */
+	public double reduce(double identity, DoubleBinaryOperator reducer)
+	{
+		double result = identity;
+		for (int i = 0; i < vec.cnt; i += 32)
+		{
+			for (double item : (double[]) vec.arrayFor(i))
+			{
+				result = reducer.applyAsDouble(result, item);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Visit the items in order without boxing them. Named apart from {@link #forEach(java.util.function.Consumer)}
+	 * so that a lambda argument is not ambiguous.
+	 */
+	public void forEachDouble(DoubleConsumer action)
+	{
+		for (int i = 0; i < vec.cnt; i += 32)
+		{
+			for (double item : (double[]) vec.arrayFor(i))
+			{
+				action.accept(item);
+			}
+		}
+	}
+
+	public double[] toArray()
+	{
+		return (double[]) copyItems();
+	}
+
+	@Override
+	public PrimitiveIterator.OfDouble iterator()
+	{
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public Spliterator.OfDouble spliterator()
+	{
+		return new DoubleSpliterator(vec, 0, vec.cnt);
+	}
+
+	public DoubleStream stream()
+	{
+		return StreamSupport.doubleStream(spliterator(), false);
+	}
+
+	public DoubleStream parallelStream()
+	{
+		return StreamSupport.doubleStream(spliterator(), true);
+	}
+
+	@Override
+	ImmutableDoubleList wrap(Vec vec)
+	{
+		return new ImmutableDoubleList(vec);
+	}
+
+	@Override
+	Object newArray(int length)
+	{
+		return new double[length];
+	}
+
+	@Override
+	int hashLeaf(int h, Object leaf)
+	{
+		for (double item : (double[]) leaf)
+		{
+			h = 31 * h + Double.hashCode(item);
+		}
+		return h;
+	}
+
+	private static final class DoubleSpliterator extends LeafSpliterator implements Spliterator.OfDouble
+	{
+		private double[] leaf;
+
+		DoubleSpliterator(Vec vec, int index, int end)
+		{
+			super(vec, index, end);
+		}
+
+		@Override
+		public OfDouble trySplit()
+		{
+			final int from = splitPrefix();
+			if (from < 0)
+			{
+				return null;
+			}
+			leaf = null;
+			return new DoubleSpliterator(vec, from, index);
+		}
+
+		@Override
+		public boolean tryAdvance(DoubleConsumer action)
+		{
+			if (index >= end)
+			{
+				return false;
+			}
+			if (leaf == null || (index & 0x1f) == 0)
+			{
+				leaf = (double[]) vec.arrayFor(index);
+			}
+			action.accept(leaf[index & 0x1f]);
+			index++;
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(DoubleConsumer action)
+		{
+			int i = index;
+			while (i < end)
+			{
+				final double[] leaf = (double[]) vec.arrayFor(i);
+				final int leafEnd = Math.min(leaf.length, (i & 0x1f) + end - i);
+				for (int j = i & 0x1f; j < leafEnd; j++, i++)
+				{
+					action.accept(leaf[j]);
+				}
+			}
+			index = end;
+		}
+	}
+}
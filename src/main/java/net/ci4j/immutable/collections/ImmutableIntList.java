@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.core.Vec;
+import clojure.lang.IPersistentVector;
+import net.ci4j.immutable.collections.impl.PrimitiveVecs;
+
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A typed immutable list of primitive ints backing by clojure primitive vector {@code (vector-of :int)}.
+ * <p>
+ * Items are stored in {@code int[]} leaves, reading, appending, updating and streaming never box them.
+ *
+ * @author Zhizhi Deng
+ */
+public class ImmutableIntList extends AbstractImmutablePrimitiveList<Integer, ImmutableIntList>
+{
+	private static final Vec EMPTY_VEC = PrimitiveVecs.empty("int");
+
+	public static final ImmutableIntList EMPTY = new ImmutableIntList(EMPTY_VEC);
+
+	/**
+	 * @param vec a clojure primitive vector created by {@code (vector-of :int)}
+	 * @throws IllegalArgumentException if the given vector is not a primitive int vector
+	 */
+	public ImmutableIntList(IPersistentVector vec)
+	{
+		super(vec, EMPTY_VEC, "int");
+	}
+
+	public static ImmutableIntList create(int... items)
+	{
+		return items == null || items.length == 0 ? EMPTY : EMPTY.consAll(items);
+	}
+
+	public static ImmutableIntList create(IntStream items)
+	{
+		return create(items.toArray());
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public int getInt(int index)
+	{
+		return ((int[]) vec.arrayFor(index))[index & 0x1f];
+	}
+
+	/**
+	 * @return a new list with the item appended
+	 */
+	public ImmutableIntList consInt(int item)
+	{
+		final int[] newTail = (int[]) appendSlot();
+		newTail[newTail.length - 1] = item;
+		return withAppended(newTail);
+	}
+
+	/**
+	 * @return a new list with the items appended
+	 */
+	public ImmutableIntList consAll(int... items)
+	{
+		return appendAll(items, items.length);
+	}
+
+	/**
+	 * @return a new list with the item at the index replaced, this list if it holds the same int there
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public ImmutableIntList assocN(int index, int item)
+	{
+		final int[] leaf = (int[]) vec.arrayFor(index);
+		if (leaf[index & 0x1f] == item)
+		{
+			return this;
+		}
+		final int[] newLeaf = leaf.clone();
+		newLeaf[index & 0x1f] = item;
+		return withLeaf(index, newLeaf);
+	}
+
+	/**
+	 * Reduce the items with the given function without boxing them.
+	 *
+	 * @param identity the initial value
+	 * @param reducer  a function that combines the accumulated value with the next item
+	 * @return the reduced result
+	 */
+	public int reduce(int identity, IntBinaryOperator reducer)
+	{
+		int result = identity;
+		for (int i = 0; i < vec.cnt; i += 32)
+		{
+			for (int item : (int[]) vec.arrayFor(i))
+			{
+				result = reducer.applyAsInt(result, item);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Visit the items in order without boxing them. Named apart from {@link #forEach(java.util.function.Consumer)}
+	 * so that a lambda argument is not ambiguous.
+	 */
+	public void forEachInt(IntConsumer action)
+	{
+		for (int i = 0; i < vec.cnt; i += 32)
+		{
+			for (int item : (int[]) vec.arrayFor(i))
+			{
+				action.accept(item);
+			}
+		}
+	}
+
+	public int[] toArray()
+	{
+		return (int[]) copyItems();
+	}
+
+	@Override
+	public PrimitiveIterator.OfInt iterator()
+	{
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public Spliterator.OfInt spliterator()
+	{
+		return new IntSpliterator(vec, 0, vec.cnt);
+	}
+
+	public IntStream stream()
+	{
+		return StreamSupport.intStream(spliterator(), false);
+	}
+
+	public IntStream parallelStream()
+	{
+		return StreamSupport.intStream(spliterator(), true);
+	}
+
+	@Override
+	ImmutableIntList wrap(Vec vec)
+	{
+		return new ImmutableIntList(vec);
+	}
+
+	@Override
+	Object newArray(int length)
+	{
+		return new int[length];
+	}
+
+	@Override
+	int hashLeaf(int h, Object leaf)
+	{
+		for (int item : (int[]) leaf)
+		{
+			h = 31 * h + Integer.hashCode(item);
+		}
+		return h;
+	}
+
+	private static final class IntSpliterator extends LeafSpliterator implements Spliterator.OfInt
+	{
+		private int[] leaf;
+
+		IntSpliterator(Vec vec, int index, int end)
+		{
+			super(vec, index, end);
+		}
+
+		@Override
+		public OfInt trySplit()
+		{
+			final int from = splitPrefix();
+			if (from < 0)
+			{
+				return null;
+			}
+			leaf = null;
+			return new IntSpliterator(vec, from, index);
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action)
+		{
+			if (index >= end)
+			{
+				return false;
+			}
+			if (leaf == null || (index & 0x1f) == 0)
+			{
+				leaf = (int[]) vec.arrayFor(index);
+			}
+			action.accept(leaf[index & 0x1f]);
+			index++;
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action)
+		{
+			int i = index;
+			while (i < end)
+			{
+				final int[] leaf = (int[]) vec.arrayFor(i);
+				final int leafEnd = Math.min(leaf.length, (i & 0x1f) + end - i);
+				for (int j = i & 0x1f; j < leafEnd; j++, i++)
+				{
+					action.accept(leaf[j]);
+				}
+			}
+			index = end;
+		}
+	}
+}
@@ -22,22 +22,41 @@ package net.ci4j.immutable.collections;
 
 import clojure.lang.APersistentVector;
 import clojure.lang.IPersistentVector;
-import clojure.lang.ISeq;
 import clojure.lang.ITransientVector;
 import clojure.lang.PersistentVector;
+import clojure.lang.RT;
+import clojure.lang.Util;
+import net.ci4j.fn.Fn0;
 import net.ci4j.fn.Fn2;
-import net.ci4j.immutable.clojure_utils.ClojureJson;
 import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.clojure_utils.ClojureReducers;
+import net.ci4j.immutable.clojure_utils.EdnParseException;
 import net.ci4j.immutable.clojure_utils.JsonParseException;
-
+import net.ci4j.immutable.collections.impl.StructuralDiff;
+import net.ci4j.immutable.collections.impl.StructuralEquals;
+import net.ci4j.immutable.collections.impl.VectorChunks;
+import net.ci4j.immutable.collections.impl.VectorSpliterator;
+import net.ci4j.immutable.edn.EdnDecoder;
+import net.ci4j.immutable.edn.EdnEncoder;
+import net.ci4j.immutable.fn.Fn;
+import net.ci4j.immutable.json.JsonDecoder;
+import net.ci4j.immutable.json.JsonEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Objects;
+import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Collector;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static net.ci4j.immutable.fn.Fn.fn;
 
@@ -51,6 +70,8 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 {
 	private IPersistentVector vector;
 
+	private int hash;
+
 	public final static ImmutableList EMPTY = new ImmutableList(PersistentVector.EMPTY);
 
 	public ImmutableList(IPersistentVector vector)
@@ -120,13 +141,14 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 	 *
 	 * @param ednString The edn format string representing a clojure vector
 	 * @return An ImmutableList instance
+	 * @throws EdnParseException if the ednString is not valid EDN
 	 * @throws ClassCastException if the ednString does not represent a valid clojure vector
 	 */
 	public static <T> ImmutableList<T> fromString(String ednString)
 	{
 		if (ednString == null) return EMPTY;
-		final IPersistentVector vector = ClojureRT.readString(ednString);
-		if (vector.length() == 0)
+		final IPersistentVector vector = (IPersistentVector) EdnDecoder.DEFAULT.read(ednString);
+		if (vector == null || vector.length() == 0)
 		{
 			return EMPTY;
 		}
@@ -146,31 +168,37 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 	 */
 	public static <T> ImmutableList<T> fromJSON(String jsonString)
 	{
-		if (jsonString == null) return EMPTY;
-		try
-		{
-			final Object parsed = ClojureJson.PARSE_STRING.invoke(jsonString);
-			APersistentVector vector = parsed instanceof ISeq ? ((APersistentVector) ClojureRT.VEC.invoke(parsed)) : (APersistentVector) parsed;
-			if (vector.length() == 0)
-			{
-				return EMPTY;
-			}
-			else
-			{
-				return new ImmutableList<>(vector);
-			}
-		} catch (Exception e)
-		{
-			//I have to do it this way because Clojure does not declare checked exception on its API
-			if (e instanceof com.fasterxml.jackson.core.JsonParseException)
-			{
-				throw new JsonParseException(e);
-			}
-			else
-			{
-				throw e;
-			}
-		}
+		return jsonString != null ? fromParsedJson(JsonDecoder.DEFAULT.read(jsonString)) : EMPTY;
+	}
+
+	/**
+	 * Obtain an ImmutableList object from a JSON array read from the stream, which is left open.
+	 *
+	 * @throws JsonParseException if the stream does not contain valid json
+	 * @throws ClassCastException if the json is not an array
+	 * @see JsonDecoder
+	 */
+	public static <T> ImmutableList<T> fromJSON(InputStream in) throws IOException
+	{
+		return fromParsedJson(JsonDecoder.DEFAULT.read(in));
+	}
+
+	/**
+	 * Obtain an ImmutableList object from a JSON array read from the reader, which is left open.
+	 *
+	 * @throws JsonParseException if the reader does not contain valid json
+	 * @throws ClassCastException if the json is not an array
+	 * @see JsonDecoder
+	 */
+	public static <T> ImmutableList<T> fromJSON(Reader reader) throws IOException
+	{
+		return fromParsedJson(JsonDecoder.DEFAULT.read(reader));
+	}
+
+	private static <T> ImmutableList<T> fromParsedJson(Object parsed)
+	{
+		final APersistentVector vector = (APersistentVector) parsed;
+		return vector != null && vector.length() > 0 ? new ImmutableList<>(vector) : EMPTY;
 	}
 
 	/**
@@ -212,7 +240,11 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 		}
 	}
 
-	private PersistentVector castToPersistentVector()
+	/**
+	 * @return the internal vector if it is a {@link PersistentVector}, otherwise (e.g. a sub list view) a new
+	 * PersistentVector copied from it.
+	 */
+	private PersistentVector asPersistentVector()
 	{
 		if (vector instanceof PersistentVector)
 		{
@@ -220,7 +252,9 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 		}
 		else
 		{
-			throw new UnsupportedOperationException("Not supported for vector type: " + vector.getClass().getName());
+			final ITransientVector trans = PersistentVector.EMPTY.asTransient();
+			conjRange(trans, vector, 0, vector.count());
+			return (PersistentVector) trans.persistent();
 		}
 	}
 
@@ -318,16 +352,74 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		ImmutableList<?> that = (ImmutableList<?>) o;
-		return Objects.equals(vector, that.vector);
+		if (vector == that.vector) return true;
+		if (vector.count() != that.vector.count()) return false;
+		if (hash != 0 && that.hash != 0 && hash != that.hash) return false;
+		if (vector instanceof PersistentVector && that.vector instanceof PersistentVector)
+		{
+			return StructuralEquals.vectors((PersistentVector) vector, (PersistentVector) that.vector);
+		}
+		return vector.equals(that.vector);
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Same as {@link List#hashCode()}, computed once and cached.
 	 */
 	@Override
 	public int hashCode()
 	{
-		return Objects.hash(vector);
+		int h = hash;
+		if (h == 0)
+		{
+			h = vector.hashCode();
+			hash = h;
+		}
+		return h;
+	}
+
+	/**
+	 * Obtain the items changed, appended and removed from this list to the other one, compared index by index.
+	 * <p>
+	 * The tries of both vectors are walked side by side and the nodes shared by both are skipped, so diffing a list
+	 * with a version derived from it takes time proportional to the changes instead of the size.
+	 *
+	 * @param other the new version
+	 * @return the differences, items being compared with equals
+	 */
+	public ListDiff<E> diff(ImmutableList<E> other)
+	{
+		final TransientImmutableMap<Integer, E> changed = ImmutableMap.<Integer, E>refEmpty().asTransient();
+		final StructuralDiff.ItemSink sink = (index, oldItem, newItem) -> changed.put(index, (E) newItem);
+		final int count = vector.count();
+		final int otherCount = other.vector.count();
+		if (vector instanceof PersistentVector && other.vector instanceof PersistentVector)
+		{
+			StructuralDiff.vectors((PersistentVector) vector, (PersistentVector) other.vector, sink);
+		}
+		else if (vector != other.vector)
+		{
+			for (int i = 0, limit = Math.min(count, otherCount); i < limit; i++)
+			{
+				final Object oldItem = vector.nth(i);
+				final Object newItem = other.vector.nth(i);
+				if (!Util.equals(oldItem, newItem))
+				{
+					sink.changed(i, oldItem, newItem);
+				}
+			}
+		}
+		return new ListDiff<>(changed.persistent(), other.copyRange(count, otherCount), copyRange(otherCount, count));
+	}
+
+	private ImmutableList<E> copyRange(int from, int to)
+	{
+		if (from >= to)
+		{
+			return EMPTY;
+		}
+		final ITransientVector trans = PersistentVector.EMPTY.asTransient();
+		conjRange(trans, vector, from, to);
+		return new ImmutableList<>((IPersistentVector) trans.persistent());
 	}
 
 	/**
@@ -415,6 +507,69 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 		return new ImmutableList<>(newState);
 	}
 
+	/**
+	 * Obtain an ImmutableList of the first n items.
+	 * <p>
+	 * The result is a view sharing the whole vector of this list, it is created in constant time and supports
+	 * every ImmutableList operation. Operations rebuilding the vector (e.g. {@link #consAll(Object[])}) copy the
+	 * items of the view once. Keeping a small view of a large list keeps the large list reachable.
+	 *
+	 * @param n number of items to take
+	 * @return an ImmutableList of the first n items, or the original list if it has no more than n items
+	 */
+	public ImmutableList<E> take(int n)
+	{
+		final int count = vector.count();
+		if (n >= count) return this;
+		if (n <= 0) return EMPTY;
+		return new ImmutableList<>(RT.subvec(vector, 0, n));
+	}
+
+	/**
+	 * Obtain an ImmutableList of all but the first n items.
+	 * <p>
+	 * Like {@link #take(int)}, the result is a view sharing the whole vector of this list.
+	 *
+	 * @param n number of items to drop
+	 * @return an ImmutableList without the first n items, or the original list if n is not positive
+	 */
+	public ImmutableList<E> drop(int n)
+	{
+		final int count = vector.count();
+		if (n <= 0) return this;
+		if (n >= count) return EMPTY;
+		return new ImmutableList<>(RT.subvec(vector, n, count));
+	}
+
+	/**
+	 * Split this list at the given index, equivalent to {@code [take(i), drop(i)]}.
+	 *
+	 * @param i index of the first item in the second part
+	 * @return an ImmutableList of the two parts
+	 */
+	public ImmutableList<ImmutableList<E>> splitAt(int i)
+	{
+		return create(take(i), drop(i));
+	}
+
+	/**
+	 * Create a new ImmutableList with the items of the other list appended at the end of the original list.
+	 * <p>
+	 * The items of this list are shared with the result, the items of the other list are appended leaf by leaf,
+	 * so the cost is proportional to the size of the other list.
+	 *
+	 * @param other the list to be appended
+	 * @return a new ImmutableList with the items of both lists, or one of the lists if the other one is empty
+	 */
+	public ImmutableList<E> concat(ImmutableList<? extends E> other)
+	{
+		if (other.isEmpty()) return this;
+		if (this.isEmpty()) return (ImmutableList<E>) other;
+		final ITransientVector trans = asPersistentVector().asTransient();
+		conjRange(trans, other.vector, 0, other.vector.count());
+		return new ImmutableList<>((IPersistentVector) trans.persistent());
+	}
+
 	/**
 	 * Create a new Immutable list with the given item appended at the end of the original list
 	 *
@@ -434,7 +589,7 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 	 */
 	public ImmutableList<E> consAll(E... items)
 	{
-		final ITransientVector trans = castToPersistentVector().asTransient();
+		final ITransientVector trans = asPersistentVector().asTransient();
 		for (E item : items)
 		{
 			trans.conj(item);
@@ -450,7 +605,11 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 	 */
 	public ImmutableList<E> consAll(Collection<E> items)
 	{
-		final ITransientVector trans = castToPersistentVector().asTransient();
+		if (items instanceof ImmutableList)
+		{
+			return concat((ImmutableList<E>) items);
+		}
+		final ITransientVector trans = asPersistentVector().asTransient();
 		for (E item : items)
 		{
 			trans.conj(item);
@@ -465,7 +624,7 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 	 * invocation, unless there is no item to be filtered out, in this case the original
 	 * ImmutableList instance shall be returned.
 	 * <p>
-	 * For better performance in chained collection transformation, consider using {@link List#stream()} instead.
+	 * For better performance in chained collection transformation, consider using {@link #transform(Transducer)} instead.
 	 *
 	 * @param filter A lambda to select the items to be excluded.
 	 * @return A new ImmutableList without the items match the filter. If no item has been filtered out, the original list instance shall be
@@ -492,7 +651,7 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 	 * invocation, unless all items are included in the result, in this case the original
 	 * ImmutableList instance shall be returned.
 	 * <p>
-	 * For better performance in chained collection transformation, consider using {@link List#stream()} instead.
+	 * For better performance in chained collection transformation, consider using {@link #transform(Transducer)} instead.
 	 *
 	 * @param filter A lambda to select the items to be included.
 	 * @return A new ImmutableList contains the items match the filter. If no item has been filtered out, the original list instance shall be
@@ -511,13 +670,25 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 		return getRaw().length() != transientVector.count() ? new ImmutableList<>((IPersistentVector) transientVector.persistent()) : this;
 	}
 
+	/**
+	 * Create a new ImmutableList from the items of this one going through the transducer, in a single pass and without
+	 * intermediate collections.
+	 *
+	 * @param xform The pipeline of transformations, see {@link Transducer}.
+	 * @return A new ImmutableList of the transformed items.
+	 */
+	public <T> ImmutableList<T> transform(Transducer<? super E, T> xform)
+	{
+		return xform.toList(this);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public Stream<E> stream()
 	{
-		return castToAPersistentVector().stream();
+		return StreamSupport.stream(spliterator(), false);
 	}
 
 	/**
@@ -526,13 +697,49 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 	@Override
 	public Stream<E> parallelStream()
 	{
-		return castToAPersistentVector().parallelStream();
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * A spliterator splitting on the leaf boundaries of the vector trie, every split knows its exact size.
+	 */
+	@Override
+	public Spliterator<E> spliterator()
+	{
+		return new VectorSpliterator<>(vector);
 	}
 
+	/**
+	 * Iterate the items in order, leaf array by leaf array of the vector trie, without an iterator nor an index lookup
+	 * per item.
+	 */
 	@Override
+	@SuppressWarnings("unchecked")
 	public void forEach(Consumer<? super E> action)
 	{
-		castToAPersistentVector().forEach(action);
+		VectorChunks.forEachChunk(vector, (chunk, offset, length) -> {
+			for (int i = offset, end = offset + length; i < end; i++)
+			{
+				action.accept((E) chunk[i]);
+			}
+		});
+	}
+
+	/**
+	 * Hand the internal arrays of the vector to the consumer in order, at most 32 items at a time, for tight loops
+	 * over large lists.
+	 * <pre>
+	 *     list.forEachChunk((chunk, offset, length) -&gt; {
+	 *         for (int i = offset; i &lt; offset + length; i++) {
+	 *             total += ((Long) chunk[i]);
+	 *         }
+	 *     });
+	 * </pre>
+	 * The arrays are shared with the list, they must not be modified nor kept after the call.
+	 */
+	public void forEachChunk(ChunkConsumer consumer)
+	{
+		VectorChunks.forEachChunk(vector, consumer);
 	}
 
 	@Override
@@ -546,14 +753,173 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 		return new ImmutableList<>(vector.assocN(i, val));
 	}
 
+	/**
+	 * Create a new ImmutableList without the item at the given index, items after it are shifted to the left.
+	 * <p>
+	 * The items before the index are shared with the original list, the cost is proportional to the number of
+	 * items after the index.
+	 *
+	 * @param i index of the item to be removed
+	 * @return a new ImmutableList without the item at the given index
+	 * @throws IndexOutOfBoundsException if the index is out of range (<tt>i &lt; 0 || i &gt;= size()</tt>)
+	 */
 	public ImmutableList<E> dissocN(int i)
 	{
-		return new ImmutableList<>((IPersistentVector) ClojureRT.REMOVE_NTH_IN_VEC.invoke(vector, i));
+		final int count = vector.count();
+		if (i < 0 || i >= count)
+		{
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + count);
+		}
+		final PersistentVector source = asPersistentVector();
+		final ITransientVector trans = truncatedTransient(source, i);
+		conjRange(trans, source, i + 1, count);
+		return new ImmutableList<>((IPersistentVector) trans.persistent());
 	}
 
+	/**
+	 * Create a new ImmutableList with the given item inserted at the given index, items at and after the index are shifted
+	 * to the right.
+	 * <p>
+	 * The items before the index are shared with the original list, the cost is proportional to the number of
+	 * items after the index.
+	 *
+	 * @param i   index at which the item is to be inserted
+	 * @param val item to be inserted
+	 * @return a new ImmutableList with the given item inserted at the given index
+	 * @throws IndexOutOfBoundsException if the index is out of range (<tt>i &lt; 0 || i &gt; size()</tt>)
+	 */
 	public ImmutableList<E> insert(int i, E val)
 	{
-		return new ImmutableList<>((IPersistentVector) ClojureRT.INSERT_NTH_IN_VEC.invoke(vector, i, val));
+		final int count = vector.count();
+		if (i < 0 || i > count)
+		{
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + count);
+		}
+		if (i == count)
+		{
+			return cons(val);
+		}
+		final PersistentVector source = asPersistentVector();
+		final ITransientVector trans = truncatedTransient(source, i);
+		trans.conj(val);
+		conjRange(trans, source, i, count);
+		return new ImmutableList<>((IPersistentVector) trans.persistent());
+	}
+
+	/**
+	 * @return a transient copy of the source vector with only the first {@code length} items kept.
+	 */
+	private static ITransientVector truncatedTransient(PersistentVector source, int length)
+	{
+		final ITransientVector trans = source.asTransient();
+		for (int i = source.count(); i > length; i--)
+		{
+			trans.pop();
+		}
+		return trans;
+	}
+
+	/**
+	 * Append the items of the source vector within [from, to) to the transient vector, reading them leaf by leaf
+	 * when the source is (a view of) a PersistentVector.
+	 */
+	private static void conjRange(ITransientVector trans, IPersistentVector source, int from, int to)
+	{
+		if (source instanceof APersistentVector.SubVector)
+		{
+			final APersistentVector.SubVector subVector = (APersistentVector.SubVector) source;
+			conjRange(trans, subVector.v, subVector.start + from, subVector.start + to);
+		}
+		else if (source instanceof PersistentVector)
+		{
+			final PersistentVector persistentVector = (PersistentVector) source;
+			int i = from;
+			while (i < to)
+			{
+				final Object[] leaf = persistentVector.arrayFor(i);
+				final int end = Math.min(leaf.length, (i & 31) + to - i);
+				for (int j = i & 31; j < end; j++, i++)
+				{
+					trans.conj(leaf[j]);
+				}
+			}
+		}
+		else
+		{
+			for (int i = from; i < to; i++)
+			{
+				trans.conj(source.nth(i));
+			}
+		}
+	}
+
+	/**
+	 * Obtain a mutable copy for editing many items at once, call {@link TransientImmutableList#persistent()} at the end.
+	 * The original list is not affected.
+	 */
+	public TransientImmutableList<E> asTransient()
+	{
+		return new TransientImmutableList<>(this, asPersistentVector().asTransient());
+	}
+
+	/**
+	 * Edit many items at once through a transient copy.
+	 *
+	 * @param statement edits the transient, it must not keep a reference to it
+	 * @return A new list with the edits applied, the original list if nothing has been changed
+	 */
+	public ImmutableList<E> withMutations(Consumer<TransientImmutableList<E>> statement)
+	{
+		final TransientImmutableList<E> aTransient = asTransient();
+		statement.accept(aTransient);
+		return aTransient.persistent();
+	}
+
+	/**
+	 * A {@link Collector} appending the stream items to a transient vector, without an intermediate
+	 * {@link java.util.ArrayList}. Parallel streams append the vector of the right part to the left one.
+	 * <pre>
+	 *     ImmutableList&lt;String&gt; names = users.stream().map(User::getName).collect(ImmutableList.collector());
+	 * </pre>
+	 */
+	public static <T> Collector<T, ?, ImmutableList<T>> collector()
+	{
+		return Collector.of(
+			() -> ImmutableList.<T>refEmpty().asTransient(),
+			TransientImmutableList::cons,
+			(left, right) -> left.size() > 0 ? left.consAll(right.persistent()) : right,
+			TransientImmutableList::persistent);
+	}
+
+	/**
+	 * Write the list as a UTF-8 JSON array to the stream, which is flushed and left open, without building the
+	 * whole document as a {@link String} first.
+	 *
+	 * @see JsonEncoder
+	 */
+	public void writeJson(OutputStream out) throws IOException
+	{
+		JsonEncoder.DEFAULT.write(vector, out);
+	}
+
+	/**
+	 * Write the list as a JSON array to the writer, which is flushed and left open.
+	 *
+	 * @see JsonEncoder
+	 */
+	public void writeJson(Writer writer) throws IOException
+	{
+		JsonEncoder.DEFAULT.write(vector, writer);
+	}
+
+	/**
+	 * Write the list as EDN to the writer, which is left open.
+	 *
+	 * @see EdnEncoder
+	 */
+	public void toEdn(Writer writer) throws IOException
+	{
+		EdnEncoder.write(vector, writer);
 	}
 
 	@Override
@@ -567,4 +933,42 @@ public class ImmutableList<E> implements List<E>, ImmutableCollection<IPersisten
 		T result = (T) ClojureRT.REDUCE.invoke(fn(reducer), initialValue, getRaw());
 		return result;
 	}
+
+	/**
+	 * Reduce the list in parallel, the same way as {@code clojure.core.reducers/fold}.
+	 * <p>
+	 * The list is split into chunks of about {@code chunkSize} items, each chunk is reduced on a fork/join
+	 * pool starting from {@code seed.apply()}, then the chunk results are merged by {@code combiner}.
+	 * The reducer and the combiner must be associative and the seed must be an identity of the combiner.
+	 *
+	 * @param seed supplies the initial value of each chunk
+	 * @param combiner merges the results of two chunks
+	 * @param reducer accumulates one item into the result of a chunk
+	 * @param chunkSize maximum number of items reduced sequentially by one task
+	 * @return the combined result
+	 */
+	public <T> T fold(Fn0<T> seed, Fn2<T, T, T> combiner, Fn2<T, E, T> reducer, int chunkSize)
+	{
+		return (T) ClojureReducers.FOLD.invoke(chunkSize, Fn.combiner(seed, combiner), fn(reducer), getRaw());
+	}
+
+	/**
+	 * Same as {@link #fold(Fn0, Fn2, Fn2, int)} with the default chunk size of
+	 * {@value net.ci4j.immutable.clojure_utils.ClojureReducers#DEFAULT_CHUNK_SIZE}.
+	 */
+	public <T> T fold(Fn0<T> seed, Fn2<T, T, T> combiner, Fn2<T, E, T> reducer)
+	{
+		return fold(seed, combiner, reducer, ClojureReducers.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Receives a chunk of a list, the items are {@code chunk[offset]} to {@code chunk[offset + length - 1]}.
+	 *
+	 * @see #forEachChunk(ChunkConsumer)
+	 */
+	@FunctionalInterface
+	public interface ChunkConsumer
+	{
+		void accept(Object[] chunk, int offset, int length);
+	}
 }
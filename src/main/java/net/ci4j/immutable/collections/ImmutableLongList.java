@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.core.Vec;
+import clojure.lang.IPersistentVector;
+import net.ci4j.immutable.collections.impl.PrimitiveVecs;
+
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A typed immutable list of primitive longs backing by clojure primitive vector {@code (vector-of :long)}.
+ * <p>
+ * Items are stored in {@code long[]} leaves, reading, appending, updating and streaming never box them.
+ *
+ * @author Zhizhi Deng
+ */
+public class ImmutableLongList extends AbstractImmutablePrimitiveList<Long, ImmutableLongList>
+{
+	private static final Vec EMPTY_VEC = PrimitiveVecs.empty("long");
+
+	public static final ImmutableLongList EMPTY = new ImmutableLongList(EMPTY_VEC);
+
+	/**
+	 * @param vec a clojure primitive vector created by {@code (vector-of :long)}
+	 * @throws IllegalArgumentException if the given vector is not a primitive long vector
+	 */
+	public ImmutableLongList(IPersistentVector vec)
+	{
+		super(vec, EMPTY_VEC, "long");
+	}
+
+	public static ImmutableLongList create(long... items)
+	{
+		return items == null || items.length == 0 ? EMPTY : EMPTY.consAll(items);
+	}
+
+	public static ImmutableLongList create(LongStream items)
+	{
+		return create(items.toArray());
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public long getLong(int index)
+	{
+		return ((long[]) vec.arrayFor(index))[index & 0x1f];
+	}
+
+	/**
+	 * @return a new list with the item appended
+	 */
+	public ImmutableLongList consLong(long item)
+	{
+		final long[] newTail = (long[]) appendSlot();
+		newTail[newTail.length - 1] = item;
+		return withAppended(newTail);
+	}
+
+	/**
+	 * @return a new list with the items appended
+	 */
+	public ImmutableLongList consAll(long... items)
+	{
+		return appendAll(items, items.length);
+	}
+
+	/**
+	 * @return a new list with the item at the index replaced, this list if it holds the same long there
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public ImmutableLongList assocN(int index, long item)
+	{
+		final long[] leaf = (long[]) vec.arrayFor(index);
+		if (leaf[index & 0x1f] == item)
+		{
+			return this;
+		}
+		final long[] newLeaf = leaf.clone();
+		newLeaf[index & 0x1f] = item;
+		return withLeaf(index, newLeaf);
+	}
+
+	/**
+	 * Reduce the items with the given function without boxing them.
+	 *
+	 * @param identity the initial value
+	 * @param reducer  a function that combines the accumulated value with the next item
+	 * @return the reduced result
+	 */
+	public long reduce(long identity, LongBinaryOperator reducer)
+	{
+		long result = identity;
+		for (int i = 0; i < vec.cnt; i += 32)
+		{
+			for (long item : (long[]) vec.arrayFor(i))
+			{
+				result = reducer.applyAsLong(result, item);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Visit the items in order without boxing them. Named apart from {@link #forEach(java.util.function.Consumer)}
+	 * so that a lambda argument is not ambiguous.
+	 */
+	public void forEachLong(LongConsumer action)
+	{
+		for (int i = 0; i < vec.cnt; i += 32)
+		{
+			for (long item : (long[]) vec.arrayFor(i))
+			{
+				action.accept(item);
+			}
+		}
+	}
+
+	public long[] toArray()
+	{
+		return (long[]) copyItems();
+	}
+
+	@Override
+	public PrimitiveIterator.OfLong iterator()
+	{
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public Spliterator.OfLong spliterator()
+	{
+		return new LongSpliterator(vec, 0, vec.cnt);
+	}
+
+	public LongStream stream()
+	{
+		return StreamSupport.longStream(spliterator(), false);
+	}
+
+	public LongStream parallelStream()
+	{
+		return StreamSupport.longStream(spliterator(), true);
+	}
+
+	@Override
+	ImmutableLongList wrap(Vec vec)
+	{
+		return new ImmutableLongList(vec);
+	}
+
+	@Override
+	Object newArray(int length)
+	{
+		return new long[length];
+	}
+
+	@Override
+	int hashLeaf(int h, Object leaf)
+	{
+		for (long item : (long[]) leaf)
+		{
+			h = 31 * h + Long.hashCode(item);
+		}
+		return h;
+	}
+
+	private static final class LongSpliterator extends LeafSpliterator implements Spliterator.OfLong
+	{
+		private long[] leaf;
+
+		LongSpliterator(Vec vec, int index, int end)
+		{
+			super(vec, index, end);
+		}
+
+		@Override
+		public OfLong trySplit()
+		{
+			final int from = splitPrefix();
+			if (from < 0)
+			{
+				return null;
+			}
+			leaf = null;
+			return new LongSpliterator(vec, from, index);
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action)
+		{
+			if (index >= end)
+			{
+				return false;
+			}
+			if (leaf == null || (index & 0x1f) == 0)
+			{
+				leaf = (long[]) vec.arrayFor(index);
+			}
+			action.accept(leaf[index & 0x1f]);
+			index++;
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action)
+		{
+			int i = index;
+			while (i < end)
+			{
+				final long[] leaf = (long[]) vec.arrayFor(i);
+				final int leafEnd = Math.min(leaf.length, (i & 0x1f) + end - i);
+				for (int j = i & 0x1f; j < leafEnd; j++, i++)
+				{
+					action.accept(leaf[j]);
+				}
+			}
+			index = end;
+		}
+	}
+}
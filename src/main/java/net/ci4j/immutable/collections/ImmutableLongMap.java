@@ -0,0 +1,382 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.lang.IMapEntry;
+import clojure.lang.ISeq;
+import net.ci4j.immutable.collections.impl.PersistentLongMap;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A typed immutable map keyed by primitive longs, backing by {@link PersistentLongMap}.
+ * <p>
+ * The {@code long} overloads never box the key. The raw map is a regular clojure persistent map of {@link Long}
+ * keys, so it can be stored in beans and redux state like any other clojure map.
+ *
+ * @param <V> value type
+ */
+@SuppressWarnings("unchecked")
+public class ImmutableLongMap<V> implements Map<Long, V>, ImmutableCollection<PersistentLongMap>
+{
+	private PersistentLongMap map;
+
+	private int hash;
+
+	public static final ImmutableLongMap EMPTY = new ImmutableLongMap(PersistentLongMap.EMPTY);
+
+	public static <V> ImmutableLongMap<V> refEmpty()
+	{
+		return EMPTY;
+	}
+
+	public ImmutableLongMap(PersistentLongMap map)
+	{
+		this.map = map != null ? map : PersistentLongMap.EMPTY;
+	}
+
+	/**
+	 * Create an ImmutableLongMap from a Map
+	 *
+	 * @param map A map of initial entries
+	 * @param <V> value type
+	 * @return An ImmutableLongMap instance
+	 * @throws IllegalArgumentException if a key is not a {@link Long}, {@link Integer}, {@link Short} or {@link Byte}
+	 */
+	public static <V> ImmutableLongMap<V> create(Map<? extends Number, ? extends V> map)
+	{
+		if (map == null || map.isEmpty())
+		{
+			return EMPTY;
+		}
+		if (map instanceof ImmutableLongMap)
+		{
+			return (ImmutableLongMap<V>) map;
+		}
+		PersistentLongMap result = PersistentLongMap.EMPTY;
+		for (Entry<? extends Number, ? extends V> entry : map.entrySet())
+		{
+			result = result.assoc(PersistentLongMap.toLong(entry.getKey()), entry.getValue());
+		}
+		return new ImmutableLongMap<>(result);
+	}
+
+	/**
+	 * Build an ImmutableLongMap by zipping keys and values
+	 * @param keys {key1, key2, key3, ...}
+	 * @param values {value1, value2, value3, ...}
+	 * @param <V> value type
+	 * @return an ImmutableLongMap instance
+	 */
+	public static <V> ImmutableLongMap<V> zipCreate(long[] keys, Iterable<V> values)
+	{
+		PersistentLongMap result = PersistentLongMap.EMPTY;
+		final Iterator<V> vIterator = values.iterator();
+		for (int i = 0; i < keys.length && vIterator.hasNext(); i++)
+		{
+			result = result.assoc(keys[i], vIterator.next());
+		}
+		return new ImmutableLongMap<>(result);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size()
+	{
+		return this.map.count();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty()
+	{
+		return this.map.count() == 0;
+	}
+
+	/**
+	 * @return true if the key is mapped
+	 */
+	public boolean containsKey(long key)
+	{
+		return this.map.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return this.map.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsValue(Object value)
+	{
+		return this.map.containsValue(value);
+	}
+
+	/**
+	 * Get the key-value pair by the given key.
+	 * @param key key
+	 * @return A {@link IMapEntry} object to access the key-value pair
+	 */
+	public IMapEntry entryAt(long key)
+	{
+		return this.map.entryAt(key);
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped,
+	 * or {@code null} if this map contains no mapping for the key.
+	 *
+	 * @param key the key whose associated value is to be returned
+	 * @return the value to which the specified key is mapped, or
+	 *         {@code null} if this map contains no mapping for the key
+	 */
+	public V get(long key)
+	{
+		return (V) this.map.valAt(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(Object key)
+	{
+		return (V) this.map.valAt(key);
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped,
+	 * or a default value if this map contains no mapping for the key.
+	 *
+	 * @param key the key whose associated value is to be returned
+	 * @param notFound the default value to be returned if the specified key not found.
+	 * @return the value to which the specified key is mapped, or
+	 *         a default value if this map contains no mapping for the key
+	 */
+	public V valAt(long key, V notFound)
+	{
+		return (V) this.map.valAt(key, notFound);
+	}
+
+	@Override
+	@Deprecated
+	public V put(Long key, V value)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public V remove(Object key)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public void putAll(Map<? extends Long, ? extends V> m)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public void clear()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Long> keySet()
+	{
+		return this.map.keySet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<V> values()
+	{
+		return this.map.values();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Entry<Long, V>> entrySet()
+	{
+		return this.map.entrySet();
+	}
+
+	/**
+	 * assoc[iate]. returns a new map that contains the mapping of key to val.
+	 * If the key is already mapped to the identical value, the original map is returned.
+	 *
+	 * @param key key
+	 * @param val value
+	 */
+	public ImmutableLongMap<V> assoc(long key, V val)
+	{
+		final PersistentLongMap newMap = this.map.assoc(key, val);
+		return newMap != this.map ? new ImmutableLongMap<>(newMap) : this;
+	}
+
+	/**
+	 * Associate all entries from another Map
+	 * @param other The map to be associated into the current ImmutableLongMap
+	 *
+	 * @return A new map contains entries from the original map and the other map
+	 * @throws IllegalArgumentException if a key is not a {@link Long}, {@link Integer}, {@link Short} or {@link Byte}
+	 */
+	public ImmutableLongMap<V> assocAll(Map<? extends Number, ? extends V> other)
+	{
+		PersistentLongMap newMap = this.map;
+		for (Entry<? extends Number, ? extends V> entry : other.entrySet())
+		{
+			newMap = newMap.assoc(PersistentLongMap.toLong(entry.getKey()), entry.getValue());
+		}
+		return newMap != this.map ? new ImmutableLongMap<>(newMap) : this;
+	}
+
+	/**
+	 * Return a new map without the given key mapping.
+	 * @param key key
+	 */
+	public ImmutableLongMap<V> without(long key)
+	{
+		final PersistentLongMap without = this.map.without(key);
+		return without != this.map ? new ImmutableLongMap<>(without) : this;
+	}
+
+	/**
+	 * Visit all entries in ascending key order.
+	 * @param consumer receives the primitive key and the value of each entry
+	 */
+	public void forEachEntry(PersistentLongMap.EntryConsumer<? super V> consumer)
+	{
+		this.map.forEachEntry(consumer);
+	}
+
+	/**
+	 * Visit the entries whose keys are within [fromInclusive, toInclusive] in ascending key order.
+	 * @param consumer receives the primitive key and the value of each entry
+	 */
+	public void forEachInRange(long fromInclusive, long toInclusive, PersistentLongMap.EntryConsumer<? super V> consumer)
+	{
+		this.map.forEachInRange(fromInclusive, toInclusive, consumer);
+	}
+
+	/**
+	 * @return an iterator of the entries whose keys are within [fromInclusive, toInclusive], in ascending key order
+	 */
+	public Iterator<IMapEntry> rangeIterator(long fromInclusive, long toInclusive)
+	{
+		return this.map.rangeIterator(fromInclusive, toInclusive);
+	}
+
+	/**
+	 * @see {@link #size()}
+	 */
+	public int count()
+	{
+		return this.map.count();
+	}
+
+	public boolean equiv(Object o)
+	{
+		return this.map.equiv(o);
+	}
+
+	public ISeq seq()
+	{
+		return this.map.seq();
+	}
+
+	public Iterator iterator()
+	{
+		return this.map.iterator();
+	}
+
+	/**
+	 * Same as {@link Map#equals(Object)}, an ImmutableLongMap is equal to any map with the same {@link Long} keys and
+	 * equal values.
+	 */
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o) return true;
+		if (o instanceof ImmutableLongMap)
+		{
+			final ImmutableLongMap<?> that = (ImmutableLongMap<?>) o;
+			if (map == that.map) return true;
+			if (map.count() != that.map.count()) return false;
+			if (hash != 0 && that.hash != 0 && hash != that.hash) return false;
+			return map.equals(that.map);
+		}
+		return map.equals(o);
+	}
+
+	/**
+	 * Same as {@link Map#hashCode()}, computed once and cached.
+	 */
+	@Override
+	public int hashCode()
+	{
+		int h = hash;
+		if (h == 0)
+		{
+			h = map.hashCode();
+			hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	public PersistentLongMap getRaw()
+	{
+		return map;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.valueOf(map);
+	}
+}
@@ -27,16 +27,40 @@ import clojure.lang.ISeq;
 import clojure.lang.ITransientMap;
 import clojure.lang.PersistentArrayMap;
 import clojure.lang.PersistentHashMap;
+import clojure.lang.RT;
+import clojure.lang.Util;
+import net.ci4j.fn.Fn0;
 import net.ci4j.fn.Fn1;
-import net.ci4j.immutable.clojure_utils.ClojureJson;
-import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.fn.Fn2;
+import net.ci4j.fn.Fn3;
+import net.ci4j.immutable.clojure_utils.ClojureReducers;
+import net.ci4j.immutable.clojure_utils.EdnParseException;
 import net.ci4j.immutable.clojure_utils.JsonParseException;
+import net.ci4j.immutable.collections.impl.HashTrieSpliterator;
+import net.ci4j.immutable.collections.impl.NestedPaths;
+import net.ci4j.immutable.collections.impl.StructuralDiff;
+import net.ci4j.immutable.collections.impl.StructuralEquals;
+import net.ci4j.immutable.edn.EdnDecoder;
+import net.ci4j.immutable.edn.EdnEncoder;
 import net.ci4j.immutable.fn.Fn;
-
+import net.ci4j.immutable.json.JsonDecoder;
+import net.ci4j.immutable.json.JsonEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A typed immutable map backing by clojure map
@@ -46,8 +70,12 @@ import java.util.Set;
 @SuppressWarnings("unchecked")
 public class ImmutableMap<K, V> implements Map<K, V>, ImmutableCollection<APersistentMap>
 {
+	private static final Object NOT_FOUND = new Object();
+
 	private APersistentMap map;
 
+	private int hash;
+
 	public static final ImmutableMap EMPTY = new ImmutableMap(PersistentArrayMap.EMPTY);
 
 	@SuppressWarnings("unchecked")
@@ -120,12 +148,12 @@ public class ImmutableMap<K, V> implements Map<K, V>, ImmutableCollection<APersi
 	@SuppressWarnings("unchecked")
 	public static <K, V> ImmutableMap<K, V> zipCreate(Iterable<K> keys, Iterable<V> values)
 	{
-		final ITransientMap trans = PersistentArrayMap.EMPTY.asTransient();
+		ITransientMap trans = PersistentArrayMap.EMPTY.asTransient();
 		final Iterator<K> kIterator = keys.iterator();
 		final Iterator<V> vIterator = values.iterator();
 		while (kIterator.hasNext() && vIterator.hasNext())
 		{
-			trans.assoc(kIterator.next(), vIterator.next());
+			trans = trans.assoc(kIterator.next(), vIterator.next());
 		}
 		return new ImmutableMap<>((APersistentMap) trans.persistent());
 	}
@@ -135,41 +163,50 @@ public class ImmutableMap<K, V> implements Map<K, V>, ImmutableCollection<APersi
 	 *
 	 * @param ednString The edn format string representing a clojure set
 	 * @return An ImmutableMap instance
+	 * @throws EdnParseException if the ednString is not valid EDN
 	 * @throws ClassCastException if the ednString does not represent a valid clojure vector
 	 */
 	public static <K, V> ImmutableMap<K, V> fromString(String ednString)
 	{
-		return ednString != null ? new ImmutableMap<>(ClojureRT.readString(ednString)) : EMPTY;
+		final APersistentMap map = ednString != null ? (APersistentMap) EdnDecoder.DEFAULT.read(ednString) : null;
+		return map != null ? new ImmutableMap<>(map) : EMPTY;
 	}
 
 	/**
-	 * Obtain an ImmutableList object represented by the JSON string.
+	 * Obtain an ImmutableMap object represented by the JSON string.
 	 *
-	 * @param jsonString The json format string representing a javascript array
-	 * @return An ImmutableList instance
+	 * @param jsonString The json format string representing a javascript object
+	 * @return An ImmutableMap instance
 	 * @throws JsonParseException if the jsonString is not a valid json string
-	 * @throws ClassCastException if the jsonString does not represent a js array
+	 * @throws ClassCastException if the jsonString does not represent a js object
 	 */
 	public static <K, V> ImmutableMap<K, V> fromJson(String jsonString)
 	{
-		if (jsonString == null) {
-			return EMPTY;
-		}
-		try {
-			return jsonString != null
-				? new ImmutableMap<>((APersistentMap) ClojureJson.PARSE_STRING.invoke(jsonString))
-				: EMPTY;
-		} catch (Exception e) {
-			//I have to do it this way because Clojure does not declare checked exception on its API
-			if (e instanceof com.fasterxml.jackson.core.JsonParseException)
-			{
-				throw new JsonParseException(e);
-			}
-			else
-			{
-				throw e;
-			}
-		}
+		return jsonString != null ? new ImmutableMap<>((APersistentMap) JsonDecoder.DEFAULT.read(jsonString)) : EMPTY;
+	}
+
+	/**
+	 * Obtain an ImmutableMap object from a JSON object read from the stream, which is left open.
+	 *
+	 * @throws JsonParseException if the stream does not contain valid json
+	 * @throws ClassCastException if the json is not an object
+	 * @see JsonDecoder
+	 */
+	public static <K, V> ImmutableMap<K, V> fromJson(InputStream in) throws IOException
+	{
+		return new ImmutableMap<>((APersistentMap) JsonDecoder.DEFAULT.read(in));
+	}
+
+	/**
+	 * Obtain an ImmutableMap object from a JSON object read from the reader, which is left open.
+	 *
+	 * @throws JsonParseException if the reader does not contain valid json
+	 * @throws ClassCastException if the json is not an object
+	 * @see JsonDecoder
+	 */
+	public static <K, V> ImmutableMap<K, V> fromJson(Reader reader) throws IOException
+	{
+		return new ImmutableMap<>((APersistentMap) JsonDecoder.DEFAULT.read(reader));
 	}
 
 	/**
@@ -282,9 +319,113 @@ public class ImmutableMap<K, V> implements Map<K, V>, ImmutableCollection<APersi
 		return this.map.entrySet();
 	}
 
+	/**
+	 * Same as {@link Map#equals(Object)}, an ImmutableMap is equal to any map with equal entries. Two hash maps
+	 * wrapped by ImmutableMaps are compared skipping the nodes they share.
+	 */
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o) return true;
+		if (o instanceof ImmutableMap)
+		{
+			final ImmutableMap<?, ?> that = (ImmutableMap<?, ?>) o;
+			if (map == that.map) return true;
+			if (map.count() != that.map.count()) return false;
+			if (hash != 0 && that.hash != 0 && hash != that.hash) return false;
+			if (map instanceof PersistentHashMap && that.map instanceof PersistentHashMap)
+			{
+				return StructuralEquals.hashMaps((PersistentHashMap) map, (PersistentHashMap) that.map, true);
+			}
+			return map.equals(that.map);
+		}
+		return map.equals(o);
+	}
+
+	/**
+	 * Same as {@link Map#hashCode()}, computed once and cached.
+	 */
+	@Override
+	public int hashCode()
+	{
+		int h = hash;
+		if (h == 0)
+		{
+			h = map.hashCode();
+			hash = h;
+		}
+		return h;
+	}
+
+	/**
+	 * Obtain the entries added, removed and changed from this map to the other one.
+	 * <p>
+	 * The hash tries of both maps are walked side by side and the nodes shared by both are skipped, so diffing a map
+	 * with a version derived from it takes time proportional to the changes instead of the size.
+	 *
+	 * @param other the new version
+	 * @return the differences, values being compared with equals
+	 */
+	public MapDiff<K, V> diff(ImmutableMap<K, V> other)
+	{
+		final TransientImmutableMap<K, V> added = ImmutableMap.<K, V>refEmpty().asTransient();
+		final TransientImmutableMap<K, V> removed = ImmutableMap.<K, V>refEmpty().asTransient();
+		final TransientImmutableMap<K, V> changed = ImmutableMap.<K, V>refEmpty().asTransient();
+		final StructuralDiff.EntrySink sink = new StructuralDiff.EntrySink()
+		{
+			@Override
+			public void added(Object key, Object val)
+			{
+				added.put((K) key, (V) val);
+			}
+
+			@Override
+			public void removed(Object key, Object val)
+			{
+				removed.put((K) key, (V) val);
+			}
+
+			@Override
+			public void changed(Object key, Object oldVal, Object newVal)
+			{
+				changed.put((K) key, (V) newVal);
+			}
+		};
+		if (map instanceof PersistentHashMap && other.map instanceof PersistentHashMap)
+		{
+			StructuralDiff.hashMaps((PersistentHashMap) map, (PersistentHashMap) other.map, sink);
+		}
+		else if (map != other.map)
+		{
+			for (Object item : map)
+			{
+				final Entry<?, ?> entry = (Entry<?, ?>) item;
+				final Object newVal = other.map.valAt(entry.getKey(), NOT_FOUND);
+				if (newVal == NOT_FOUND)
+				{
+					sink.removed(entry.getKey(), entry.getValue());
+				}
+				else if (!Util.equals(entry.getValue(), newVal))
+				{
+					sink.changed(entry.getKey(), entry.getValue(), newVal);
+				}
+			}
+			for (Object item : other.map)
+			{
+				final Entry<?, ?> entry = (Entry<?, ?>) item;
+				if (!map.containsKey(entry.getKey()))
+				{
+					sink.added(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		return new MapDiff<>(added.persistent(), removed.persistent(), changed.persistent());
+	}
+
 	/**
 	 * assoc[iate]. returns a new map of the same (hashed/sorted) type, that contains
-	 * the mapping of key to val.
+	 * the mapping of key to val. If the key is already mapped to the identical value,
+	 * the original map is returned.
 	 *
 	 * @param key key
 	 * @param val value
@@ -292,7 +433,7 @@ public class ImmutableMap<K, V> implements Map<K, V>, ImmutableCollection<APersi
 	public ImmutableMap<K, V> assoc(K key, V val)
 	{
 		final APersistentMap newMap = (APersistentMap) this.map.assoc(key, val);
-		return this.map.size() != newMap.size()
+		return this.map != newMap
 			? new ImmutableMap<>(newMap)
 			: this;
 	}
@@ -380,22 +521,176 @@ public class ImmutableMap<K, V> implements Map<K, V>, ImmutableCollection<APersi
 		return this.map.iterator();
 	}
 
+	/**
+	 * For hash maps, a spliterator of the entries splitting on the node boundaries of the hash trie.
+	 */
+	public Spliterator<Entry<K, V>> spliterator()
+	{
+		return this.map instanceof PersistentHashMap
+			? HashTrieSpliterator.entries((PersistentHashMap) this.map)
+			: Spliterators.spliterator(entrySet(), Spliterator.DISTINCT | Spliterator.IMMUTABLE);
+	}
+
+	/**
+	 * @return a sequential stream of the entries
+	 */
+	public Stream<Entry<K, V>> stream()
+	{
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * @return a parallel stream of the entries
+	 */
+	public Stream<Entry<K, V>> parallelStream()
+	{
+		return StreamSupport.stream(spliterator(), true);
+	}
+
 	/**
 	 * Associate all entries from another Map
 	 * @param other The map to be associated into the current ImmutableMap
 	 *
-	 * @return A new map contains entries from the original map and the other map
+	 * @return A new map contains entries from the original map and the other map. If every key of the other map
+	 * is already mapped to the identical value, the original map is returned.
 	 */
 	public ImmutableMap<K, V> assocAll(Map<? extends K, ? extends V> other)
 	{
-		final ITransientMap trans = (ITransientMap) ((IEditableCollection) this.map).asTransient();
-		other.forEach(trans::assoc);
-		final APersistentMap newMap = (APersistentMap) trans.persistent();
-		return newMap.size() != this.size()
-			? new ImmutableMap<>(newMap)
+		ITransientMap trans = null;
+		for (Entry<? extends K, ? extends V> entry : other.entrySet())
+		{
+			if (trans == null)
+			{
+				if (this.map.valAt(entry.getKey(), NOT_FOUND) == entry.getValue())
+				{
+					continue;
+				}
+				trans = (ITransientMap) ((IEditableCollection) this.map).asTransient();
+			}
+			trans = trans.assoc(entry.getKey(), entry.getValue());
+		}
+		return trans != null
+			? new ImmutableMap<>((APersistentMap) trans.persistent())
 			: this;
 	}
 
+	/**
+	 * Obtain a mutable copy for editing many entries at once, call {@link TransientImmutableMap#persistent()} at the end.
+	 * The original map is not affected.
+	 */
+	public TransientImmutableMap<K, V> asTransient()
+	{
+		return new TransientImmutableMap<>(this);
+	}
+
+	/**
+	 * Edit many entries at once through a transient copy.
+	 * <pre>
+	 *     state = state.withMutations(t -> {
+	 *         for (Change change : changes) {
+	 *             t.put(change.getKey(), change.getValue());
+	 *         }
+	 *     });
+	 * </pre>
+	 *
+	 * @param statement edits the transient, it must not keep a reference to it
+	 * @return A new map with the edits applied, the original map if nothing has been written
+	 */
+	public ImmutableMap<K, V> withMutations(Consumer<TransientImmutableMap<K, V>> statement)
+	{
+		final TransientImmutableMap<K, V> aTransient = asTransient();
+		statement.accept(aTransient);
+		return aTransient.persistent();
+	}
+
+	/**
+	 * A {@link Collector} putting the stream items into a transient hash map, without an intermediate
+	 * {@link java.util.HashMap}. Parallel streams merge the right part into the left one.
+	 *
+	 * @param keyFn maps an item to its key
+	 * @param valFn maps an item to its value
+	 * @param mergeFn merges the current value of a duplicate key with the new one, in encounter order
+	 */
+	public static <T, K, V> Collector<T, ?, ImmutableMap<K, V>> collector(Fn1<? super T, ? extends K> keyFn,
+	                                                                      Fn1<? super T, ? extends V> valFn,
+	                                                                      Fn2<V, V, V> mergeFn)
+	{
+		return Collector.of(
+			() -> ImmutableMap.<K, V>refEmpty().asTransient(),
+			(trans, item) -> trans.merge(keyFn.apply(item), valFn.apply(item), mergeFn),
+			(left, right) ->
+			{
+				for (Entry<K, V> entry : right.persistent().entrySet())
+				{
+					left.merge(entry.getKey(), entry.getValue(), mergeFn);
+				}
+				return left;
+			},
+			TransientImmutableMap::persistent);
+	}
+
+	/**
+	 * Same as {@link #collector(Fn1, Fn1, Fn2)}, throwing an {@link IllegalStateException} on duplicate keys
+	 * like {@link java.util.stream.Collectors#toMap(java.util.function.Function, java.util.function.Function)}.
+	 * Each item costs a single assoc, a duplicate is detected by the unchanged size.
+	 */
+	public static <T, K, V> Collector<T, ?, ImmutableMap<K, V>> collector(Fn1<? super T, ? extends K> keyFn,
+	                                                                      Fn1<? super T, ? extends V> valFn)
+	{
+		return Collector.of(
+			() -> ImmutableMap.<K, V>refEmpty().asTransient(),
+			(trans, item) -> putNew(trans, keyFn.apply(item), valFn.apply(item)),
+			(left, right) ->
+			{
+				for (Entry<K, V> entry : right.persistent().entrySet())
+				{
+					putNew(left, entry.getKey(), entry.getValue());
+				}
+				return left;
+			},
+			TransientImmutableMap::persistent);
+	}
+
+	private static <K, V> void putNew(TransientImmutableMap<K, V> trans, K key, V value)
+	{
+		final int size = trans.size();
+		if (trans.put(key, value).size() == size)
+		{
+			throw new IllegalStateException("Duplicate key " + key);
+		}
+	}
+
+	/**
+	 * Write the map as UTF-8 JSON to the stream, which is flushed and left open, without building the whole
+	 * document as a {@link String} first.
+	 *
+	 * @see JsonEncoder
+	 */
+	public void writeJson(OutputStream out) throws IOException
+	{
+		JsonEncoder.DEFAULT.write(map, out);
+	}
+
+	/**
+	 * Write the map as JSON to the writer, which is flushed and left open.
+	 *
+	 * @see JsonEncoder
+	 */
+	public void writeJson(Writer writer) throws IOException
+	{
+		JsonEncoder.DEFAULT.write(map, writer);
+	}
+
+	/**
+	 * Write the map as EDN to the writer, which is left open.
+	 *
+	 * @see EdnEncoder
+	 */
+	public void toEdn(Writer writer) throws IOException
+	{
+		EdnEncoder.write(map, writer);
+	}
+
 	@Override
 	public APersistentMap getRaw()
 	{
@@ -404,15 +699,95 @@ public class ImmutableMap<K, V> implements Map<K, V>, ImmutableCollection<APersi
 
 	public ImmutableMap<K, V> update(K key, Fn1<V, V> transformer)
 	{
-		APersistentMap raw = getRaw();
-		APersistentMap newState = (APersistentMap) ClojureRT.UPDATE.invoke(raw, key, Fn.fn(transformer));
-		return raw != newState ? new ImmutableMap<>(newState) : this;
+		return assoc(key, transformer.apply(get(key)));
 	}
 
 	public ImmutableMap<K, V> updateIn(ISeq keys, Fn1<V, V> transformer)
 	{
-		APersistentMap raw = getRaw();
-		APersistentMap newState = (APersistentMap) ClojureRT.UPDATE_IN.invoke(raw, keys, Fn.fn(transformer));
-		return raw != newState ? new ImmutableMap<>(newState) : this;
+		return updateIn(transformer, keys != null ? RT.seqToArray(keys) : new Object[] {null});
+	}
+
+	/**
+	 * Get a value in nested maps, same as {@code clojure.core/get-in}.
+	 *
+	 * @param path keys of the nested maps, then the key of the value
+	 * @return the value at the end of the path, or {@code null} if a key of the path is not mapped
+	 */
+	public <T> T getIn(Object... path)
+	{
+		return (T) (path.length == 0 ? this : NestedPaths.getIn(map, path, 0, null));
+	}
+
+	/**
+	 * Map the last key of the path to the value in the nested map found at the other keys, creating the missing
+	 * maps. Same as {@code clojure.core/assoc-in}.
+	 *
+	 * @param value new value
+	 * @param path keys of the nested maps, then the key of the value
+	 * @return the updated map, or this map if the identical value is already mapped
+	 */
+	public ImmutableMap<K, V> assocIn(Object value, Object... path)
+	{
+		return updateIn(current -> value, path);
+	}
+
+	/**
+	 * Replace the value at the end of the path by the result of the transformer, which receives {@code null} if a key
+	 * of the path is not mapped. Same as {@code clojure.core/update-in}.
+	 *
+	 * @param transformer computes the new value from the current one
+	 * @param path keys of the nested maps, then the key of the value
+	 * @return the updated map, or this map if the transformer returned the identical value
+	 */
+	public <T> ImmutableMap<K, V> updateIn(Fn1<T, ?> transformer, Object... path)
+	{
+		TransientImmutableMap.checkPath(path);
+		return wrapNested(NestedPaths.updateIn(map, path, 0, (Fn1<Object, Object>) transformer));
+	}
+
+	/**
+	 * Remove the last key of the path from the nested map found at the other keys. Unlike
+	 * {@code (update-in m (butlast path) dissoc k)}, no map is created when the path does not exist.
+	 *
+	 * @param path keys of the nested maps, then the key to remove
+	 * @return the updated map, or this map if the path does not exist
+	 */
+	public ImmutableMap<K, V> dissocIn(Object... path)
+	{
+		TransientImmutableMap.checkPath(path);
+		return wrapNested(NestedPaths.dissocIn(map, path, 0));
+	}
+
+	private ImmutableMap<K, V> wrapNested(Object newMap)
+	{
+		return newMap != map ? new ImmutableMap<>((APersistentMap) newMap) : this;
+	}
+
+	/**
+	 * Reduce the map in parallel, the same way as {@code clojure.core.reducers/fold}.
+	 * <p>
+	 * The map is split into chunks of about {@code chunkSize} items, each chunk is reduced on a fork/join
+	 * pool starting from {@code seed.apply()}, then the chunk results are merged by {@code combiner}.
+	 * Only hash maps are split, smaller array maps are reduced in a single chunk.
+	 * The reducer and the combiner must be associative and the seed must be an identity of the combiner.
+	 *
+	 * @param seed supplies the initial value of each chunk
+	 * @param combiner merges the results of two chunks
+	 * @param reducer accumulates one key and its value into the result of a chunk
+	 * @param chunkSize maximum number of items reduced sequentially by one task
+	 * @return the combined result
+	 */
+	public <T> T fold(Fn0<T> seed, Fn2<T, T, T> combiner, Fn3<T, K, V, T> reducer, int chunkSize)
+	{
+		return (T) ClojureReducers.fold(getRaw(), chunkSize, Fn.combiner(seed, combiner), Fn.fn(reducer));
+	}
+
+	/**
+	 * Same as {@link #fold(Fn0, Fn2, Fn3, int)} with the default chunk size of
+	 * {@value net.ci4j.immutable.clojure_utils.ClojureReducers#DEFAULT_CHUNK_SIZE}.
+	 */
+	public <T> T fold(Fn0<T> seed, Fn2<T, T, T> combiner, Fn3<T, K, V, T> reducer)
+	{
+		return fold(seed, combiner, reducer, ClojureReducers.DEFAULT_CHUNK_SIZE);
 	}
 }
@@ -22,18 +22,37 @@ package net.ci4j.immutable.collections;
 
 import clojure.lang.APersistentSet;
 import clojure.lang.IEditableCollection;
+import clojure.lang.IPersistentMap;
 import clojure.lang.ITransientCollection;
+import clojure.lang.ITransientSet;
+import clojure.lang.PersistentHashMap;
 import clojure.lang.PersistentHashSet;
-import net.ci4j.immutable.clojure_utils.ClojureRT;
-
+import net.ci4j.fn.Fn0;
+import net.ci4j.fn.Fn2;
+import net.ci4j.immutable.clojure_utils.ClojureInternals;
+import net.ci4j.immutable.clojure_utils.ClojureReducers;
+import net.ci4j.immutable.clojure_utils.EdnParseException;
+import net.ci4j.immutable.collections.impl.HashTrieSpliterator;
+import net.ci4j.immutable.collections.impl.StructuralEquals;
+import net.ci4j.immutable.edn.EdnDecoder;
+import net.ci4j.immutable.edn.EdnEncoder;
+import net.ci4j.immutable.fn.Fn;
+import net.ci4j.immutable.json.JsonEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Collector;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A typed immutable set backing by clojure set
@@ -45,6 +64,8 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 {
 	private APersistentSet aSet;
 
+	private int hash;
+
 	public final static ImmutableSet EMPTY = new ImmutableSet(PersistentHashSet.EMPTY);
 
 	public ImmutableSet(APersistentSet vector)
@@ -101,7 +122,11 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 	 */
 	public static <T> ImmutableSet<T> create(Iterable<T> items)
 	{
-		return new ImmutableSet<>(PersistentHashSet.create(items));
+		if (items instanceof ImmutableSet)
+		{
+			return (ImmutableSet<T>) items;
+		}
+		return ImmutableSet.<T>refEmpty().withMutations(trans -> trans.consAll(items));
 	}
 
 	/**
@@ -109,11 +134,13 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 	 *
 	 * @param ednString The edn format string representing a clojure set
 	 * @return An ImmutableSet instance
+	 * @throws EdnParseException if the ednString is not valid EDN
 	 * @throws ClassCastException if the ednString does not represent a valid clojure vector
 	 */
 	public static <T> ImmutableSet<T> fromString(String ednString)
 	{
-		return ednString != null ? new ImmutableSet(ClojureRT.readString(ednString)) : EMPTY;
+		final APersistentSet set = ednString != null ? (APersistentSet) EdnDecoder.DEFAULT.read(ednString) : null;
+		return set != null ? new ImmutableSet<>(set) : EMPTY;
 	}
 
 	/**
@@ -230,16 +257,31 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		ImmutableSet<?> that = (ImmutableSet<?>) o;
-		return Objects.equals(aSet, that.aSet);
+		if (aSet == that.aSet) return true;
+		if (aSet.count() != that.aSet.count()) return false;
+		if (hash != 0 && that.hash != 0 && hash != that.hash) return false;
+		final IPersistentMap impl = ClojureInternals.setImpl(aSet);
+		final IPersistentMap thatImpl = ClojureInternals.setImpl(that.aSet);
+		if (impl instanceof PersistentHashMap && thatImpl instanceof PersistentHashMap)
+		{
+			return StructuralEquals.hashMaps((PersistentHashMap) impl, (PersistentHashMap) thatImpl, false);
+		}
+		return aSet.equals(that.aSet);
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Same as {@link Set#hashCode()}, computed once and cached.
 	 */
 	@Override
 	public int hashCode()
 	{
-		return Objects.hash(aSet);
+		int h = hash;
+		if (h == 0)
+		{
+			h = aSet.hashCode();
+			hash = h;
+		}
+		return h;
 	}
 
 	/**
@@ -299,25 +341,22 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 	 * invocation, unless there is no item to be filtered out, in this case the original
 	 * ImmutableSet instance shall be returned.
 	 * <p>
-	 * For better performance in chained collection transformation, consider using {@link List#stream()} instead.
+	 * For better performance in chained collection transformation, consider using {@link #transform(Transducer)} instead.
 	 *
 	 * @param filter A lambda to select the items to be excluded.
 	 * @return A new ImmutableSet without the items match the filter. If no item has been filtered out, the original set instance shall be returned.
 	 */
 	public ImmutableSet<E> filterOut(Predicate<E> filter)
 	{
-		final ITransientCollection trans = ((IEditableCollection) this.aSet).asTransient();
-		for (Object item : aSet)
-		{
-			if (!filter.test((E) item))
+		return withMutations(trans -> {
+			for (Object item : aSet)
 			{
-				trans.conj(item);
+				if (filter.test((E) item))
+				{
+					trans.remove(item);
+				}
 			}
-		}
-		final APersistentSet newSet = (APersistentSet) trans.persistent();
-		return newSet.size() != aSet.size()
-			? new ImmutableSet<>(newSet)
-			: this;
+		});
 	}
 
 	/**
@@ -328,7 +367,7 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 	 * ImmutableSet instance shall be returned.
 	 * </p>
 	 * <p>
-	 * For better performance in chained collection transformation, consider using {@link List#stream()} instead.
+	 * For better performance in chained collection transformation, consider using {@link #transform(Transducer)} instead.
 	 * </p>
 	 * @param filter A lambda to select the items to be included.
 	 * @return A new ImmutableSet contains the items match the filter. If no item has been filtered out, the original list instance shall be
@@ -336,18 +375,27 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 	 */
 	public ImmutableSet<E> filter(Predicate<E> filter)
 	{
-		final ITransientCollection trans = ((IEditableCollection) this.aSet).asTransient();
-		for (Object item : aSet)
-		{
-			if (filter.test((E) item))
+		return withMutations(trans -> {
+			for (Object item : aSet)
 			{
-				trans.conj(item);
+				if (!filter.test((E) item))
+				{
+					trans.remove(item);
+				}
 			}
-		}
-		final APersistentSet newSet = (APersistentSet) trans.persistent();
-		return newSet.size() != aSet.size()
-			? new ImmutableSet<>(newSet)
-			: this;
+		});
+	}
+
+	/**
+	 * Create a new ImmutableSet from the items of this one going through the transducer, in a single pass and without
+	 * intermediate collections.
+	 *
+	 * @param xform The pipeline of transformations, see {@link Transducer}.
+	 * @return A new ImmutableSet of the transformed items.
+	 */
+	public <T> ImmutableSet<T> transform(Transducer<? super E, T> xform)
+	{
+		return xform.toSet(this);
 	}
 
 	/**
@@ -356,7 +404,7 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 	@Override
 	public Stream<E> stream()
 	{
-		return aSet.stream();
+		return StreamSupport.stream(spliterator(), false);
 	}
 
 	/**
@@ -365,7 +413,19 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 	@Override
 	public Stream<E> parallelStream()
 	{
-		return aSet.parallelStream();
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * For hash sets, a spliterator splitting on the node boundaries of the backing hash trie.
+	 */
+	@Override
+	public Spliterator<E> spliterator()
+	{
+		final IPersistentMap impl = ClojureInternals.setImpl(aSet);
+		return impl instanceof PersistentHashMap
+			? HashTrieSpliterator.keys((PersistentHashMap) impl)
+			: Spliterators.spliterator(this, Spliterator.DISTINCT | Spliterator.IMMUTABLE);
 	}
 
 	/**
@@ -386,6 +446,75 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 		return "ImmutableSet{" + "set=" + aSet + '}';
 	}
 
+	/**
+	 * Obtain a mutable copy for editing many items at once, call {@link TransientImmutableSet#persistent()} at the end.
+	 * The original set is not affected.
+	 */
+	public TransientImmutableSet<E> asTransient()
+	{
+		return new TransientImmutableSet<>(this, (ITransientSet) ((IEditableCollection) aSet).asTransient());
+	}
+
+	/**
+	 * Edit many items at once through a transient copy.
+	 *
+	 * @param statement edits the transient, it must not keep a reference to it
+	 * @return A new set with the edits applied, the original set if nothing has been changed
+	 */
+	public ImmutableSet<E> withMutations(Consumer<TransientImmutableSet<E>> statement)
+	{
+		final TransientImmutableSet<E> aTransient = asTransient();
+		statement.accept(aTransient);
+		return aTransient.persistent();
+	}
+
+	/**
+	 * A {@link Collector} adding the stream items to a transient hash set, without an intermediate
+	 * {@link java.util.HashSet}. Parallel streams add the smaller part into the larger one.
+	 */
+	public static <T> Collector<T, ?, ImmutableSet<T>> collector()
+	{
+		return Collector.of(
+			() -> ImmutableSet.<T>refEmpty().asTransient(),
+			TransientImmutableSet::cons,
+			(left, right) -> left.size() >= right.size()
+				? left.consAll(right.persistent())
+				: right.consAll(left.persistent()),
+			TransientImmutableSet::persistent,
+			Collector.Characteristics.UNORDERED);
+	}
+
+	/**
+	 * Write the set as a UTF-8 JSON array to the stream, which is flushed and left open, without building the
+	 * whole document as a {@link String} first.
+	 *
+	 * @see JsonEncoder
+	 */
+	public void writeJson(OutputStream out) throws IOException
+	{
+		JsonEncoder.DEFAULT.write(aSet, out);
+	}
+
+	/**
+	 * Write the set as a JSON array to the writer, which is flushed and left open.
+	 *
+	 * @see JsonEncoder
+	 */
+	public void writeJson(Writer writer) throws IOException
+	{
+		JsonEncoder.DEFAULT.write(aSet, writer);
+	}
+
+	/**
+	 * Write the set as EDN to the writer, which is left open.
+	 *
+	 * @see EdnEncoder
+	 */
+	public void toEdn(Writer writer) throws IOException
+	{
+		EdnEncoder.write(aSet, writer);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -395,4 +524,33 @@ public class ImmutableSet<E> implements Set<E>, ImmutableCollection<APersistentS
 		return aSet;
 	}
 
+	/**
+	 * Reduce the set in parallel, the same way as {@code clojure.core.reducers/fold}.
+	 * <p>
+	 * The set is split into chunks of about {@code chunkSize} items, each chunk is reduced on a fork/join
+	 * pool starting from {@code seed.apply()}, then the chunk results are merged by {@code combiner}.
+	 * The fold runs over the hash map backing the set, which {@code clojure.core.reducers} can split
+	 * while it cannot split the set itself.
+	 * The reducer and the combiner must be associative and the seed must be an identity of the combiner.
+	 *
+	 * @param seed supplies the initial value of each chunk
+	 * @param combiner merges the results of two chunks
+	 * @param reducer accumulates one item into the result of a chunk
+	 * @param chunkSize maximum number of items reduced sequentially by one task
+	 * @return the combined result
+	 */
+	public <T> T fold(Fn0<T> seed, Fn2<T, T, T> combiner, Fn2<T, E, T> reducer, int chunkSize)
+	{
+		return (T) ClojureReducers.fold(ClojureInternals.setImpl(aSet), chunkSize, Fn.combiner(seed, combiner),
+			Fn.fn((T acc, E item, Object ignored) -> reducer.apply(acc, item)));
+	}
+
+	/**
+	 * Same as {@link #fold(Fn0, Fn2, Fn2, int)} with the default chunk size of
+	 * {@value net.ci4j.immutable.clojure_utils.ClojureReducers#DEFAULT_CHUNK_SIZE}.
+	 */
+	public <T> T fold(Fn0<T> seed, Fn2<T, T, T> combiner, Fn2<T, E, T> reducer)
+	{
+		return fold(seed, combiner, reducer, ClojureReducers.DEFAULT_CHUNK_SIZE);
+	}
 }
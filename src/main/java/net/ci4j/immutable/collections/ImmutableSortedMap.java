@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.lang.PersistentTreeMap;
+import clojure.lang.RT;
+import net.ci4j.immutable.collections.impl.TreeRange;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * A typed immutable sorted map, backing by clojure {@link PersistentTreeMap}.
+ * <p>
+ * {@link #subMap}, {@link #headMap}, {@link #tailMap} and {@link #descendingMap()} return views sharing the same
+ * tree, they are created in O(1) and never copy entries. Navigation on a view is O(log n) on the whole tree.
+ * {@link #size()} of a bounded view and {@link #rank(Object)}/{@link #select(int)} walk the entries and are O(n),
+ * since the red-black tree does not keep subtree sizes; use an {@link ImmutableBTreeMap} when they need to be
+ * O(log n).
+ * <p>
+ * {@link #assoc(Object, Object)} and {@link #without(Object)} on a view return a view with the same bounds over the
+ * new tree, and reject keys outside of the bounds like {@link java.util.TreeMap#subMap} does.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+@SuppressWarnings("unchecked")
+public class ImmutableSortedMap<K, V> extends AbstractImmutableSortedMap<K, V, ImmutableSortedMap<K, V>> implements ImmutableCollection<PersistentTreeMap>
+{
+	static
+	{
+		// clojure fails to boot when PersistentTreeMap is the first of its classes to be initialised, start the runtime first
+		RT.var("clojure.core", "compare");
+	}
+
+	public static final ImmutableSortedMap EMPTY = new ImmutableSortedMap(PersistentTreeMap.EMPTY);
+
+	public static <K, V> ImmutableSortedMap<K, V> refEmpty()
+	{
+		return EMPTY;
+	}
+
+	public ImmutableSortedMap(PersistentTreeMap map)
+	{
+		this(TreeRange.of(map != null ? map : PersistentTreeMap.EMPTY));
+	}
+
+	private ImmutableSortedMap(TreeRange range)
+	{
+		super(range);
+	}
+
+	/**
+	 * Obtain an empty ImmutableSortedMap ordered by the given comparator
+	 *
+	 * @param comparator the comparator of keys
+	 * @return An empty ImmutableSortedMap instance
+	 */
+	public static <K, V> ImmutableSortedMap<K, V> empty(Comparator<? super K> comparator)
+	{
+		return new ImmutableSortedMap<>(new PersistentTreeMap(null, comparator));
+	}
+
+	/**
+	 * Obtain an ImmutableSortedMap by the key value pairs given in the parameters in natural ordering of keys
+	 *
+	 * @param parts key1, value1, key2, value2...
+	 * @return An ImmutableSortedMap instance
+	 */
+	public static <K, V> ImmutableSortedMap<K, V> create(Object... parts)
+	{
+		if (parts == null || parts.length == 0)
+		{
+			return EMPTY;
+		}
+		PersistentTreeMap result = PersistentTreeMap.EMPTY;
+		for (int i = 0; i + 1 < parts.length; i += 2)
+		{
+			result = result.assoc(parts[i], parts[i + 1]);
+		}
+		return new ImmutableSortedMap<>(result);
+	}
+
+	/**
+	 * Obtain an ImmutableSortedMap from a Map. The comparator of a {@link SortedMap} is kept, other maps are
+	 * ordered by the natural ordering of keys.
+	 *
+	 * @param map A map of initial entries
+	 * @return An ImmutableSortedMap instance
+	 */
+	public static <K, V> ImmutableSortedMap<K, V> create(Map<K, V> map)
+	{
+		if (map instanceof ImmutableSortedMap)
+		{
+			return (ImmutableSortedMap<K, V>) map;
+		}
+		final Comparator<? super K> comparator = map instanceof SortedMap ? ((SortedMap<K, V>) map).comparator() : null;
+		return create(comparator, map);
+	}
+
+	/**
+	 * Obtain an ImmutableSortedMap from a Map ordered by the given comparator
+	 *
+	 * @param comparator the comparator of keys, null for the natural ordering
+	 * @param map A map of initial entries
+	 * @return An ImmutableSortedMap instance
+	 */
+	public static <K, V> ImmutableSortedMap<K, V> create(Comparator<? super K> comparator, Map<? extends K, ? extends V> map)
+	{
+		PersistentTreeMap result = comparator != null ? new PersistentTreeMap(null, comparator) : PersistentTreeMap.EMPTY;
+		if (map != null)
+		{
+			for (Entry<? extends K, ? extends V> entry : map.entrySet())
+			{
+				result = result.assoc(entry.getKey(), entry.getValue());
+			}
+		}
+		return new ImmutableSortedMap<>(result);
+	}
+
+	@Override
+	ImmutableSortedMap<K, V> wrap(TreeRange range)
+	{
+		return new ImmutableSortedMap<>(range);
+	}
+
+	/**
+	 * @return the underlying tree. A view copies its entries into a new tree ordered by {@link #comparator()}.
+	 */
+	@Override
+	public PersistentTreeMap getRaw()
+	{
+		return (PersistentTreeMap) this.range.materialize();
+	}
+}
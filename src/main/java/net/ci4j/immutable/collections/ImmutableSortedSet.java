@@ -0,0 +1,498 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.lang.IMapEntry;
+import clojure.lang.PersistentTreeMap;
+import clojure.lang.PersistentTreeSet;
+import clojure.lang.RT;
+import net.ci4j.immutable.clojure_utils.ClojureInternals;
+import net.ci4j.immutable.collections.impl.TreeRange;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * A typed immutable sorted set, backing by clojure {@link PersistentTreeSet}.
+ * <p>
+ * {@link #subSet}, {@link #headSet}, {@link #tailSet} and {@link #descendingSet()} return views sharing the same
+ * tree, see {@link ImmutableSortedMap} for the cost of each operation on a view.
+ * The key set of an {@link ImmutableSortedMap} is also an ImmutableSortedSet, adding to or removing from it first
+ * copies the keys into a new set.
+ *
+ * @param <E> element type
+ */
+@SuppressWarnings("unchecked")
+public class ImmutableSortedSet<E> extends AbstractSet<E> implements NavigableSet<E>, ImmutableCollection<PersistentTreeSet>
+{
+	/**
+	 * the whole underlying set, null if this is the key set of a sorted map
+	 */
+	private final PersistentTreeSet set;
+
+	private final TreeRange range;
+
+	static
+	{
+		// clojure fails to boot when PersistentTreeMap is the first of its classes to be initialised, start the runtime first
+		RT.var("clojure.core", "compare");
+	}
+
+	public static final ImmutableSortedSet EMPTY = new ImmutableSortedSet(PersistentTreeSet.EMPTY);
+
+	public static <T> ImmutableSortedSet<T> refEmpty()
+	{
+		return EMPTY;
+	}
+
+	public ImmutableSortedSet(PersistentTreeSet set)
+	{
+		this(set != null ? set : PersistentTreeSet.EMPTY, null);
+	}
+
+	private ImmutableSortedSet(PersistentTreeSet set, TreeRange range)
+	{
+		this.set = set;
+		this.range = range != null ? range : TreeRange.of((PersistentTreeMap) ClojureInternals.setImpl(set));
+	}
+
+	ImmutableSortedSet(TreeRange keyRange)
+	{
+		this.set = null;
+		this.range = keyRange;
+	}
+
+	/**
+	 * Obtain an empty ImmutableSortedSet ordered by the given comparator
+	 *
+	 * @param comparator the comparator of items
+	 * @return An empty ImmutableSortedSet instance
+	 */
+	public static <T> ImmutableSortedSet<T> empty(Comparator<? super T> comparator)
+	{
+		return new ImmutableSortedSet<>(PersistentTreeSet.create(comparator, null));
+	}
+
+	/**
+	 * Obtain an ImmutableSortedSet of the given items in their natural ordering
+	 *
+	 * @param items in the result immutable set
+	 * @return An ImmutableSortedSet instance
+	 */
+	public static <T> ImmutableSortedSet<T> create(T... items)
+	{
+		if (items == null || items.length == 0)
+		{
+			return EMPTY;
+		}
+		PersistentTreeSet result = PersistentTreeSet.EMPTY;
+		for (T item : items)
+		{
+			result = (PersistentTreeSet) result.cons(item);
+		}
+		return new ImmutableSortedSet<>(result);
+	}
+
+	/**
+	 * Obtain an ImmutableSortedSet of the given items. The comparator of a {@link SortedSet} is kept, other
+	 * collections are ordered by the natural ordering of items.
+	 *
+	 * @param items in the result immutable set
+	 * @return An ImmutableSortedSet instance
+	 */
+	public static <T> ImmutableSortedSet<T> create(Iterable<T> items)
+	{
+		if (items instanceof ImmutableSortedSet)
+		{
+			return (ImmutableSortedSet<T>) items;
+		}
+		final Comparator<? super T> comparator = items instanceof SortedSet ? ((SortedSet<T>) items).comparator() : null;
+		return create(comparator, items);
+	}
+
+	/**
+	 * Obtain an ImmutableSortedSet of the given items ordered by the given comparator
+	 *
+	 * @param comparator the comparator of items, null for the natural ordering
+	 * @param items in the result immutable set
+	 * @return An ImmutableSortedSet instance
+	 */
+	public static <T> ImmutableSortedSet<T> create(Comparator<? super T> comparator, Iterable<? extends T> items)
+	{
+		PersistentTreeSet result = comparator != null ? PersistentTreeSet.create(comparator, null) : PersistentTreeSet.EMPTY;
+		if (items != null)
+		{
+			for (T item : items)
+			{
+				result = (PersistentTreeSet) result.cons(item);
+			}
+		}
+		return new ImmutableSortedSet<>(result);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size()
+	{
+		return this.range.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty()
+	{
+		return this.range.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(Object o)
+	{
+		return this.range.entryAt(o) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<E> iterator()
+	{
+		final Iterator<IMapEntry> entries = this.range.iterator();
+		return new Iterator<E>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return entries.hasNext();
+			}
+
+			@Override
+			public E next()
+			{
+				return (E) entries.next().key();
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<E> descendingIterator()
+	{
+		return descendingSet().iterator();
+	}
+
+	@Override
+	@Deprecated
+	public boolean add(E e)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public boolean remove(Object o)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public boolean addAll(Collection<? extends E> c)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public boolean removeAll(Collection<?> c)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public boolean retainAll(Collection<?> c)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public void clear()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public E pollFirst()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	@Deprecated
+	public E pollLast()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Create a new ImmutableSortedSet with the given item added to the original set.
+	 * If the given item is already existing in the original set, it should return the
+	 * original set instance.
+	 *
+	 * @param item The item to be added
+	 * @return a ImmutableSortedSet contains all items in the original set and the given item.
+	 * @throws IllegalArgumentException if this set is a view and the item is outside of its bounds
+	 */
+	public ImmutableSortedSet<E> cons(E item)
+	{
+		if (!this.range.inRange(item))
+		{
+			throw new IllegalArgumentException("item out of range");
+		}
+		if (this.set == null)
+		{
+			return new ImmutableSortedSet<E>(getRaw()).cons(item);
+		}
+		final PersistentTreeSet cons = (PersistentTreeSet) this.set.cons(item);
+		return cons != this.set ? withSet(cons) : this;
+	}
+
+	/**
+	 * Create a new ImmutableSortedSet without the given item. Items outside of the bounds of a view are ignored.
+	 *
+	 * @param item The item to be removed
+	 * @return a ImmutableSortedSet contains all items in the original set except the given item.
+	 */
+	public ImmutableSortedSet<E> without(E item)
+	{
+		if (!contains(item))
+		{
+			return this;
+		}
+		if (this.set == null)
+		{
+			return new ImmutableSortedSet<E>(getRaw()).without(item);
+		}
+		return withSet((PersistentTreeSet) this.set.disjoin(item));
+	}
+
+	private ImmutableSortedSet<E> withSet(PersistentTreeSet newSet)
+	{
+		return new ImmutableSortedSet<>(newSet, this.range.withTree((PersistentTreeMap) ClojureInternals.setImpl(newSet)));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Comparator<? super E> comparator()
+	{
+		return this.range.comparator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E first()
+	{
+		final IMapEntry entry = this.range.first();
+		if (entry == null)
+		{
+			throw new NoSuchElementException();
+		}
+		return (E) entry.key();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E last()
+	{
+		final IMapEntry entry = this.range.last();
+		if (entry == null)
+		{
+			throw new NoSuchElementException();
+		}
+		return (E) entry.key();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E lower(E e)
+	{
+		return key(this.range.lower(e));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E floor(E e)
+	{
+		return key(this.range.floor(e));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E ceiling(E e)
+	{
+		return key(this.range.ceiling(e));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E higher(E e)
+	{
+		return key(this.range.higher(e));
+	}
+
+	/**
+	 * @return the number of items of this set before the given item in the order of this set.
+	 * O(n), walking the items before the given one, except for the key set of an {@link ImmutableBTreeMap}, which
+	 * is O(log n).
+	 */
+	public int rank(E item)
+	{
+		return this.range.rank(item);
+	}
+
+	/**
+	 * @return the item at the given position in the order of this set.
+	 * O(n), walking the items before the index, except for the key set of an {@link ImmutableBTreeMap}, which is
+	 * O(log n).
+	 * @throws IndexOutOfBoundsException if the index is negative or not less than the size of this set
+	 */
+	public E select(int index)
+	{
+		return (E) this.range.select(index).key();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImmutableSortedSet<E> descendingSet()
+	{
+		return new ImmutableSortedSet<>(this.set, this.range.descending());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImmutableSortedSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive)
+	{
+		return new ImmutableSortedSet<>(this.set, this.range.sub(true, fromElement, fromInclusive, true, toElement, toInclusive));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImmutableSortedSet<E> headSet(E toElement, boolean inclusive)
+	{
+		return new ImmutableSortedSet<>(this.set, this.range.sub(false, null, false, true, toElement, inclusive));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImmutableSortedSet<E> tailSet(E fromElement, boolean inclusive)
+	{
+		return new ImmutableSortedSet<>(this.set, this.range.sub(true, fromElement, inclusive, false, null, false));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImmutableSortedSet<E> subSet(E fromElement, E toElement)
+	{
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImmutableSortedSet<E> headSet(E toElement)
+	{
+		return headSet(toElement, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImmutableSortedSet<E> tailSet(E fromElement)
+	{
+		return tailSet(fromElement, true);
+	}
+
+	/**
+	 * @return the underlying set. A view or a key set copies its items into a new set ordered by
+	 * {@link #comparator()}.
+	 */
+	@Override
+	public PersistentTreeSet getRaw()
+	{
+		if (this.set != null && this.range.isWhole())
+		{
+			return this.set;
+		}
+		PersistentTreeSet result = PersistentTreeSet.create(this.range.comparator(), null);
+		for (Iterator<IMapEntry> iterator = this.range.iterator(); iterator.hasNext(); )
+		{
+			result = (PersistentTreeSet) result.cons(iterator.next().key());
+		}
+		return result;
+	}
+
+	private static <E> E key(IMapEntry entry)
+	{
+		return entry == null ? null : (E) entry.key();
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import java.util.Objects;
+
+/**
+ * The differences from one version of an {@link ImmutableList} to another, see {@link ImmutableList#diff(ImmutableList)}.
+ * <p>
+ * Items are compared index by index: an item inserted or removed in the middle shifts every following item and
+ * reports them all as changed.
+ *
+ * @param <E> item type
+ */
+public final class ListDiff<E>
+{
+	private final ImmutableMap<Integer, E> changed;
+
+	private final ImmutableList<E> added;
+
+	private final ImmutableList<E> removed;
+
+	ListDiff(ImmutableMap<Integer, E> changed, ImmutableList<E> added, ImmutableList<E> removed)
+	{
+		this.changed = changed;
+		this.added = added;
+		this.removed = removed;
+	}
+
+	/**
+	 * @return the new items by index, for the indices found in both versions holding different items
+	 */
+	public ImmutableMap<Integer, E> getChanged()
+	{
+		return changed;
+	}
+
+	/**
+	 * @return the items appended after the end of the old version
+	 */
+	public ImmutableList<E> getAdded()
+	{
+		return added;
+	}
+
+	/**
+	 * @return the items of the old version after the end of the new version
+	 */
+	public ImmutableList<E> getRemoved()
+	{
+		return removed;
+	}
+
+	/**
+	 * @return true if both versions hold the same items
+	 */
+	public boolean isEmpty()
+	{
+		return changed.isEmpty() && added.isEmpty() && removed.isEmpty();
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		final ListDiff<?> that = (ListDiff<?>) o;
+		return changed.equals(that.changed) && added.equals(that.added) && removed.equals(that.removed);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(changed, added, removed);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ListDiff{" + "changed=" + changed.getRaw() + ", added=" + added.getRaw() + ", removed=" + removed.getRaw() + '}';
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import java.util.Objects;
+
+/**
+ * The differences from one version of an {@link ImmutableMap} to another, see {@link ImmutableMap#diff(ImmutableMap)}.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class MapDiff<K, V>
+{
+	private final ImmutableMap<K, V> added;
+
+	private final ImmutableMap<K, V> removed;
+
+	private final ImmutableMap<K, V> changed;
+
+	MapDiff(ImmutableMap<K, V> added, ImmutableMap<K, V> removed, ImmutableMap<K, V> changed)
+	{
+		this.added = added;
+		this.removed = removed;
+		this.changed = changed;
+	}
+
+	/**
+	 * @return the entries only found in the new version
+	 */
+	public ImmutableMap<K, V> getAdded()
+	{
+		return added;
+	}
+
+	/**
+	 * @return the entries only found in the old version, with their old values
+	 */
+	public ImmutableMap<K, V> getRemoved()
+	{
+		return removed;
+	}
+
+	/**
+	 * @return the entries found in both versions with different values, with their new values
+	 */
+	public ImmutableMap<K, V> getChanged()
+	{
+		return changed;
+	}
+
+	/**
+	 * @return true if both versions hold the same entries
+	 */
+	public boolean isEmpty()
+	{
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		final MapDiff<?, ?> that = (MapDiff<?, ?>) o;
+		return added.equals(that.added) && removed.equals(that.removed) && changed.equals(that.changed);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(added, removed, changed);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "MapDiff{" + "added=" + added.getRaw() + ", removed=" + removed.getRaw() + ", changed=" + changed.getRaw() + '}';
+	}
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.IEditableCollection;
+import clojure.lang.IPersistentMap;
+import clojure.lang.ITransientMap;
+import clojure.lang.PersistentArrayMap;
+import net.ci4j.fn.Fn1;
+import net.ci4j.immutable.collections.impl.NestedPaths;
+
+import java.util.ArrayList;
+
+/**
+ * One level of nested maps edited through transients by the {@code *In} methods of {@link TransientImmutableMap}.
+ * <p>
+ * A nested level is stored in the transient of its parent in place of the map it edits, so that several paths
+ * through the same nested maps copy each of them once. A level is closed, i.e. made persistent and stored back in
+ * its parent, when its key is read from the parent or when the parent itself is closed.
+ */
+final class NestedTransient
+{
+	private static final Object NOT_FOUND = new Object();
+
+	private final Object parentKey;
+
+	private final boolean wrapped;
+
+	private ITransientMap map;
+
+	private ArrayList<NestedTransient> opened;
+
+	NestedTransient(Object parentKey, ITransientMap map, boolean wrapped)
+	{
+		this.parentKey = parentKey;
+		this.map = map;
+		this.wrapped = wrapped;
+	}
+
+	/**
+	 * @return a level editing the given value mapped to the key, null if the value is not an editable map
+	 */
+	private static NestedTransient open(Object key, Object value)
+	{
+		if (value == null)
+		{
+			return new NestedTransient(key, PersistentArrayMap.EMPTY.asTransient(), false);
+		}
+		final boolean wrapped = value instanceof ImmutableMap;
+		final Object raw = wrapped ? ((ImmutableMap<?, ?>) value).getRaw() : value;
+		if (raw instanceof IPersistentMap && raw instanceof IEditableCollection)
+		{
+			return new NestedTransient(key, (ITransientMap) ((IEditableCollection) raw).asTransient(), wrapped);
+		}
+		return null;
+	}
+
+	int count()
+	{
+		return map.count();
+	}
+
+	boolean containsKey(Object key)
+	{
+		return map.valAt(key, NOT_FOUND) != NOT_FOUND;
+	}
+
+	/**
+	 * @return the value mapped to the key, closing the nested level stored for it if any
+	 */
+	Object valAt(Object key, Object notFound)
+	{
+		final Object value = map.valAt(key, notFound);
+		if (value instanceof NestedTransient)
+		{
+			final Object closed = ((NestedTransient) value).persistent();
+			map = map.assoc(key, closed);
+			return closed;
+		}
+		return value;
+	}
+
+	void assoc(Object key, Object value)
+	{
+		map = map.assoc(key, value);
+	}
+
+	void without(Object key)
+	{
+		map = map.without(key);
+	}
+
+	Object getIn(Object[] path, int from, Object notFound)
+	{
+		if (from == path.length - 1)
+		{
+			return valAt(path[from], notFound);
+		}
+		final Object child = map.valAt(path[from], NOT_FOUND);
+		if (child == NOT_FOUND)
+		{
+			return notFound;
+		}
+		return child instanceof NestedTransient
+			? ((NestedTransient) child).getIn(path, from + 1, notFound)
+			: NestedPaths.getIn(child, path, from + 1, notFound);
+	}
+
+	void updateIn(Object[] path, int from, Fn1<Object, Object> fn)
+	{
+		final Object key = path[from];
+		if (from == path.length - 1)
+		{
+			map = map.assoc(key, fn.apply(valAt(key, null)));
+			return;
+		}
+		final Object child = map.valAt(key, null);
+		NestedTransient nested;
+		if (child instanceof NestedTransient)
+		{
+			nested = (NestedTransient) child;
+		}
+		else
+		{
+			nested = open(key, child);
+			if (nested == null)
+			{
+				map = map.assoc(key, NestedPaths.updateIn(child, path, from + 1, fn));
+				return;
+			}
+			map = map.assoc(key, nested);
+			if (opened == null)
+			{
+				opened = new ArrayList<>();
+			}
+			opened.add(nested);
+		}
+		nested.updateIn(path, from + 1, fn);
+	}
+
+	/**
+	 * @return true if the path existed and its last key has been removed
+	 */
+	boolean dissocIn(Object[] path, int from)
+	{
+		final Object key = path[from];
+		if (from == path.length - 1)
+		{
+			if (map.valAt(key, NOT_FOUND) == NOT_FOUND)
+			{
+				return false;
+			}
+			map = map.without(key);
+			return true;
+		}
+		final Object child = map.valAt(key, null);
+		if (child instanceof NestedTransient)
+		{
+			return ((NestedTransient) child).dissocIn(path, from + 1);
+		}
+		if (child != null)
+		{
+			final Object updated = NestedPaths.dissocIn(child, path, from + 1);
+			if (updated != child)
+			{
+				map = map.assoc(key, updated);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Close the nested levels still stored in this one, then this one.
+	 *
+	 * @return the persistent map, wrapped in an ImmutableMap if the edited value was one
+	 */
+	Object persistent()
+	{
+		if (opened != null)
+		{
+			for (NestedTransient nested : opened)
+			{
+				if (map.valAt(nested.parentKey, NOT_FOUND) == nested)
+				{
+					map = map.assoc(nested.parentKey, nested.persistent());
+				}
+			}
+			opened = null;
+		}
+		final Object result = map.persistent();
+		return wrapped ? new ImmutableMap<>((APersistentMap) result) : result;
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.APersistentSet;
+import clojure.lang.IFn;
+import clojure.lang.IPersistentVector;
+import clojure.lang.MapEntry;
+import clojure.lang.PersistentArrayMap;
+import clojure.lang.PersistentHashSet;
+import clojure.lang.PersistentVector;
+import net.ci4j.fn.Fn1;
+import net.ci4j.fn.Fn2;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.fn.Fn;
+
+import java.util.function.Predicate;
+
+/**
+ * A typed pipeline of clojure transducers, transforming items of type {@code A} into items of type {@code B}.
+ * <p>
+ * The stages are composed into a single transducer, so the source is walked once and each item goes through all the
+ * stages before the next one is read, without intermediate collections. The result is built with {@code into}
+ * directly in the transient of the target collection. A pipeline is immutable and reusable, every stage returns a new
+ * pipeline.
+ * <pre>
+ *     private static final Transducer&lt;User, String&gt; ACTIVE_NAMES = Transducer.&lt;User&gt;create()
+ *         .filter(User::isActive)
+ *         .map(User::getName)
+ *         .dedupe();
+ *
+ *     ImmutableList&lt;String&gt; names = users.transform(ACTIVE_NAMES);
+ *     ImmutableSet&lt;String&gt; unique = ACTIVE_NAMES.toSet(users);
+ * </pre>
+ * Sources which are immutable collections of this package are reduced through their clojure collection, other
+ * {@link Iterable}s through their iterator.
+ *
+ * @param <A> the type of the source items
+ * @param <B> the type of the result items
+ */
+public final class Transducer<A, B>
+{
+	private static final Transducer IDENTITY = new Transducer<>(null);
+
+	private static final IFn COMP = ClojureRT.var("clojure.core", "comp");
+	private static final IFn FILTER = ClojureRT.var("clojure.core", "filter");
+	private static final IFn MAPCAT = ClojureRT.var("clojure.core", "mapcat");
+	private static final IFn TAKE = ClojureRT.var("clojure.core", "take");
+	private static final IFn DEDUPE = ClojureRT.var("clojure.core", "dedupe");
+	private static final IFn PARTITION_ALL = ClojureRT.var("clojure.core", "partition-all");
+	private static final IFn INTO = ClojureRT.var("clojure.core", "into");
+	private static final IFn TRANSDUCE = ClojureRT.var("clojure.core", "transduce");
+	private static final IFn COMPLETING = ClojureRT.var("clojure.core", "completing");
+	private static final IFn IDENTITY_XFORM = ClojureRT.var("clojure.core", "identity");
+
+	/**
+	 * The composed clojure transducer, {@code null} for the identity.
+	 */
+	private final IFn xform;
+
+	private Transducer(IFn xform)
+	{
+		this.xform = xform;
+	}
+
+	/**
+	 * @return the empty pipeline, passing the items through
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Transducer<T, T> create()
+	{
+		return IDENTITY;
+	}
+
+	/**
+	 * @return a pipeline applying the stages of this one, then the stages of the next one
+	 */
+	@SuppressWarnings("unchecked")
+	public <C> Transducer<A, C> then(Transducer<? super B, C> next)
+	{
+		return next.xform != null ? append(next.xform) : (Transducer<A, C>) this;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <C> Transducer<A, C> map(Fn1<? super B, ? extends C> fn)
+	{
+		return append((IFn) ClojureRT.MAP.invoke(Fn.fn((Fn1<Object, Object>) fn)));
+	}
+
+	@SuppressWarnings("unchecked")
+	public Transducer<A, B> filter(Predicate<? super B> predicate)
+	{
+		return append((IFn) FILTER.invoke(Fn.fn((Fn1<Object, Boolean>) item -> ((Predicate<Object>) predicate).test(item))));
+	}
+
+	/**
+	 * Replace each item by the items of the iterable returned by the function, in order.
+	 */
+	@SuppressWarnings("unchecked")
+	public <C> Transducer<A, C> mapcat(Fn1<? super B, ? extends Iterable<? extends C>> fn)
+	{
+		return append((IFn) MAPCAT.invoke(Fn.fn((Fn1<Object, Object>) (Fn1) fn)));
+	}
+
+	/**
+	 * Stop after the first {@code n} items, the rest of the source is not read.
+	 */
+	public Transducer<A, B> take(long n)
+	{
+		return append((IFn) TAKE.invoke(n));
+	}
+
+	/**
+	 * Drop the items equal to the previous item.
+	 */
+	public Transducer<A, B> dedupe()
+	{
+		return append((IFn) DEDUPE.invoke());
+	}
+
+	/**
+	 * Group the items in lists of {@code n} items, the last list holds the remaining items and may be shorter.
+	 */
+	public Transducer<A, ImmutableList<B>> partition(int n)
+	{
+		return this.<IPersistentVector>append((IFn) PARTITION_ALL.invoke(n)).map(ImmutableList::new);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <C> Transducer<A, C> append(IFn stage)
+	{
+		return new Transducer<>(xform == null ? stage : (IFn) COMP.invoke(xform, stage));
+	}
+
+	public ImmutableList<B> toList(Iterable<? extends A> source)
+	{
+		return new ImmutableList<>((IPersistentVector) into(PersistentVector.EMPTY, source));
+	}
+
+	public ImmutableSet<B> toSet(Iterable<? extends A> source)
+	{
+		return new ImmutableSet<>((APersistentSet) into(PersistentHashSet.EMPTY, source));
+	}
+
+	/**
+	 * Same as {@code (into {} (comp xform (map (juxt key value))) source)}, the last value wins for duplicated keys.
+	 */
+	public <K, V> ImmutableMap<K, V> toMap(Iterable<? extends A> source, Fn1<? super B, ? extends K> key, Fn1<? super B, ? extends V> value)
+	{
+		final Transducer<A, MapEntry> entries = map(item -> MapEntry.create(key.apply(item), value.apply(item)));
+		return new ImmutableMap<>((APersistentMap) entries.into(PersistentArrayMap.EMPTY, source));
+	}
+
+	/**
+	 * Same as {@code clojure.core/transduce}: reduce the transformed items of the source from {@code init}.
+	 */
+	public <R> R transduce(Iterable<? extends A> source, R init, Fn2<R, ? super B, R> reducer)
+	{
+		final IFn rf = (IFn) COMPLETING.invoke(Fn.fn(reducer));
+		@SuppressWarnings("unchecked")
+		final R result = (R) TRANSDUCE.invoke(xform != null ? xform : IDENTITY_XFORM, rf, init, reducible(source));
+		return result;
+	}
+
+	private Object into(Object to, Iterable<? extends A> source)
+	{
+		return xform == null ? INTO.invoke(to, reducible(source)) : INTO.invoke(to, xform, reducible(source));
+	}
+
+	/**
+	 * The clojure collection of an immutable collection reduces without an iterator, chunk by chunk for vectors.
+	 */
+	private static Object reducible(Iterable<?> source)
+	{
+		return source instanceof ImmutableCollection ? ((ImmutableCollection) source).getRaw() : source;
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.lang.IPersistentVector;
+import clojure.lang.ITransientVector;
+
+/**
+ * A typed mutable copy of an {@link ImmutableList}, backing by a clojure transient vector.
+ * <p>
+ * Appends, updates and pops are made in place on the leaves owned by this transient, so building a large list
+ * does not allocate a persistent vector per item. Call {@link #persistent()} once at the end; the transient must
+ * not be used after that, nor shared between threads.
+ *
+ * @see ImmutableList#asTransient()
+ * @see ImmutableList#withMutations(java.util.function.Consumer)
+ */
+@SuppressWarnings("unchecked")
+public class TransientImmutableList<E>
+{
+	private final ImmutableList<E> origin;
+
+	private final ITransientVector vector;
+
+	private boolean modified;
+
+	TransientImmutableList(ImmutableList<E> origin, ITransientVector vector)
+	{
+		this.origin = origin;
+		this.vector = vector;
+	}
+
+	/**
+	 * @return number of items
+	 */
+	public int size()
+	{
+		return this.vector.count();
+	}
+
+	/**
+	 * @return the item at the given index
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public E get(int index)
+	{
+		return (E) this.vector.nth(index);
+	}
+
+	/**
+	 * Append the item at the end.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableList<E> cons(E item)
+	{
+		this.vector.conj(item);
+		this.modified = true;
+		return this;
+	}
+
+	/**
+	 * Append the items at the end.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableList<E> consAll(Iterable<? extends E> items)
+	{
+		for (E item : items)
+		{
+			this.vector.conj(item);
+			this.modified = true;
+		}
+		return this;
+	}
+
+	/**
+	 * Replace the item at the given index, or append it if the index equals to the size.
+	 *
+	 * @return this transient
+	 * @throws IndexOutOfBoundsException if the index is out of range
+	 */
+	public TransientImmutableList<E> assocN(int index, E item)
+	{
+		this.vector.assocN(index, item);
+		this.modified = true;
+		return this;
+	}
+
+	/**
+	 * Remove the last item.
+	 *
+	 * @return this transient
+	 * @throws IllegalStateException if the list is empty
+	 */
+	public TransientImmutableList<E> pop()
+	{
+		this.vector.pop();
+		this.modified = true;
+		return this;
+	}
+
+	/**
+	 * Finish editing.
+	 *
+	 * @return an ImmutableList of the current items, the original list if nothing has been written
+	 */
+	public ImmutableList<E> persistent()
+	{
+		final IPersistentVector result = (IPersistentVector) this.vector.persistent();
+		return this.modified ? new ImmutableList<>(result) : this.origin;
+	}
+}
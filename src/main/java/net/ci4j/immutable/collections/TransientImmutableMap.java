@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.IEditableCollection;
+import clojure.lang.ITransientMap;
+import net.ci4j.fn.Fn1;
+import net.ci4j.fn.Fn2;
+
+import java.util.Map;
+
+/**
+ * A typed mutable copy of an {@link ImmutableMap}, backing by a clojure transient map.
+ * <p>
+ * Edits are made in place on the nodes owned by this transient, so a batch of changes allocates one new path per
+ * touched node instead of one per change. Call {@link #persistent()} once at the end; the transient must not be
+ * used after that, nor shared between threads.
+ *
+ * @see ImmutableMap#asTransient()
+ * @see ImmutableMap#withMutations(java.util.function.Consumer)
+ */
+@SuppressWarnings("unchecked")
+public class TransientImmutableMap<K, V>
+{
+	private static final Object NOT_FOUND = new Object();
+
+	private final ImmutableMap<K, V> origin;
+
+	private final NestedTransient map;
+
+	private boolean modified;
+
+	TransientImmutableMap(ImmutableMap<K, V> origin)
+	{
+		this.origin = origin;
+		this.map = new NestedTransient(null, (ITransientMap) ((IEditableCollection) origin.getRaw()).asTransient(), false);
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int size()
+	{
+		return this.map.count();
+	}
+
+	/**
+	 * @return true if the key is mapped
+	 */
+	public boolean containsKey(K key)
+	{
+		return this.map.containsKey(key);
+	}
+
+	/**
+	 * @return the value mapped to the key, or {@code null} if the key is not mapped
+	 */
+	public V get(K key)
+	{
+		return (V) this.map.valAt(key, null);
+	}
+
+	/**
+	 * Map the key to the value.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableMap<K, V> put(K key, V value)
+	{
+		this.map.assoc(key, value);
+		this.modified = true;
+		return this;
+	}
+
+	/**
+	 * Map all keys of the other map to their values.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableMap<K, V> putAll(Map<? extends K, ? extends V> other)
+	{
+		for (Map.Entry<? extends K, ? extends V> entry : other.entrySet())
+		{
+			this.map.assoc(entry.getKey(), entry.getValue());
+		}
+		this.modified |= !other.isEmpty();
+		return this;
+	}
+
+	/**
+	 * Remove the mapping of the key if present.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableMap<K, V> remove(K key)
+	{
+		this.map.without(key);
+		this.modified = true;
+		return this;
+	}
+
+	/**
+	 * Replace the value of the key by the result of the transformer, which receives {@code null} if the key
+	 * is not mapped. Same as {@code clojure.core/update}.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableMap<K, V> update(K key, Fn1<V, V> transformer)
+	{
+		return put(key, transformer.apply(get(key)));
+	}
+
+	/**
+	 * Map the key to the value if it is not mapped, otherwise to the result of merging the current value with the
+	 * given one. Same as {@link Map#merge}, except that a {@code null} result is stored instead of removing the key.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableMap<K, V> merge(K key, V value, Fn2<V, V, V> merger)
+	{
+		final Object current = this.map.valAt(key, NOT_FOUND);
+		return put(key, current != NOT_FOUND ? merger.apply((V) current, value) : value);
+	}
+
+	/**
+	 * @param path keys of the nested maps, then the key of the value
+	 * @return the value at the end of the path, or {@code null} if a key of the path is not mapped
+	 */
+	public <T> T getIn(Object... path)
+	{
+		checkPath(path);
+		return (T) this.map.getIn(path, 0, null);
+	}
+
+	/**
+	 * Map the last key of the path to the value in the nested map found at the other keys, creating the missing
+	 * maps. Same as {@code clojure.core/assoc-in}.
+	 * <p>
+	 * The nested maps along the path are edited through transients until {@link #persistent()}, so that many
+	 * paths sharing nested maps copy each of them once.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableMap<K, V> assocIn(Object value, Object... path)
+	{
+		return updateIn(current -> value, path);
+	}
+
+	/**
+	 * Replace the value at the end of the path by the result of the transformer, which receives {@code null} if a key
+	 * of the path is not mapped. Same as {@code clojure.core/update-in}, see {@link #assocIn(Object, Object...)}.
+	 *
+	 * @return this transient
+	 */
+	public <T> TransientImmutableMap<K, V> updateIn(Fn1<T, ?> transformer, Object... path)
+	{
+		checkPath(path);
+		this.map.updateIn(path, 0, (Fn1<Object, Object>) transformer);
+		this.modified = true;
+		return this;
+	}
+
+	/**
+	 * Remove the last key of the path from the nested map found at the other keys, if the path exists.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableMap<K, V> dissocIn(Object... path)
+	{
+		checkPath(path);
+		this.modified |= this.map.dissocIn(path, 0);
+		return this;
+	}
+
+	static void checkPath(Object[] path)
+	{
+		if (path.length == 0)
+		{
+			throw new IllegalArgumentException("The path must contain at least one key");
+		}
+	}
+
+	/**
+	 * Finish editing.
+	 *
+	 * @return an ImmutableMap of the current entries, the original map if nothing has been written
+	 */
+	public ImmutableMap<K, V> persistent()
+	{
+		final APersistentMap result = (APersistentMap) this.map.persistent();
+		return this.modified ? new ImmutableMap<>(result) : this.origin;
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections;
+
+import clojure.lang.APersistentSet;
+import clojure.lang.ITransientSet;
+
+/**
+ * A typed mutable copy of an {@link ImmutableSet}, backing by a clojure transient set.
+ * <p>
+ * Additions and removals are made in place on the nodes owned by this transient. Call {@link #persistent()} once
+ * at the end; the transient must not be used after that, nor shared between threads.
+ *
+ * @see ImmutableSet#asTransient()
+ * @see ImmutableSet#withMutations(java.util.function.Consumer)
+ */
+public class TransientImmutableSet<E>
+{
+	private final ImmutableSet<E> origin;
+
+	private final ITransientSet set;
+
+	private boolean modified;
+
+	TransientImmutableSet(ImmutableSet<E> origin, ITransientSet set)
+	{
+		this.origin = origin;
+		this.set = set;
+	}
+
+	/**
+	 * @return number of items
+	 */
+	public int size()
+	{
+		return this.set.count();
+	}
+
+	/**
+	 * @return true if the set contains the item
+	 */
+	public boolean contains(Object item)
+	{
+		return this.set.contains(item);
+	}
+
+	/**
+	 * Add the item.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableSet<E> cons(E item)
+	{
+		final int count = this.set.count();
+		this.set.conj(item);
+		this.modified |= this.set.count() != count;
+		return this;
+	}
+
+	/**
+	 * Add the items.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableSet<E> consAll(Iterable<? extends E> items)
+	{
+		for (E item : items)
+		{
+			cons(item);
+		}
+		return this;
+	}
+
+	/**
+	 * Remove the item if present.
+	 *
+	 * @return this transient
+	 */
+	public TransientImmutableSet<E> remove(Object item)
+	{
+		final int count = this.set.count();
+		this.set.disjoin(item);
+		this.modified |= this.set.count() != count;
+		return this;
+	}
+
+	/**
+	 * Finish editing.
+	 *
+	 * @return an ImmutableSet of the current items, the original set if no item has been added or removed
+	 */
+	public ImmutableSet<E> persistent()
+	{
+		final APersistentSet result = (APersistentSet) this.set.persistent();
+		return this.modified ? new ImmutableSet<>(result) : this.origin;
+	}
+}
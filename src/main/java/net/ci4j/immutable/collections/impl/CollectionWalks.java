@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.lang.AFn;
+import clojure.lang.APersistentVector;
+import clojure.lang.IKVReduce;
+import clojure.lang.IPersistentVector;
+import clojure.lang.Util;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Walks of maps and vectors for the encoders, which write to an output throwing {@link IOException}.
+ * <p>
+ * Maps are walked through {@code kvreduce} and vectors leaf array by leaf array with {@link VectorChunks}. The
+ * {@link IOException}s thrown inside the walks are rethrown as they are.
+ */
+public final class CollectionWalks
+{
+	private CollectionWalks()
+	{}
+
+	@FunctionalInterface
+	public interface EntryWriter<T>
+	{
+		void write(T out, Object key, Object value) throws IOException;
+	}
+
+	@FunctionalInterface
+	public interface ItemWriter<T>
+	{
+		void write(T out, Object item) throws IOException;
+	}
+
+	/**
+	 * Writes the entries of maps, the output being passed as the accumulator of {@code kvreduce}. An instance can be
+	 * kept in a constant, so that writing a map does not allocate.
+	 *
+	 * @param <T> output type
+	 */
+	public static final class MapWalk<T> extends AFn
+	{
+		private final EntryWriter<T> writer;
+
+		public MapWalk(EntryWriter<T> writer)
+		{
+			this.writer = writer;
+		}
+
+		public void write(T out, Map<?, ?> map) throws IOException
+		{
+			if (map instanceof IKVReduce)
+			{
+				((IKVReduce) map).kvreduce(this, out);
+			}
+			else
+			{
+				for (Map.Entry<?, ?> entry : map.entrySet())
+				{
+					writer.write(out, entry.getKey(), entry.getValue());
+				}
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object invoke(Object out, Object key, Object value)
+		{
+			try
+			{
+				writer.write((T) out, key, value);
+			}
+			catch (IOException e)
+			{
+				throw Util.sneakyThrow(e);
+			}
+			return out;
+		}
+	}
+
+	/**
+	 * Write the items of the vector in order.
+	 */
+	public static <T> void writeItems(T out, IPersistentVector vector, ItemWriter<T> writer) throws IOException
+	{
+		if (vector instanceof APersistentVector)
+		{
+			VectorChunks.forEachChunk(vector, (chunk, offset, length) -> {
+				try
+				{
+					for (int i = offset, end = offset + length; i < end; i++)
+					{
+						writer.write(out, chunk[i]);
+					}
+				}
+				catch (IOException e)
+				{
+					throw Util.sneakyThrow(e);
+				}
+			});
+		}
+		else
+		{
+			for (int i = 0, count = vector.count(); i < count; i++)
+			{
+				writer.write(out, vector.nth(i));
+			}
+		}
+	}
+}
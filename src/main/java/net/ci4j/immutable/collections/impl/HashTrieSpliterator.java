@@ -0,0 +1,317 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.lang.MapEntry;
+import clojure.lang.PersistentHashMap;
+import net.ci4j.immutable.clojure_utils.ClojureInternals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} over a {@link PersistentHashMap} that splits on the node boundaries of its hash trie.
+ * <p>
+ * A spliterator owns a range of sibling units, each being a trie node or a single entry. Splitting halves the range,
+ * a range of one node is first replaced by the children of that node. The unsplit spliterator is SIZED, the exact
+ * size of a subtree is not stored in the trie so splits only report an estimate.
+ */
+public final class HashTrieSpliterator<T> implements Spliterator<T>
+{
+	private final BiFunction<Object, Object, T> entryFn;
+
+	private Object[] units;
+
+	private int index;
+
+	private int end;
+
+	private long estimate;
+
+	private int characteristics;
+
+	private final ArrayDeque<Cursor> cursors = new ArrayDeque<>();
+
+	/**
+	 * @return a spliterator of the entries of the given map
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> HashTrieSpliterator<Map.Entry<K, V>> entries(PersistentHashMap map)
+	{
+		return new HashTrieSpliterator<>(map, (key, val) -> (Map.Entry<K, V>) MapEntry.create(key, val), NONNULL);
+	}
+
+	/**
+	 * @return a spliterator of the keys of the given map
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K> HashTrieSpliterator<K> keys(PersistentHashMap map)
+	{
+		return new HashTrieSpliterator<>(map, (key, val) -> (K) key, ClojureInternals.hashMapHasNull(map) ? 0 : NONNULL);
+	}
+
+	private HashTrieSpliterator(PersistentHashMap map, BiFunction<Object, Object, T> entryFn, int characteristics)
+	{
+		final List<Object> rootUnits = new ArrayList<>(2);
+		if (ClojureInternals.hashMapHasNull(map))
+		{
+			rootUnits.add(new Leaf(null, ClojureInternals.hashMapNullValue(map)));
+		}
+		final Object root = ClojureInternals.hashMapRoot(map);
+		if (root != null)
+		{
+			rootUnits.add(root);
+		}
+		this.entryFn = entryFn;
+		this.units = rootUnits.toArray();
+		this.index = 0;
+		this.end = units.length;
+		this.estimate = map.count();
+		this.characteristics = characteristics | DISTINCT | IMMUTABLE | SIZED;
+	}
+
+	private HashTrieSpliterator(BiFunction<Object, Object, T> entryFn, Object[] units, int index, int end, long estimate,
+		int characteristics)
+	{
+		this.entryFn = entryFn;
+		this.units = units;
+		this.index = index;
+		this.end = end;
+		this.estimate = estimate;
+		this.characteristics = characteristics;
+	}
+
+	@Override
+	public Spliterator<T> trySplit()
+	{
+		if (!cursors.isEmpty())
+		{
+			return null;
+		}
+		while (end - index == 1 && !(units[index] instanceof Leaf))
+		{
+			units = children(units[index]);
+			index = 0;
+			end = units.length;
+		}
+		final int remaining = end - index;
+		if (remaining < 2)
+		{
+			return null;
+		}
+		final int mid = index + remaining / 2;
+		characteristics &= ~SIZED;
+		final long prefixEstimate = estimate * (mid - index) / remaining;
+		final HashTrieSpliterator<T> prefix = new HashTrieSpliterator<>(entryFn, units, index, mid, prefixEstimate, characteristics);
+		index = mid;
+		estimate -= prefixEstimate;
+		return prefix;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action)
+	{
+		while (true)
+		{
+			final Cursor cursor = cursors.peek();
+			if (cursor == null)
+			{
+				if (index >= end)
+				{
+					return false;
+				}
+				final Object unit = units[index++];
+				if (unit instanceof Leaf)
+				{
+					accept(action, ((Leaf) unit).key, ((Leaf) unit).val);
+					return true;
+				}
+				cursors.push(new Cursor(unit));
+			}
+			else if (cursor.arrayNode)
+			{
+				final Object[] array = cursor.array;
+				while (cursor.pos < array.length && array[cursor.pos] == null)
+				{
+					cursor.pos++;
+				}
+				if (cursor.pos >= array.length)
+				{
+					cursors.pop();
+				}
+				else
+				{
+					cursors.push(new Cursor(array[cursor.pos++]));
+				}
+			}
+			else
+			{
+				final Object[] array = cursor.array;
+				if (cursor.pos >= array.length)
+				{
+					cursors.pop();
+					continue;
+				}
+				final Object key = array[cursor.pos];
+				final Object val = array[cursor.pos + 1];
+				cursor.pos += 2;
+				if (key != null)
+				{
+					accept(action, key, val);
+					return true;
+				}
+				else if (val != null)
+				{
+					cursors.push(new Cursor(val));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super T> action)
+	{
+		while (!cursors.isEmpty())
+		{
+			tryAdvance(action);
+		}
+		for (; index < end; index++)
+		{
+			final Object unit = units[index];
+			if (unit instanceof Leaf)
+			{
+				accept(action, ((Leaf) unit).key, ((Leaf) unit).val);
+			}
+			else
+			{
+				walk(unit, action);
+			}
+		}
+	}
+
+	@Override
+	public long estimateSize()
+	{
+		return estimate;
+	}
+
+	@Override
+	public int characteristics()
+	{
+		return characteristics;
+	}
+
+	private void walk(Object node, Consumer<? super T> action)
+	{
+		final Object[] array = ClojureInternals.nodeArray(node);
+		if (ClojureInternals.isArrayNode(node))
+		{
+			for (Object child : array)
+			{
+				if (child != null)
+				{
+					walk(child, action);
+				}
+			}
+			return;
+		}
+		for (int i = 0; i < array.length; i += 2)
+		{
+			if (array[i] != null)
+			{
+				accept(action, array[i], array[i + 1]);
+			}
+			else if (array[i + 1] != null)
+			{
+				walk(array[i + 1], action);
+			}
+		}
+	}
+
+	private void accept(Consumer<? super T> action, Object key, Object val)
+	{
+		action.accept(entryFn.apply(key, val));
+	}
+
+	private static Object[] children(Object node)
+	{
+		final Object[] array = ClojureInternals.nodeArray(node);
+		final List<Object> children = new ArrayList<>(32);
+		if (ClojureInternals.isArrayNode(node))
+		{
+			for (Object child : array)
+			{
+				if (child != null)
+				{
+					children.add(child);
+				}
+			}
+		}
+		else
+		{
+			for (int i = 0; i < array.length; i += 2)
+			{
+				if (array[i] != null)
+				{
+					children.add(new Leaf(array[i], array[i + 1]));
+				}
+				else if (array[i + 1] != null)
+				{
+					children.add(array[i + 1]);
+				}
+			}
+		}
+		return children.toArray();
+	}
+
+	private static final class Leaf
+	{
+		final Object key;
+
+		final Object val;
+
+		Leaf(Object key, Object val)
+		{
+			this.key = key;
+			this.val = val;
+		}
+	}
+
+	private static final class Cursor
+	{
+		final Object[] array;
+
+		final boolean arrayNode;
+
+		int pos;
+
+		Cursor(Object node)
+		{
+			this.array = ClojureInternals.nodeArray(node);
+			this.arrayNode = ClojureInternals.isArrayNode(node);
+		}
+	}
+}
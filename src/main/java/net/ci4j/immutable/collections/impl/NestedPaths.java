@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.lang.RT;
+import net.ci4j.fn.Fn1;
+import net.ci4j.immutable.collections.ImmutableMap;
+
+/**
+ * {@code get-in}, {@code update-in} and {@code dissoc-in} over nested clojure collections as plain loops, without
+ * the var dispatch of {@code clojure.core} nor a seq of the keys.
+ * <p>
+ * Nested values are read with {@link RT#get(Object, Object, Object)} and written with {@link RT#assoc} and
+ * {@link RT#dissoc}, so any map or vector works at any level; nested {@link ImmutableMap} wrappers are kept as
+ * wrappers. The operations start at index {@code from} of the path, which must not be empty for the updates.
+ */
+public final class NestedPaths
+{
+	private static final Object NOT_FOUND = new Object();
+
+	private NestedPaths()
+	{}
+
+	/**
+	 * @return the value at the end of the path, or {@code notFound} if a key of the path is not mapped
+	 */
+	public static Object getIn(Object root, Object[] path, int from, Object notFound)
+	{
+		Object node = root;
+		for (int i = from; i < path.length; i++)
+		{
+			node = RT.get(node, path[i], NOT_FOUND);
+			if (node == NOT_FOUND) return notFound;
+		}
+		return node;
+	}
+
+	/**
+	 * Same as {@code clojure.core/update-in}: the function receives {@code null} for a key that is not mapped and the
+	 * missing maps along the path are created.
+	 *
+	 * @return the updated root, the given root if the function returned the identical value
+	 */
+	public static Object updateIn(Object root, Object[] path, int from, Fn1<Object, Object> fn)
+	{
+		final int depth = path.length - from;
+		final Object[] nodes = new Object[depth + 1];
+		nodes[0] = root;
+		for (int i = 0; i < depth; i++)
+		{
+			nodes[i + 1] = RT.get(nodes[i], path[from + i], NOT_FOUND);
+		}
+		final Object leaf = nodes[depth];
+		return rebuild(nodes, path, from, depth, fn.apply(leaf != NOT_FOUND ? leaf : null));
+	}
+
+	/**
+	 * Remove the last key of the path from the map it belongs to. Unlike {@code (update-in m (butlast path) dissoc k)},
+	 * no map is created when the path does not exist, and emptied maps are kept.
+	 *
+	 * @return the updated root, the given root if the path does not exist
+	 */
+	@SuppressWarnings("unchecked")
+	public static Object dissocIn(Object root, Object[] path, int from)
+	{
+		final int depth = path.length - from - 1;
+		final Object[] nodes = new Object[depth + 1];
+		nodes[0] = root;
+		for (int i = 0; i < depth; i++)
+		{
+			nodes[i + 1] = RT.get(nodes[i], path[from + i], NOT_FOUND);
+			if (nodes[i + 1] == NOT_FOUND || nodes[i + 1] == null) return root;
+		}
+		final Object parent = nodes[depth];
+		final Object lastKey = path[path.length - 1];
+		final Object updated = parent instanceof ImmutableMap ? ((ImmutableMap<Object, Object>) parent).without(lastKey) : RT.dissoc(parent, lastKey);
+		return rebuild(nodes, path, from, depth, updated);
+	}
+
+	/**
+	 * Assoc the new value of {@code nodes[depth]} into its parents, stopping as soon as a level is unchanged.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object rebuild(Object[] nodes, Object[] path, int from, int depth, Object value)
+	{
+		for (int i = depth - 1; i >= 0; i--)
+		{
+			if (value == nodes[i + 1]) return nodes[0];
+			final Object node = nodes[i] != NOT_FOUND ? nodes[i] : null;
+			value = node instanceof ImmutableMap ? ((ImmutableMap<Object, Object>) node).assoc(path[from + i], value) : RT.assoc(node, path[from + i], value);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,1013 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.ASeq;
+import clojure.lang.IMapEntry;
+import clojure.lang.IObj;
+import clojure.lang.IPersistentCollection;
+import clojure.lang.IPersistentMap;
+import clojure.lang.ISeq;
+import clojure.lang.MapEntry;
+import clojure.lang.Obj;
+import clojure.lang.RT;
+import clojure.lang.Sorted;
+import clojure.lang.Util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A persistent sorted map implemented as a B+ tree with path copying.
+ * <p>
+ * Every node holds up to {@value #MAX_WIDTH} keys (leaves) or children (branches) in flat arrays, so a lookup
+ * touches about log<sub>32</sub>(n) nodes and binary searches contiguous memory instead of chasing one red-black
+ * node per comparison. Branches keep the cumulative entry count of their children, which makes
+ * {@link #rank(Object, boolean)} and {@link #select(int)} O(log n).
+ * <p>
+ * A map created from {@link #EMPTY_LONG} stores its keys in {@code long[]} arrays; the primitive {@code long}
+ * overloads never box the key. Such a map only accepts integral number keys.
+ * <p>
+ * {@link #create(Comparator, Map)} and {@link #createLong(Map)} bulk load the tree by packing sorted arrays into
+ * leaves bottom-up instead of inserting one entry at a time.
+ * <p>
+ * From Clojure it behaves like any other sorted map, {@code subseq} and {@code rsubseq} work on it.
+ */
+public class PersistentBTreeMap extends APersistentMap implements IObj, Sorted
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Maximum number of entries of a leaf and of children of a branch. Nodes other than the root hold at least
+	 * half of it.
+	 */
+	public static final int MAX_WIDTH = 32;
+
+	private static final int MIN_WIDTH = MAX_WIDTH / 2;
+
+	private static final Object NOT_FOUND = new Object();
+
+	private static final Comparator<Object> LONG_COMPARATOR = new LongComparator();
+
+	public static final PersistentBTreeMap EMPTY = new PersistentBTreeMap(null, ofObjects(RT.DEFAULT_COMPARATOR), false, null, 0);
+
+	public static final PersistentBTreeMap EMPTY_LONG = new PersistentBTreeMap(null, LONG_COMPARATOR, true, null, 0);
+
+	private final Comparator<Object> comp;
+
+	private final boolean longKeys;
+
+	private final Node root;
+
+	private final int count;
+
+	private final IPersistentMap _meta;
+
+	private PersistentBTreeMap(IPersistentMap meta, Comparator<Object> comp, boolean longKeys, Node root, int count)
+	{
+		this._meta = meta;
+		this.comp = comp;
+		this.longKeys = longKeys;
+		this.root = root;
+		this.count = count;
+	}
+
+	/**
+	 * @return an empty map ordered by the given comparator, {@link #EMPTY} if it is null
+	 */
+	public static PersistentBTreeMap create(Comparator<?> comparator)
+	{
+		return comparator != null ? new PersistentBTreeMap(null, ofObjects(comparator), false, null, 0) : EMPTY;
+	}
+
+	/**
+	 * Bulk load a map ordered by the given comparator. Runs in O(n) if the map is already iterated in ascending
+	 * key order, O(n log n) otherwise.
+	 */
+	public static PersistentBTreeMap create(Comparator<?> comparator, Map<?, ?> map)
+	{
+		return create(comparator).load(map);
+	}
+
+	/**
+	 * Bulk load a map of primitive long keys. Runs in O(n) if the map is already iterated in ascending key order,
+	 * O(n log n) otherwise.
+	 */
+	public static PersistentBTreeMap createLong(Map<? extends Number, ?> map)
+	{
+		return EMPTY_LONG.load(map);
+	}
+
+	/**
+	 * Bulk load a map of primitive long keys from parallel arrays, later keys win over earlier duplicates.
+	 */
+	public static PersistentBTreeMap createLong(long[] keys, Object[] vals)
+	{
+		final int n = Math.min(keys.length, vals.length);
+		return EMPTY_LONG.load(Arrays.copyOf(keys, n), Arrays.copyOf(vals, n), n);
+	}
+
+	/**
+	 * Keys are only ever compared with each other, so any comparator can be used on them as a comparator of objects.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Comparator<Object> ofObjects(Comparator<?> comparator)
+	{
+		return (Comparator<Object>) comparator;
+	}
+
+	private PersistentBTreeMap load(Map<?, ?> map)
+	{
+		final int n = map.size();
+		final Object keys = newKeys(n);
+		final Object[] vals = new Object[n];
+		int i = 0;
+		for (Map.Entry<?, ?> entry : map.entrySet())
+		{
+			setKey(keys, i, entry.getKey(), longKeys ? toLong(entry.getKey()) : 0);
+			vals[i++] = entry.getValue();
+		}
+		return load(keys, vals, n);
+	}
+
+	private PersistentBTreeMap load(Object keys, Object[] vals, int n)
+	{
+		if (n == 0)
+		{
+			return this;
+		}
+		boolean sorted = true;
+		for (int i = 1; i < n && sorted; i++)
+		{
+			sorted = compareAt(keys, i - 1, keys, i) < 0;
+		}
+		if (!sorted)
+		{
+			final Integer[] order = new Integer[n];
+			for (int i = 0; i < n; i++)
+			{
+				order[i] = i;
+			}
+			// stable, so the last of equal keys stays last
+			Arrays.sort(order, (a, b) -> compareAt(keys, a, keys, b));
+			final Object sortedKeys = newKeys(n);
+			final Object[] sortedVals = new Object[n];
+			int size = 0;
+			for (int i = 0; i < n; i++)
+			{
+				final int from = order[i];
+				if (size > 0 && compareAt(sortedKeys, size - 1, keys, from) == 0)
+				{
+					sortedVals[size - 1] = vals[from];
+				}
+				else
+				{
+					System.arraycopy(keys, from, sortedKeys, size, 1);
+					sortedVals[size++] = vals[from];
+				}
+			}
+			return new PersistentBTreeMap(_meta, comp, longKeys, build(sortedKeys, sortedVals, size), size);
+		}
+		return new PersistentBTreeMap(_meta, comp, longKeys, build(keys, vals, n), n);
+	}
+
+	/**
+	 * Pack sorted unique keys into leaves, then leaves into branches, spreading entries evenly so that every node
+	 * holds between {@link #MIN_WIDTH} and {@link #MAX_WIDTH} entries or children.
+	 */
+	private static Node build(Object keys, Object[] vals, int n)
+	{
+		int width = (n + MAX_WIDTH - 1) / MAX_WIDTH;
+		Node[] level = new Node[width];
+		// index in keys of the first key under each node, the separator for the node in its parent
+		int[] firsts = new int[width];
+		for (int i = 0; i < width; i++)
+		{
+			final int from = (int) ((long) i * n / width);
+			final int to = (int) ((long) (i + 1) * n / width);
+			level[i] = new Leaf(copyKeys(keys, from, to), Arrays.copyOfRange(vals, from, to));
+			firsts[i] = from;
+		}
+		while (level.length > 1)
+		{
+			final int size = level.length;
+			width = (size + MAX_WIDTH - 1) / MAX_WIDTH;
+			final Node[] parents = new Node[width];
+			final int[] parentFirsts = new int[width];
+			for (int i = 0; i < width; i++)
+			{
+				final int from = i * size / width;
+				final int to = (i + 1) * size / width;
+				final Object separators = keysLike(keys, to - from - 1);
+				for (int c = from + 1; c < to; c++)
+				{
+					System.arraycopy(keys, firsts[c], separators, c - from - 1, 1);
+				}
+				parents[i] = new Branch(separators, Arrays.copyOfRange(level, from, to));
+				parentFirsts[i] = firsts[from];
+			}
+			level = parents;
+			firsts = parentFirsts;
+		}
+		return level[0];
+	}
+
+	public Object valAt(long key, Object notFound)
+	{
+		return longKeys ? lookup(null, key, notFound) : lookup(key, 0, notFound);
+	}
+
+	public Object valAt(long key)
+	{
+		return valAt(key, null);
+	}
+
+	public boolean containsKey(long key)
+	{
+		return valAt(key, NOT_FOUND) != NOT_FOUND;
+	}
+
+	public PersistentBTreeMap assoc(long key, Object val)
+	{
+		return longKeys ? assoc(null, key, val) : assoc(key, 0, val);
+	}
+
+	public PersistentBTreeMap without(long key)
+	{
+		return longKeys ? without(null, key) : without(key, 0);
+	}
+
+	/**
+	 * @param inclusive whether an entry of the key itself is counted
+	 * @return the number of keys less than (or equal to) the given key, in O(log n)
+	 */
+	public int rank(Object key, boolean inclusive)
+	{
+		return longKeys ? rank(null, toLong(key), inclusive) : rank(key, 0, inclusive);
+	}
+
+	private int rank(Object key, long lkey, boolean inclusive)
+	{
+		Node node = root;
+		if (node == null)
+		{
+			return 0;
+		}
+		int rank = 0;
+		while (node instanceof Branch)
+		{
+			final Branch branch = (Branch) node;
+			final int child = childIndex(branch.keys, key, lkey);
+			if (child > 0)
+			{
+				rank += branch.sizes[child - 1];
+			}
+			node = branch.children[child];
+		}
+		final int i = search(((Leaf) node).keys, key, lkey);
+		return rank + (i >= 0 ? (inclusive ? i + 1 : i) : -i - 1);
+	}
+
+	/**
+	 * @return the entry at the given position in ascending key order, in O(log n)
+	 * @throws IndexOutOfBoundsException if the index is negative or not less than the count of the map
+	 */
+	public IMapEntry select(int index)
+	{
+		if (index < 0 || index >= count)
+		{
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		Node node = root;
+		while (node instanceof Branch)
+		{
+			final Branch branch = (Branch) node;
+			final int found = Arrays.binarySearch(branch.sizes, index);
+			// the first child whose cumulative size is greater than the index
+			final int child = found >= 0 ? found + 1 : -found - 1;
+			if (child > 0)
+			{
+				index -= branch.sizes[child - 1];
+			}
+			node = branch.children[child];
+		}
+		final Leaf leaf = (Leaf) node;
+		return MapEntry.create(keyAt(leaf.keys, index), leaf.vals[index]);
+	}
+
+	@Override
+	public PersistentBTreeMap assoc(Object key, Object val)
+	{
+		return longKeys ? assoc(null, toLong(key), val) : assoc(key, 0, val);
+	}
+
+	private PersistentBTreeMap assoc(Object key, long lkey, Object val)
+	{
+		if (root == null)
+		{
+			final Object keys = newKeys(1);
+			setKey(keys, 0, key, lkey);
+			return new PersistentBTreeMap(_meta, comp, longKeys, new Leaf(keys, new Object[]{val}), 1);
+		}
+		final Edit edit = new Edit();
+		Node newRoot = insert(root, key, lkey, val, edit);
+		if (newRoot == root)
+		{
+			return this;
+		}
+		if (edit.split != null)
+		{
+			final Object keys = newKeys(1);
+			System.arraycopy(edit.separators, edit.separator, keys, 0, 1);
+			newRoot = new Branch(keys, new Node[]{newRoot, edit.split});
+		}
+		return new PersistentBTreeMap(_meta, comp, longKeys, newRoot, edit.added ? count + 1 : count);
+	}
+
+	@Override
+	public IPersistentMap assocEx(Object key, Object val)
+	{
+		if (containsKey(key))
+		{
+			throw Util.runtimeException("Key already present");
+		}
+		return assoc(key, val);
+	}
+
+	@Override
+	public PersistentBTreeMap without(Object key)
+	{
+		if (longKeys)
+		{
+			return isLongKey(key) ? without(null, ((Number) key).longValue()) : this;
+		}
+		return without(key, 0);
+	}
+
+	private PersistentBTreeMap without(Object key, long lkey)
+	{
+		if (root == null)
+		{
+			return this;
+		}
+		Node newRoot = remove(root, key, lkey);
+		if (newRoot == root)
+		{
+			return this;
+		}
+		if (newRoot instanceof Branch && ((Branch) newRoot).children.length == 1)
+		{
+			newRoot = ((Branch) newRoot).children[0];
+		}
+		else if (newRoot instanceof Leaf && ((Leaf) newRoot).vals.length == 0)
+		{
+			newRoot = null;
+		}
+		return new PersistentBTreeMap(_meta, comp, longKeys, newRoot, count - 1);
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return valAt(key, NOT_FOUND) != NOT_FOUND;
+	}
+
+	@Override
+	public IMapEntry entryAt(Object key)
+	{
+		final Object val = valAt(key, NOT_FOUND);
+		if (val == NOT_FOUND)
+		{
+			return null;
+		}
+		return MapEntry.create(longKeys ? (Object) ((Number) key).longValue() : key, val);
+	}
+
+	@Override
+	public Object valAt(Object key)
+	{
+		return valAt(key, null);
+	}
+
+	@Override
+	public Object valAt(Object key, Object notFound)
+	{
+		if (longKeys)
+		{
+			return isLongKey(key) ? lookup(null, ((Number) key).longValue(), notFound) : notFound;
+		}
+		return lookup(key, 0, notFound);
+	}
+
+	private Object lookup(Object key, long lkey, Object notFound)
+	{
+		Node node = root;
+		if (node == null)
+		{
+			return notFound;
+		}
+		while (node instanceof Branch)
+		{
+			final Branch branch = (Branch) node;
+			node = branch.children[childIndex(branch.keys, key, lkey)];
+		}
+		final Leaf leaf = (Leaf) node;
+		final int i = search(leaf.keys, key, lkey);
+		return i >= 0 ? leaf.vals[i] : notFound;
+	}
+
+	@Override
+	public int count()
+	{
+		return count;
+	}
+
+	@Override
+	public ISeq seq()
+	{
+		return seq(true);
+	}
+
+	@Override
+	public IPersistentCollection empty()
+	{
+		return new PersistentBTreeMap(_meta, comp, longKeys, null, 0);
+	}
+
+	@Override
+	public Iterator<Object> iterator()
+	{
+		return new SeqIterator(seq(true));
+	}
+
+	@Override
+	public IPersistentMap meta()
+	{
+		return _meta;
+	}
+
+	@Override
+	public PersistentBTreeMap withMeta(IPersistentMap meta)
+	{
+		return meta == _meta ? this : new PersistentBTreeMap(meta, comp, longKeys, root, count);
+	}
+
+	@Override
+	public Comparator<Object> comparator()
+	{
+		return comp;
+	}
+
+	/**
+	 * @return true if the keys are stored as primitive longs
+	 */
+	public boolean isLongKeyed()
+	{
+		return longKeys;
+	}
+
+	@Override
+	public Object entryKey(Object entry)
+	{
+		return ((IMapEntry) entry).key();
+	}
+
+	@Override
+	public ISeq seq(boolean ascending)
+	{
+		return root != null ? edge(root, null, ascending) : null;
+	}
+
+	@Override
+	public ISeq seqFrom(Object key, boolean ascending)
+	{
+		if (root == null)
+		{
+			return null;
+		}
+		final long lkey = longKeys ? toLong(key) : 0;
+		Node node = root;
+		Path path = null;
+		while (node instanceof Branch)
+		{
+			final Branch branch = (Branch) node;
+			final int child = childIndex(branch.keys, key, lkey);
+			path = new Path(branch, child, path);
+			node = branch.children[child];
+		}
+		final Leaf leaf = (Leaf) node;
+		final int i = search(leaf.keys, key, lkey);
+		final int n = leaf.vals.length;
+		if (ascending)
+		{
+			final int at = i >= 0 ? i : -i - 1;
+			return at < n ? new Seq(leaf, at, path, true) : new Seq(leaf, n - 1, path, true).next();
+		}
+		final int at = i >= 0 ? i : -i - 2;
+		return at >= 0 ? new Seq(leaf, at, path, false) : new Seq(leaf, 0, path, false).next();
+	}
+
+	/**
+	 * @return a seq starting from the first (ascending) or last (descending) entry under the node
+	 */
+	private static Seq edge(Node node, Path path, boolean ascending)
+	{
+		while (node instanceof Branch)
+		{
+			final Branch branch = (Branch) node;
+			final int child = ascending ? 0 : branch.children.length - 1;
+			path = new Path(branch, child, path);
+			node = branch.children[child];
+		}
+		final Leaf leaf = (Leaf) node;
+		return new Seq(leaf, ascending ? 0 : leaf.vals.length - 1, path, ascending);
+	}
+
+	private Node insert(Node node, Object key, long lkey, Object val, Edit edit)
+	{
+		if (node instanceof Leaf)
+		{
+			final Leaf leaf = (Leaf) node;
+			final int i = search(leaf.keys, key, lkey);
+			if (i >= 0)
+			{
+				if (leaf.vals[i] == val)
+				{
+					return leaf;
+				}
+				final Object[] vals = leaf.vals.clone();
+				vals[i] = val;
+				return new Leaf(leaf.keys, vals);
+			}
+			edit.added = true;
+			final int at = -i - 1;
+			final int n = leaf.vals.length;
+			final Object keys = newKeys(n + 1);
+			System.arraycopy(leaf.keys, 0, keys, 0, at);
+			setKey(keys, at, key, lkey);
+			System.arraycopy(leaf.keys, at, keys, at + 1, n - at);
+			final Object[] vals = new Object[n + 1];
+			System.arraycopy(leaf.vals, 0, vals, 0, at);
+			vals[at] = val;
+			System.arraycopy(leaf.vals, at, vals, at + 1, n - at);
+			return n + 1 <= MAX_WIDTH ? new Leaf(keys, vals) : splitLeaf(keys, vals, edit);
+		}
+		final Branch branch = (Branch) node;
+		final int child = childIndex(branch.keys, key, lkey);
+		final Node newChild = insert(branch.children[child], key, lkey, val, edit);
+		if (newChild == branch.children[child])
+		{
+			return branch;
+		}
+		if (edit.split == null)
+		{
+			final Node[] children = branch.children.clone();
+			children[child] = newChild;
+			return new Branch(branch.keys, children);
+		}
+		final int width = branch.children.length;
+		final Node[] children = new Node[width + 1];
+		System.arraycopy(branch.children, 0, children, 0, child);
+		children[child] = newChild;
+		children[child + 1] = edit.split;
+		System.arraycopy(branch.children, child + 1, children, child + 2, width - child - 1);
+		final Object keys = newKeys(width);
+		System.arraycopy(branch.keys, 0, keys, 0, child);
+		System.arraycopy(edit.separators, edit.separator, keys, child, 1);
+		System.arraycopy(branch.keys, child, keys, child + 1, width - 1 - child);
+		edit.split = null;
+		return width + 1 <= MAX_WIDTH ? new Branch(keys, children) : splitBranch(keys, children, edit);
+	}
+
+	private static Leaf splitLeaf(Object keys, Object[] vals, Edit edit)
+	{
+		final int n = vals.length;
+		final int half = n / 2;
+		final Leaf right = new Leaf(copyKeys(keys, half, n), Arrays.copyOfRange(vals, half, n));
+		edit.split = right;
+		edit.separators = right.keys;
+		edit.separator = 0;
+		return new Leaf(copyKeys(keys, 0, half), Arrays.copyOfRange(vals, 0, half));
+	}
+
+	private static Branch splitBranch(Object keys, Node[] children, Edit edit)
+	{
+		final int width = children.length;
+		final int half = width / 2;
+		edit.split = new Branch(copyKeys(keys, half, width - 1), Arrays.copyOfRange(children, half, width));
+		edit.separators = keys;
+		edit.separator = half - 1;
+		return new Branch(copyKeys(keys, 0, half - 1), Arrays.copyOfRange(children, 0, half));
+	}
+
+	/**
+	 * @return the node without the key, it may hold less than {@link #MIN_WIDTH} entries or children,
+	 * the caller rebalances it with a sibling
+	 */
+	private Node remove(Node node, Object key, long lkey)
+	{
+		if (node instanceof Leaf)
+		{
+			final Leaf leaf = (Leaf) node;
+			final int i = search(leaf.keys, key, lkey);
+			if (i < 0)
+			{
+				return leaf;
+			}
+			final int n = leaf.vals.length;
+			final Object keys = newKeys(n - 1);
+			System.arraycopy(leaf.keys, 0, keys, 0, i);
+			System.arraycopy(leaf.keys, i + 1, keys, i, n - i - 1);
+			final Object[] vals = new Object[n - 1];
+			System.arraycopy(leaf.vals, 0, vals, 0, i);
+			System.arraycopy(leaf.vals, i + 1, vals, i, n - i - 1);
+			return new Leaf(keys, vals);
+		}
+		final Branch branch = (Branch) node;
+		final int child = childIndex(branch.keys, key, lkey);
+		final Node newChild = remove(branch.children[child], key, lkey);
+		if (newChild == branch.children[child])
+		{
+			return branch;
+		}
+		if (newChild.width() >= MIN_WIDTH)
+		{
+			final Node[] children = branch.children.clone();
+			children[child] = newChild;
+			return new Branch(branch.keys, children);
+		}
+		// merge with a sibling, or take entries from it if both do not fit in one node
+		final int left = child > 0 ? child - 1 : child;
+		final Node leftNode = left == child ? newChild : branch.children[left];
+		final Node rightNode = left == child ? branch.children[left + 1] : newChild;
+		final Edit edit = new Edit();
+		final Node merged = leftNode instanceof Leaf
+			? mergeLeaves((Leaf) leftNode, (Leaf) rightNode, edit)
+			: mergeBranches((Branch) leftNode, branch.keys, left, (Branch) rightNode, edit);
+		final int width = branch.children.length;
+		if (edit.split == null)
+		{
+			final Node[] children = new Node[width - 1];
+			System.arraycopy(branch.children, 0, children, 0, left);
+			children[left] = merged;
+			System.arraycopy(branch.children, left + 2, children, left + 1, width - left - 2);
+			final Object keys = newKeys(width - 2);
+			System.arraycopy(branch.keys, 0, keys, 0, left);
+			System.arraycopy(branch.keys, left + 1, keys, left, width - left - 2);
+			return new Branch(keys, children);
+		}
+		final Node[] children = branch.children.clone();
+		children[left] = merged;
+		children[left + 1] = edit.split;
+		final Object keys = copyKeys(branch.keys, 0, width - 1);
+		System.arraycopy(edit.separators, edit.separator, keys, left, 1);
+		return new Branch(keys, children);
+	}
+
+	private Node mergeLeaves(Leaf left, Leaf right, Edit edit)
+	{
+		final int leftWidth = left.vals.length;
+		final int n = leftWidth + right.vals.length;
+		final Object keys = newKeys(n);
+		System.arraycopy(left.keys, 0, keys, 0, leftWidth);
+		System.arraycopy(right.keys, 0, keys, leftWidth, n - leftWidth);
+		final Object[] vals = new Object[n];
+		System.arraycopy(left.vals, 0, vals, 0, leftWidth);
+		System.arraycopy(right.vals, 0, vals, leftWidth, n - leftWidth);
+		return n <= MAX_WIDTH ? new Leaf(keys, vals) : splitLeaf(keys, vals, edit);
+	}
+
+	private Node mergeBranches(Branch left, Object parentKeys, int separator, Branch right, Edit edit)
+	{
+		final int leftWidth = left.children.length;
+		final int width = leftWidth + right.children.length;
+		final Node[] children = new Node[width];
+		System.arraycopy(left.children, 0, children, 0, leftWidth);
+		System.arraycopy(right.children, 0, children, leftWidth, width - leftWidth);
+		final Object keys = newKeys(width - 1);
+		System.arraycopy(left.keys, 0, keys, 0, leftWidth - 1);
+		System.arraycopy(parentKeys, separator, keys, leftWidth - 1, 1);
+		System.arraycopy(right.keys, 0, keys, leftWidth, width - leftWidth - 1);
+		return width <= MAX_WIDTH ? new Branch(keys, children) : splitBranch(keys, children, edit);
+	}
+
+	/**
+	 * @return the index of the key, or (-(insertion point) - 1) like {@link Arrays#binarySearch(long[], long)}
+	 */
+	private int search(Object keys, Object key, long lkey)
+	{
+		return keys instanceof long[]
+			? Arrays.binarySearch((long[]) keys, lkey)
+			: Arrays.binarySearch((Object[]) keys, key, comp);
+	}
+
+	/**
+	 * @return the index of the child of a branch whose keys may contain the key
+	 */
+	private int childIndex(Object separators, Object key, long lkey)
+	{
+		final int i = search(separators, key, lkey);
+		return i >= 0 ? i + 1 : -i - 1;
+	}
+
+	private int compareAt(Object keys1, int i1, Object keys2, int i2)
+	{
+		return keys1 instanceof long[]
+			? Long.compare(((long[]) keys1)[i1], ((long[]) keys2)[i2])
+			: comp.compare(((Object[]) keys1)[i1], ((Object[]) keys2)[i2]);
+	}
+
+	private Object newKeys(int n)
+	{
+		return longKeys ? new long[n] : new Object[n];
+	}
+
+	private static Object keysLike(Object keys, int n)
+	{
+		return keys instanceof long[] ? new long[n] : new Object[n];
+	}
+
+	private static Object copyKeys(Object keys, int from, int to)
+	{
+		return keys instanceof long[]
+			? Arrays.copyOfRange((long[]) keys, from, to)
+			: Arrays.copyOfRange((Object[]) keys, from, to);
+	}
+
+	private static void setKey(Object keys, int i, Object key, long lkey)
+	{
+		if (keys instanceof long[])
+		{
+			((long[]) keys)[i] = lkey;
+		}
+		else
+		{
+			((Object[]) keys)[i] = key;
+		}
+	}
+
+	private static Object keyAt(Object keys, int i)
+	{
+		return keys instanceof long[] ? (Object) ((long[]) keys)[i] : ((Object[]) keys)[i];
+	}
+
+	private static boolean isLongKey(Object key)
+	{
+		return key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte;
+	}
+
+	private static long toLong(Object key)
+	{
+		if (!isLongKey(key))
+		{
+			throw new IllegalArgumentException("Key must be an integral number: " + key);
+		}
+		return ((Number) key).longValue();
+	}
+
+	private static abstract class Node implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @return the number of entries under the node
+		 */
+		abstract int size();
+
+		/**
+		 * @return the number of entries of a leaf or children of a branch
+		 */
+		abstract int width();
+	}
+
+	private static final class Leaf extends Node
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * long[] or Object[] in ascending order
+		 */
+		final Object keys;
+
+		final Object[] vals;
+
+		Leaf(Object keys, Object[] vals)
+		{
+			this.keys = keys;
+			this.vals = vals;
+		}
+
+		@Override
+		int size()
+		{
+			return vals.length;
+		}
+
+		@Override
+		int width()
+		{
+			return vals.length;
+		}
+	}
+
+	private static final class Branch extends Node
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * keys[i] is the smallest key that may be stored under children[i + 1], long[] or Object[]
+		 */
+		final Object keys;
+
+		final Node[] children;
+
+		/**
+		 * sizes[i] is the number of entries under children[0..i]
+		 */
+		final int[] sizes;
+
+		Branch(Object keys, Node[] children)
+		{
+			this.keys = keys;
+			this.children = children;
+			this.sizes = new int[children.length];
+			int total = 0;
+			for (int i = 0; i < children.length; i++)
+			{
+				total += children[i].size();
+				sizes[i] = total;
+			}
+		}
+
+		@Override
+		int size()
+		{
+			return sizes[sizes.length - 1];
+		}
+
+		@Override
+		int width()
+		{
+			return children.length;
+		}
+	}
+
+	/**
+	 * Output of an insert or a merge that produced two nodes: the new right node and where to copy its separator
+	 * key from.
+	 */
+	private static final class Edit
+	{
+		boolean added;
+
+		Node split;
+
+		Object separators;
+
+		int separator;
+	}
+
+	/**
+	 * The branches from the root down to a leaf, with the index of the child taken in each
+	 */
+	private static final class Path implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		final Branch branch;
+
+		final int child;
+
+		final Path parent;
+
+		Path(Branch branch, int child, Path parent)
+		{
+			this.branch = branch;
+			this.child = child;
+			this.parent = parent;
+		}
+	}
+
+	private static final class Seq extends ASeq
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Leaf leaf;
+
+		private final int index;
+
+		private final Path path;
+
+		private final boolean ascending;
+
+		Seq(Leaf leaf, int index, Path path, boolean ascending)
+		{
+			this.leaf = leaf;
+			this.index = index;
+			this.path = path;
+			this.ascending = ascending;
+		}
+
+		private Seq(IPersistentMap meta, Leaf leaf, int index, Path path, boolean ascending)
+		{
+			super(meta);
+			this.leaf = leaf;
+			this.index = index;
+			this.path = path;
+			this.ascending = ascending;
+		}
+
+		@Override
+		public Object first()
+		{
+			return MapEntry.create(keyAt(leaf.keys, index), leaf.vals[index]);
+		}
+
+		@Override
+		public ISeq next()
+		{
+			final int nextIndex = ascending ? index + 1 : index - 1;
+			if (nextIndex >= 0 && nextIndex < leaf.vals.length)
+			{
+				return new Seq(leaf, nextIndex, path, ascending);
+			}
+			for (Path p = path; p != null; p = p.parent)
+			{
+				final int child = ascending ? p.child + 1 : p.child - 1;
+				if (child >= 0 && child < p.branch.children.length)
+				{
+					return edge(p.branch.children[child], new Path(p.branch, child, p.parent), ascending);
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public Obj withMeta(IPersistentMap meta)
+		{
+			return new Seq(meta, leaf, index, path, ascending);
+		}
+	}
+
+	private static final class SeqIterator implements Iterator<Object>
+	{
+		private ISeq seq;
+
+		SeqIterator(ISeq seq)
+		{
+			this.seq = seq;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return seq != null;
+		}
+
+		@Override
+		public Object next()
+		{
+			if (seq == null)
+			{
+				throw new NoSuchElementException();
+			}
+			final Object first = seq.first();
+			seq = seq.next();
+			return first;
+		}
+	}
+
+	private static final class LongComparator implements Comparator<Object>, Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public int compare(Object o1, Object o2)
+		{
+			return Long.compare(((Number) o1).longValue(), ((Number) o2).longValue());
+		}
+	}
+}
@@ -0,0 +1,462 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.IMapEntry;
+import clojure.lang.IObj;
+import clojure.lang.IPersistentCollection;
+import clojure.lang.IPersistentMap;
+import clojure.lang.ISeq;
+import clojure.lang.MapEntry;
+import clojure.lang.RT;
+import clojure.lang.Util;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A persistent map keyed by primitive longs, implemented as a big-endian PATRICIA trie
+ * (Okasaki &amp; Gill, "Fast Mergeable Integer Maps").
+ * <p>
+ * Keys are never boxed on the primitive {@code long} methods, lookups follow at most 64 branches and
+ * compare raw key bits instead of calling {@code hasheq}. Entries are iterated in ascending key order.
+ * <p>
+ * From Clojure it behaves like any other persistent map whose keys are {@link Long}s.
+ */
+public class PersistentLongMap extends APersistentMap implements IObj
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final Object NOT_FOUND = new Object();
+
+	public static final PersistentLongMap EMPTY = new PersistentLongMap(null, null, 0);
+
+	private final Node root;
+
+	private final int count;
+
+	private final IPersistentMap _meta;
+
+	private PersistentLongMap(IPersistentMap meta, Node root, int count)
+	{
+		this._meta = meta;
+		this.root = root;
+		this.count = count;
+	}
+
+	/**
+	 * Consumer of a primitive long key and its value.
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer<V>
+	{
+		void accept(long key, V value);
+	}
+
+	public Object valAt(long key, Object notFound)
+	{
+		final long bits = toBits(key);
+		Node node = root;
+		while (node instanceof Branch)
+		{
+			final Branch branch = (Branch) node;
+			if (!branch.matches(bits))
+			{
+				return notFound;
+			}
+			node = (bits & branch.mask) == 0 ? branch.left : branch.right;
+		}
+		return node != null && ((Leaf) node).bits == bits ? ((Leaf) node).val : notFound;
+	}
+
+	public Object valAt(long key)
+	{
+		return valAt(key, null);
+	}
+
+	public boolean containsKey(long key)
+	{
+		return valAt(key, NOT_FOUND) != NOT_FOUND;
+	}
+
+	public PersistentLongMap assoc(long key, Object val)
+	{
+		final Object existing = valAt(key, NOT_FOUND);
+		if (existing == val)
+		{
+			return this;
+		}
+		final Node newRoot = root == null ? new Leaf(toBits(key), val) : insert(root, toBits(key), val);
+		return new PersistentLongMap(_meta, newRoot, existing == NOT_FOUND ? count + 1 : count);
+	}
+
+	public PersistentLongMap without(long key)
+	{
+		if (!containsKey(key))
+		{
+			return this;
+		}
+		return new PersistentLongMap(_meta, remove(root, toBits(key)), count - 1);
+	}
+
+	/**
+	 * Visit all entries in ascending key order.
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> void forEachEntry(EntryConsumer<V> consumer)
+	{
+		forEachInRange(Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+	}
+
+	/**
+	 * Visit the entries whose keys are within [fromInclusive, toInclusive] in ascending key order.
+	 * Subtrees outside of the range are skipped without being visited.
+	 */
+	public <V> void forEachInRange(long fromInclusive, long toInclusive, EntryConsumer<V> consumer)
+	{
+		if (root != null && fromInclusive <= toInclusive)
+		{
+			forEachInRange(root, toBits(fromInclusive), toBits(toInclusive), consumer);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> void forEachInRange(Node node, long from, long to, EntryConsumer<V> consumer)
+	{
+		if (node instanceof Leaf)
+		{
+			final Leaf leaf = (Leaf) node;
+			if (Long.compareUnsigned(leaf.bits, from) >= 0 && Long.compareUnsigned(leaf.bits, to) <= 0)
+			{
+				consumer.accept(fromBits(leaf.bits), (V) leaf.val);
+			}
+			return;
+		}
+		final Branch branch = (Branch) node;
+		if (Long.compareUnsigned(branch.max(), from) < 0 || Long.compareUnsigned(branch.prefix, to) > 0)
+		{
+			return;
+		}
+		forEachInRange(branch.left, from, to, consumer);
+		forEachInRange(branch.right, from, to, consumer);
+	}
+
+	/**
+	 * @return an iterator of the entries whose keys are within [fromInclusive, toInclusive], in ascending key order
+	 */
+	public Iterator<IMapEntry> rangeIterator(long fromInclusive, long toInclusive)
+	{
+		return new RangeIterator(root, fromInclusive, toInclusive);
+	}
+
+	@Override
+	public IPersistentMap assoc(Object key, Object val)
+	{
+		return assoc(toLong(key), val);
+	}
+
+	@Override
+	public IPersistentMap assocEx(Object key, Object val)
+	{
+		if (containsKey(key))
+		{
+			throw Util.runtimeException("Key already present");
+		}
+		return assoc(key, val);
+	}
+
+	@Override
+	public IPersistentMap without(Object key)
+	{
+		return isLongKey(key) ? without(((Number) key).longValue()) : this;
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return isLongKey(key) && containsKey(((Number) key).longValue());
+	}
+
+	@Override
+	public IMapEntry entryAt(Object key)
+	{
+		if (!isLongKey(key))
+		{
+			return null;
+		}
+		final Object val = valAt(((Number) key).longValue(), NOT_FOUND);
+		return val != NOT_FOUND ? MapEntry.create(((Number) key).longValue(), val) : null;
+	}
+
+	@Override
+	public Object valAt(Object key)
+	{
+		return valAt(key, null);
+	}
+
+	@Override
+	public Object valAt(Object key, Object notFound)
+	{
+		return isLongKey(key) ? valAt(((Number) key).longValue(), notFound) : notFound;
+	}
+
+	@Override
+	public int count()
+	{
+		return count;
+	}
+
+	@Override
+	public ISeq seq()
+	{
+		return count > 0 ? RT.chunkIteratorSeq(iterator()) : null;
+	}
+
+	@Override
+	public IPersistentCollection empty()
+	{
+		return EMPTY.withMeta(_meta);
+	}
+
+	@Override
+	public Iterator iterator()
+	{
+		return rangeIterator(Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	@Override
+	public IPersistentMap meta()
+	{
+		return _meta;
+	}
+
+	@Override
+	public PersistentLongMap withMeta(IPersistentMap meta)
+	{
+		return meta == _meta ? this : new PersistentLongMap(meta, root, count);
+	}
+
+	private static boolean isLongKey(Object key)
+	{
+		return key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte;
+	}
+
+	/**
+	 * @return the key as a long, the way {@link #assoc(Object, Object)} takes it
+	 * @throws IllegalArgumentException if the key is not a {@link Long}, {@link Integer}, {@link Short} or {@link Byte}
+	 */
+	public static long toLong(Object key)
+	{
+		if (!isLongKey(key))
+		{
+			throw new IllegalArgumentException("Key must be an integral number: " + key);
+		}
+		return ((Number) key).longValue();
+	}
+
+	/**
+	 * Flip the sign bit so that unsigned comparison of the bits matches signed comparison of the keys.
+	 */
+	private static long toBits(long key)
+	{
+		return key ^ Long.MIN_VALUE;
+	}
+
+	private static long fromBits(long bits)
+	{
+		return bits ^ Long.MIN_VALUE;
+	}
+
+	private static Node insert(Node node, long bits, Object val)
+	{
+		if (node instanceof Leaf)
+		{
+			final Leaf leaf = (Leaf) node;
+			return leaf.bits == bits ? new Leaf(bits, val) : join(bits, new Leaf(bits, val), leaf.bits, leaf);
+		}
+		final Branch branch = (Branch) node;
+		if (!branch.matches(bits))
+		{
+			return join(bits, new Leaf(bits, val), branch.prefix, branch);
+		}
+		return (bits & branch.mask) == 0
+			? new Branch(branch.prefix, branch.mask, insert(branch.left, bits, val), branch.right)
+			: new Branch(branch.prefix, branch.mask, branch.left, insert(branch.right, bits, val));
+	}
+
+	private static Node remove(Node node, long bits)
+	{
+		if (node instanceof Leaf)
+		{
+			return ((Leaf) node).bits == bits ? null : node;
+		}
+		final Branch branch = (Branch) node;
+		if ((bits & branch.mask) == 0)
+		{
+			final Node left = remove(branch.left, bits);
+			return left == null ? branch.right : new Branch(branch.prefix, branch.mask, left, branch.right);
+		}
+		else
+		{
+			final Node right = remove(branch.right, bits);
+			return right == null ? branch.left : new Branch(branch.prefix, branch.mask, branch.left, right);
+		}
+	}
+
+	private static Node join(long bits1, Node node1, long bits2, Node node2)
+	{
+		final long mask = Long.highestOneBit(bits1 ^ bits2);
+		final long prefix = prefixOf(bits1, mask);
+		return (bits1 & mask) == 0 ? new Branch(prefix, mask, node1, node2) : new Branch(prefix, mask, node2, node1);
+	}
+
+	/**
+	 * @return the bits above the branching bit, with the branching bit and all bits below cleared
+	 */
+	private static long prefixOf(long bits, long mask)
+	{
+		return bits & -(mask << 1);
+	}
+
+	private static abstract class Node implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	private static final class Leaf extends Node
+	{
+		private static final long serialVersionUID = 1L;
+
+		final long bits;
+
+		final Object val;
+
+		Leaf(long bits, Object val)
+		{
+			this.bits = bits;
+			this.val = val;
+		}
+	}
+
+	private static final class Branch extends Node
+	{
+		private static final long serialVersionUID = 1L;
+
+		final long prefix;
+
+		final long mask;
+
+		final Node left;
+
+		final Node right;
+
+		Branch(long prefix, long mask, Node left, Node right)
+		{
+			this.prefix = prefix;
+			this.mask = mask;
+			this.left = left;
+			this.right = right;
+		}
+
+		boolean matches(long bits)
+		{
+			return prefixOf(bits, mask) == prefix;
+		}
+
+		/**
+		 * @return the largest key bits this branch could hold
+		 */
+		long max()
+		{
+			return prefix | (mask | (mask - 1));
+		}
+	}
+
+	private static final class RangeIterator implements Iterator<IMapEntry>
+	{
+		private final ArrayDeque<Node> stack = new ArrayDeque<>();
+
+		private final long from;
+
+		private final long to;
+
+		private Leaf next;
+
+		RangeIterator(Node root, long fromInclusive, long toInclusive)
+		{
+			this.from = toBits(fromInclusive);
+			this.to = toBits(toInclusive);
+			if (root != null && fromInclusive <= toInclusive)
+			{
+				stack.push(root);
+			}
+			advance();
+		}
+
+		private void advance()
+		{
+			next = null;
+			while (!stack.isEmpty())
+			{
+				final Node node = stack.pop();
+				if (node instanceof Leaf)
+				{
+					final Leaf leaf = (Leaf) node;
+					if (Long.compareUnsigned(leaf.bits, from) >= 0 && Long.compareUnsigned(leaf.bits, to) <= 0)
+					{
+						next = leaf;
+						return;
+					}
+				}
+				else
+				{
+					final Branch branch = (Branch) node;
+					if (Long.compareUnsigned(branch.max(), from) >= 0 && Long.compareUnsigned(branch.prefix, to) <= 0)
+					{
+						stack.push(branch.right);
+						stack.push(branch.left);
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return next != null;
+		}
+
+		@Override
+		public IMapEntry next()
+		{
+			if (next == null)
+			{
+				throw new NoSuchElementException();
+			}
+			final IMapEntry entry = MapEntry.create(fromBits(next.bits), next.val);
+			advance();
+			return entry;
+		}
+	}
+}
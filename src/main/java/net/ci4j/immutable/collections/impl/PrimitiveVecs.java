@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.core.Vec;
+import clojure.core.VecNode;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+
+/**
+ * Path copying helpers for clojure primitive vectors ({@code (vector-of :long)} and friends).
+ * <p>
+ * {@link Vec} only offers boxed {@code cons} and {@code assocN}, these helpers take the new leaf or tail arrays
+ * prepared by the caller so that primitive values never need to be boxed.
+ * <p>
+ * They rely on the internals of clojure's {@code gvec.clj}: the {@link Vec} constructor, its {@code pushTail} and
+ * {@code newPath} methods and the public fields of {@link Vec} and {@link VecNode}, which may change between clojure
+ * releases.
+ */
+public final class PrimitiveVecs
+{
+	private PrimitiveVecs()
+	{}
+
+	/**
+	 * @param type a primitive type keyword supported by {@code vector-of}, e.g. {@code "long"}
+	 * @return an empty primitive vector of the given type
+	 */
+	public static Vec empty(String type)
+	{
+		return ClojureRT.eval("(vector-of :" + type + ")");
+	}
+
+	/**
+	 * @return the number of items stored in the tail array of the given vector
+	 */
+	public static int tailLength(Vec vec)
+	{
+		return vec.cnt - vec.tailoff();
+	}
+
+	/**
+	 * Create a new vector with the tail replaced by the given array, which must not be shorter than the
+	 * current tail.
+	 */
+	public static Vec withTail(Vec vec, Object newTail, int newTailLength)
+	{
+		return new Vec(vec.am, vec.tailoff() + newTailLength, vec.shift, vec.root, newTail, vec._meta);
+	}
+
+	/**
+	 * Push the full tail of the given vector into the trie and use the given array as the new tail.
+	 *
+	 * @param vec           a vector whose tail holds 32 items, or an empty vector
+	 * @param newTail       the new tail array, containing at least one item
+	 * @param newTailLength number of items in the new tail
+	 */
+	public static Vec pushTail(Vec vec, Object newTail, int newTailLength)
+	{
+		if (vec.cnt == 0)
+		{
+			return new Vec(vec.am, newTailLength, vec.shift, vec.root, newTail, vec._meta);
+		}
+		final VecNode root = (VecNode) vec.root;
+		final VecNode tailNode = new VecNode(root.edit, vec.tail);
+		if ((vec.cnt >>> 5) > (1 << vec.shift))
+		{
+			final Object[] arr = new Object[32];
+			arr[0] = root;
+			arr[1] = vec.newPath(root.edit, vec.shift, tailNode);
+			return new Vec(vec.am, vec.cnt + newTailLength, vec.shift + 5, new VecNode(root.edit, arr), newTail, vec._meta);
+		}
+		else
+		{
+			return new Vec(vec.am, vec.cnt + newTailLength, vec.shift, vec.pushTail(vec.shift, root, tailNode), newTail, vec._meta);
+		}
+	}
+
+	/**
+	 * Create a new vector with the leaf array holding index {@code i} replaced by the given array.
+	 */
+	public static Vec withLeaf(Vec vec, int i, Object newLeaf)
+	{
+		if (i >= vec.tailoff())
+		{
+			return new Vec(vec.am, vec.cnt, vec.shift, vec.root, newLeaf, vec._meta);
+		}
+		return new Vec(vec.am, vec.cnt, vec.shift, replaceLeaf((VecNode) vec.root, vec.shift, i, newLeaf), vec.tail, vec._meta);
+	}
+
+	private static VecNode replaceLeaf(VecNode node, int level, int i, Object newLeaf)
+	{
+		if (level == 0)
+		{
+			return new VecNode(node.edit, newLeaf);
+		}
+		final Object[] arr = ((Object[]) node.arr).clone();
+		final int subidx = (i >>> level) & 0x1f;
+		arr[subidx] = replaceLeaf((VecNode) arr[subidx], level - 5, i, newLeaf);
+		return new VecNode(node.edit, arr);
+	}
+}
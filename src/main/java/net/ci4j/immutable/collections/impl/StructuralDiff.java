@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.lang.PersistentHashMap;
+import clojure.lang.PersistentVector;
+import clojure.lang.Util;
+import net.ci4j.immutable.clojure_utils.ClojureInternals;
+
+/**
+ * Differences between two versions of a persistent collection that skip the subtrees shared by both sides.
+ * <p>
+ * Like {@link StructuralEquals}, node references are compared before the content, so two versions derived from one
+ * another are compared in time proportional to their edited paths instead of their size.
+ */
+public final class StructuralDiff
+{
+	private StructuralDiff()
+	{}
+
+	/**
+	 * Receives the differences between two maps.
+	 */
+	public interface EntrySink
+	{
+		void added(Object key, Object val);
+
+		void removed(Object key, Object val);
+
+		void changed(Object key, Object oldVal, Object newVal);
+	}
+
+	/**
+	 * Receives the items that differ at the same index of two vectors.
+	 */
+	public interface ItemSink
+	{
+		void changed(int index, Object oldItem, Object newItem);
+	}
+
+	/**
+	 * Report the entries added, removed or changed from {@code x} to {@code y}, values being compared with
+	 * {@link Util#equals(Object, Object)}.
+	 */
+	public static void hashMaps(PersistentHashMap x, PersistentHashMap y, EntrySink sink)
+	{
+		if (x == y) return;
+		final boolean xHasNull = ClojureInternals.hashMapHasNull(x);
+		final boolean yHasNull = ClojureInternals.hashMapHasNull(y);
+		if (xHasNull && yHasNull)
+		{
+			final Object xVal = ClojureInternals.hashMapNullValue(x);
+			final Object yVal = ClojureInternals.hashMapNullValue(y);
+			if (!Util.equals(xVal, yVal))
+			{
+				sink.changed(null, xVal, yVal);
+			}
+		}
+		else if (xHasNull)
+		{
+			sink.removed(null, ClojureInternals.hashMapNullValue(x));
+		}
+		else if (yHasNull)
+		{
+			sink.added(null, ClojureInternals.hashMapNullValue(y));
+		}
+		diffSlot(null, ClojureInternals.hashMapRoot(x), null, ClojureInternals.hashMapRoot(y), x, y, sink);
+	}
+
+	/**
+	 * Report the items that differ between {@code x} and {@code y} at the indices below the size of both vectors.
+	 */
+	public static void vectors(PersistentVector x, PersistentVector y, ItemSink sink)
+	{
+		if (x == y) return;
+		final int xTailOff = x.count() - x.tail.length;
+		final int yTailOff = y.count() - y.tail.length;
+		final int trieLimit = Math.min(xTailOff, yTailOff);
+		if (trieLimit > 0)
+		{
+			// a vector growing past the capacity of its root keeps the old root as the leftmost child of the new one
+			PersistentVector.Node xRoot = x.root;
+			PersistentVector.Node yRoot = y.root;
+			int level = Math.min(x.shift, y.shift);
+			for (int shift = x.shift; shift > level; shift -= 5)
+			{
+				xRoot = (PersistentVector.Node) xRoot.array[0];
+			}
+			for (int shift = y.shift; shift > level; shift -= 5)
+			{
+				yRoot = (PersistentVector.Node) yRoot.array[0];
+			}
+			diffNode(xRoot, yRoot, level, 0, trieLimit, sink);
+		}
+		final int limit = Math.min(x.count(), y.count());
+		for (int i = trieLimit; i < limit; i++)
+		{
+			final Object xItem = x.nth(i);
+			final Object yItem = y.nth(i);
+			if (!Util.equals(xItem, yItem))
+			{
+				sink.changed(i, xItem, yItem);
+			}
+		}
+	}
+
+	private static void diffNode(PersistentVector.Node x, PersistentVector.Node y, int level, int offset, int limit,
+		ItemSink sink)
+	{
+		if (x == y || x.array == y.array) return;
+		if (level == 0)
+		{
+			for (int i = 0; i < 32 && offset + i < limit; i++)
+			{
+				if (!Util.equals(x.array[i], y.array[i]))
+				{
+					sink.changed(offset + i, x.array[i], y.array[i]);
+				}
+			}
+			return;
+		}
+		final int childSpan = 1 << level;
+		for (int i = 0; i < 32 && offset + i * childSpan < limit; i++)
+		{
+			diffNode((PersistentVector.Node) x.array[i], (PersistentVector.Node) y.array[i], level - 5, offset + i * childSpan,
+				limit, sink);
+		}
+	}
+
+	/**
+	 * Diff two slots at the same hash prefix. A slot holds an entry when its key is not null, otherwise the value is
+	 * a child node, or null for an empty slot.
+	 */
+	private static void diffSlot(Object xKey, Object xVal, Object yKey, Object yVal, PersistentHashMap x,
+		PersistentHashMap y, EntrySink sink)
+	{
+		if (xKey != null && yKey != null)
+		{
+			if (Util.equiv(xKey, yKey))
+			{
+				if (!Util.equals(xVal, yVal))
+				{
+					sink.changed(yKey, xVal, yVal);
+				}
+			}
+			else
+			{
+				sink.removed(xKey, xVal);
+				sink.added(yKey, yVal);
+			}
+			return;
+		}
+		if (xKey == null && yKey == null)
+		{
+			if (xVal == yVal) return;
+			if (isFragmentIndexed(xVal) && isFragmentIndexed(yVal))
+			{
+				// both nodes index their slots by the same 5 bits of the hash, align them by that fragment
+				final int xBitmap = bitmap(xVal);
+				final int yBitmap = bitmap(yVal);
+				final Object[] xArray = ClojureInternals.nodeArray(xVal);
+				final Object[] yArray = ClojureInternals.nodeArray(yVal);
+				final boolean xArrayNode = ClojureInternals.isArrayNode(xVal);
+				final boolean yArrayNode = ClojureInternals.isArrayNode(yVal);
+				for (int bits = xBitmap | yBitmap; bits != 0; bits &= bits - 1)
+				{
+					final int bit = bits & -bits;
+					Object xSlotKey = null, xSlotVal = null, ySlotKey = null, ySlotVal = null;
+					if ((xBitmap & bit) != 0)
+					{
+						if (xArrayNode)
+						{
+							xSlotVal = xArray[Integer.numberOfTrailingZeros(bit)];
+						}
+						else
+						{
+							final int index = 2 * Integer.bitCount(xBitmap & (bit - 1));
+							xSlotKey = xArray[index];
+							xSlotVal = xArray[index + 1];
+						}
+					}
+					if ((yBitmap & bit) != 0)
+					{
+						if (yArrayNode)
+						{
+							ySlotVal = yArray[Integer.numberOfTrailingZeros(bit)];
+						}
+						else
+						{
+							final int index = 2 * Integer.bitCount(yBitmap & (bit - 1));
+							ySlotKey = yArray[index];
+							ySlotVal = yArray[index + 1];
+						}
+					}
+					diffSlot(xSlotKey, xSlotVal, ySlotKey, ySlotVal, x, y, sink);
+				}
+				return;
+			}
+		}
+		// Both slots cover the same hash prefix, so an entry of one side is either in the slot of the other side or
+		// nowhere in that map, looking it up in the whole map gives the answer.
+		report(xKey, xVal, y, sink, true);
+		report(yKey, yVal, x, sink, false);
+	}
+
+	/**
+	 * Report the entries of a slot that are missing from the other map, and the changed ones when walking the old
+	 * side.
+	 */
+	private static void report(Object key, Object val, PersistentHashMap other, EntrySink sink, boolean fromOld)
+	{
+		if (key != null)
+		{
+			if (!other.containsKey(key))
+			{
+				if (fromOld)
+				{
+					sink.removed(key, val);
+				}
+				else
+				{
+					sink.added(key, val);
+				}
+			}
+			else if (fromOld)
+			{
+				final Object newVal = other.valAt(key);
+				if (!Util.equals(val, newVal))
+				{
+					sink.changed(key, val, newVal);
+				}
+			}
+			return;
+		}
+		if (val == null) return;
+		final Object[] array = ClojureInternals.nodeArray(val);
+		if (ClojureInternals.isArrayNode(val))
+		{
+			for (Object child : array)
+			{
+				report(null, child, other, sink, fromOld);
+			}
+		}
+		else
+		{
+			for (int i = 0; i < array.length; i += 2)
+			{
+				report(array[i], array[i + 1], other, sink, fromOld);
+			}
+		}
+	}
+
+	private static boolean isFragmentIndexed(Object node)
+	{
+		return node != null && (ClojureInternals.isArrayNode(node) || ClojureInternals.isBitmapIndexedNode(node));
+	}
+
+	/**
+	 * @return the hash fragments present in an ArrayNode or a BitmapIndexedNode
+	 */
+	private static int bitmap(Object node)
+	{
+		if (ClojureInternals.isBitmapIndexedNode(node))
+		{
+			return ClojureInternals.nodeBitmap(node);
+		}
+		final Object[] array = ClojureInternals.nodeArray(node);
+		int bitmap = 0;
+		for (int i = 0; i < array.length; i++)
+		{
+			if (array[i] != null)
+			{
+				bitmap |= 1 << i;
+			}
+		}
+		return bitmap;
+	}
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.core.Vec;
+import clojure.core.VecNode;
+import clojure.lang.PersistentHashMap;
+import clojure.lang.PersistentVector;
+import clojure.lang.Util;
+import net.ci4j.immutable.clojure_utils.ClojureInternals;
+
+import java.util.Objects;
+
+/**
+ * Equality of persistent collections that skips the subtrees shared by both sides.
+ * <p>
+ * Two versions derived from one another share every node outside of the edited paths, so comparing node references
+ * first makes the equality of mostly-shared versions proportional to the edits instead of the size. The nodes that
+ * are not shared are compared item by item, with the same result as the clojure {@code equals} of the collection.
+ */
+public final class StructuralEquals
+{
+	private StructuralEquals()
+	{}
+
+	/**
+	 * @return the same as {@code a.equals(b)}
+	 */
+	public static boolean vectors(PersistentVector a, PersistentVector b)
+	{
+		if (a == b) return true;
+		final int count = a.count();
+		if (count != b.count() || a.tail.length != b.tail.length) return false;
+		if (!leafEquals(a.tail, b.tail)) return false;
+		if (a.shift == b.shift)
+		{
+			return nodeEquals(a.root, b.root, a.shift);
+		}
+		for (int i = 0; i < count - a.tail.length; i += 32)
+		{
+			if (!leafEquals(a.arrayFor(i), b.arrayFor(i))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if both primitive vectors hold the same items, compared by their primitive values
+	 */
+	public static boolean vecs(Vec a, Vec b)
+	{
+		if (a == b) return true;
+		if (a.cnt != b.cnt) return false;
+		if (!Objects.deepEquals(a.tail, b.tail)) return false;
+		if (a.shift == b.shift)
+		{
+			return nodeEquals((VecNode) a.root, (VecNode) b.root, a.shift);
+		}
+		for (int i = 0; i < a.tailoff(); i += 32)
+		{
+			if (!Objects.deepEquals(a.arrayFor(i), b.arrayFor(i))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Compare two hash maps, or the maps backing two hash sets.
+	 *
+	 * @param compareValues false for the maps backing sets, whose values are the keys themselves
+	 * @return the same as {@code a.equals(b)}
+	 */
+	public static boolean hashMaps(PersistentHashMap a, PersistentHashMap b, boolean compareValues)
+	{
+		if (a == b) return true;
+		if (a.count() != b.count()) return false;
+		final boolean hasNull = ClojureInternals.hashMapHasNull(a);
+		if (hasNull != ClojureInternals.hashMapHasNull(b)) return false;
+		if (hasNull && compareValues && !Util.equals(ClojureInternals.hashMapNullValue(a), ClojureInternals.hashMapNullValue(b)))
+		{
+			return false;
+		}
+		return slotEquals(null, ClojureInternals.hashMapRoot(a), null, ClojureInternals.hashMapRoot(b), b, compareValues);
+	}
+
+	private static boolean leafEquals(Object[] x, Object[] y)
+	{
+		if (x == y) return true;
+		for (int i = 0; i < x.length; i++)
+		{
+			if (!Util.equals(x[i], y[i])) return false;
+		}
+		return true;
+	}
+
+	private static boolean nodeEquals(PersistentVector.Node x, PersistentVector.Node y, int level)
+	{
+		if (x == y || x.array == y.array) return true;
+		if (level == 0) return leafEquals(x.array, y.array);
+		for (int i = 0; i < 32; i++)
+		{
+			final PersistentVector.Node childX = (PersistentVector.Node) x.array[i];
+			final PersistentVector.Node childY = (PersistentVector.Node) y.array[i];
+			if (childX == childY) continue;
+			if (childX == null || childY == null || !nodeEquals(childX, childY, level - 5)) return false;
+		}
+		return true;
+	}
+
+	private static boolean nodeEquals(VecNode x, VecNode y, int level)
+	{
+		if (x == y || x.arr == y.arr) return true;
+		if (level == 0) return Objects.deepEquals(x.arr, y.arr);
+		final Object[] arrX = (Object[]) x.arr;
+		final Object[] arrY = (Object[]) y.arr;
+		for (int i = 0; i < 32; i++)
+		{
+			final VecNode childX = (VecNode) arrX[i];
+			final VecNode childY = (VecNode) arrY[i];
+			if (childX == childY) continue;
+			if (childX == null || childY == null || !nodeEquals(childX, childY, level - 5)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Compare two slots at the same hash prefix. A slot holds an entry when its key is not null, otherwise the
+	 * value is a child node, or null for an empty slot.
+	 */
+	private static boolean slotEquals(Object keyX, Object valX, Object keyY, Object valY, PersistentHashMap other,
+		boolean compareValues)
+	{
+		if (keyX != null && keyY != null)
+		{
+			return Util.equiv(keyX, keyY) && (!compareValues || Util.equals(valX, valY));
+		}
+		if (keyX == null && keyY == null)
+		{
+			if (valX == valY) return true;
+			if (valX != null && valY != null && valX.getClass() == valY.getClass())
+			{
+				if (ClojureInternals.isArrayNode(valX))
+				{
+					final Object[] arrayX = ClojureInternals.nodeArray(valX);
+					final Object[] arrayY = ClojureInternals.nodeArray(valY);
+					for (int i = 0; i < arrayX.length; i++)
+					{
+						if (!slotEquals(null, arrayX[i], null, arrayY[i], other, compareValues)) return false;
+					}
+					return true;
+				}
+				if (ClojureInternals.isBitmapIndexedNode(valX) && ClojureInternals.nodeBitmap(valX) == ClojureInternals.nodeBitmap(valY))
+				{
+					final Object[] arrayX = ClojureInternals.nodeArray(valX);
+					final Object[] arrayY = ClojureInternals.nodeArray(valY);
+					final int length = 2 * Integer.bitCount(ClojureInternals.nodeBitmap(valX));
+					for (int i = 0; i < length; i += 2)
+					{
+						if (!slotEquals(arrayX[i], arrayX[i + 1], arrayY[i], arrayY[i + 1], other, compareValues)) return false;
+					}
+					return true;
+				}
+			}
+		}
+		// The shapes differ, e.g. an entry on one side and a child node of one entry left by removals on the other.
+		// Both slots cover the same hash prefix, so the same size and every entry of X found in Y means equality.
+		return slotSize(keyX, valX) == slotSize(keyY, valY) && slotContained(keyX, valX, other, compareValues);
+	}
+
+	private static int slotSize(Object key, Object val)
+	{
+		if (key != null) return 1;
+		if (val == null) return 0;
+		final Object[] array = ClojureInternals.nodeArray(val);
+		int size = 0;
+		if (ClojureInternals.isArrayNode(val))
+		{
+			for (Object child : array)
+			{
+				size += slotSize(null, child);
+			}
+		}
+		else
+		{
+			for (int i = 0; i < array.length; i += 2)
+			{
+				size += slotSize(array[i], array[i + 1]);
+			}
+		}
+		return size;
+	}
+
+	private static boolean slotContained(Object key, Object val, PersistentHashMap other, boolean compareValues)
+	{
+		if (key != null)
+		{
+			return other.containsKey(key) && (!compareValues || Util.equals(val, other.valAt(key)));
+		}
+		if (val == null) return true;
+		final Object[] array = ClojureInternals.nodeArray(val);
+		if (ClojureInternals.isArrayNode(val))
+		{
+			for (Object child : array)
+			{
+				if (!slotContained(null, child, other, compareValues)) return false;
+			}
+		}
+		else
+		{
+			for (int i = 0; i < array.length; i += 2)
+			{
+				if (!slotContained(array[i], array[i + 1], other, compareValues)) return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,511 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.lang.IMapEntry;
+import clojure.lang.IPersistentCollection;
+import clojure.lang.IPersistentMap;
+import clojure.lang.ISeq;
+import clojure.lang.PersistentTreeMap;
+import clojure.lang.Sorted;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A navigable range over a sorted clojure map ({@link PersistentTreeMap} or {@link PersistentBTreeMap}): optional
+ * lower and upper bounds plus an iteration direction.
+ * <p>
+ * Ranges never copy the tree. Navigation (first, floor, ceiling, ...) is a single {@code seqFrom} descent, so it
+ * is O(log n) on the whole tree. Over a {@link PersistentBTreeMap}, {@link #size()}, {@link #rank(Object)} and
+ * {@link #select(int)} are O(log n) as well. Over a {@link PersistentTreeMap}, which keeps no subtree sizes, they
+ * walk the entries, except {@link #size()} of an unbounded range.
+ * <p>
+ * {@code floor}, {@code lower}, {@code ceiling} and {@code higher} follow the iteration order of the range, so on a
+ * descending range {@code ceiling} returns the greatest entry less than or equal to the key, the same as
+ * {@link java.util.NavigableMap#descendingMap()}.
+ */
+public final class TreeRange
+{
+	private final IPersistentMap tree;
+
+	private final Sorted sorted;
+
+	private final Comparator<Object> comp;
+
+	private final boolean hasLo;
+
+	private final Object lo;
+
+	private final boolean loInclusive;
+
+	private final boolean hasHi;
+
+	private final Object hi;
+
+	private final boolean hiInclusive;
+
+	private final boolean descending;
+
+	@SuppressWarnings("unchecked")
+	private TreeRange(IPersistentMap tree, boolean hasLo, Object lo, boolean loInclusive, boolean hasHi, Object hi, boolean hiInclusive, boolean descending)
+	{
+		this.tree = tree;
+		this.sorted = (Sorted) tree;
+		this.comp = sorted.comparator();
+		this.hasLo = hasLo;
+		this.lo = lo;
+		this.loInclusive = loInclusive;
+		this.hasHi = hasHi;
+		this.hi = hi;
+		this.hiInclusive = hiInclusive;
+		this.descending = descending;
+	}
+
+	/**
+	 * @return an ascending range covering the whole tree
+	 */
+	public static <M extends IPersistentMap & Sorted> TreeRange of(M tree)
+	{
+		return new TreeRange(tree, false, null, false, false, null, false, false);
+	}
+
+	/**
+	 * @return the same bounds and direction over another tree, used after assoc/without on the underlying tree
+	 */
+	public TreeRange withTree(IPersistentMap tree)
+	{
+		return tree == this.tree ? this : new TreeRange(tree, hasLo, lo, loInclusive, hasHi, hi, hiInclusive, descending);
+	}
+
+	public IPersistentMap tree()
+	{
+		return tree;
+	}
+
+	/**
+	 * @return true if the range covers the whole tree in ascending order
+	 */
+	public boolean isWhole()
+	{
+		return !hasLo && !hasHi && !descending;
+	}
+
+	public boolean isDescending()
+	{
+		return descending;
+	}
+
+	/**
+	 * @return the comparator in the iteration order of the range
+	 */
+	public Comparator<Object> comparator()
+	{
+		return descending ? comp.reversed() : comp;
+	}
+
+	public TreeRange descending()
+	{
+		return new TreeRange(tree, hasLo, lo, loInclusive, hasHi, hi, hiInclusive, !descending);
+	}
+
+	/**
+	 * Narrow the range, the bounds are given in the iteration order of the range.
+	 *
+	 * @throws IllegalArgumentException if a bound is outside of the current range
+	 */
+	public TreeRange sub(boolean hasFrom, Object from, boolean fromInclusive, boolean hasTo, Object to, boolean toInclusive)
+	{
+		if (descending)
+		{
+			return ascendingSub(hasTo, to, toInclusive, hasFrom, from, fromInclusive);
+		}
+		return ascendingSub(hasFrom, from, fromInclusive, hasTo, to, toInclusive);
+	}
+
+	private TreeRange ascendingSub(boolean hasFrom, Object from, boolean fromInclusive, boolean hasTo, Object to, boolean toInclusive)
+	{
+		if (hasFrom && hasTo && comp.compare(from, to) > 0)
+		{
+			throw new IllegalArgumentException("fromKey > toKey");
+		}
+		if (hasFrom && boundOutOfRange(from, fromInclusive))
+		{
+			throw new IllegalArgumentException("fromKey out of range");
+		}
+		if (hasTo && boundOutOfRange(to, toInclusive))
+		{
+			throw new IllegalArgumentException("toKey out of range");
+		}
+		return new TreeRange(tree,
+				hasFrom || hasLo, hasFrom ? from : lo, hasFrom ? fromInclusive : loInclusive,
+				hasTo || hasHi, hasTo ? to : hi, hasTo ? toInclusive : hiInclusive,
+				descending);
+	}
+
+	private boolean boundOutOfRange(Object key, boolean inclusive)
+	{
+		if (hasLo)
+		{
+			final int c = comp.compare(key, lo);
+			if (c < 0 || (c == 0 && !loInclusive && inclusive))
+			{
+				return true;
+			}
+		}
+		if (hasHi)
+		{
+			final int c = comp.compare(key, hi);
+			if (c > 0 || (c == 0 && !hiInclusive && inclusive))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean tooLow(Object key)
+	{
+		if (!hasLo)
+		{
+			return false;
+		}
+		final int c = comp.compare(key, lo);
+		return c < 0 || (c == 0 && !loInclusive);
+	}
+
+	private boolean tooHigh(Object key)
+	{
+		if (!hasHi)
+		{
+			return false;
+		}
+		final int c = comp.compare(key, hi);
+		return c > 0 || (c == 0 && !hiInclusive);
+	}
+
+	public boolean inRange(Object key)
+	{
+		return !tooLow(key) && !tooHigh(key);
+	}
+
+	/**
+	 * @return the entry of the key, null if the key is not mapped or outside of the range
+	 */
+	public IMapEntry entryAt(Object key)
+	{
+		return inRange(key) ? tree.entryAt(key) : null;
+	}
+
+	public boolean isEmpty()
+	{
+		return absLowest() == null;
+	}
+
+	/**
+	 * @return the number of entries in the range, O(1) for an unbounded range and linear otherwise
+	 */
+	public int size()
+	{
+		if (!hasLo && !hasHi)
+		{
+			return tree.count();
+		}
+		if (tree instanceof PersistentBTreeMap)
+		{
+			// an exclusive range between two equal keys has its upper rank below its lower one
+			return Math.max(0, upperRank() - lowerRank());
+		}
+		int count = 0;
+		for (Iterator<IMapEntry> iterator = iterator(); iterator.hasNext(); iterator.next())
+		{
+			count++;
+		}
+		return count;
+	}
+
+	public IMapEntry first()
+	{
+		return descending ? absHighest() : absLowest();
+	}
+
+	public IMapEntry last()
+	{
+		return descending ? absLowest() : absHighest();
+	}
+
+	public IMapEntry lower(Object key)
+	{
+		return descending ? absHigher(key) : absLower(key);
+	}
+
+	public IMapEntry floor(Object key)
+	{
+		return descending ? absCeiling(key) : absFloor(key);
+	}
+
+	public IMapEntry ceiling(Object key)
+	{
+		return descending ? absFloor(key) : absCeiling(key);
+	}
+
+	public IMapEntry higher(Object key)
+	{
+		return descending ? absLower(key) : absHigher(key);
+	}
+
+	private IMapEntry absLowest()
+	{
+		final IMapEntry e = !hasLo ? head(sorted.seq(true)) : (loInclusive ? treeCeiling(lo) : treeHigher(lo));
+		return e == null || tooHigh(e.key()) ? null : e;
+	}
+
+	private IMapEntry absHighest()
+	{
+		final IMapEntry e = !hasHi ? head(sorted.seq(false)) : (hiInclusive ? treeFloor(hi) : treeLower(hi));
+		return e == null || tooLow(e.key()) ? null : e;
+	}
+
+	private IMapEntry absCeiling(Object key)
+	{
+		if (tooLow(key))
+		{
+			return absLowest();
+		}
+		final IMapEntry e = treeCeiling(key);
+		return e == null || tooHigh(e.key()) ? null : e;
+	}
+
+	private IMapEntry absHigher(Object key)
+	{
+		if (tooLow(key))
+		{
+			return absLowest();
+		}
+		final IMapEntry e = treeHigher(key);
+		return e == null || tooHigh(e.key()) ? null : e;
+	}
+
+	private IMapEntry absFloor(Object key)
+	{
+		if (tooHigh(key))
+		{
+			return absHighest();
+		}
+		final IMapEntry e = treeFloor(key);
+		return e == null || tooLow(e.key()) ? null : e;
+	}
+
+	private IMapEntry absLower(Object key)
+	{
+		if (tooHigh(key))
+		{
+			return absHighest();
+		}
+		final IMapEntry e = treeLower(key);
+		return e == null || tooLow(e.key()) ? null : e;
+	}
+
+	private IMapEntry treeCeiling(Object key)
+	{
+		return head(sorted.seqFrom(key, true));
+	}
+
+	private IMapEntry treeFloor(Object key)
+	{
+		return head(sorted.seqFrom(key, false));
+	}
+
+	private IMapEntry treeHigher(Object key)
+	{
+		return head(skipEqual(sorted.seqFrom(key, true), key));
+	}
+
+	private IMapEntry treeLower(Object key)
+	{
+		return head(skipEqual(sorted.seqFrom(key, false), key));
+	}
+
+	private ISeq skipEqual(ISeq seq, Object key)
+	{
+		if (seq != null && comp.compare(((IMapEntry) seq.first()).key(), key) == 0)
+		{
+			return seq.next();
+		}
+		return seq;
+	}
+
+	private static IMapEntry head(ISeq seq)
+	{
+		return seq == null ? null : (IMapEntry) seq.first();
+	}
+
+	/**
+	 * @return the entries of the range in its iteration order
+	 */
+	public Iterator<IMapEntry> iterator()
+	{
+		final ISeq start;
+		if (descending)
+		{
+			start = !hasHi ? sorted.seq(false) : (hiInclusive ? sorted.seqFrom(hi, false) : skipEqual(sorted.seqFrom(hi, false), hi));
+		}
+		else
+		{
+			start = !hasLo ? sorted.seq(true) : (loInclusive ? sorted.seqFrom(lo, true) : skipEqual(sorted.seqFrom(lo, true), lo));
+		}
+		return new Iterator<IMapEntry>()
+		{
+			private ISeq seq = start;
+
+			@Override
+			public boolean hasNext()
+			{
+				if (seq == null)
+				{
+					return false;
+				}
+				final Object key = ((IMapEntry) seq.first()).key();
+				if (descending ? tooLow(key) : tooHigh(key))
+				{
+					seq = null;
+					return false;
+				}
+				return true;
+			}
+
+			@Override
+			public IMapEntry next()
+			{
+				if (!hasNext())
+				{
+					throw new NoSuchElementException();
+				}
+				final IMapEntry entry = (IMapEntry) seq.first();
+				seq = seq.next();
+				return entry;
+			}
+		};
+	}
+
+	/**
+	 * @return the number of entries before the key in the iteration order of the range
+	 */
+	public int rank(Object key)
+	{
+		if (tree instanceof PersistentBTreeMap)
+		{
+			final int lower = lowerRank();
+			final int upper = Math.max(lower, upperRank());
+			final int rank = ((PersistentBTreeMap) tree).rank(key, descending);
+			final int clamped = Math.max(lower, Math.min(upper, rank));
+			return descending ? upper - clamped : clamped - lower;
+		}
+		final Comparator<Object> comparator = comparator();
+		int rank = 0;
+		for (Iterator<IMapEntry> iterator = iterator(); iterator.hasNext(); rank++)
+		{
+			if (comparator.compare(iterator.next().key(), key) >= 0)
+			{
+				break;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * @return the entry at the given position in the iteration order of the range
+	 * @throws IndexOutOfBoundsException if the index is negative or not less than the size of the range
+	 */
+	public IMapEntry select(int index)
+	{
+		if (tree instanceof PersistentBTreeMap)
+		{
+			final int lower = lowerRank();
+			final int upper = Math.max(lower, upperRank());
+			if (index < 0 || index >= upper - lower)
+			{
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+			return ((PersistentBTreeMap) tree).select(descending ? upper - 1 - index : lower + index);
+		}
+		if (index >= 0)
+		{
+			final Iterator<IMapEntry> iterator = iterator();
+			for (int i = 0; iterator.hasNext(); i++)
+			{
+				final IMapEntry entry = iterator.next();
+				if (i == index)
+				{
+					return entry;
+				}
+			}
+		}
+		throw new IndexOutOfBoundsException(String.valueOf(index));
+	}
+
+	/**
+	 * @return the number of entries of the B+ tree below the range
+	 */
+	private int lowerRank()
+	{
+		return hasLo ? ((PersistentBTreeMap) tree).rank(lo, !loInclusive) : 0;
+	}
+
+	/**
+	 * @return the number of entries of the B+ tree below the range and in the range
+	 */
+	private int upperRank()
+	{
+		return hasHi ? ((PersistentBTreeMap) tree).rank(hi, hiInclusive) : tree.count();
+	}
+
+	/**
+	 * @return a map of the same kind holding only the entries of the range, ordered by {@link #comparator()}
+	 */
+	public IPersistentMap materialize()
+	{
+		if (isWhole())
+		{
+			return tree;
+		}
+		IPersistentMap result;
+		if (!descending)
+		{
+			result = (IPersistentMap) ((IPersistentCollection) tree).empty();
+		}
+		else if (tree instanceof PersistentBTreeMap)
+		{
+			result = PersistentBTreeMap.create(comparator());
+		}
+		else
+		{
+			result = new PersistentTreeMap(null, comparator());
+		}
+		for (Iterator<IMapEntry> iterator = iterator(); iterator.hasNext(); )
+		{
+			final IMapEntry entry = iterator.next();
+			result = result.assoc(entry.key(), entry.val());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.lang.APersistentVector;
+import clojure.lang.IPersistentVector;
+import clojure.lang.PersistentVector;
+import net.ci4j.immutable.collections.ImmutableList.ChunkConsumer;
+
+/**
+ * Walks the leaf arrays of a clojure vector in order, handing out each array with the range of it that belongs to
+ * the vector.
+ * <p>
+ * The trie of a {@link PersistentVector} is descended once, node by node, instead of from the root for each leaf as
+ * {@link PersistentVector#arrayFor} does, and the arrays are passed as they are, without copy. Sub vectors of a
+ * {@link PersistentVector} walk only the leaves of their range. Other vectors are copied through {@code nth} into a
+ * 32 item buffer.
+ */
+public final class VectorChunks
+{
+	private static final int WIDTH = 32;
+
+	private VectorChunks()
+	{}
+
+	public static void forEachChunk(IPersistentVector vector, ChunkConsumer consumer)
+	{
+		if (vector instanceof PersistentVector)
+		{
+			forEachChunk((PersistentVector) vector, 0, vector.count(), consumer);
+		}
+		else if (vector instanceof APersistentVector.SubVector && ((APersistentVector.SubVector) vector).v instanceof PersistentVector)
+		{
+			final APersistentVector.SubVector subVector = (APersistentVector.SubVector) vector;
+			forEachChunk((PersistentVector) subVector.v, subVector.start, subVector.end, consumer);
+		}
+		else
+		{
+			final Object[] buffer = new Object[WIDTH];
+			final int count = vector.count();
+			for (int i = 0; i < count; i += WIDTH)
+			{
+				final int length = Math.min(WIDTH, count - i);
+				for (int j = 0; j < length; j++)
+				{
+					buffer[j] = vector.nth(i + j);
+				}
+				consumer.accept(buffer, 0, length);
+			}
+		}
+	}
+
+	private static void forEachChunk(PersistentVector vector, int start, int end, ChunkConsumer consumer)
+	{
+		final int tailOff = vector.count() - vector.tail.length;
+		if (start < tailOff)
+		{
+			walk(vector.root, vector.shift, 0, start, Math.min(end, tailOff), consumer);
+		}
+		if (end > tailOff)
+		{
+			final int from = Math.max(start, tailOff);
+			consumer.accept(vector.tail, from - tailOff, end - from);
+		}
+	}
+
+	/**
+	 * Visit the leaves of {@code node}, which holds the items from {@code base}, that overlap {@code [start, end)}.
+	 */
+	private static void walk(PersistentVector.Node node, int level, int base, int start, int end, ChunkConsumer consumer)
+	{
+		if (level == 0)
+		{
+			consumer.accept(node.array, start - base, end - start);
+			return;
+		}
+		final int last = (end - 1 - base) >>> level;
+		for (int i = (start - base) >>> level; i <= last; i++)
+		{
+			final int childBase = base + (i << level);
+			final int childEnd = childBase + (1 << level);
+			walk((PersistentVector.Node) node.array[i], level - 5, childBase, Math.max(start, childBase), Math.min(end, childEnd), consumer);
+		}
+	}
+}
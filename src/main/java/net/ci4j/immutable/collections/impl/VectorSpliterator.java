@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.collections.impl;
+
+import clojure.lang.APersistentVector;
+import clojure.lang.IPersistentVector;
+import clojure.lang.PersistentVector;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} over a clojure vector that splits on 32-item leaf boundaries of the vector trie.
+ * <p>
+ * {@link PersistentVector}s, and sub vectors of them, are read leaf by leaf through {@link PersistentVector#arrayFor},
+ * other vectors through {@code nth}. Every split knows its exact size.
+ */
+public final class VectorSpliterator<E> implements Spliterator<E>
+{
+	private final IPersistentVector vector;
+
+	private final PersistentVector trie;
+
+	private int index;
+
+	private final int end;
+
+	private Object[] leaf;
+
+	public VectorSpliterator(IPersistentVector vector)
+	{
+		if (vector instanceof APersistentVector.SubVector
+			&& ((APersistentVector.SubVector) vector).v instanceof PersistentVector)
+		{
+			final APersistentVector.SubVector subVector = (APersistentVector.SubVector) vector;
+			this.vector = subVector.v;
+			this.trie = (PersistentVector) subVector.v;
+			this.index = subVector.start;
+			this.end = subVector.end;
+		}
+		else
+		{
+			this.vector = vector;
+			this.trie = vector instanceof PersistentVector ? (PersistentVector) vector : null;
+			this.index = 0;
+			this.end = vector.count();
+		}
+	}
+
+	private VectorSpliterator(IPersistentVector vector, PersistentVector trie, int index, int end)
+	{
+		this.vector = vector;
+		this.trie = trie;
+		this.index = index;
+		this.end = end;
+	}
+
+	@Override
+	public Spliterator<E> trySplit()
+	{
+		if (end - index < 2)
+		{
+			return null;
+		}
+		int mid = (index + end) >>> 1;
+		if ((mid & ~0x1f) > index)
+		{
+			mid &= ~0x1f;
+		}
+		final VectorSpliterator<E> prefix = new VectorSpliterator<>(vector, trie, index, mid);
+		index = mid;
+		leaf = null;
+		return prefix;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean tryAdvance(Consumer<? super E> action)
+	{
+		if (index >= end)
+		{
+			return false;
+		}
+		if (trie == null)
+		{
+			action.accept((E) vector.nth(index++));
+			return true;
+		}
+		if (leaf == null || (index & 0x1f) == 0)
+		{
+			leaf = trie.arrayFor(index);
+		}
+		action.accept((E) leaf[index & 0x1f]);
+		index++;
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEachRemaining(Consumer<? super E> action)
+	{
+		int i = index;
+		index = end;
+		if (trie == null)
+		{
+			for (; i < end; i++)
+			{
+				action.accept((E) vector.nth(i));
+			}
+			return;
+		}
+		while (i < end)
+		{
+			final Object[] array = trie.arrayFor(i);
+			final int stop = Math.min(array.length, (i & 0x1f) + end - i);
+			for (int j = i & 0x1f; j < stop; j++, i++)
+			{
+				action.accept((E) array[j]);
+			}
+		}
+	}
+
+	@Override
+	public long estimateSize()
+	{
+		return end - index;
+	}
+
+	@Override
+	public int characteristics()
+	{
+		return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+	}
+}
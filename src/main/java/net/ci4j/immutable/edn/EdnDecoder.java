@@ -0,0 +1,780 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.edn;
+
+import clojure.lang.BigInt;
+import clojure.lang.IFn;
+import clojure.lang.IObj;
+import clojure.lang.IPersistentMap;
+import clojure.lang.ITransientCollection;
+import clojure.lang.ITransientMap;
+import clojure.lang.ITransientSet;
+import clojure.lang.Keyword;
+import clojure.lang.Numbers;
+import clojure.lang.PersistentArrayMap;
+import clojure.lang.PersistentHashSet;
+import clojure.lang.PersistentList;
+import clojure.lang.PersistentVector;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+import net.ci4j.fn.Fn1;
+import net.ci4j.immutable.clojure_utils.EdnParseException;
+import net.ci4j.immutable.fn.Fn;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads EDN (https://github.com/edn-format/edn) straight into clojure collections, each map, vector and set being
+ * built in a transient as its items are read, without going through the {@code clojure.core/read-string} var.
+ * <p>
+ * The values are the ones of {@code clojure.edn/read-string}: integers are longs, or {@code BigInt}s when they do not
+ * fit, decimals doubles, with the {@code N} and {@code M} suffixes, hexadecimal, octal and radix integers such as
+ * {@code 0x1F}, {@code 017} and {@code 2r101}, ratios and the {@code #inst} and {@code #uuid} tags of clojure. As in
+ * clojure, a trailing {@code N} or {@code M} of a radix integer is one of its digits, not a suffix. Unlike
+ * {@code read-string} nothing is ever evaluated, {@code #=} is rejected, and neither syntax quote nor the other code
+ * reader macros are supported. Duplicate map keys and set items are rejected.
+ * <pre>
+ *     private static final EdnDecoder DECODER = EdnDecoder.DEFAULT.withTagReader("app/money", Money::parse);
+ *
+ *     try (Reader reader = Files.newBufferedReader(path)) {
+ *         ImmutableMap&lt;Keyword, Object&gt; config = new ImmutableMap&lt;&gt;((APersistentMap) DECODER.read(reader));
+ *     }
+ * </pre>
+ * A decoder is immutable and thread safe, the {@code with} methods return a new decoder.
+ */
+public final class EdnDecoder
+{
+	public static final EdnDecoder DEFAULT = new EdnDecoder(
+		(IPersistentMap) RT.var("clojure.core", "default-data-readers").deref());
+
+	/**
+	 * The key of the metadata given as a symbol or a string, {@code ^String x} being {@code ^{:tag String} x}.
+	 */
+	private static final Keyword TAG_KEY = Keyword.intern(null, "tag");
+
+	private final IPersistentMap tagReaders;
+
+	private EdnDecoder(IPersistentMap tagReaders)
+	{
+		this.tagReaders = tagReaders;
+	}
+
+	/**
+	 * @param tag the tag, without its {@code #}, {@code app/money} for {@code #app/money "12.50 EUR"}
+	 * @param reader turns the value following the tag into the value of the tagged element
+	 */
+	public EdnDecoder withTagReader(String tag, Fn1<Object, Object> reader)
+	{
+		return new EdnDecoder(tagReaders.assoc(Symbol.intern(tag), Fn.fn(reader)));
+	}
+
+	/**
+	 * @return the first value of the EDN string, {@code null} for an empty input
+	 * @throws EdnParseException if the string is not valid EDN
+	 */
+	public Object read(String edn)
+	{
+		try
+		{
+			return new Parser(null, edn.toCharArray(), tagReaders).readFirst();
+		}
+		catch (IOException e)
+		{
+			// a string is never read past its end
+			throw new EdnParseException(e);
+		}
+	}
+
+	/**
+	 * Read the first value from the reader, which is left open. Characters following the value may have been read.
+	 *
+	 * @return the value, {@code null} for an empty input
+	 * @throws EdnParseException if the input is not valid EDN
+	 * @throws IOException if the reader fails
+	 */
+	public Object read(Reader reader) throws IOException
+	{
+		return new Parser(reader, new char[8192], tagReaders).readFirst();
+	}
+
+	private static final class Parser
+	{
+		private static final Object END = new Object();
+
+		private static final Object EOF = new Object();
+
+		private final Reader reader;
+
+		private final char[] buffer;
+
+		private int position;
+
+		private int limit;
+
+		private final IPersistentMap tagReaders;
+
+		private final StringBuilder token = new StringBuilder();
+
+		private final Map<String, Keyword> keywords = new HashMap<>();
+
+		Parser(Reader reader, char[] buffer, IPersistentMap tagReaders)
+		{
+			this.reader = reader;
+			this.buffer = buffer;
+			this.limit = reader == null ? buffer.length : 0;
+			this.tagReaders = tagReaders;
+		}
+
+		Object readFirst() throws IOException
+		{
+			final Object value = read(-1);
+			return value != EOF ? value : null;
+		}
+
+		/**
+		 * @param end the closing delimiter of the enclosing collection, -1 at the top level
+		 * @return the next value, {@link #END} for the closing delimiter or {@link #EOF} at the end of a top level input
+		 */
+		private Object read(int end) throws IOException
+		{
+			while (true)
+			{
+				final int c = next();
+				switch (c)
+				{
+					case -1:
+						if (end == -1) return EOF;
+						throw new EdnParseException("EOF while reading, expecting " + (char) end);
+					case ' ':
+					case '\t':
+					case '\n':
+					case '\r':
+					case '\f':
+					case ',':
+						continue;
+					case ';':
+						skipLine();
+						continue;
+					case '"':
+						return readString();
+					case '\\':
+						return readCharacter();
+					case ':':
+						return readKeyword();
+					case '(':
+						return readList();
+					case '[':
+						return readVector();
+					case '{':
+						return readMap(null);
+					case ')':
+					case ']':
+					case '}':
+						if (c == end) return END;
+						throw new EdnParseException("Unmatched delimiter: " + (char) c);
+					case '^':
+						return readMeta(end);
+					case '#':
+						final Object dispatched = readDispatch(end);
+						if (dispatched == END) continue;
+						return dispatched;
+					default:
+						return readAtom(c);
+				}
+			}
+		}
+
+		/**
+		 * @return the value following the {@code #}, {@link #END} if it was discarded
+		 */
+		private Object readDispatch(int end) throws IOException
+		{
+			final int c = next();
+			switch (c)
+			{
+				case '{':
+					return readSet();
+				case '_':
+					readValue(end);
+					return END;
+				case '#':
+					final String name = readToken();
+					switch (name)
+					{
+						case "Inf":
+							return Double.POSITIVE_INFINITY;
+						case "-Inf":
+							return Double.NEGATIVE_INFINITY;
+						case "NaN":
+							return Double.NaN;
+						default:
+							throw new EdnParseException("Unknown symbolic value: ##" + name);
+					}
+				case ':':
+					return readNamespacedMap();
+				case '=':
+					throw new EdnParseException("#= is not allowed in EDN, nothing is evaluated");
+				case -1:
+					throw new EdnParseException("EOF while reading a dispatch");
+				default:
+					position--;
+					final Symbol tag = Symbol.intern(readToken());
+					final IFn tagReader = (IFn) tagReaders.valAt(tag);
+					if (tagReader == null)
+					{
+						throw new EdnParseException("No reader function for tag " + tag);
+					}
+					return tagReader.invoke(readValue(end));
+			}
+		}
+
+		/**
+		 * @return the next value, which must not be a closing delimiter nor the end of the input
+		 */
+		private Object readValue(int end) throws IOException
+		{
+			final Object value = read(end);
+			if (value == END || value == EOF)
+			{
+				throw new EdnParseException("Missing value before " + (value == END ? String.valueOf((char) end) : "EOF"));
+			}
+			return value;
+		}
+
+		private Object readList() throws IOException
+		{
+			final List<Object> items = new ArrayList<>();
+			Object item;
+			while ((item = read(')')) != END)
+			{
+				items.add(item);
+			}
+			return PersistentList.create(items);
+		}
+
+		private Object readVector() throws IOException
+		{
+			ITransientCollection vector = PersistentVector.EMPTY.asTransient();
+			Object item;
+			while ((item = read(']')) != END)
+			{
+				vector = vector.conj(item);
+			}
+			return vector.persistent();
+		}
+
+		private Object readSet() throws IOException
+		{
+			ITransientSet set = (ITransientSet) PersistentHashSet.EMPTY.asTransient();
+			Object item;
+			while ((item = read('}')) != END)
+			{
+				final int count = set.count();
+				set = (ITransientSet) set.conj(item);
+				if (set.count() == count)
+				{
+					throw new EdnParseException("Duplicate set item: " + item);
+				}
+			}
+			return set.persistent();
+		}
+
+		/**
+		 * @param namespace the namespace of the keys without one, for {@code #:ns{}} maps
+		 */
+		private Object readMap(String namespace) throws IOException
+		{
+			ITransientMap map = PersistentArrayMap.EMPTY.asTransient();
+			Object key;
+			while ((key = read('}')) != END)
+			{
+				final Object value = read('}');
+				if (value == END)
+				{
+					throw new EdnParseException("Map literal must contain an even number of forms");
+				}
+				if (namespace != null)
+				{
+					key = qualify(namespace, key);
+				}
+				final int count = map.count();
+				map = map.assoc(key, value);
+				if (map.count() == count)
+				{
+					throw new EdnParseException("Duplicate key: " + key);
+				}
+			}
+			return map.persistent();
+		}
+
+		private Object readNamespacedMap() throws IOException
+		{
+			final String namespace = readToken();
+			if (namespace.isEmpty() || namespace.startsWith(":"))
+			{
+				throw new EdnParseException("Auto-resolved namespaced maps are not allowed in EDN");
+			}
+			int c;
+			do
+			{
+				c = next();
+			}
+			while (c == ' ' || c == ',' || c == '\t' || c == '\n' || c == '\r');
+			if (c != '{')
+			{
+				throw new EdnParseException("Namespaced map must specify a map");
+			}
+			return readMap(namespace);
+		}
+
+		private static Object qualify(String namespace, Object key)
+		{
+			if (key instanceof Keyword)
+			{
+				final Keyword keyword = (Keyword) key;
+				if (keyword.getNamespace() == null) return Keyword.intern(namespace, keyword.getName());
+				if (keyword.getNamespace().equals("_")) return Keyword.intern(null, keyword.getName());
+			}
+			else if (key instanceof Symbol)
+			{
+				final Symbol symbol = (Symbol) key;
+				if (symbol.getNamespace() == null) return Symbol.intern(namespace, symbol.getName());
+				if (symbol.getNamespace().equals("_")) return Symbol.intern(null, symbol.getName());
+			}
+			return key;
+		}
+
+		private Object readMeta(int end) throws IOException
+		{
+			Object meta = readValue(end);
+			if (meta instanceof Symbol || meta instanceof String)
+			{
+				meta = RT.map(TAG_KEY, meta);
+			}
+			else if (meta instanceof Keyword)
+			{
+				meta = RT.map(meta, Boolean.TRUE);
+			}
+			else if (!(meta instanceof IPersistentMap))
+			{
+				throw new EdnParseException("Metadata must be Symbol, Keyword, String or Map");
+			}
+			final Object value = readValue(end);
+			if (!(value instanceof IObj))
+			{
+				throw new EdnParseException("Metadata can only be applied to IMetas");
+			}
+			final IObj obj = (IObj) value;
+			IPersistentMap merged = obj.meta();
+			for (Object entry : (IPersistentMap) meta)
+			{
+				final Map.Entry<?, ?> e = (Map.Entry<?, ?>) entry;
+				merged = merged == null ? RT.map(e.getKey(), e.getValue()) : merged.assoc(e.getKey(), e.getValue());
+			}
+			return obj.withMeta(merged);
+		}
+
+		private Object readKeyword() throws IOException
+		{
+			final String name = readToken();
+			if (name.isEmpty() || name.startsWith(":") || name.endsWith("/"))
+			{
+				throw new EdnParseException("Invalid keyword: :" + name);
+			}
+			Keyword keyword = keywords.get(name);
+			if (keyword == null)
+			{
+				keyword = Keyword.intern(name);
+				keywords.put(name, keyword);
+			}
+			return keyword;
+		}
+
+		private Object readAtom(int first) throws IOException
+		{
+			position--;
+			final String atom = readToken();
+			final int start = first == '+' || first == '-' ? 1 : 0;
+			if (atom.length() > start && Character.isDigit(atom.charAt(start)))
+			{
+				return readNumber(atom);
+			}
+			switch (atom)
+			{
+				case "nil":
+					return null;
+				case "true":
+					return Boolean.TRUE;
+				case "false":
+					return Boolean.FALSE;
+				default:
+					if (atom.endsWith("/") && !atom.equals("/"))
+					{
+						throw new EdnParseException("Invalid symbol: " + atom);
+					}
+					return Symbol.intern(atom);
+			}
+		}
+
+		private static Object readNumber(String number)
+		{
+			try
+			{
+				final boolean negative = number.charAt(0) == '-';
+				final int start = negative || number.charAt(0) == '+' ? 1 : 0;
+				// the digits of a radix integer may end with N or M, which are then digits and not suffixes
+				final int separator = radixSeparator(number, start);
+				if (separator > 0)
+				{
+					final int radix = Integer.parseInt(number.substring(start, separator));
+					if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX)
+					{
+						throw new NumberFormatException("Radix out of range: " + radix);
+					}
+					return integer(negative, number.substring(separator + 1), radix, false);
+				}
+				final char last = number.charAt(number.length() - 1);
+				if (last == 'M')
+				{
+					return new BigDecimal(number.substring(0, number.length() - 1));
+				}
+				final boolean big = last == 'N';
+				final String body = big ? number.substring(0, number.length() - 1) : number;
+				final int slash = body.indexOf('/');
+				if (slash > 0 && !big)
+				{
+					return ratio(body.substring(0, slash), body.substring(slash + 1));
+				}
+				if (body.length() > start + 2 && body.charAt(start) == '0' && (body.charAt(start + 1) == 'x' || body.charAt(start + 1) == 'X'))
+				{
+					return integer(negative, body.substring(start + 2), 16, big);
+				}
+				if (!big && (body.indexOf('.') >= 0 || body.indexOf('e') >= 0 || body.indexOf('E') >= 0))
+				{
+					return Double.parseDouble(body);
+				}
+				if (body.length() > start + 1 && body.charAt(start) == '0')
+				{
+					return integer(negative, body.substring(start + 1), 8, big);
+				}
+				return integer(negative, body.substring(start), 10, big);
+			}
+			catch (NumberFormatException | ArithmeticException e)
+			{
+				throw new EdnParseException("Invalid number: " + number, e);
+			}
+		}
+
+		/**
+		 * Same as the reader of clojure: the quotient of a whole division is a long, or a {@code BigInt} when it does
+		 * not fit.
+		 */
+		private static Number ratio(String numerator, String denominator)
+		{
+			if (denominator.isEmpty() || !Character.isDigit(denominator.charAt(0)))
+			{
+				throw new NumberFormatException(denominator);
+			}
+			return Numbers.divide(
+				Numbers.reduceBigInt(BigInt.fromBigInteger(new BigInteger(numerator))),
+				Numbers.reduceBigInt(BigInt.fromBigInteger(new BigInteger(denominator))));
+		}
+
+		/**
+		 * @return the index of the {@code r} of a radix integer such as {@code 2r101}, whose radix has one or two
+		 * digits and does not start with 0, or -1
+		 */
+		private static int radixSeparator(String number, int start)
+		{
+			for (int i = start + 1; i < number.length() && i <= start + 2; i++)
+			{
+				final char c = number.charAt(i);
+				if (c == 'r' || c == 'R')
+				{
+					return number.charAt(start) != '0' ? i : -1;
+				}
+				if (c < '0' || c > '9')
+				{
+					return -1;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @param big whether the integer has the {@code N} suffix, which always gives a {@code BigInt}
+		 */
+		private static Object integer(boolean negative, String digits, int radix, boolean big)
+		{
+			if (digits.isEmpty() || Character.digit(digits.charAt(0), radix) < 0)
+			{
+				// the parsers below would accept a second sign
+				throw new NumberFormatException(digits);
+			}
+			if (!big && digits.length() < (radix == 10 ? 19 : radix <= 16 ? 16 : 13))
+			{
+				final long value = Long.parseLong(digits, radix);
+				return negative ? -value : value;
+			}
+			final BigInteger value = negative ? new BigInteger(digits, radix).negate() : new BigInteger(digits, radix);
+			return !big && value.bitLength() < 64 ? (Object) value.longValue() : BigInt.fromBigInteger(value);
+		}
+
+		private String readString() throws IOException
+		{
+			// fast path, a string without escape inside the buffer
+			for (int i = position; i < limit; i++)
+			{
+				final char c = buffer[i];
+				if (c == '"')
+				{
+					final String string = new String(buffer, position, i - position);
+					position = i + 1;
+					return string;
+				}
+				if (c == '\\') break;
+			}
+			final StringBuilder builder = this.token;
+			builder.setLength(0);
+			while (true)
+			{
+				int c = next();
+				if (c == '"') return builder.toString();
+				if (c == -1) throw new EdnParseException("EOF while reading string");
+				if (c == '\\')
+				{
+					c = next();
+					switch (c)
+					{
+						case 't':
+							c = '\t';
+							break;
+						case 'r':
+							c = '\r';
+							break;
+						case 'n':
+							c = '\n';
+							break;
+						case 'b':
+							c = '\b';
+							break;
+						case 'f':
+							c = '\f';
+							break;
+						case '\\':
+						case '"':
+							break;
+						case 'u':
+							c = unicode(next(), next(), next(), next());
+							break;
+						default:
+							if (c >= '0' && c <= '7')
+							{
+								c = octal(c);
+								break;
+							}
+							throw new EdnParseException("Unsupported escape character: \\" + (c == -1 ? "EOF" : String.valueOf((char) c)));
+					}
+				}
+				builder.append((char) c);
+			}
+		}
+
+		private int octal(int first) throws IOException
+		{
+			int value = first - '0';
+			for (int i = 0; i < 2; i++)
+			{
+				final int c = next();
+				if (c < '0' || c > '7')
+				{
+					if (c != -1) position--;
+					break;
+				}
+				value = value * 8 + c - '0';
+			}
+			if (value > 0377)
+			{
+				throw new EdnParseException("Octal escape sequence must be in range [0, 377]");
+			}
+			return value;
+		}
+
+		private static int unicode(int... digits)
+		{
+			int value = 0;
+			for (int digit : digits)
+			{
+				final int d = Character.digit(digit, 16);
+				if (digit == -1 || d == -1)
+				{
+					throw new EdnParseException("Invalid unicode escape");
+				}
+				value = value * 16 + d;
+			}
+			return value;
+		}
+
+		private Object readCharacter() throws IOException
+		{
+			final int first = next();
+			if (first == -1)
+			{
+				throw new EdnParseException("EOF while reading character");
+			}
+			final StringBuilder builder = this.token;
+			builder.setLength(0);
+			builder.append((char) first);
+			appendToken(builder);
+			if (builder.length() == 1)
+			{
+				return (char) first;
+			}
+			final String name = builder.toString();
+			switch (name)
+			{
+				case "newline":
+					return '\n';
+				case "space":
+					return ' ';
+				case "tab":
+					return '\t';
+				case "backspace":
+					return '\b';
+				case "formfeed":
+					return '\f';
+				case "return":
+					return '\r';
+				default:
+					if (name.length() == 5 && first == 'u')
+					{
+						return (char) unicode(name.charAt(1), name.charAt(2), name.charAt(3), name.charAt(4));
+					}
+					if (name.length() <= 4 && first == 'o')
+					{
+						try
+						{
+							final int value = Integer.parseInt(name.substring(1), 8);
+							if (value <= 0377) return (char) value;
+						}
+						catch (NumberFormatException e)
+						{
+							// reported below
+						}
+					}
+					throw new EdnParseException("Unsupported character: \\" + name);
+			}
+		}
+
+		/**
+		 * @return the characters up to the next delimiter, which is left unread
+		 */
+		private String readToken() throws IOException
+		{
+			final StringBuilder builder = this.token;
+			builder.setLength(0);
+			appendToken(builder);
+			return builder.toString();
+		}
+
+		private void appendToken(StringBuilder builder) throws IOException
+		{
+			while (true)
+			{
+				final int c = next();
+				if (c == -1) return;
+				if (isDelimiter(c))
+				{
+					position--;
+					return;
+				}
+				builder.append((char) c);
+			}
+		}
+
+		private static boolean isDelimiter(int c)
+		{
+			switch (c)
+			{
+				case ' ':
+				case '\t':
+				case '\n':
+				case '\r':
+				case '\f':
+				case ',':
+				case '"':
+				case ';':
+				case '^':
+				case '(':
+				case ')':
+				case '[':
+				case ']':
+				case '{':
+				case '}':
+				case '\\':
+					return true;
+				default:
+					return false;
+			}
+		}
+
+		private void skipLine() throws IOException
+		{
+			int c;
+			do
+			{
+				c = next();
+			}
+			while (c != -1 && c != '\n' && c != '\r');
+		}
+
+		/**
+		 * @return the next character, -1 at the end of the input. Once read, the previous character can be unread by
+		 * decrementing the position.
+		 */
+		private int next() throws IOException
+		{
+			if (position < limit)
+			{
+				return buffer[position++];
+			}
+			if (reader == null)
+			{
+				return -1;
+			}
+			final int read = reader.read(buffer, 0, buffer.length);
+			if (read <= 0)
+			{
+				return -1;
+			}
+			limit = read;
+			position = 0;
+			return buffer[position++];
+		}
+	}
+}
@@ -0,0 +1,319 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.edn;
+
+import clojure.lang.BigInt;
+import clojure.lang.IPersistentSet;
+import clojure.lang.IPersistentVector;
+import clojure.lang.Keyword;
+import clojure.lang.Ratio;
+import clojure.lang.Symbol;
+import net.ci4j.immutable.collections.ImmutableCollection;
+import net.ci4j.immutable.collections.impl.CollectionWalks;
+import net.ci4j.immutable.collections.impl.CollectionWalks.MapWalk;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Writes clojure collections, and the immutable collections wrapping them, as EDN, walking maps through
+ * {@code kvreduce} and vectors leaf array by leaf array, without the {@code clojure.core/pr} multimethods.
+ * <p>
+ * The output is the one of {@code pr-str} for the EDN values: strings and characters are escaped, big integers and
+ * big decimals get their {@code N} and {@code M} suffix, infinities and NaN are {@code ##Inf}, {@code ##-Inf} and
+ * {@code ##NaN}, UUIDs and dates are {@code #uuid} and {@code #inst} tagged. Sets are {@code #{}}, other
+ * {@link java.util.List}s and seqs {@code ()}. Metadata is not written and other types are rejected with an
+ * {@link IllegalArgumentException}. What is written is read back by {@link EdnDecoder} and {@code clojure.edn}.
+ * <pre>
+ *     try (Writer writer = Files.newBufferedWriter(path)) {
+ *         EdnEncoder.write(config, writer);
+ *     }
+ * </pre>
+ * The writer is written to in small pieces, it should be buffered.
+ */
+public final class EdnEncoder
+{
+	private static final DateTimeFormatter INSTANT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'-00:00'")
+		.withZone(ZoneOffset.UTC);
+
+	private static final MapWalk<Output> WRITE_ENTRIES = new MapWalk<>(Output::writeEntry);
+
+	private EdnEncoder()
+	{}
+
+	/**
+	 * Write the value as EDN to the writer, which is left open.
+	 *
+	 * @throws IllegalArgumentException if the value, or a value nested in it, cannot be written as EDN
+	 */
+	public static void write(Object value, Writer writer) throws IOException
+	{
+		new Output(writer).write(value);
+	}
+
+	/**
+	 * @return the value as an EDN string
+	 * @throws IllegalArgumentException if the value, or a value nested in it, cannot be written as EDN
+	 */
+	public static String writeString(Object value)
+	{
+		final StringWriter writer = new StringWriter();
+		try
+		{
+			write(value, writer);
+		}
+		catch (IOException e)
+		{
+			// a StringWriter never fails
+			throw new IllegalStateException(e);
+		}
+		return writer.toString();
+	}
+
+	private static final class Output
+	{
+		private final Writer writer;
+
+		/**
+		 * Whether no item has been written yet in the collection being written.
+		 */
+		private boolean first;
+
+		Output(Writer writer)
+		{
+			this.writer = writer;
+		}
+
+		void write(Object value) throws IOException
+		{
+			if (value instanceof ImmutableCollection)
+			{
+				value = ((ImmutableCollection) value).getRaw();
+			}
+			if (value == null)
+			{
+				writer.write("nil");
+			}
+			else if (value instanceof String)
+			{
+				writeString((String) value);
+			}
+			else if (value instanceof Keyword || value instanceof Symbol || value instanceof Long || value instanceof Boolean
+				|| value instanceof Integer || value instanceof Short || value instanceof Byte || value instanceof Ratio)
+			{
+				writer.write(value.toString());
+			}
+			else if (value instanceof Map)
+			{
+				writeMap((Map<?, ?>) value);
+			}
+			else if (value instanceof IPersistentVector)
+			{
+				writeVector((IPersistentVector) value);
+			}
+			else if (value instanceof IPersistentSet || value instanceof Set)
+			{
+				writeItems("#{", (Iterable<?>) value, '}');
+			}
+			else if (value instanceof Iterable)
+			{
+				writeItems("(", (Iterable<?>) value, ')');
+			}
+			else if (value instanceof Double || value instanceof Float)
+			{
+				writeDouble(((Number) value).doubleValue(), value);
+			}
+			else if (value instanceof Character)
+			{
+				writeCharacter((Character) value);
+			}
+			else if (value instanceof BigInt || value instanceof BigInteger)
+			{
+				writer.write(value.toString());
+				writer.write('N');
+			}
+			else if (value instanceof BigDecimal)
+			{
+				writer.write(value.toString());
+				writer.write('M');
+			}
+			else if (value instanceof UUID)
+			{
+				writer.write("#uuid ");
+				writeString(value.toString());
+			}
+			else if (value instanceof Date)
+			{
+				writer.write("#inst ");
+				writeString(INSTANT.format(((Date) value).toInstant()));
+			}
+			else
+			{
+				throw new IllegalArgumentException("Cannot EDN encode object of class: " + value.getClass().getName());
+			}
+		}
+
+		private void writeMap(Map<?, ?> map) throws IOException
+		{
+			writer.write('{');
+			first = true;
+			WRITE_ENTRIES.write(this, map);
+			writer.write('}');
+		}
+
+		void writeEntry(Object key, Object value) throws IOException
+		{
+			if (!first)
+			{
+				writer.write(", ");
+			}
+			first = false;
+			write(key);
+			writer.write(' ');
+			write(value);
+			// a nested collection has written its own items
+			first = false;
+		}
+
+		private void writeVector(IPersistentVector vector) throws IOException
+		{
+			writer.write('[');
+			first = true;
+			CollectionWalks.writeItems(this, vector, Output::writeItem);
+			writer.write(']');
+		}
+
+		private void writeItems(String open, Iterable<?> items, char close) throws IOException
+		{
+			writer.write(open);
+			first = true;
+			for (Object item : items)
+			{
+				writeItem(item);
+			}
+			writer.write(close);
+		}
+
+		private void writeItem(Object item) throws IOException
+		{
+			if (!first)
+			{
+				writer.write(' ');
+			}
+			write(item);
+			first = false;
+		}
+
+		private void writeDouble(double d, Object value) throws IOException
+		{
+			if (Double.isNaN(d))
+			{
+				writer.write("##NaN");
+			}
+			else if (Double.isInfinite(d))
+			{
+				writer.write(d > 0 ? "##Inf" : "##-Inf");
+			}
+			else
+			{
+				writer.write(value.toString());
+			}
+		}
+
+		private void writeCharacter(char c) throws IOException
+		{
+			switch (c)
+			{
+				case '\n':
+					writer.write("\\newline");
+					break;
+				case '\t':
+					writer.write("\\tab");
+					break;
+				case ' ':
+					writer.write("\\space");
+					break;
+				case '\b':
+					writer.write("\\backspace");
+					break;
+				case '\f':
+					writer.write("\\formfeed");
+					break;
+				case '\r':
+					writer.write("\\return");
+					break;
+				default:
+					writer.write('\\');
+					writer.write(c);
+			}
+		}
+
+		private void writeString(String s) throws IOException
+		{
+			writer.write('"');
+			int start = 0;
+			for (int i = 0, length = s.length(); i < length; i++)
+			{
+				final String escape = escape(s.charAt(i));
+				if (escape != null)
+				{
+					writer.write(s, start, i - start);
+					writer.write(escape);
+					start = i + 1;
+				}
+			}
+			writer.write(s, start, s.length() - start);
+			writer.write('"');
+		}
+
+		private static String escape(char c)
+		{
+			switch (c)
+			{
+				case '"':
+					return "\\\"";
+				case '\\':
+					return "\\\\";
+				case '\n':
+					return "\\n";
+				case '\t':
+					return "\\t";
+				case '\r':
+					return "\\r";
+				case '\b':
+					return "\\b";
+				case '\f':
+					return "\\f";
+				default:
+					return null;
+			}
+		}
+	}
+}
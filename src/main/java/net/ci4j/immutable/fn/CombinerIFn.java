@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.fn;
+
+import java.io.Serializable;
+
+import net.ci4j.fn.Fn0;
+import net.ci4j.fn.Fn2;
+import clojure.lang.AFn;
+
+/**
+ * Combining function of a fold, returns the seed of a chunk when called with no argument and merges two
+ * chunk results when called with two.
+ */
+class CombinerIFn extends AFn implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final Fn0 seed;
+
+	private final Fn2 combiner;
+
+	CombinerIFn(Fn0 seed, Fn2 combiner)
+	{
+		this.seed = seed;
+		this.combiner = combiner;
+	}
+
+	@Override
+	public Object invoke()
+	{
+		return seed.apply();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object invoke(Object arg1, Object arg2)
+	{
+		return combiner.apply(arg1, arg2);
+	}
+}
@@ -123,4 +123,14 @@ public class Fn
 	public static <P1, P2, P3, P4, P5, P6, P7, P8, P9> IFn fn(VoidFn9<P1, P2, P3, P4, P5, P6, P7, P8, P9> fn) {
 		return new VoidIFn9(fn);
 	}
+
+	/**
+	 * Create the combining function of a fold.
+	 *
+	 * @param seed supplies the initial value of each chunk
+	 * @param combiner merges the results of two chunks
+	 */
+	public static <R> IFn combiner(Fn0<R> seed, Fn2<R, R, R> combiner) {
+		return new CombinerIFn(seed, combiner);
+	}
 }
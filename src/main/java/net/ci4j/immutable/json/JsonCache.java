@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.json;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+
+/**
+ * The JSON of persistent maps and vectors already encoded, by identity of the collection, for a
+ * {@link JsonEncoder#withCache(JsonCache) caching encoder}.
+ * <p>
+ * A persistent collection never changes, so its JSON can be reused for as long as the collection lives. When a state
+ * is updated, the untouched maps and vectors are shared with the previous state: encoding the new state only encodes
+ * the collections on the paths which changed, the others are copied from the cache as they are.
+ * <pre>
+ *     private final JsonEncoder encoder = JsonEncoder.DEFAULT.withCache(new JsonCache());
+ *
+ *     encoder.write(store.getState(), response.getOutputStream());
+ * </pre>
+ * The collections are held weakly, an entry goes away with its collection. Each cached collection holds the text of
+ * all its items, nested collections included, so a document of depth {@code d} is held up to {@code d} times:
+ * collections with fewer than {@code minCount} items are not cached, their text is cheap to encode again.
+ * <p>
+ * A cache is thread safe. It must only be shared between encoders writing the same format, the cached text is the
+ * compact output of {@link JsonEncoder}.
+ */
+public final class JsonCache
+{
+	public static final int DEFAULT_MIN_COUNT = 8;
+
+	private final int minCount;
+
+	private final HashMap<Key, String> entries = new HashMap<>();
+
+	private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+	public JsonCache()
+	{
+		this(DEFAULT_MIN_COUNT);
+	}
+
+	/**
+	 * @param minCount the number of items from which a collection is cached
+	 */
+	public JsonCache(int minCount)
+	{
+		if (minCount < 0)
+		{
+			throw new IllegalArgumentException("Illegal min count: " + minCount);
+		}
+		this.minCount = minCount;
+	}
+
+	boolean caches(int count)
+	{
+		return count >= minCount;
+	}
+
+	synchronized String get(Object collection)
+	{
+		expunge();
+		return entries.get(new Key(collection, null));
+	}
+
+	synchronized void put(Object collection, String json)
+	{
+		expunge();
+		entries.put(new Key(collection, collected), json);
+	}
+
+	/**
+	 * @return the number of collections cached, some of which may have been collected since
+	 */
+	public synchronized int size()
+	{
+		expunge();
+		return entries.size();
+	}
+
+	public synchronized void clear()
+	{
+		entries.clear();
+		while (collected.poll() != null)
+		{
+		}
+	}
+
+	private void expunge()
+	{
+		Reference<?> key;
+		while ((key = collected.poll()) != null)
+		{
+			entries.remove(key);
+		}
+	}
+
+	/**
+	 * A weak reference compared by identity of its referent, and by its own identity once cleared.
+	 */
+	private static final class Key extends WeakReference<Object>
+	{
+		private final int hash;
+
+		Key(Object referent, ReferenceQueue<Object> queue)
+		{
+			super(referent, queue);
+			this.hash = System.identityHashCode(referent);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			final Object referent = get();
+			return referent != null && referent == ((Key) o).get();
+		}
+	}
+}
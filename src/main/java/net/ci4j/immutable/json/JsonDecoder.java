@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.json;
+
+import clojure.lang.ITransientCollection;
+import clojure.lang.ITransientMap;
+import clojure.lang.Keyword;
+import clojure.lang.PersistentArrayMap;
+import clojure.lang.PersistentVector;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import net.ci4j.immutable.clojure_utils.JsonParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses JSON with the Jackson streaming parser straight into clojure collections, each object and array being built
+ * in a transient as its tokens arrive.
+ * <p>
+ * The result is the one of {@code cheshire.core/parse-string}: objects become maps, arrays vectors, integers
+ * {@link Integer}, {@link Long} or {@link java.math.BigInteger} depending on their size and decimals {@link Double}s.
+ * The input is read as a stream, the document is never held as a whole {@link String}.
+ * <pre>
+ *     private static final JsonDecoder DECODER = JsonDecoder.DEFAULT.withKeywordKeys(true);
+ *
+ *     try (InputStream in = Files.newInputStream(path)) {
+ *         ImmutableMap&lt;Keyword, Object&gt; config = new ImmutableMap&lt;&gt;((APersistentMap) DECODER.read(in));
+ *     }
+ * </pre>
+ * A decoder is immutable and thread safe, the {@code with} methods return a new decoder.
+ */
+public final class JsonDecoder
+{
+	/**
+	 * String keys, interned, and double decimals, like cheshire.
+	 */
+	public static final JsonDecoder DEFAULT = new JsonDecoder(false, true, false);
+
+	private final boolean keywordKeys;
+
+	private final boolean internKeys;
+
+	private final boolean bigDecimals;
+
+	private final JsonFactory factory;
+
+	private JsonDecoder(boolean keywordKeys, boolean internKeys, boolean bigDecimals)
+	{
+		this.keywordKeys = keywordKeys;
+		this.internKeys = internKeys;
+		this.bigDecimals = bigDecimals;
+		this.factory = new JsonFactory().configure(JsonFactory.Feature.INTERN_FIELD_NAMES, internKeys);
+	}
+
+	/**
+	 * @param keywordKeys whether the keys of the objects are turned into keywords, as {@code (keyword k)} does
+	 */
+	public JsonDecoder withKeywordKeys(boolean keywordKeys)
+	{
+		return new JsonDecoder(keywordKeys, internKeys, bigDecimals);
+	}
+
+	/**
+	 * @param internKeys whether the string keys are {@link String#intern() interned}, so that the keys of all the
+	 * parsed documents share the same strings. It is the default, turn it off for documents with many unique keys.
+	 */
+	public JsonDecoder withInternedKeys(boolean internKeys)
+	{
+		return new JsonDecoder(keywordKeys, internKeys, bigDecimals);
+	}
+
+	/**
+	 * @param bigDecimals whether decimals are read as {@link java.math.BigDecimal}s instead of doubles
+	 */
+	public JsonDecoder withBigDecimals(boolean bigDecimals)
+	{
+		return new JsonDecoder(keywordKeys, internKeys, bigDecimals);
+	}
+
+	/**
+	 * @return the value of the JSON document, {@code null} for an empty input
+	 * @throws JsonParseException if the document is not valid JSON
+	 */
+	public Object read(String json)
+	{
+		try (JsonParser parser = factory.createParser(json))
+		{
+			return read(parser);
+		}
+		catch (IOException e)
+		{
+			throw new JsonParseException(e);
+		}
+	}
+
+	/**
+	 * Read a JSON document from the stream, which is left open.
+	 *
+	 * @throws JsonParseException if the document is not valid JSON
+	 * @throws IOException if the stream fails
+	 */
+	public Object read(InputStream in) throws IOException
+	{
+		try (JsonParser parser = factory.createParser(in).disable(JsonParser.Feature.AUTO_CLOSE_SOURCE))
+		{
+			return readChecked(parser);
+		}
+	}
+
+	/**
+	 * Read a JSON document from the reader, which is left open.
+	 *
+	 * @throws JsonParseException if the document is not valid JSON
+	 * @throws IOException if the reader fails
+	 */
+	public Object read(Reader reader) throws IOException
+	{
+		try (JsonParser parser = factory.createParser(reader).disable(JsonParser.Feature.AUTO_CLOSE_SOURCE))
+		{
+			return readChecked(parser);
+		}
+	}
+
+	/**
+	 * Read a JSON document from the remaining bytes of the buffer, UTF-8 or any encoding detected by Jackson. The
+	 * position of the buffer is left unchanged.
+	 *
+	 * @throws JsonParseException if the document is not valid JSON
+	 */
+	public Object read(ByteBuffer buffer)
+	{
+		try
+		{
+			if (buffer.hasArray())
+			{
+				try (JsonParser parser = factory.createParser(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()))
+				{
+					return read(parser);
+				}
+			}
+			return read(new ByteBufferInputStream(buffer.duplicate()));
+		}
+		catch (IOException e)
+		{
+			throw new JsonParseException(e);
+		}
+	}
+
+	private Object readChecked(JsonParser parser) throws IOException
+	{
+		try
+		{
+			return read(parser);
+		}
+		catch (com.fasterxml.jackson.core.JsonParseException e)
+		{
+			throw new JsonParseException(e);
+		}
+	}
+
+	private Object read(JsonParser parser) throws IOException
+	{
+		final JsonToken token = parser.nextToken();
+		return token != null ? value(parser, token, keywordKeys ? new HashMap<>() : null) : null;
+	}
+
+	private Object value(JsonParser parser, JsonToken token, Map<String, Keyword> keywords) throws IOException
+	{
+		switch (token)
+		{
+			case START_OBJECT:
+				ITransientMap map = PersistentArrayMap.EMPTY.asTransient();
+				while (parser.nextToken() == JsonToken.FIELD_NAME)
+				{
+					final String name = parser.getCurrentName();
+					final Object key = keywords != null ? keywords.computeIfAbsent(name, Keyword::intern) : name;
+					map = map.assoc(key, value(parser, parser.nextToken(), keywords));
+				}
+				return map.persistent();
+			case START_ARRAY:
+				ITransientCollection vector = PersistentVector.EMPTY.asTransient();
+				JsonToken item;
+				while ((item = parser.nextToken()) != JsonToken.END_ARRAY)
+				{
+					vector = vector.conj(value(parser, item, keywords));
+				}
+				return vector.persistent();
+			case VALUE_STRING:
+				return parser.getText();
+			case VALUE_NUMBER_INT:
+				return parser.getNumberValue();
+			case VALUE_NUMBER_FLOAT:
+				return bigDecimals ? parser.getDecimalValue() : parser.getDoubleValue();
+			case VALUE_TRUE:
+				return Boolean.TRUE;
+			case VALUE_FALSE:
+				return Boolean.FALSE;
+			case VALUE_NULL:
+				return null;
+			default:
+				throw new JsonParseException("Unexpected token " + token + " at " + parser.getCurrentLocation());
+		}
+	}
+
+	private static final class ByteBufferInputStream extends InputStream
+	{
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read()
+		{
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if (!buffer.hasRemaining()) return -1;
+			final int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+	}
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.json;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.APersistentVector;
+import clojure.lang.BigInt;
+import clojure.lang.IPersistentCollection;
+import clojure.lang.IPersistentVector;
+import clojure.lang.Keyword;
+import clojure.lang.Ratio;
+import clojure.lang.Symbol;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.ci4j.immutable.collections.ImmutableCollection;
+import net.ci4j.immutable.collections.impl.CollectionWalks;
+import net.ci4j.immutable.collections.impl.CollectionWalks.MapWalk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes clojure collections, and the immutable collections wrapping them, as JSON to a Jackson generator, walking
+ * the persistent structures directly: maps through {@code kvreduce} and vectors leaf array by leaf array, without
+ * seqs, map entries nor an intermediate {@link String}.
+ * <p>
+ * The output is the one of {@code cheshire.core/generate-string}: keywords are written without their colon, with
+ * their namespace, other map keys with {@link Object#toString()} and a {@code null} key as {@code ""}, sets, lists and
+ * seqs as arrays, floats with their shortest representation, ratios as doubles and characters, symbols and UUIDs as
+ * strings. Other types are rejected with a {@link JsonGenerationException}.
+ * <pre>
+ *     response.setContentType("application/json");
+ *     JsonEncoder.DEFAULT.write(state, response.getOutputStream());
+ * </pre>
+ * An encoder is immutable and thread safe, the {@code with} methods return a new encoder.
+ */
+public final class JsonEncoder
+{
+	public static final JsonEncoder DEFAULT = new JsonEncoder(false, null);
+
+	private static final JsonFactory FACTORY = new JsonFactory()
+		.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+	private static final MapWalk<JsonGenerator> WRITE_ENTRIES = entryWalk(null);
+
+	private final boolean pretty;
+
+	private final JsonCache cache;
+
+	private JsonEncoder(boolean pretty, JsonCache cache)
+	{
+		this.pretty = pretty;
+		this.cache = cache;
+	}
+
+	/**
+	 * @param pretty whether the output is indented, with Jackson's default pretty printer. The cache of the encoder,
+	 * if any, is not used for indented output.
+	 */
+	public JsonEncoder withPrettyPrint(boolean pretty)
+	{
+		return new JsonEncoder(pretty, cache);
+	}
+
+	/**
+	 * @param cache where the JSON of the persistent maps and vectors is kept, to be copied as it is when they are
+	 * written again, {@code null} for no cache
+	 * @see JsonCache
+	 */
+	public JsonEncoder withCache(JsonCache cache)
+	{
+		return new JsonEncoder(pretty, cache);
+	}
+
+	/**
+	 * Write the value as UTF-8 JSON to the stream, which is flushed and left open.
+	 */
+	public void write(Object value, OutputStream out) throws IOException
+	{
+		try (JsonGenerator generator = FACTORY.createGenerator(out))
+		{
+			writeDocument(generator, value);
+		}
+	}
+
+	/**
+	 * Write the value as JSON to the writer, which is flushed and left open.
+	 */
+	public void write(Object value, Writer writer) throws IOException
+	{
+		try (JsonGenerator generator = FACTORY.createGenerator(writer))
+		{
+			writeDocument(generator, value);
+		}
+	}
+
+	/**
+	 * @return the value as a JSON string
+	 */
+	public String writeString(Object value)
+	{
+		final StringWriter writer = new StringWriter();
+		try
+		{
+			write(value, writer);
+		}
+		catch (IOException e)
+		{
+			// only a value which cannot be encoded can fail on a StringWriter
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+		return writer.toString();
+	}
+
+	private void writeDocument(JsonGenerator generator, Object value) throws IOException
+	{
+		if (pretty)
+		{
+			write(generator.useDefaultPrettyPrinter(), value, null);
+		}
+		else
+		{
+			write(generator, value, cache);
+		}
+	}
+
+	/**
+	 * Write a value to a generator, as part of a larger document.
+	 */
+	public static void write(JsonGenerator generator, Object value) throws IOException
+	{
+		write(generator, value, null);
+	}
+
+	private static void write(JsonGenerator generator, Object value, JsonCache cache) throws IOException
+	{
+		if (value instanceof ImmutableCollection)
+		{
+			value = ((ImmutableCollection) value).getRaw();
+		}
+		if (value == null)
+		{
+			generator.writeNull();
+		}
+		else if (value instanceof String)
+		{
+			generator.writeString((String) value);
+		}
+		else if (cache != null && (value instanceof APersistentMap || value instanceof APersistentVector)
+			&& cache.caches(((IPersistentCollection) value).count()))
+		{
+			writeCached(generator, value, cache);
+		}
+		else if (value instanceof Map)
+		{
+			writeMap(generator, (Map<?, ?>) value, cache);
+		}
+		else if (value instanceof IPersistentVector)
+		{
+			writeVector(generator, (IPersistentVector) value, cache);
+		}
+		else if (value instanceof Iterable)
+		{
+			generator.writeStartArray();
+			for (Object item : (Iterable<?>) value)
+			{
+				write(generator, item, cache);
+			}
+			generator.writeEndArray();
+		}
+		else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+		{
+			generator.writeNumber(((Number) value).longValue());
+		}
+		else if (value instanceof Double || value instanceof Ratio)
+		{
+			generator.writeNumber(((Number) value).doubleValue());
+		}
+		else if (value instanceof Float)
+		{
+			// widened to a double, 0.1f would be written 0.10000000149011612
+			generator.writeNumber((Float) value);
+		}
+		else if (value instanceof Boolean)
+		{
+			generator.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Keyword)
+		{
+			generator.writeString(((Keyword) value).sym.toString());
+		}
+		else if (value instanceof BigDecimal)
+		{
+			generator.writeNumber((BigDecimal) value);
+		}
+		else if (value instanceof BigInteger)
+		{
+			generator.writeNumber((BigInteger) value);
+		}
+		else if (value instanceof BigInt)
+		{
+			generator.writeNumber(((BigInt) value).toBigInteger());
+		}
+		else if (value instanceof Character || value instanceof Symbol || value instanceof UUID)
+		{
+			generator.writeString(value.toString());
+		}
+		else
+		{
+			throw new JsonGenerationException("Cannot JSON encode object of class: " + value.getClass().getName());
+		}
+	}
+
+	/**
+	 * Write a map or a vector from its cached JSON, encoding it into the cache first if it is not there yet.
+	 */
+	private static void writeCached(JsonGenerator generator, Object collection, JsonCache cache) throws IOException
+	{
+		String json = cache.get(collection);
+		if (json == null)
+		{
+			final StringWriter writer = new StringWriter();
+			try (JsonGenerator fragment = FACTORY.createGenerator(writer))
+			{
+				if (collection instanceof Map)
+				{
+					writeMap(fragment, (Map<?, ?>) collection, cache);
+				}
+				else
+				{
+					writeVector(fragment, (IPersistentVector) collection, cache);
+				}
+			}
+			json = writer.toString();
+			cache.put(collection, json);
+		}
+		generator.writeRawValue(json);
+	}
+
+	private static void writeMap(JsonGenerator generator, Map<?, ?> map, JsonCache cache) throws IOException
+	{
+		generator.writeStartObject();
+		(cache != null ? entryWalk(cache) : WRITE_ENTRIES).write(generator, map);
+		generator.writeEndObject();
+	}
+
+	private static MapWalk<JsonGenerator> entryWalk(JsonCache cache)
+	{
+		return new MapWalk<>((generator, key, value) -> writeEntry(generator, key, value, cache));
+	}
+
+	private static void writeEntry(JsonGenerator generator, Object key, Object value, JsonCache cache) throws IOException
+	{
+		// (str nil) is the empty string
+		generator.writeFieldName(key instanceof Keyword ? ((Keyword) key).sym.toString() : key != null ? key.toString() : "");
+		write(generator, value, cache);
+	}
+
+	private static void writeVector(JsonGenerator generator, IPersistentVector vector, JsonCache cache) throws IOException
+	{
+		generator.writeStartArray();
+		CollectionWalks.writeItems(generator, vector, (out, item) -> write(out, item, cache));
+		generator.writeEndArray();
+	}
+}
@@ -22,17 +22,30 @@ package net.ci4j.immutable.object;
 
 import static net.ci4j.immutable.object.ImmutableBeanAssocStrategy.TO_ENUM_NAME;
 
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.Writer;
 import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
+import net.ci4j.immutable.binary.BinaryCodec;
 import net.ci4j.immutable.clojure_utils.ClojureJson;
+import net.ci4j.immutable.edn.EdnDecoder;
+import net.ci4j.immutable.edn.EdnEncoder;
+import net.ci4j.immutable.json.JsonDecoder;
+import net.ci4j.immutable.json.JsonEncoder;
 import net.ci4j.immutable.clojure_utils.ClojureRT;
 import net.ci4j.immutable.collections.ImmutableCollection;
 import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableLongMap;
 import net.ci4j.immutable.collections.ImmutableMap;
 import net.ci4j.immutable.collections.ImmutableSet;
+import net.ci4j.immutable.collections.impl.PersistentLongMap;
 import clojure.lang.APersistentMap;
 import clojure.lang.APersistentSet;
 import clojure.lang.ATransientMap;
@@ -149,9 +162,9 @@ public abstract class ImmutableBean<CONCRETE extends ImmutableBean> implements S
 {
 	private static final long serialVersionUID = 1L;
 
-	ImmutableBeanAssocStrategy mutabilityStrategy;
+	transient ImmutableBeanAssocStrategy mutabilityStrategy;
 
-	Keyword specKey;
+	transient Keyword specKey;
 
 	protected abstract Class<CONCRETE> getConcreteClass();
 
@@ -247,7 +260,7 @@ public abstract class ImmutableBean<CONCRETE extends ImmutableBean> implements S
 
 	public static <C extends ImmutableBean> C fromJson(Class<C> clazz, String json)
 	{
-		return create(clazz, (APersistentMap) ClojureJson.PARSE_STRING.invoke(json));
+		return create(clazz, parseJson(json));
 	}
 
 	/**
@@ -260,14 +273,14 @@ public abstract class ImmutableBean<CONCRETE extends ImmutableBean> implements S
 	 */
 	public static <T extends ImmutableBean> T fromJson(Class<T> clazz, String json, String specKey, String spec)
 	{
-		T newBean = create(clazz, (APersistentMap) ClojureJson.PARSE_STRING.invoke(json), specKey, spec);
+		T newBean = create(clazz, parseJson(json), specKey, spec);
 		newBean.confirmSpec();
 		return newBean;
 	}
 
 	public CONCRETE resetFromJson(String json)
 	{
-		final CONCRETE clone = this.withState((APersistentMap) ClojureJson.PARSE_STRING.invoke(json));
+		final CONCRETE clone = this.withState(parseJson(json));
 		clone.confirmSpec();
 		return clone;
 	}
@@ -281,7 +294,7 @@ public abstract class ImmutableBean<CONCRETE extends ImmutableBean> implements S
 	 */
 	public static <T extends ImmutableBean> T fromString(Class<T> clazz, String edn)
 	{
-		return create(clazz, ClojureRT.readString(edn));
+		return create(clazz, parseEdn(edn));
 	}
 
 	/**
@@ -295,29 +308,29 @@ public abstract class ImmutableBean<CONCRETE extends ImmutableBean> implements S
 	 */
 	public static <T extends ImmutableBean> T fromString(Class<T> clazz, String edn, String specKey, String spec)
 	{
-		final T newBean = create(clazz, ClojureRT.readString(edn), specKey, spec);
+		final T newBean = create(clazz, parseEdn(edn), specKey, spec);
 		newBean.confirmSpec();
 		return newBean;
 	}
 
 	public CONCRETE resetFromString(String str)
 	{
-		final CONCRETE obj = withState(ClojureRT.readString(str));
+		final CONCRETE obj = withState(parseEdn(str));
 		obj.confirmSpec();
 		return obj;
 	}
 
 	public CONCRETE mergeString(String str)
 	{
-		final APersistentMap from = ClojureRT.readString(str);
+		final APersistentMap from = parseEdn(str);
 		return mergeState(from);
 	}
 
 	public CONCRETE mergeString(String str, String... more)
 	{
 		final Object target = this.getRaw();
-		final APersistentMap from = ClojureRT.readString(str);
-		final Object[] froms = Stream.concat(Stream.of(target, from), Stream.of(more).map(x -> ((APersistentMap) ClojureRT.readString(x)))).toArray();
+		final APersistentMap from = parseEdn(str);
+		final Object[] froms = Stream.concat(Stream.of(target, from), Stream.of(more).map(ImmutableBean::parseEdn)).toArray();
 
 		final APersistentMap mergedState = (APersistentMap) ClojureRT.MERGE.applyTo(ClojureRT.pathSeq(froms));
 		return withState(mergedState);
@@ -325,15 +338,15 @@ public abstract class ImmutableBean<CONCRETE extends ImmutableBean> implements S
 
 	public CONCRETE mergeJson(String json)
 	{
-		final APersistentMap from = (APersistentMap) ClojureJson.PARSE_STRING.invoke(json);
+		final APersistentMap from = parseJson(json);
 		return mergeState(from);
 	}
 
 	public CONCRETE mergeJson(String str, String... more)
 	{
 		final APersistentMap target = this.getRaw();
-		final APersistentMap from = (APersistentMap) ClojureJson.PARSE_STRING.invoke(str);
-		final Object[] froms = Stream.concat(Stream.of(target, from), Stream.of(more).map(x -> ((APersistentMap) ClojureJson.PARSE_STRING.invoke(x))))
+		final APersistentMap from = parseJson(str);
+		final Object[] froms = Stream.concat(Stream.of(target, from), Stream.of(more).map(ImmutableBean::parseJson))
 			.toArray();
 
 		final APersistentMap mergedState = (APersistentMap) ClojureRT.MERGE.applyTo(ClojureRT.pathSeq(froms));
@@ -347,11 +360,75 @@ public abstract class ImmutableBean<CONCRETE extends ImmutableBean> implements S
 		return withState(merged);
 	}
 
+	private static APersistentMap parseEdn(String edn)
+	{
+		return edn != null ? (APersistentMap) EdnDecoder.DEFAULT.read(edn) : null;
+	}
+
+	private static APersistentMap parseJson(String json)
+	{
+		return json != null ? (APersistentMap) JsonDecoder.DEFAULT.read(json) : null;
+	}
+
 	public String toJson()
 	{
 		return (String) ClojureJson.GENERATE_STRING.invoke(this.mutabilityStrategy.getRaw());
 	}
 
+	/**
+	 * Write the state of the bean as UTF-8 JSON to the stream, which is flushed and left open, without building the
+	 * whole document as a {@link String} first.
+	 *
+	 * @see JsonEncoder
+	 */
+	public void writeJson(OutputStream out) throws IOException
+	{
+		JsonEncoder.DEFAULT.write(this.mutabilityStrategy.getRaw(), out);
+	}
+
+	/**
+	 * Write the state of the bean as JSON to the writer, which is flushed and left open.
+	 *
+	 * @see JsonEncoder
+	 */
+	public void writeJson(Writer writer) throws IOException
+	{
+		JsonEncoder.DEFAULT.write(this.mutabilityStrategy.getRaw(), writer);
+	}
+
+	/**
+	 * Write the state of the bean as EDN to the writer, which is left open.
+	 *
+	 * @see EdnEncoder
+	 */
+	public void toEdn(Writer writer) throws IOException
+	{
+		EdnEncoder.write(this.mutabilityStrategy.getRaw(), writer);
+	}
+
+	/**
+	 * Serialize the state with {@link BinaryCodec} instead of the default serialization of the clojure classes.
+	 * A transient copy cannot be serialized.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		if (!this.mutabilityStrategy.isPersist())
+		{
+			throw new NotSerializableException("Transient copy of " + getClass().getName());
+		}
+		out.defaultWriteObject();
+		BinaryCodec.writeValue(out, this.specKey);
+		BinaryCodec.writeValue(out, this.mutabilityStrategy.getPersistRaw());
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		this.specKey = (Keyword) BinaryCodec.readValue(in);
+		this.mutabilityStrategy = new ImmutableAssoc();
+		this.mutabilityStrategy.resetInternalMap((APersistentMap) BinaryCodec.readValue(in));
+	}
+
 	public CONCRETE withEmpty()
 	{
 		return this.withState(PersistentArrayMap.EMPTY);
@@ -549,6 +626,11 @@ public abstract class ImmutableBean<CONCRETE extends ImmutableBean> implements S
 		return new ImmutableMap<>(valAt(key));
 	}
 
+	public <V> ImmutableLongMap<V> valAtAsImmutableLongMap(Object key)
+	{
+		return new ImmutableLongMap<>(valAt(key));
+	}
+
 	public <E> ImmutableList<E> optInAsImmutableList(Object... path)
 	{
 		final IPersistentVector vector = optIn(path);
@@ -567,6 +649,12 @@ public abstract class ImmutableBean<CONCRETE extends ImmutableBean> implements S
 		return map != null ? new ImmutableMap<>(map) : null;
 	}
 
+	public <V> ImmutableLongMap<V> optInAsImmutableLongMap(Object... path)
+	{
+		final PersistentLongMap map = optIn(path);
+		return map != null ? new ImmutableLongMap<>(map) : null;
+	}
+
 	public boolean valImmutable()
 	{
 		return this.mutabilityStrategy.isPersist();
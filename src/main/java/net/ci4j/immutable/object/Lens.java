@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2017 Zhizhi Deng
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.ci4j.immutable.object;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.RT;
+import net.ci4j.fn.Fn1;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.impl.NestedPaths;
+
+import java.util.Arrays;
+
+/**
+ * A path of keys into nested maps, compiled once and applied any number of times.
+ * <p>
+ * {@link ImmutableBean#valIn(Object, Object...)} and its siblings build a seq of the keys on every call, and the enum
+ * variants map {@link Enum#name()} over it; a lens resolves its keys when it is created, so reading through it is a
+ * plain loop of lookups and writing through it only copies the maps along the path, both walking the path with
+ * {@link NestedPaths} like {@link ImmutableMap#getIn(Object...)} and {@link ImmutableMap#updateIn}. Intermediate levels may be any
+ * clojure map or vector, nested {@link ImmutableMap} wrappers are kept as wrappers.
+ * <pre>
+ *     private static final Lens BALANCE = Lens.ofEnums(Field.ACCOUNTS, Field.MAIN).then("balance");
+ *
+ *     Long balance = BALANCE.get(customer);
+ *     Customer credited = BALANCE.update(customer, (Long b) -&gt; b + amount);
+ * </pre>
+ * Writes follow {@code assoc-in}: the missing maps along the path are created. A write which leaves the value
+ * identical returns the given root. On a transient {@link ImmutableBean} the first level is assoc'ed in place.
+ */
+public final class Lens
+{
+	private static final Object NOT_FOUND = new Object();
+
+	private final Object[] keys;
+
+	private Lens(Object[] keys)
+	{
+		if (keys.length == 0)
+		{
+			throw new IllegalArgumentException("A lens needs at least one key.");
+		}
+		this.keys = keys;
+	}
+
+	public static Lens of(Object... keys)
+	{
+		return new Lens(keys.clone());
+	}
+
+	/**
+	 * @return a lens over the {@link Enum#name() names} of the keys, the way the enum methods of {@link ImmutableBean}
+	 * store them
+	 */
+	public static Lens ofEnums(Enum<?>... keys)
+	{
+		final Object[] names = new Object[keys.length];
+		for (int i = 0; i < keys.length; i++)
+		{
+			names[i] = keys[i].name();
+		}
+		return new Lens(names);
+	}
+
+	/**
+	 * @return a lens which continues this path with the given keys
+	 */
+	public Lens then(Object... more)
+	{
+		return concat(more);
+	}
+
+	/**
+	 * @return a lens which continues this path with the keys of the other lens
+	 */
+	public Lens then(Lens other)
+	{
+		return concat(other.keys);
+	}
+
+	private Lens concat(Object[] more)
+	{
+		final Object[] joined = Arrays.copyOf(keys, keys.length + more.length);
+		System.arraycopy(more, 0, joined, keys.length, more.length);
+		return new Lens(joined);
+	}
+
+	public int depth()
+	{
+		return keys.length;
+	}
+
+	public <T> T get(APersistentMap root)
+	{
+		return get(root, null);
+	}
+
+	public <T> T get(ImmutableMap<?, ?> root)
+	{
+		return get(root, null);
+	}
+
+	public <T> T get(ImmutableBean<?> root)
+	{
+		return get(root, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T get(APersistentMap root, T notFound)
+	{
+		return (T) lookup(root, notFound);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T get(ImmutableMap<?, ?> root, T notFound)
+	{
+		return (T) lookup(root, notFound);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T get(ImmutableBean<?> root, T notFound)
+	{
+		return (T) lookup(root.mutabilityStrategy.getRaw(), notFound);
+	}
+
+	public APersistentMap set(APersistentMap root, Object value)
+	{
+		return (APersistentMap) write(root, constant(value));
+	}
+
+	@SuppressWarnings("unchecked")
+	public <K, V> ImmutableMap<K, V> set(ImmutableMap<K, V> root, Object value)
+	{
+		return (ImmutableMap<K, V>) write(root, constant(value));
+	}
+
+	public <CONCRETE extends ImmutableBean<CONCRETE>> CONCRETE set(ImmutableBean<CONCRETE> root, Object value)
+	{
+		return writeBean(root, constant(value));
+	}
+
+	/**
+	 * Same as {@code clojure.core/update-in}, the function receives {@code null} when the path does not exist.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> APersistentMap update(APersistentMap root, Fn1<T, ?> fn)
+	{
+		return (APersistentMap) write(root, (Fn1<Object, Object>) fn);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T, K, V> ImmutableMap<K, V> update(ImmutableMap<K, V> root, Fn1<T, ?> fn)
+	{
+		return (ImmutableMap<K, V>) write(root, (Fn1<Object, Object>) fn);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T, CONCRETE extends ImmutableBean<CONCRETE>> CONCRETE update(ImmutableBean<CONCRETE> root, Fn1<T, ?> fn)
+	{
+		return writeBean(root, (Fn1<Object, Object>) fn);
+	}
+
+	private Object lookup(Object root, Object notFound)
+	{
+		return NestedPaths.getIn(root, keys, 0, notFound);
+	}
+
+	/**
+	 * The first level of a bean goes through its own assoc, which respects the transient mode.
+	 */
+	@SuppressWarnings("unchecked")
+	private <CONCRETE extends ImmutableBean<CONCRETE>> CONCRETE writeBean(ImmutableBean<CONCRETE> bean, Fn1<Object, Object> fn)
+	{
+		final Object child = RT.get(bean.mutabilityStrategy.getRaw(), keys[0], NOT_FOUND);
+		final Object updated = keys.length == 1
+			? fn.apply(child != NOT_FOUND ? child : null)
+			: NestedPaths.updateIn(child != NOT_FOUND ? child : null, keys, 1, fn);
+		return updated == child ? (CONCRETE) bean : bean.assoc(keys[0], updated);
+	}
+
+	private Object write(Object root, Fn1<Object, Object> fn)
+	{
+		return NestedPaths.updateIn(root, keys, 0, fn);
+	}
+
+	private static Fn1<Object, Object> constant(Object value)
+	{
+		return old -> value;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		return this == o || o instanceof Lens && Arrays.equals(keys, ((Lens) o).keys);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(keys);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Lens" + Arrays.toString(keys);
+	}
+}
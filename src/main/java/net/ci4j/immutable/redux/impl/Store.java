@@ -25,12 +25,17 @@ import net.ci4j.fn.VoidFn2;
 import net.ci4j.immutable.clojure_utils.ClojureJson;
 import net.ci4j.immutable.collections.ImmutableList;
 import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.json.JsonCache;
+import net.ci4j.immutable.json.JsonEncoder;
 import net.ci4j.immutable.redux.Middleware;
 import net.ci4j.immutable.redux.ReduxAction;
 import net.ci4j.immutable.redux.ReduxReducer;
 import net.ci4j.immutable.redux.ReduxStore;
 import net.ci4j.immutable.redux.StateCore;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.UUID;
 import java.util.function.Consumer;
@@ -50,6 +55,8 @@ public class Store implements ReduxStore
 
 	private HashMap<UUID, Consumer<ImmutableMap<Object, Object>>> subscribers = new HashMap<>();
 
+	private transient volatile JsonEncoder stateEncoder;
+
 	public Store(StateCore coreType, ImmutableMap<Object, Object> initialState, ReduxReducer reducer)
 	{
 		this(coreType.createStrategy(initialState), reducer);
@@ -160,6 +167,40 @@ public class Store implements ReduxStore
 
 	public String getStateJson() throws JsonParseException
 	{
-		return (String) ClojureJson.GENERATE_STRING.invoke(this.coreStrategy.getState().getRaw());
+		final JsonEncoder encoder = this.stateEncoder;
+		return encoder != null
+			? encoder.writeString(this.coreStrategy.getState())
+			: (String) ClojureJson.GENERATE_STRING.invoke(this.coreStrategy.getState().getRaw());
+	}
+
+	/**
+	 * Keep the JSON of the maps and vectors of the state in a cache, so that {@link #getStateJson()} and
+	 * {@code writeStateJson} only encode the parts of the state changed since they were last called.
+	 *
+	 * @param cache the cache to use, {@code null} to stop caching
+	 * @see JsonCache
+	 */
+	public void cacheStateJson(JsonCache cache)
+	{
+		this.stateEncoder = cache != null ? JsonEncoder.DEFAULT.withCache(cache) : null;
+	}
+
+	/**
+	 * Write the current state as UTF-8 JSON to the stream, which is flushed and left open, without building the
+	 * whole document as a {@link String} first.
+	 */
+	public void writeStateJson(OutputStream out) throws IOException
+	{
+		final JsonEncoder encoder = this.stateEncoder;
+		(encoder != null ? encoder : JsonEncoder.DEFAULT).write(this.coreStrategy.getState().getRaw(), out);
+	}
+
+	/**
+	 * Write the current state as JSON to the writer, which is flushed and left open.
+	 */
+	public void writeStateJson(Writer writer) throws IOException
+	{
+		final JsonEncoder encoder = this.stateEncoder;
+		(encoder != null ? encoder : JsonEncoder.DEFAULT).write(this.coreStrategy.getState().getRaw(), writer);
 	}
 }
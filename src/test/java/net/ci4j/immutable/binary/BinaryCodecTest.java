@@ -0,0 +1,124 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.binary;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.Keyword;
+import clojure.lang.PersistentArrayMap;
+import clojure.lang.PersistentHashMap;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.ImmutableSet;
+import net.ci4j.immutable.object.ImmutableBean;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest
+{
+	private static final String EDN = "{:name \"binary\" :count 42 :ratio 1/3 :price 12.50M :big 12345678901234567890N "
+		+ "\"nested\" {:tags #{:a :b} :items [1 2.5 \\c nil true false sym (1 2)] [1 2] \"vector key\"} :empty {} :ns/key \"été\"}";
+
+	public static class Order extends ImmutableBean<Order>
+	{
+		public static final Order EMPTY = create(Order.class);
+
+		@Override
+		protected Class<Order> getConcreteClass()
+		{
+			return Order.class;
+		}
+
+		@Override
+		public Order refEmpty()
+		{
+			return EMPTY;
+		}
+	}
+
+	@Test
+	public void testMapRoundTrip() throws IOException
+	{
+		final ImmutableMap<Object, Object> map = ImmutableMap.fromString(EDN);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryCodec.write(map, out);
+		final ImmutableMap<Object, Object> read = BinaryCodec.readMap(new ByteArrayInputStream(out.toByteArray()));
+
+		assertEquals(map.getRaw(), read.getRaw());
+		assertEquals(new BigDecimal("12.50"), read.get(Keyword.intern("price")));
+		assertEquals(ClojureRT.readString("#{:a :b}"), read.<Object>getIn("nested", Keyword.intern("tags")));
+		assertEquals('c', (char) read.<Character>getIn("nested", Keyword.intern("items"), 2));
+		assertEquals("été", read.get(Keyword.intern("ns", "key")));
+		assertTrue(read.<Object>getIn(Keyword.intern("empty")) instanceof PersistentArrayMap);
+		assertTrue(read.getRaw() instanceof PersistentHashMap);
+		assertArrayEquals(out.toByteArray(), BinaryCodec.toBytes(read));
+	}
+
+	@Test
+	public void testCollections() throws IOException
+	{
+		final ImmutableList<Object> list = ImmutableList.<Object>refEmpty().withMutations(trans -> {
+			for (long i = 0; i < 1000; i++)
+			{
+				trans.cons(i % 2 == 0 ? i : Keyword.intern("k" + i));
+			}
+		});
+		assertEquals(list, BinaryCodec.readList(new ByteArrayInputStream(BinaryCodec.toBytes(list))));
+		final ImmutableList<Object> subList = (ImmutableList<Object>) list.subList(10, 990);
+		assertEquals(subList, BinaryCodec.readList(new ByteArrayInputStream(BinaryCodec.toBytes(subList))));
+
+		final ImmutableSet<Object> set = ImmutableSet.create(1L, "a", Keyword.intern("b"), null);
+		assertEquals(set, BinaryCodec.readSet(new ByteArrayInputStream(BinaryCodec.toBytes(set))));
+		assertEquals(ClojureRT.readString("[]"), BinaryCodec.fromBytes(BinaryCodec.toBytes(ImmutableList.refEmpty())));
+	}
+
+	@Test
+	public void testBeanSerialization() throws IOException, ClassNotFoundException
+	{
+		final Order order = ImmutableBean.create(Order.class, (APersistentMap) ClojureRT.readString(EDN));
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(order);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+		{
+			final Order read = (Order) in.readObject();
+			assertEquals(order.getRaw(), read.getRaw());
+			assertTrue(read.valImmutable());
+			assertEquals("changed", read.assoc("name", "changed").valAt("name"));
+		}
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryCodec.write(order, out);
+		assertEquals(order.getRaw(), BinaryCodec.readBean(Order.class, new ByteArrayInputStream(out.toByteArray())).getRaw());
+	}
+
+	@Test(expected = NotSerializableException.class)
+	public void testTransientBean() throws IOException
+	{
+		new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(ImmutableBean.createTransient(Order.class));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedValue()
+	{
+		BinaryCodec.toBytes(ImmutableList.create(new Object()));
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.binary;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.Keyword;
+import clojure.lang.PersistentHashMap;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.ImmutableSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class SnapshotTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String EDN = "{:name \"snapshot\" :count 42 :ratio 1/3 :price 12.50M :big 12345678901234567890N "
+		+ "\"nested\" {:tags #{:a :b} :items [1 2.5 \\c nil true false sym (1 2)] [1 2] \"vector key\"} :empty {} \"Aa\" 1 \"BB\" 2}";
+
+	@Test
+	public void testMapRoundTrip() throws IOException
+	{
+		final ImmutableMap<Object, Object> map = ImmutableMap.fromString(EDN);
+		final Path file = folder.newFile().toPath();
+		Snapshot.write(map, file);
+		final ImmutableMap<Object, Object> read = Snapshot.readMap(file);
+
+		assertEquals(map.getRaw(), read.getRaw());
+		assertEquals(map.size(), read.size());
+		assertEquals("snapshot", read.get(Keyword.intern("name")));
+		assertEquals(42L, read.get(Keyword.intern("count")));
+		assertEquals(new BigDecimal("12.50"), read.get(Keyword.intern("price")));
+		assertEquals(ClojureRT.readString("1/3"), read.get(Keyword.intern("ratio")));
+		assertEquals(ClojureRT.readString("#{:a :b}"), read.<Object>getIn("nested", Keyword.intern("tags")));
+		assertEquals('c', (char) read.<Character>getIn("nested", Keyword.intern("items"), 2));
+		assertEquals("vector key", read.<Object>getIn("nested", ClojureRT.readString("[1 2]")));
+		// "Aa" and "BB" have the same hash
+		assertEquals(1L, read.get("Aa"));
+		assertEquals(2L, read.get("BB"));
+		assertNull(read.get("missing"));
+		assertFalse(read.containsKey("Ab"));
+		assertTrue(read.<APersistentMap>getIn(Keyword.intern("empty")).isEmpty());
+
+		final ImmutableMap<Object, Object> updated = read.assocIn(43L, "nested", Keyword.intern("count")).without("Aa");
+		assertEquals(43L, (long) updated.<Long>getIn("nested", Keyword.intern("count")));
+		assertFalse(updated.containsKey("Aa"));
+		assertEquals(map.getRaw(), read.getRaw());
+		assertEquals(map.assoc("new", 1), read.withMutations(trans -> trans.put("new", 1)));
+	}
+
+	@Test
+	public void testLargeMap() throws IOException
+	{
+		final ImmutableMap<String, Object> map = ImmutableMap.<String, Object>refEmpty().withMutations(trans -> {
+			for (int i = 0; i < 50000; i++)
+			{
+				trans.put("key" + i, i % 3 == 0 ? ImmutableList.create((long) i, "v" + i).getRaw() : (long) i);
+			}
+		});
+		final Path file = folder.newFile().toPath();
+		Snapshot.write(map, file);
+		final ImmutableMap<String, Object> read = Snapshot.readMap(file);
+		for (int i = 0; i < 50000; i += 7)
+		{
+			assertEquals(i % 3 == 0 ? ClojureRT.readString("[" + i + " \"v" + i + "\"]") : (Object) (long) i, read.get("key" + i));
+		}
+		assertEquals(map, new ImmutableMap<>((APersistentMap) PersistentHashMap.create(read)));
+	}
+
+	@Test
+	public void testListAndSet() throws IOException
+	{
+		final ImmutableList<Object> list = ImmutableList.fromString("[1 \"two\" :three {:four 4} [5] 6.0]");
+		final Path file = folder.newFile().toPath();
+		Snapshot.write(list, file);
+		final ImmutableList<Object> read = Snapshot.readList(file);
+		assertEquals(list.getRaw(), read.getRaw());
+		assertEquals(Keyword.intern("three"), read.get(2));
+		assertEquals(4L, ((APersistentMap) read.get(3)).valAt(Keyword.intern("four")));
+		assertEquals(list.cons(7L).getRaw(), read.cons(7L).getRaw());
+		assertEquals(list.assocN(0, 0L).getRaw(), read.assocN(0, 0L).getRaw());
+
+		final ImmutableSet<Object> set = ImmutableSet.create("a", 1L, Keyword.intern("k"));
+		Snapshot.write(set, file);
+		assertEquals(set, Snapshot.readSet(file));
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotASnapshot() throws IOException
+	{
+		final Path file = folder.newFile().toPath();
+		Files.write(file, "{:not \"a snapshot\"}".getBytes());
+		Snapshot.readMap(file);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedValue() throws IOException
+	{
+		Snapshot.write(ImmutableMap.create("thread", Thread.currentThread()), folder.newFile().toPath());
+	}
+}
@@ -0,0 +1,236 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.collections;
+
+import clojure.lang.IMapEntry;
+import clojure.lang.ISeq;
+import net.ci4j.immutable.collections.impl.PersistentBTreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class ImmutableBTreeMapTest
+{
+	@Test
+	public void testRandomUpdatesMatchTreeMap()
+	{
+		final Random random = new Random(11);
+		final TreeMap<Integer, Integer> expected = new TreeMap<>();
+		PersistentBTreeMap map = PersistentBTreeMap.EMPTY;
+		for (int i = 0; i < 20000; i++)
+		{
+			final Integer key = random.nextInt(5000);
+			if (random.nextInt(3) == 0)
+			{
+				expected.remove(key);
+				map = map.without(key);
+			}
+			else
+			{
+				expected.put(key, i);
+				map = map.assoc(key, (Integer) i);
+			}
+			Assert.assertEquals(expected.size(), map.count());
+		}
+		assertSameEntries(expected, map);
+		for (Integer key : new ArrayList<>(expected.keySet()))
+		{
+			map = map.without(key);
+		}
+		Assert.assertEquals(0, map.count());
+		Assert.assertNull(map.seq());
+	}
+
+	private static void assertSameEntries(TreeMap<Integer, Integer> expected, PersistentBTreeMap map)
+	{
+		Assert.assertEquals(expected, map);
+		int index = 0;
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet())
+		{
+			Assert.assertEquals(entry.getValue(), map.valAt(entry.getKey()));
+			Assert.assertEquals(index, map.rank(entry.getKey(), false));
+			Assert.assertEquals(entry.getKey(), map.select(index).key());
+			index++;
+		}
+		for (int key = -1; key < 5001; key += 13)
+		{
+			assertSeqFrom(expected.tailMap(key, true), map.seqFrom(key, true));
+			assertSeqFrom(expected.headMap(key, true).descendingMap(), map.seqFrom(key, false));
+		}
+	}
+
+	private static void assertSeqFrom(NavigableMap<Integer, Integer> expected, ISeq seq)
+	{
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet())
+		{
+			Assert.assertNotNull(seq);
+			Assert.assertEquals(entry.getKey(), ((IMapEntry) seq.first()).key());
+			seq = seq.next();
+		}
+		Assert.assertNull(seq);
+	}
+
+	@Test
+	public void testBulkLoad()
+	{
+		final Random random = new Random(3);
+		final Map<Integer, Integer> input = new LinkedHashMap<>();
+		final TreeMap<Integer, Integer> expected = new TreeMap<>();
+		for (int i = 0; i < 10000; i++)
+		{
+			final int key = random.nextInt(8000);
+			input.put(key, i);
+			expected.put(key, i);
+		}
+		assertSameEntries(expected, PersistentBTreeMap.create(null, input));
+		assertSameEntries(expected, PersistentBTreeMap.create(null, expected));
+
+		PersistentBTreeMap loaded = PersistentBTreeMap.create(null, expected);
+		for (int key = 0; key < 8000; key += 2)
+		{
+			expected.remove(key);
+			loaded = loaded.without(key);
+		}
+		assertSameEntries(expected, loaded);
+	}
+
+	@Test
+	public void testLongKeys()
+	{
+		final long[] keys = {5L, Long.MIN_VALUE, 3L, Long.MAX_VALUE, 3L};
+		final ImmutableBTreeMap<Long, String> map = ImmutableBTreeMap.zipCreate(keys, Arrays.asList("a", "b", "c", "d", "e"));
+		Assert.assertTrue(map.getRaw().isLongKeyed());
+		Assert.assertEquals(4, map.size());
+		Assert.assertEquals("e", map.getLong(3L));
+		Assert.assertEquals("e", map.get((Object) 3));
+		Assert.assertEquals(Arrays.asList(Long.MIN_VALUE, 3L, 5L, Long.MAX_VALUE), new ArrayList<>(map.keySet()));
+		Assert.assertEquals(Long.valueOf(5L), map.ceilingKey(4L));
+		Assert.assertNull(map.get("x"));
+
+		ImmutableBTreeMap<Long, String> updated = ImmutableBTreeMap.refLongEmpty();
+		final HashMap<Long, String> expected = new HashMap<>();
+		for (long key = 0; key < 1000; key++)
+		{
+			updated = updated.assocLong(key * 7, "v" + key);
+			expected.put(key * 7, "v" + key);
+		}
+		Assert.assertEquals(expected, updated);
+		Assert.assertEquals(ImmutableBTreeMap.createLong(expected), updated);
+		Assert.assertSame(updated, updated.withoutLong(1L));
+		Assert.assertEquals(999, updated.withoutLong(7L).size());
+		Assert.assertFalse(updated.withoutLong(7L).containsLongKey(7L));
+	}
+
+	@Test
+	public void testIntegerKeys()
+	{
+		final ImmutableBTreeMap<Integer, String> map = ImmutableBTreeMap.<Integer, String>refEmpty()
+			.assoc(3, "c")
+			.assoc(1, "a")
+			.assoc(2, "b");
+		Assert.assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(map.keySet()));
+		Assert.assertEquals(Integer.valueOf(1), map.firstKey());
+		Assert.assertEquals(Integer.valueOf(3), map.lastKey());
+		Assert.assertEquals("b", map.get(2));
+		Assert.assertTrue(map.containsKey(3));
+		Assert.assertSame(map, map.assoc(1, "a"));
+		final ImmutableBTreeMap<Integer, String> without = map.without(1);
+		Assert.assertEquals(2, without.size());
+		Assert.assertEquals(Integer.valueOf(2), without.firstKey());
+		Assert.assertEquals(Integer.valueOf(2), map.tailMap(2, true).assoc(5, "e").firstKey());
+	}
+
+	@Test
+	public void testViewsAreLogarithmic()
+	{
+		final TreeMap<Integer, String> expected = new TreeMap<>();
+		for (int i = 0; i < 3000; i += 3)
+		{
+			expected.put(i, "v" + i);
+		}
+		final ImmutableBTreeMap<Integer, String> map = ImmutableBTreeMap.create(expected);
+		assertSameView(expected.subMap(100, true, 2000, false), map.subMap(100, true, 2000, false));
+		assertSameView(expected.descendingMap().subMap(2000, true, 100, false), map.descendingMap().subMap(2000, true, 100, false));
+		assertSameView(expected.tailMap(2999, true), map.tailMap(2999, true));
+	}
+
+	@Test
+	public void testEmptyExclusiveRange()
+	{
+		final TreeMap<Integer, String> expected = new TreeMap<>();
+		for (int i = 0; i < 100; i++)
+		{
+			expected.put(i, "v" + i);
+		}
+		final ImmutableBTreeMap<Integer, String> map = ImmutableBTreeMap.create(expected);
+		for (ImmutableBTreeMap<Integer, String> empty : Arrays.asList(map.subMap(50, false, 50, false),
+			map.descendingMap().subMap(50, false, 50, false), map.subMap(50, false, 51, false)))
+		{
+			Assert.assertEquals(0, empty.size());
+			Assert.assertTrue(empty.isEmpty());
+			Assert.assertEquals(0, empty.keySet().size());
+			Assert.assertEquals(0, empty.entrySet().size());
+			Assert.assertEquals(new TreeMap<Integer, String>(), empty);
+			Assert.assertEquals(0, empty.rank(50));
+			Assert.assertEquals(0, empty.rank(0));
+			try
+			{
+				empty.select(0);
+				Assert.fail("Should throw IndexOutOfBoundsException");
+			}
+			catch (IndexOutOfBoundsException e)
+			{
+				//success
+			}
+		}
+		assertSameView(expected.subMap(50, false, 50, false), map.subMap(50, false, 50, false));
+	}
+
+	private static void assertSameView(NavigableMap<Integer, String> expected, ImmutableBTreeMap<Integer, String> actual)
+	{
+		Assert.assertEquals(expected, actual);
+		Assert.assertEquals(expected.size(), actual.size());
+		final Comparator<? super Integer> order = expected.comparator() != null ? expected.comparator() : Comparator.naturalOrder();
+		for (int key = -2; key < 3002; key += 5)
+		{
+			final int probe = key;
+			Assert.assertEquals(expected.keySet().stream().filter(k -> order.compare(k, probe) < 0).count(), actual.rank(key));
+			Assert.assertEquals(expected.floorKey(key), actual.floorKey(key));
+			Assert.assertEquals(expected.higherKey(key), actual.higherKey(key));
+		}
+		int index = 0;
+		for (Integer key : expected.keySet())
+		{
+			Assert.assertEquals(key, actual.select(index++).getKey());
+		}
+	}
+
+	@Test
+	public void testComparator()
+	{
+		final ImmutableBTreeMap<String, Integer> map = ImmutableBTreeMap.<String, Integer>empty(Comparator.reverseOrder())
+			.assoc("a", 1)
+			.assoc("c", 3)
+			.assoc("b", 2);
+		Assert.assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<>(map.keySet()));
+		Assert.assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(map.descendingMap().keySet()));
+		Assert.assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(map.descendingMap().getRaw().keySet()));
+		Assert.assertEquals(map, ImmutableSortedMap.create(map));
+	}
+}
@@ -9,13 +9,18 @@
  **/
 package net.ci4j.immutable.collections;
 
+import clojure.lang.MapEntry;
 import net.ci4j.immutable.clojure_utils.JsonParseException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 public class ImmutableListTest
 {
@@ -146,6 +151,47 @@ public class ImmutableListTest
 		Assert.assertSame(ABC_LIST, subList);
 	}
 
+	@Test
+	public void testConsAllOnSubList()
+	{
+		final ImmutableList<String> subList = (ImmutableList<String>) ABC_LIST.subList(1, 3);
+		Assert.assertArrayEquals(new String[] {"b", "c", "d"}, subList.consAll("d").toArray());
+		Assert.assertArrayEquals(new String[] {"c"}, subList.dissocN(0).toArray());
+		Assert.assertArrayEquals(new String[] {"b", "x", "c"}, subList.insert(1, "x").toArray());
+	}
+
+	@Test
+	public void testTakeAndDrop()
+	{
+		final ImmutableList<Integer> list = rangeList(100);
+		Assert.assertEquals(list.subList(0, 40), list.take(40));
+		Assert.assertEquals(list.subList(40, 100), list.drop(40));
+		Assert.assertEquals(list.subList(40, 72), list.drop(40).take(32));
+		Assert.assertSame(list, list.take(100));
+		Assert.assertSame(list, list.drop(0));
+		Assert.assertTrue(list.take(0).isEmpty());
+		Assert.assertTrue(list.drop(100).isEmpty());
+	}
+
+	@Test
+	public void testSplitAt()
+	{
+		final ImmutableList<ImmutableList<String>> parts = ABC_LIST.splitAt(1);
+		Assert.assertEquals(ImmutableList.create("a"), parts.get(0));
+		Assert.assertEquals(ImmutableList.create("b", "c"), parts.get(1));
+	}
+
+	@Test
+	public void testConcat()
+	{
+		final ImmutableList<Integer> list = rangeList(100);
+		final ImmutableList<Integer> joined = list.take(50).concat(list.drop(50));
+		Assert.assertEquals(list, joined);
+		Assert.assertEquals(list, list.concat(ImmutableList.refEmpty()));
+		Assert.assertSame(list, ImmutableList.<Integer>refEmpty().concat(list));
+		Assert.assertEquals(ImmutableList.create("a", "b", "c", "a", "b", "c"), ABC_LIST.concat(ABC_LIST));
+	}
+
 	@Test
 	public void testDissoc()
 	{
@@ -153,6 +199,58 @@ public class ImmutableListTest
 		Assert.assertArrayEquals(new String[] {"a", "c"}, dissoced.toArray());
 	}
 
+	@Test
+	public void testDissocLast()
+	{
+		final ImmutableList<String> dissoced = ABC_LIST.dissocN(2);
+		Assert.assertArrayEquals(new String[] {"a", "b"}, dissoced.toArray());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testDissocOutOfRange()
+	{
+		ABC_LIST.dissocN(3);
+	}
+
+	@Test
+	public void testDissocAcrossLeaves()
+	{
+		final ImmutableList<Integer> list = rangeList(1100);
+		for (int i : new int[] {0, 31, 32, 500, 1055, 1056, 1099})
+		{
+			final List<Integer> expected = new ArrayList<>(list);
+			expected.remove(i);
+			Assert.assertEquals(expected, new ArrayList<>(list.dissocN(i)));
+		}
+	}
+
+	@Test
+	public void testInsert()
+	{
+		final ImmutableList<String> inserted = ABC_LIST.insert(1, "x");
+		Assert.assertArrayEquals(new String[] {"a", "x", "b", "c"}, inserted.toArray());
+		Assert.assertArrayEquals(new String[] {"a", "b", "c", "x"}, ABC_LIST.insert(3, "x").toArray());
+		Assert.assertArrayEquals(new String[] {"x", "a", "b", "c"}, ABC_LIST.insert(0, "x").toArray());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInsertOutOfRange()
+	{
+		ABC_LIST.insert(4, "x");
+	}
+
+	@Test
+	public void testInsertAcrossLeaves()
+	{
+		final ImmutableList<Integer> list = rangeList(1100);
+		for (int i : new int[] {0, 31, 32, 500, 1055, 1056, 1100})
+		{
+			final List<Integer> expected = new ArrayList<>(list);
+			expected.add(i, -1);
+			Assert.assertEquals(expected, new ArrayList<>(list.insert(i, -1)));
+		}
+	}
+
 	@Test
 	public void testFilterOut()
 	{
@@ -179,4 +277,188 @@ public class ImmutableListTest
 		final ImmutableList<String> filtered = ABC_LIST.filter(it -> true);
 		Assert.assertSame(ABC_LIST, filtered);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testFold()
+	{
+		final ImmutableList<Integer> list = rangeList(100000);
+		final long expected = 99999L * 100000L / 2;
+		Assert.assertEquals(expected, (long) list.fold(() -> 0L, Long::sum, (Long acc, Integer item) -> acc + item));
+		Assert.assertEquals(expected, (long) list.fold(() -> 0L, Long::sum, (Long acc, Integer item) -> acc + item, 32));
+		Assert.assertEquals(expected - 4950, (long) list.drop(100).fold(() -> 0L, Long::sum, (Long acc, Integer item) -> acc + item, 64));
+		Assert.assertEquals(0L, (long) ImmutableList.<Integer>refEmpty().fold(() -> 0L, Long::sum, (Long acc, Integer item) -> acc + item));
+	}
+
+	@Test
+	public void testSpliteratorSplitsOnLeaves()
+	{
+		final ImmutableList<Integer> list = rangeList(1000);
+		final Spliterator<Integer> suffix = list.spliterator();
+		final Spliterator<Integer> prefix = suffix.trySplit();
+		Assert.assertEquals(480, prefix.getExactSizeIfKnown());
+		Assert.assertEquals(520, suffix.getExactSizeIfKnown());
+		Assert.assertTrue(suffix.hasCharacteristics(Spliterator.SUBSIZED | Spliterator.ORDERED));
+		final List<Integer> items = new ArrayList<>();
+		prefix.tryAdvance(items::add);
+		prefix.forEachRemaining(items::add);
+		suffix.forEachRemaining(items::add);
+		Assert.assertEquals(items, list);
+		Assert.assertEquals(list.drop(10).take(500).parallelStream().collect(Collectors.toList()), list.subList(10, 510));
+		Assert.assertEquals(499500L, list.parallelStream().mapToLong(Integer::longValue).sum());
+	}
+
+	@Test
+	public void testWithMutations()
+	{
+		final ImmutableList<Integer> list = rangeList(100).drop(10);
+		final ImmutableList<Integer> edited = list.withMutations(t -> {
+			for (int i = 0; i < 100; i++)
+			{
+				t.cons(-i);
+			}
+			t.assocN(0, 42).pop().pop();
+			t.assocN(t.size(), 7);
+		});
+		Assert.assertEquals(189, edited.size());
+		Assert.assertEquals(Integer.valueOf(42), edited.get(0));
+		Assert.assertEquals(Integer.valueOf(-97), edited.get(187));
+		Assert.assertEquals(Integer.valueOf(7), edited.get(188));
+		Assert.assertEquals(90, list.size());
+		Assert.assertEquals(Integer.valueOf(10), list.get(0));
+		Assert.assertSame(list, list.withMutations(t -> Assert.assertEquals(Integer.valueOf(10), t.get(0))));
+	}
+
+	@Test
+	public void testTransientBuildsLargeList()
+	{
+		final TransientImmutableList<Integer> aTransient = ImmutableList.<Integer>refEmpty().asTransient();
+		for (int i = 0; i < 100000; i++)
+		{
+			aTransient.cons(i);
+		}
+		final ImmutableList<Integer> list = aTransient.persistent();
+		Assert.assertEquals(100000, list.size());
+		Assert.assertEquals(Integer.valueOf(99999), list.get(99999));
+	}
+
+	private static ImmutableList<Integer> rangeList(int size)
+	{
+		final List<Integer> items = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			items.add(i);
+		}
+		return ImmutableList.create(items);
+	}
+
+	@Test
+	public void testCollector()
+	{
+		final ImmutableList<Integer> list = rangeList(50000).stream().collect(ImmutableList.collector());
+		Assert.assertEquals(rangeList(50000), list);
+		final ImmutableList<Integer> parallel = rangeList(50000).parallelStream().map(i -> i * 2).collect(ImmutableList.collector());
+		Assert.assertEquals(50000, parallel.size());
+		for (int i = 0; i < 50000; i++)
+		{
+			Assert.assertEquals(Integer.valueOf(i * 2), parallel.get(i));
+		}
+		Assert.assertSame(ImmutableList.EMPTY, rangeList(0).stream().collect(ImmutableList.collector()));
+	}
+
+	@Test
+	public void testEqualsSharedStructure()
+	{
+		final ImmutableList<Integer> list = rangeList(100000);
+		final ImmutableList<Integer> restored = list.assocN(54321, -1).assocN(54321, 54321);
+		Assert.assertNotSame(list.getRaw(), restored.getRaw());
+		Assert.assertEquals(list, restored);
+		Assert.assertEquals(list.hashCode(), restored.hashCode());
+		Assert.assertEquals(list, rangeList(100000));
+		Assert.assertNotEquals(list, list.assocN(54321, -1));
+		Assert.assertNotEquals(list, list.assocN(99999, -1));
+		Assert.assertNotEquals(list, list.cons(-1));
+		Assert.assertEquals(new ArrayList<>(list).hashCode(), list.hashCode());
+		Assert.assertNotEquals(list.cons(1), list.cons(2));
+		Assert.assertEquals(ImmutableList.create(1, 2, 3).concat(list), ImmutableList.create(1, 2, 3).concat(rangeList(100000)));
+	}
+
+	@Test
+	public void testDiff()
+	{
+		final ImmutableList<Integer> list = rangeList(100000);
+		final ImmutableList<Integer> edited = list.assocN(3, -3).assocN(54321, -1).assocN(99999, -2).cons(7).cons(8);
+		final ListDiff<Integer> diff = list.diff(edited);
+		Assert.assertEquals(ImmutableMap.create(3, -3, 54321, -1, 99999, -2), diff.getChanged());
+		Assert.assertEquals(ImmutableList.create(7, 8), diff.getAdded());
+		Assert.assertTrue(diff.getRemoved().isEmpty());
+		final ListDiff<Integer> reverse = edited.diff(list);
+		Assert.assertEquals(ImmutableMap.create(3, 3, 54321, 54321, 99999, 99999), reverse.getChanged());
+		Assert.assertEquals(ImmutableList.create(7, 8), reverse.getRemoved());
+		Assert.assertTrue(reverse.getAdded().isEmpty());
+		Assert.assertTrue(list.diff(list.assocN(10, 10)).isEmpty());
+		// across root levels: 1000 items fit under a root of shift 5, 100000 need shift 10
+		final ListDiff<Integer> grown = rangeList(1000).assocN(500, -1).diff(list);
+		Assert.assertEquals(ImmutableMap.create(500, 500), grown.getChanged());
+		Assert.assertEquals(99000, grown.getAdded().size());
+		Assert.assertEquals(Integer.valueOf(1000), grown.getAdded().get(0));
+		final ListDiff<Integer> views = list.drop(1).diff(list.take(10));
+		Assert.assertEquals(10, views.getChanged().size());
+		Assert.assertEquals(99999 - 10, views.getRemoved().size());
+	}
+
+	@Test
+	public void testTransform()
+	{
+		final ImmutableList<Integer> list = rangeList(10000);
+		final Transducer<Integer, String> xform = Transducer.<Integer>create()
+			.filter(i -> i % 3 == 0)
+			.map(i -> i / 10)
+			.dedupe()
+			.map(String::valueOf)
+			.take(5);
+		Assert.assertEquals(ImmutableList.create("0", "1", "2", "3", "4"), list.transform(xform));
+		Assert.assertEquals(ImmutableSet.create("0", "1", "2", "3", "4"), xform.toSet(list));
+		Assert.assertEquals(ImmutableList.create("0", "1"), xform.toList(new ArrayList<>(list.take(20))));
+		Assert.assertEquals(list, list.transform(Transducer.create()));
+
+		final Transducer<Integer, Integer> pairs = Transducer.<Integer>create().mapcat(i -> ImmutableList.create(i, -i));
+		Assert.assertEquals(ImmutableList.create(1, -1, 2, -2), ImmutableList.create(1, 2).transform(pairs));
+		Assert.assertEquals(ImmutableList.create(ImmutableList.create(1, -1, 2), ImmutableList.create(-2)),
+			ImmutableList.create(1, 2).transform(pairs.partition(3)));
+		Assert.assertEquals(ImmutableList.create(2, -2), ImmutableList.create(1).transform(Transducer.<Integer>create().map(i -> i * 2).then(pairs)));
+
+		final ImmutableMap<String, Integer> byName = Transducer.<Integer>create().take(3).toMap(list, i -> "k" + i, i -> i);
+		Assert.assertEquals(ImmutableMap.create("k0", 0, "k1", 1, "k2", 2), byName);
+		Assert.assertEquals(Long.valueOf(10), xform.map(Long::valueOf).transduce(list, 0L, Long::sum));
+		Assert.assertEquals(Long.valueOf(3 * 3333 * 3334 / 2), Transducer.<Integer>create().filter(i -> i % 3 == 0).transduce(list, 0L, (sum, i) -> sum + i));
+	}
+
+	@Test
+	public void testForEachChunk()
+	{
+		for (int size : new int[]{0, 1, 32, 33, 1056, 1057, 33824, 100000})
+		{
+			final ImmutableList<Integer> list = rangeList(size);
+			Assert.assertEquals(new ArrayList<>(list), chunkedItems(list));
+			Assert.assertEquals(new ArrayList<>(list.drop(size / 3).take(size / 2)), chunkedItems(list.drop(size / 3).take(size / 2)));
+			final List<Integer> visited = new ArrayList<>();
+			list.forEach(visited::add);
+			Assert.assertEquals(new ArrayList<>(list), visited);
+		}
+		final ImmutableList<String> entry = new ImmutableList<>(MapEntry.create("k", "v"));
+		Assert.assertEquals(Arrays.asList("k", "v"), chunkedItems(entry));
+	}
+
+	private static <E> List<E> chunkedItems(ImmutableList<E> list)
+	{
+		final List<E> items = new ArrayList<>();
+		list.forEachChunk((chunk, offset, length) -> {
+			Assert.assertTrue(length > 0 && length <= 32);
+			for (int i = offset; i < offset + length; i++)
+			{
+				items.add((E) chunk[i]);
+			}
+		});
+		return items;
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.collections;
+
+import clojure.lang.IMapEntry;
+import clojure.lang.PersistentHashMap;
+import clojure.lang.RT;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class ImmutableLongMapTest
+{
+	@Test
+	public void testAssocAndGet()
+	{
+		final ImmutableLongMap<String> map = ImmutableLongMap.<String>refEmpty()
+			.assoc(1L, "a")
+			.assoc(-1L, "b")
+			.assoc(Long.MAX_VALUE, "c")
+			.assoc(Long.MIN_VALUE, "d");
+		Assert.assertEquals(4, map.size());
+		Assert.assertEquals("a", map.get(1L));
+		Assert.assertEquals("b", map.get(-1L));
+		Assert.assertEquals("c", map.get(Long.MAX_VALUE));
+		Assert.assertEquals("d", map.get(Long.MIN_VALUE));
+		Assert.assertNull(map.get(2L));
+		Assert.assertEquals("x", map.valAt(2L, "x"));
+		Assert.assertEquals("a", map.get((Object) 1));
+		Assert.assertNull(map.get("1"));
+		Assert.assertTrue(map.containsKey(-1L));
+		Assert.assertFalse(map.containsKey((Object) "a"));
+	}
+
+	@Test
+	public void testAssocReplacesAndKeepsIdentity()
+	{
+		final ImmutableLongMap<String> map = ImmutableLongMap.<String>refEmpty().assoc(5L, "a");
+		Assert.assertSame(map, map.assoc(5L, "a"));
+		final ImmutableLongMap<String> replaced = map.assoc(5L, "b");
+		Assert.assertNotSame(map, replaced);
+		Assert.assertEquals(1, replaced.size());
+		Assert.assertEquals("b", replaced.get(5L));
+		Assert.assertEquals("a", map.get(5L));
+	}
+
+	@Test
+	public void testWithout()
+	{
+		final ImmutableLongMap<String> map = ImmutableLongMap.<String>refEmpty().assoc(1L, "a").assoc(2L, "b");
+		Assert.assertSame(map, map.without(3L));
+		final ImmutableLongMap<String> without = map.without(1L);
+		Assert.assertEquals(1, without.size());
+		Assert.assertFalse(without.containsKey(1L));
+		Assert.assertEquals("b", without.get(2L));
+		Assert.assertTrue(without.without(2L).isEmpty());
+	}
+
+	@Test
+	public void testMatchesTreeMap()
+	{
+		final Random random = new Random(42);
+		final TreeMap<Long, Long> expected = new TreeMap<>();
+		ImmutableLongMap<Long> map = ImmutableLongMap.refEmpty();
+		for (int i = 0; i < 20000; i++)
+		{
+			final long key = random.nextInt(5000) - 2500L;
+			if (random.nextInt(4) == 0)
+			{
+				expected.remove(key);
+				map = map.without(key);
+			}
+			else
+			{
+				expected.put(key, (long) i);
+				map = map.assoc(key, (long) i);
+			}
+		}
+		Assert.assertEquals(expected.size(), map.size());
+		Assert.assertEquals(expected, map);
+		Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+	}
+
+	@Test
+	public void testRangeIteration()
+	{
+		ImmutableLongMap<String> map = ImmutableLongMap.refEmpty();
+		for (long i = -50; i <= 50; i += 5)
+		{
+			map = map.assoc(i, String.valueOf(i));
+		}
+		final List<Long> visited = new ArrayList<>();
+		map.forEachInRange(-12L, 21L, (key, value) -> {
+			Assert.assertEquals(String.valueOf(key), value);
+			visited.add(key);
+		});
+		Assert.assertEquals(Arrays.asList(-10L, -5L, 0L, 5L, 10L, 15L, 20L), visited);
+
+		final List<Object> iterated = new ArrayList<>();
+		final Iterator<IMapEntry> iterator = map.rangeIterator(40L, Long.MAX_VALUE);
+		while (iterator.hasNext())
+		{
+			iterated.add(iterator.next().key());
+		}
+		Assert.assertEquals(Arrays.asList(40L, 45L, 50L), iterated);
+		Assert.assertFalse(map.rangeIterator(51L, 60L).hasNext());
+		Assert.assertFalse(map.rangeIterator(10L, -10L).hasNext());
+	}
+
+	@Test
+	public void testNonIntegralKeysRejected()
+	{
+		final List<Map<Number, String>> invalid = new ArrayList<>();
+		invalid.add(Collections.singletonMap(1.5, "a"));
+		invalid.add(Collections.singletonMap(BigInteger.ONE.shiftLeft(64), "a"));
+		for (Map<Number, String> map : invalid)
+		{
+			try
+			{
+				ImmutableLongMap.create(map);
+				Assert.fail("Should throw IllegalArgumentException");
+			}
+			catch (IllegalArgumentException e)
+			{
+				//success
+			}
+			try
+			{
+				ImmutableLongMap.<String>refEmpty().assoc(1L, "a").assocAll(map);
+				Assert.fail("Should throw IllegalArgumentException");
+			}
+			catch (IllegalArgumentException e)
+			{
+				//success
+			}
+		}
+		Assert.assertEquals("a", ImmutableLongMap.create(Collections.singletonMap((short) 7, "a")).get(7L));
+	}
+
+	@Test
+	public void testEqualsAndHashCode()
+	{
+		final ImmutableLongMap<String> map = ImmutableLongMap.<String>refEmpty().assoc(1L, "a").assoc(-7L, "b");
+		final ImmutableLongMap<String> same = ImmutableLongMap.<String>refEmpty().assoc(-7L, "b").assoc(1L, "a");
+		Assert.assertNotSame(map.getRaw(), same.getRaw());
+		Assert.assertEquals(map, same);
+		Assert.assertEquals(same, map);
+		Assert.assertEquals(map.hashCode(), same.hashCode());
+		Assert.assertNotEquals(map, map.assoc(1L, "c"));
+		Assert.assertNotEquals(map, map.without(1L));
+
+		final HashMap<Long, String> hashMap = new HashMap<>();
+		hashMap.put(1L, "a");
+		hashMap.put(-7L, "b");
+		Assert.assertTrue(map.equals(hashMap));
+		Assert.assertTrue(hashMap.equals(map));
+		Assert.assertEquals(hashMap.hashCode(), map.hashCode());
+		hashMap.put(2L, "c");
+		Assert.assertFalse(map.equals(hashMap));
+		Assert.assertFalse(hashMap.equals(map));
+
+		Assert.assertEquals(ImmutableLongMap.EMPTY, new HashMap<Long, String>());
+		Assert.assertEquals(new HashMap<Long, String>().hashCode(), ImmutableLongMap.EMPTY.hashCode());
+	}
+
+	@Test
+	public void testClojureInterop()
+	{
+		final ImmutableLongMap<String> map = ImmutableLongMap.create(new HashMap<Integer, String>() {{
+			put(1, "a");
+			put(2, "b");
+		}});
+		Assert.assertEquals(PersistentHashMap.create(1L, "a", 2L, "b"), map.getRaw());
+		Assert.assertTrue(map.equiv(ClojureRT.readString("{1 \"a\" 2 \"b\"}")));
+		Assert.assertEquals("a", RT.get(map.getRaw(), 1L));
+		final Object updated = RT.assoc(map.getRaw(), 3L, "c");
+		Assert.assertEquals(3, RT.count(updated));
+		Assert.assertEquals("{1 \"a\", 2 \"b\"}", map.toString());
+		try
+		{
+			RT.assoc(map.getRaw(), "x", "c");
+			Assert.fail("Should throw IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e)
+		{
+			//success
+		}
+	}
+}
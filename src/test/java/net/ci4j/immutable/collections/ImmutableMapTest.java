@@ -1,7 +1,18 @@
 package net.ci4j.immutable.collections;
 
+import clojure.lang.ArraySeq;
+import clojure.lang.Keyword;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
 import static org.junit.Assert.*;
 
 public class ImmutableMapTest
@@ -14,4 +25,355 @@ public class ImmutableMapTest
 		final ImmutableMap<String, Long> newMap = ABC_MAP.assoc("a", 1L);
 		assertSame(ABC_MAP, newMap);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testAssocReplacesValue()
+	{
+		final ImmutableMap<String, Long> newMap = ABC_MAP.assoc("a", 10L);
+		assertNotSame(ABC_MAP, newMap);
+		assertEquals(3, newMap.size());
+		assertEquals(Long.valueOf(10L), newMap.get("a"));
+		assertEquals(Long.valueOf(1L), ABC_MAP.get("a"));
+	}
+
+	@Test
+	public void testAssocAllReplacesValues()
+	{
+		final Map<String, Long> update = new HashMap<>();
+		update.put("a", 1L);
+		update.put("b", 20L);
+		final ImmutableMap<String, Long> newMap = ABC_MAP.assocAll(update);
+		assertEquals(3, newMap.size());
+		assertEquals(Long.valueOf(1L), newMap.get("a"));
+		assertEquals(Long.valueOf(20L), newMap.get("b"));
+		assertEquals(Long.valueOf(2L), ABC_MAP.get("b"));
+
+		update.put("b", 2L);
+		assertSame(ABC_MAP, ABC_MAP.assocAll(update));
+		update.put("d", 4L);
+		assertEquals(Long.valueOf(4L), ABC_MAP.assocAll(update).get("d"));
+	}
+
+	@Test
+	public void testAssocAllGrowsArrayMap()
+	{
+		final Map<String, Long> update = new HashMap<>();
+		for (long i = 0; i < 40; i++)
+		{
+			update.put("k" + i, i);
+		}
+		final ImmutableMap<String, Long> newMap = ABC_MAP.assocAll(update);
+		assertEquals(43, newMap.size());
+		assertEquals(Long.valueOf(39L), newMap.get("k39"));
+		assertEquals(40, ImmutableMap.zipCreate(update.keySet(), update.values()).size());
+	}
+
+	@Test
+	public void testWithMutations()
+	{
+		final ImmutableMap<String, Long> newMap = ABC_MAP.withMutations(t -> t
+			.put("d", 4L)
+			.remove("a")
+			.update("b", v -> v * 10)
+			.merge("c", 5L, Long::sum)
+			.merge("e", 5L, Long::sum));
+		assertEquals(ImmutableMap.create("b", 20L, "c", 8L, "d", 4L, "e", 5L).getRaw(), newMap.getRaw());
+		assertEquals(3, ABC_MAP.size());
+		assertEquals(Long.valueOf(1L), ABC_MAP.get("a"));
+		assertSame(ABC_MAP, ABC_MAP.withMutations(t -> assertTrue(t.containsKey("a"))));
+	}
+
+	@Test
+	public void testTransientGrowsIntoHashMap()
+	{
+		final TransientImmutableMap<Long, Long> aTransient = ImmutableMap.<Long, Long>refEmpty().asTransient();
+		for (long i = 0; i < 5000; i++)
+		{
+			aTransient.put(i, i);
+		}
+		assertEquals(5000, aTransient.size());
+		final ImmutableMap<Long, Long> map = aTransient.persistent();
+		assertEquals(5000, map.size());
+		assertEquals(Long.valueOf(4999L), map.get(4999L));
+		try
+		{
+			aTransient.put(1L, 2L);
+			fail("Should not allow edits after persistent()");
+		}
+		catch (IllegalAccessError e)
+		{
+			//success
+		}
+	}
+
+	@Test
+	public void testFold()
+	{
+		final Map<Long, Long> source = new HashMap<>();
+		for (long i = 0; i < 10000; i++)
+		{
+			source.put(i, i * 2);
+		}
+		final ImmutableMap<Long, Long> map = ImmutableMap.create(source);
+		assertEquals(99990000L, (long) map.fold(() -> 0L, Long::sum, (Long acc, Long key, Long value) -> acc + value, 64));
+		assertEquals(6L, (long) ABC_MAP.fold(() -> 0L, Long::sum, (Long acc, String key, Long value) -> acc + value));
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try
+		{
+			assertEquals(99990000L, (long) pool.submit(
+				() -> map.fold(() -> 0L, Long::sum, (Long acc, Long key, Long value) -> acc + value, 64)).join());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelStream()
+	{
+		final Map<Long, Long> source = new HashMap<>();
+		for (long i = 0; i < 10000; i++)
+		{
+			source.put(i, i * 2);
+		}
+		final ImmutableMap<Long, Long> map = ImmutableMap.create(source);
+		assertEquals(source, map.parallelStream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+		assertEquals(10000, map.spliterator().getExactSizeIfKnown());
+		assertEquals(6L, ABC_MAP.stream().mapToLong(Map.Entry::getValue).sum());
+	}
+
+	@Test
+	public void testCollector()
+	{
+		final Map<Long, Long> expected = new HashMap<>();
+		for (long i = 0; i < 30000; i++)
+		{
+			expected.merge(i % 10000, i, Long::sum);
+		}
+		final ImmutableMap<Long, Long> map = LongStream.range(0, 30000).boxed()
+			.collect(ImmutableMap.collector(i -> i % 10000, i -> i, Long::sum));
+		assertEquals(expected, map);
+		final ImmutableMap<Long, Long> parallel = LongStream.range(0, 30000).boxed().parallel()
+			.collect(ImmutableMap.collector(i -> i % 10000, i -> i, Long::sum));
+		assertEquals(expected, parallel);
+		assertEquals(Long.valueOf(3), LongStream.range(0, 3).boxed()
+			.collect(ImmutableMap.<Long, String, Long>collector(String::valueOf, i -> i + 1)).get("2"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCollectorDuplicateKey()
+	{
+		LongStream.range(0, 3).boxed().collect(ImmutableMap.collector(i -> "same", i -> i));
+	}
+
+	@Test
+	public void testEqualsAndHashCode()
+	{
+		final Random random = new Random(42);
+		final ImmutableMap<Integer, Integer> base = ImmutableMap.<Integer, Integer>refEmpty().withMutations(trans -> {
+			for (int i = 0; i < 5000; i++)
+			{
+				trans.put(i, i);
+			}
+		});
+		for (int round = 0; round < 50; round++)
+		{
+			ImmutableMap<Integer, Integer> left = base;
+			ImmutableMap<Integer, Integer> right = base;
+			final Map<Integer, Integer> leftExpected = new HashMap<>(base);
+			final Map<Integer, Integer> rightExpected = new HashMap<>(base);
+			for (int edit = 0; edit < 100; edit++)
+			{
+				final int key = random.nextInt(6000);
+				final boolean onLeft = random.nextBoolean();
+				final boolean remove = random.nextInt(3) == 0;
+				final int value = random.nextInt(4) == 0 ? -key : key;
+				if (onLeft)
+				{
+					left = remove ? left.without(key) : left.assoc(key, value);
+					applyEdit(leftExpected, key, value, remove);
+				}
+				else
+				{
+					right = remove ? right.without(key) : right.assoc(key, value);
+					applyEdit(rightExpected, key, value, remove);
+				}
+				assertEquals(leftExpected.equals(rightExpected), left.equals(right));
+				assertEquals(leftExpected.equals(rightExpected), right.equals(left));
+			}
+			assertEquals(leftExpected.hashCode(), left.hashCode());
+			final ImmutableMap<Integer, Integer> rebuilt = ImmutableMap.create(leftExpected);
+			assertEquals(rebuilt, left);
+			assertEquals(left, rebuilt);
+			assertEquals(rebuilt.hashCode(), left.hashCode());
+		}
+		assertEquals(ImmutableMap.create("a", 1, "b", 2), ImmutableMap.create("b", 2, "a", 1));
+		assertNotEquals(ImmutableMap.create("a", 1), ImmutableMap.create("a", 2));
+		assertNotEquals(base.assoc(null, 1), base.assoc(null, 2));
+		assertEquals(base.assoc(null, 1), base.assoc(null, 1));
+
+		final Map<Integer, Integer> hashMap = new HashMap<>(base);
+		assertTrue(base.equals(hashMap));
+		assertTrue(hashMap.equals(base));
+		assertEquals(hashMap.hashCode(), base.hashCode());
+		hashMap.put(-1, -1);
+		assertFalse(base.equals(hashMap));
+		assertFalse(hashMap.equals(base));
+		assertEquals(ImmutableMap.create("a", 1), Collections.singletonMap("a", 1));
+		assertEquals(Collections.singletonMap("a", 1), ImmutableMap.create("a", 1));
+	}
+
+	private static void applyEdit(Map<Integer, Integer> map, Integer key, int value, boolean remove)
+	{
+		if (remove)
+		{
+			map.remove(key);
+		}
+		else
+		{
+			map.put(key, value);
+		}
+	}
+
+	@Test
+	public void testDiff()
+	{
+		final Random random = new Random(7);
+		final ImmutableMap<Integer, Integer> base = ImmutableMap.<Integer, Integer>refEmpty().withMutations(trans -> {
+			for (int i = 0; i < 5000; i++)
+			{
+				trans.put(i, i);
+			}
+		});
+		for (int round = 0; round < 50; round++)
+		{
+			ImmutableMap<Integer, Integer> left = base;
+			ImmutableMap<Integer, Integer> right = base;
+			final Map<Integer, Integer> leftExpected = new HashMap<>(base);
+			final Map<Integer, Integer> rightExpected = new HashMap<>(base);
+			for (int edit = 0; edit < 200; edit++)
+			{
+				final Integer key = random.nextInt(20) == 0 ? null : random.nextInt(6000);
+				final boolean remove = random.nextInt(3) == 0;
+				final int value = random.nextInt(4) == 0 ? -edit : edit;
+				if (random.nextBoolean())
+				{
+					left = remove ? left.without(key) : left.assoc(key, value);
+					applyEdit(leftExpected, key, value, remove);
+				}
+				else
+				{
+					right = remove ? right.without(key) : right.assoc(key, value);
+					applyEdit(rightExpected, key, value, remove);
+				}
+			}
+			assertDiff(leftExpected, rightExpected, left.diff(right));
+			assertDiff(rightExpected, leftExpected, right.diff(left));
+			assertDiff(leftExpected, rightExpected, ImmutableMap.create(leftExpected).diff(right));
+		}
+		assertTrue(base.diff(base.assoc(1, 1)).isEmpty());
+		final MapDiff<String, Integer> small = ImmutableMap.<String, Integer>create("a", 1, "b", 2).diff(ImmutableMap.create("b", 3, "c", 4));
+		assertEquals(ImmutableMap.create("c", 4), small.getAdded());
+		assertEquals(ImmutableMap.create("a", 1), small.getRemoved());
+		assertEquals(ImmutableMap.create("b", 3), small.getChanged());
+	}
+
+	private static void assertDiff(Map<Integer, Integer> from, Map<Integer, Integer> to, MapDiff<Integer, Integer> diff)
+	{
+		final Map<Integer, Integer> added = new HashMap<>();
+		final Map<Integer, Integer> removed = new HashMap<>();
+		final Map<Integer, Integer> changed = new HashMap<>();
+		for (Map.Entry<Integer, Integer> entry : to.entrySet())
+		{
+			if (!from.containsKey(entry.getKey()))
+			{
+				added.put(entry.getKey(), entry.getValue());
+			}
+			else if (!entry.getValue().equals(from.get(entry.getKey())))
+			{
+				changed.put(entry.getKey(), entry.getValue());
+			}
+		}
+		for (Map.Entry<Integer, Integer> entry : from.entrySet())
+		{
+			if (!to.containsKey(entry.getKey()))
+			{
+				removed.put(entry.getKey(), entry.getValue());
+			}
+		}
+		assertEquals(added, diff.getAdded());
+		assertEquals(removed, diff.getRemoved());
+		assertEquals(changed, diff.getChanged());
+	}
+
+	@Test
+	public void testNestedPaths()
+	{
+		final ImmutableMap<String, Object> state = ImmutableMap.create(
+			"user", ClojureRT.readString("{:name \"a\" :tags [\"x\" \"y\"]}"),
+			"count", 1L);
+		final Keyword name = Keyword.intern("name");
+		final Keyword tags = Keyword.intern("tags");
+		assertEquals("a", state.getIn("user", name));
+		assertEquals("y", state.<String>getIn("user", tags, 1));
+		assertNull(state.getIn("user", "missing", "deeper"));
+		assertSame(state, state.getIn());
+
+		final ImmutableMap<String, Object> renamed = state.assocIn("b", "user", name);
+		assertEquals(ClojureRT.ASSOC_IN.invoke(state.getRaw(), ArraySeq.create("user", name), "b"), renamed.getRaw());
+		assertEquals("a", state.getIn("user", name));
+		assertSame(state, state.assocIn(state.getIn("user", name), "user", name));
+		assertEquals("z", state.assocIn("z", "user", tags, 0).getIn("user", tags, 0));
+
+		final ImmutableMap<String, Object> created = state.assocIn(1, "a", "b", "c");
+		assertEquals(ClojureRT.ASSOC_IN.invoke(state.getRaw(), ArraySeq.create("a", "b", "c"), 1), created.getRaw());
+		assertEquals(Long.valueOf(2), state.<Long>updateIn(count -> count + 1, "count").getIn("count"));
+		assertEquals(Long.valueOf(2), state.updateIn(ArraySeq.create("count"), count -> (Long) count + 1).get("count"));
+
+		assertSame(state, state.dissocIn("user", "missing", "deeper"));
+		assertSame(state, state.dissocIn("none"));
+		final ImmutableMap<String, Object> untagged = state.dissocIn("user", tags);
+		assertNull(untagged.getIn("user", tags));
+		assertEquals("a", untagged.getIn("user", name));
+
+		final ImmutableMap<String, Object> wrapped = ImmutableMap.create("inner", ImmutableMap.create("k", 1));
+		assertEquals(1, wrapped.<ImmutableMap<String, Integer>>getIn("inner").size());
+		assertTrue(wrapped.assocIn(2, "inner", "k").get("inner") instanceof ImmutableMap);
+		assertEquals(2, wrapped.assocIn(2, "inner", "k").<Integer>getIn("inner", "k").intValue());
+	}
+
+	@Test
+	public void testNestedPathsInTransient()
+	{
+		final ImmutableMap<String, Object> state = ImmutableMap.create("slices", ImmutableMap.create("a", ImmutableMap.create("n", 0)), "other", 1);
+		ImmutableMap<String, Object> expected = state;
+		for (int i = 0; i < 100; i++)
+		{
+			expected = expected.assocIn(i, "slices", "s" + (i % 10), "n" + i).updateIn((Integer n) -> n + 1, "slices", "a", "n");
+		}
+		final ImmutableMap<String, Object> actual = state.withMutations(trans -> {
+			for (int i = 0; i < 100; i++)
+			{
+				trans.assocIn(i, "slices", "s" + (i % 10), "n" + i).updateIn((Integer n) -> n + 1, "slices", "a", "n");
+			}
+			assertEquals(Integer.valueOf(100), trans.getIn("slices", "a", "n"));
+			assertEquals(Integer.valueOf(55), trans.getIn("slices", "s5", "n55"));
+			trans.dissocIn("slices", "s9", "n99").dissocIn("slices", "missing", "x");
+		});
+		assertEquals(expected.dissocIn("slices", "s9", "n99"), actual);
+		assertTrue(actual.get("slices") instanceof ImmutableMap);
+		assertEquals(0, state.<Integer>getIn("slices", "a", "n").intValue());
+
+		// reading a key closes its nested transient, writing a key drops it
+		final ImmutableMap<String, Object> mixed = state.withMutations(trans -> {
+			trans.assocIn(1, "x", "y");
+			assertEquals(ImmutableMap.create("y", 1).getRaw(), trans.get("x"));
+			trans.assocIn(2, "x", "z").assocIn(3, "w", "v").put("w", 4);
+		});
+		assertEquals(ImmutableMap.create("y", 1, "z", 2).getRaw(), mixed.get("x"));
+		assertEquals(4, mixed.get("w"));
+
+		assertSame(state, state.withMutations(trans -> trans.dissocIn("slices", "a", "missing").dissocIn("none", "x")));
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+public class ImmutablePrimitiveListTest
+{
+	@Test
+	public void testConsLongAcrossLeaves()
+	{
+		ImmutableLongList list = ImmutableLongList.EMPTY;
+		for (long i = 0; i < 5000; i++) {
+			list = list.consLong(i * 3);
+		}
+		Assert.assertEquals(5000, list.size());
+		for (int i = 0; i < 5000; i++) {
+			Assert.assertEquals(i * 3L, list.getLong(i));
+		}
+		Assert.assertEquals(0, ImmutableLongList.EMPTY.size());
+	}
+
+	@Test
+	public void testConsAllMatchesConsLong()
+	{
+		final long[] items = LongStream.range(0, 1100).toArray();
+		final ImmutableLongList seed = ImmutableLongList.create(1L, 2L, 3L);
+		ImmutableLongList expected = seed;
+		for (long item : items) {
+			expected = expected.consLong(item);
+		}
+		final ImmutableLongList actual = seed.consAll(items);
+		Assert.assertEquals(expected, actual);
+		Assert.assertEquals(expected.hashCode(), actual.hashCode());
+		Assert.assertEquals(3, seed.size());
+	}
+
+	@Test
+	public void testAssocNAndPop()
+	{
+		final ImmutableLongList list = ImmutableLongList.create(LongStream.range(0, 100));
+		final ImmutableLongList updated = list.assocN(40, -1L).assocN(99, -2L);
+		Assert.assertEquals(40L, list.getLong(40));
+		Assert.assertEquals(-1L, updated.getLong(40));
+		Assert.assertEquals(-2L, updated.getLong(99));
+		Assert.assertSame(list, list.assocN(7, 7L));
+		Assert.assertEquals(99, list.pop().size());
+		Assert.assertEquals(98L, list.pop().getLong(98));
+		try {
+			list.getLong(100);
+			Assert.fail("Should throw IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+			//success
+		}
+	}
+
+	@Test
+	public void testStreamAndReduce()
+	{
+		final ImmutableLongList list = ImmutableLongList.create(LongStream.rangeClosed(1, 10000));
+		Assert.assertEquals(50005000L, list.reduce(0L, Long::sum));
+		Assert.assertEquals(50005000L, list.stream().sum());
+		Assert.assertEquals(50005000L, list.parallelStream().sum());
+		Assert.assertArrayEquals(LongStream.rangeClosed(1, 10000).toArray(), list.toArray());
+		long total = 0;
+		for (Long item : list) {
+			total += item;
+		}
+		Assert.assertEquals(50005000L, total);
+	}
+
+	@Test
+	public void testRejectsBoxedVector()
+	{
+		try {
+			new ImmutableLongList(ImmutableList.create(1L, 2L).getRaw());
+			Assert.fail("Should throw IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//success
+		}
+	}
+
+	@Test
+	public void testIntList()
+	{
+		final ImmutableIntList list = ImmutableIntList.create(IntStream.range(0, 2000));
+		Assert.assertEquals(2000, list.size());
+		Assert.assertEquals(1999, list.getInt(1999));
+		Assert.assertEquals(1999000, list.stream().sum());
+		Assert.assertEquals(-5, list.assocN(1000, -5).getInt(1000));
+		Assert.assertEquals(2001, list.consInt(7).size());
+		Assert.assertEquals(ImmutableIntList.create(1, 2, 3), ImmutableIntList.EMPTY.consAll(1, 2, 3));
+	}
+
+	@Test
+	public void testDoubleList()
+	{
+		final ImmutableDoubleList list = ImmutableDoubleList.create(DoubleStream.iterate(0.5, d -> d + 1).limit(100));
+		Assert.assertEquals(100, list.size());
+		Assert.assertEquals(99.5, list.getDouble(99), 0);
+		Assert.assertEquals(5000.0, list.reduce(0.0, Double::sum), 0);
+		Assert.assertNotSame(list, list.assocN(0, 0.5).assocN(1, -0.0));
+		Assert.assertSame(list, list.assocN(0, 0.5));
+		Assert.assertEquals(-0.0, list.assocN(0, -0.0).getDouble(0), 0);
+	}
+
+	@Test
+	public void testEqualsSharedStructure()
+	{
+		final ImmutableLongList list = ImmutableLongList.create(LongStream.range(0, 100000));
+		final ImmutableLongList restored = list.assocN(54321, -1L).assocN(54321, 54321L);
+		Assert.assertEquals(list, restored);
+		Assert.assertEquals(list.hashCode(), restored.hashCode());
+		Assert.assertEquals(list, ImmutableLongList.create(LongStream.range(0, 100000)));
+		Assert.assertNotEquals(list, list.assocN(54321, -1L));
+		Assert.assertNotEquals(list, list.assocN(99999, -1L));
+		Assert.assertNotEquals(list.consLong(1L), list.consLong(2L));
+	}
+}
@@ -12,6 +12,11 @@ package net.ci4j.immutable.collections;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -46,4 +51,111 @@ public class ImmutableSetTest
 		final ImmutableSet<String> newSet = ABC_SET.consAll("a", "b", "c");
 		assertSame(ABC_SET, newSet);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testWithMutations() {
+		final ImmutableSet<String> newSet = ABC_SET.withMutations(t -> t.cons("d").remove("a").consAll(Arrays.asList("e", "b")));
+		assertEquals(new HashSet<>(Arrays.asList("b", "c", "d", "e")), newSet);
+		assertEquals(3, ABC_SET.size());
+		assertSame(ABC_SET, ABC_SET.withMutations(t -> t.cons("a").remove("x")));
+		final ImmutableSet<String> swapped = ABC_SET.withMutations(t -> t.cons("d").remove("a"));
+		assertNotSame(ABC_SET, swapped);
+		assertEquals(new HashSet<>(Arrays.asList("b", "c", "d")), swapped);
+	}
+
+	@Test
+	public void testFilter() {
+		assertEquals(new HashSet<>(Arrays.asList("a", "c")), ABC_SET.filterOut("b"::equals));
+		assertEquals(new HashSet<>(Arrays.asList("b")), ABC_SET.filter("b"::equals));
+		assertSame(ABC_SET, ABC_SET.filter(item -> true));
+		assertSame(ABC_SET, ABC_SET.filterOut(item -> false));
+	}
+
+	@Test
+	public void testFold() {
+		ImmutableSet<Integer> set = ImmutableSet.create();
+		for (int i = 0; i < 10000; i++) {
+			set = set.cons(i);
+		}
+		assertEquals(49995000L, (long) set.fold(() -> 0L, Long::sum, (Long acc, Integer item) -> acc + item, 64));
+		assertEquals("abc".length(), (int) ABC_SET.fold(() -> 0, Integer::sum, (Integer acc, String item) -> acc + item.length()));
+	}
+
+	@Test
+	public void testSpliterator() {
+		ImmutableSet<Integer> set = ImmutableSet.create();
+		for (int i = 0; i < 20000; i++) {
+			set = set.cons(i);
+		}
+		set = set.cons(null);
+		final Spliterator<Integer> spliterator = set.spliterator();
+		assertEquals(20001, spliterator.getExactSizeIfKnown());
+		final Set<Integer> items = new HashSet<>();
+		collect(spliterator, items);
+		assertEquals(items, set);
+		assertEquals(20000L, set.parallelStream().filter(Objects::nonNull).count());
+		assertEquals(new HashSet<>(ABC_SET), ABC_SET.parallelStream().collect(Collectors.toSet()));
+	}
+
+	private static <T> void collect(Spliterator<T> spliterator, Set<T> items) {
+		final Spliterator<T> prefix = spliterator.trySplit();
+		if (prefix != null) {
+			collect(prefix, items);
+			collect(spliterator, items);
+		} else {
+			spliterator.tryAdvance(items::add);
+			spliterator.forEachRemaining(items::add);
+		}
+	}
+
+	@Test
+	public void testCollector() {
+		final Set<Integer> expected = new HashSet<>();
+		for (int i = 0; i < 30000; i++) {
+			expected.add(i % 20000);
+		}
+		final ImmutableSet<Integer> set = expected.stream().collect(ImmutableSet.collector());
+		assertEquals(expected, set);
+		assertEquals(expected, ImmutableSet.create((Iterable<Integer>) expected));
+		final ImmutableSet<Integer> parallel = ImmutableList.create(expected).consAll(expected).parallelStream().collect(ImmutableSet.collector());
+		assertEquals(expected, parallel);
+		assertEquals(20000, parallel.size());
+	}
+
+	@Test
+	public void testEqualsSharedStructure() {
+		final Set<Integer> expected = new HashSet<>();
+		for (int i = 0; i < 20000; i++) {
+			expected.add(i);
+		}
+		final ImmutableSet<Integer> set = ImmutableSet.create((Iterable<Integer>) expected);
+		assertEquals(set, set.cons(-1).filterOut(i -> i == -1));
+		// removals leave child nodes of a single item where a fresh set holds the item inline
+		final ImmutableSet<Integer> shrunk = set.withMutations(trans -> {
+			for (int i = 0; i < 20000; i += 3) {
+				trans.remove(i);
+			}
+		});
+		final ImmutableSet<Integer> rebuilt = ImmutableSet.create((Iterable<Integer>) new HashSet<>(shrunk));
+		assertEquals(new HashSet<>(shrunk), rebuilt);
+		assertEquals(rebuilt, shrunk);
+		assertEquals(shrunk, rebuilt);
+		assertEquals(rebuilt.hashCode(), shrunk.hashCode());
+		assertNotEquals(set, shrunk);
+		assertNotEquals(shrunk.cons(-1), rebuilt);
+		assertNotEquals(shrunk.cons(0), rebuilt.cons(3));
+		assertEquals(shrunk.cons(null), rebuilt.cons(null));
+		assertNotEquals(shrunk.cons(null), rebuilt.cons(-1));
+		assertEquals(expected.hashCode(), set.hashCode());
+	}
+
+	@Test
+	public void testTransform()
+	{
+		final ImmutableSet<String> words = ImmutableSet.create("apple", "avocado", "banana", "cherry");
+		final ImmutableSet<Character> initials = words.transform(Transducer.<String>create().map(word -> word.charAt(0)));
+		assertEquals(new HashSet<>(Arrays.asList('a', 'b', 'c')), initials);
+		assertEquals(ImmutableSet.create(5, 7), words.transform(Transducer.<String>create().filter(word -> word.startsWith("a")).map(String::length)));
+		assertTrue(words.transform(Transducer.<String>create().filter(String::isEmpty)).isEmpty());
+	}
+}
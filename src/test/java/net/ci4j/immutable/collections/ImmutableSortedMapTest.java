@@ -0,0 +1,133 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class ImmutableSortedMapTest
+{
+	@Test
+	public void testNavigationMatchesTreeMap()
+	{
+		final Random random = new Random(42);
+		final TreeMap<Integer, String> expected = new TreeMap<>();
+		ImmutableSortedMap<Integer, String> map = ImmutableSortedMap.refEmpty();
+		for (int i = 0; i < 500; i++)
+		{
+			final int key = random.nextInt(2000);
+			expected.put(key, "v" + key);
+			map = map.assoc(key, "v" + key);
+		}
+		assertSameNavigation(expected, map);
+		assertSameNavigation(expected.descendingMap(), map.descendingMap());
+		assertSameNavigation(expected.subMap(300, true, 1200, false), map.subMap(300, true, 1200, false));
+		assertSameNavigation(expected.headMap(700, true), map.headMap(700, true));
+		assertSameNavigation(expected.tailMap(1500, false), map.tailMap(1500, false));
+		assertSameNavigation(expected.descendingMap().subMap(1200, false, 300, true), map.descendingMap().subMap(1200, false, 300, true));
+		assertSameNavigation(expected.subMap(300, true, 1200, false).descendingMap().headMap(800, false), map.subMap(300, 1200).descendingMap().headMap(800));
+	}
+
+	private static void assertSameNavigation(NavigableMap<Integer, String> expected, ImmutableSortedMap<Integer, String> actual)
+	{
+		Assert.assertEquals(expected, actual);
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+		Assert.assertEquals(expected.firstEntry(), actual.firstEntry());
+		Assert.assertEquals(expected.lastEntry(), actual.lastEntry());
+		for (int key = -10; key < 2010; key += 7)
+		{
+			Assert.assertEquals(expected.get(key), actual.get(key));
+			Assert.assertEquals(expected.lowerKey(key), actual.lowerKey(key));
+			Assert.assertEquals(expected.floorKey(key), actual.floorKey(key));
+			Assert.assertEquals(expected.ceilingKey(key), actual.ceilingKey(key));
+			Assert.assertEquals(expected.higherKey(key), actual.higherKey(key));
+			final int probe = key;
+			Assert.assertEquals(expected.keySet().stream().filter(k -> order(expected).compare(k, probe) < 0).count(), actual.rank(key));
+		}
+		int index = 0;
+		for (Integer key : expected.keySet())
+		{
+			Assert.assertEquals(key, actual.select(index++).getKey());
+		}
+	}
+
+	@Test
+	public void testComparatorAndCreate()
+	{
+		final ImmutableSortedMap<String, Integer> map = ImmutableSortedMap.create(Comparator.comparing(String::length), ImmutableMap.create("ccc", 3, "a", 1, "bb", 2));
+		Assert.assertEquals(Arrays.asList("a", "bb", "ccc"), new ArrayList<>(map.keySet()));
+		Assert.assertEquals("bb", map.ceilingKey("xx"));
+		Assert.assertEquals(Arrays.asList("ccc", "bb", "a"), new ArrayList<>(map.descendingKeySet()));
+
+		final TreeMap<String, Integer> reversed = new TreeMap<>(Comparator.reverseOrder());
+		reversed.put("a", 1);
+		reversed.put("b", 2);
+		Assert.assertEquals("b", ImmutableSortedMap.create(reversed).firstKey());
+		Assert.assertEquals("a", ImmutableSortedMap.create("b", 2, "a", 1).firstKey());
+	}
+
+	@Test
+	public void testViewsShareTheTree()
+	{
+		final ImmutableSortedMap<Integer, String> map = ImmutableSortedMap.create(1, "a", 2, "b", 3, "c", 4, "d");
+		final ImmutableSortedMap<Integer, String> view = map.subMap(2, 4);
+		Assert.assertSame(map.getRaw(), map.descendingMap().descendingMap().getRaw());
+		Assert.assertEquals(2, view.size());
+
+		final ImmutableSortedMap<Integer, String> updated = view.assoc(3, "C");
+		Assert.assertEquals("C", updated.get(3));
+		Assert.assertEquals("c", view.get(3));
+		Assert.assertSame(view, view.without(4));
+		Assert.assertEquals(1, view.without(2).size());
+		Assert.assertEquals(ImmutableSortedMap.create(2, "b", 3, "c"), view);
+		Assert.assertEquals(ImmutableMap.create(2, "b", 3, "c").getRaw(), view.getRaw());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAssocOutOfRange()
+	{
+		ImmutableSortedMap.<Integer, String>create(1, "a", 2, "b").headMap(2).assoc(5, "e");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSubMapOutOfRange()
+	{
+		ImmutableSortedMap.<Integer, String>create(1, "a", 2, "b").headMap(2).tailMap(3);
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		final ImmutableSortedMap<Integer, String> map = ImmutableSortedMap.refEmpty();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.firstEntry());
+		Assert.assertNull(map.floorKey(1));
+		Assert.assertTrue(ImmutableSortedMap.create(1, "a").tailMap(1, false).isEmpty());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPut()
+	{
+		ImmutableSortedMap.<Integer, String>refEmpty().put(1, "a");
+	}
+
+	private static Comparator<Integer> order(NavigableMap<Integer, String> collection)
+	{
+		return collection.comparator() != null ? (Comparator<Integer>) collection.comparator() : Comparator.naturalOrder();
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.collections;
+
+import clojure.lang.PersistentTreeSet;
+import clojure.lang.RT;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class ImmutableSortedSetTest
+{
+	@Test
+	public void testNavigationMatchesTreeSet()
+	{
+		final Random random = new Random(7);
+		final TreeSet<Integer> expected = new TreeSet<>();
+		ImmutableSortedSet<Integer> set = ImmutableSortedSet.refEmpty();
+		for (int i = 0; i < 300; i++)
+		{
+			final int item = random.nextInt(1000);
+			expected.add(item);
+			set = set.cons(item);
+		}
+		assertSameNavigation(expected, set);
+		assertSameNavigation(expected.descendingSet(), set.descendingSet());
+		assertSameNavigation(expected.subSet(100, false, 600, true), set.subSet(100, false, 600, true));
+		assertSameNavigation(expected.headSet(400, false), set.headSet(400));
+		assertSameNavigation(expected.descendingSet().tailSet(500, true), set.descendingSet().tailSet(500));
+	}
+
+	private static void assertSameNavigation(NavigableSet<Integer> expected, ImmutableSortedSet<Integer> actual)
+	{
+		Assert.assertEquals(expected, actual);
+		Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+		Assert.assertEquals(expected.first(), actual.first());
+		Assert.assertEquals(expected.last(), actual.last());
+		for (int item = -5; item < 1005; item += 3)
+		{
+			Assert.assertEquals(expected.contains(item), actual.contains(item));
+			Assert.assertEquals(expected.lower(item), actual.lower(item));
+			Assert.assertEquals(expected.floor(item), actual.floor(item));
+			Assert.assertEquals(expected.ceiling(item), actual.ceiling(item));
+			Assert.assertEquals(expected.higher(item), actual.higher(item));
+			final int probe = item;
+			Assert.assertEquals(expected.stream().filter(i -> order(expected).compare(i, probe) < 0).count(), actual.rank(item));
+		}
+		int index = 0;
+		for (Integer item : expected)
+		{
+			Assert.assertEquals(item, actual.select(index++));
+		}
+	}
+
+	@Test
+	public void testConsAndWithout()
+	{
+		final ImmutableSortedSet<String> set = ImmutableSortedSet.create("b", "c", "a");
+		Assert.assertSame(set, set.cons("a"));
+		Assert.assertSame(set, set.without("d"));
+		Assert.assertEquals(Arrays.asList("a", "b", "c", "d"), new ArrayList<>(set.cons("d")));
+		Assert.assertEquals(Arrays.asList("a", "c"), new ArrayList<>(set.without("b")));
+		Assert.assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(set));
+	}
+
+	@Test
+	public void testComparator()
+	{
+		final ImmutableSortedSet<String> set = ImmutableSortedSet.create(Comparator.reverseOrder(), Arrays.asList("a", "c", "b"));
+		Assert.assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<>(set));
+		Assert.assertEquals("b", set.ceiling("bb"));
+		Assert.assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<>(ImmutableSortedSet.create(new TreeSet<>(set))));
+	}
+
+	@Test
+	public void testMapKeySet()
+	{
+		final ImmutableSortedMap<Integer, String> map = ImmutableSortedMap.create(1, "a", 2, "b", 3, "c");
+		final ImmutableSortedSet<Integer> keys = map.tailMap(2).keySet();
+		Assert.assertEquals(Arrays.asList(2, 3), new ArrayList<>(keys));
+		Assert.assertEquals(Arrays.asList(2, 3, 4), new ArrayList<>(keys.cons(4)));
+		Assert.assertEquals(Arrays.asList(3), new ArrayList<>(keys.without(2)));
+		Assert.assertEquals(PersistentTreeSet.create(RT.seq(Arrays.asList(2, 3))), keys.getRaw());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConsOutOfRange()
+	{
+		ImmutableSortedSet.create(1, 2, 3).headSet(2).cons(3);
+	}
+
+	private static Comparator<Integer> order(NavigableSet<Integer> collection)
+	{
+		return collection.comparator() != null ? (Comparator<Integer>) collection.comparator() : Comparator.naturalOrder();
+	}
+}
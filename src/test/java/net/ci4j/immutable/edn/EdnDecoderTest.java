@@ -0,0 +1,141 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.edn;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.BigInt;
+import clojure.lang.IObj;
+import clojure.lang.Keyword;
+import clojure.lang.PersistentArrayMap;
+import clojure.lang.PersistentHashMap;
+import clojure.lang.RT;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.clojure_utils.EdnParseException;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class EdnDecoderTest
+{
+	private static final String EDN = "{:name \"edn \\\"quoted\\\"\\n\\u00e9t\\u00e9\" :ns/count 42 :big 12345678901234567890 :bigint 1N"
+		+ " :price 12.50M :ratio 1/3 :whole 4/2 :double -2.5e3 :hex 0x1F :octal 017 :chars [\\a \\newline \\space \\u0041]"
+		+ " \"nested\" {:tags #{:a :b} :items [1 2.5 nil true false sym ns/sym (1 (2)) []] [1 2] \"vector key\"}"
+		+ " :id #uuid \"3b8a31ed-fd89-4f1b-a00f-42e3d60cf5ce\" :at #inst \"2017-06-01T10:20:30.400-00:00\""
+		+ " ; a comment\n :discarded #_ [1 2] 3, :commas [1,2,3] :empty {}}";
+
+	@Test
+	public void testSameAsReadString()
+	{
+		final Object read = EdnDecoder.DEFAULT.read(EDN);
+		assertEquals(ClojureRT.readString(EDN), read);
+		final APersistentMap map = (APersistentMap) read;
+		assertEquals("edn \"quoted\"\nété", map.valAt(Keyword.intern("name")));
+		assertEquals(42L, map.valAt(Keyword.intern("ns", "count")));
+		assertEquals(new BigDecimal("12.50"), map.valAt(Keyword.intern("price")));
+		assertEquals(2L, map.valAt(Keyword.intern("whole")));
+		assertEquals(31L, map.valAt(Keyword.intern("hex")));
+		assertEquals(15L, map.valAt(Keyword.intern("octal")));
+		assertEquals(UUID.fromString("3b8a31ed-fd89-4f1b-a00f-42e3d60cf5ce"), map.valAt(Keyword.intern("id")));
+		assertTrue(map.valAt(Keyword.intern("at")) instanceof Date);
+		assertEquals(3L, map.valAt(Keyword.intern("discarded")));
+		assertTrue(map instanceof PersistentHashMap);
+		assertTrue(map.valAt(Keyword.intern("empty")) instanceof PersistentArrayMap);
+
+		assertNull(EdnDecoder.DEFAULT.read(""));
+		assertNull(EdnDecoder.DEFAULT.read(" ; only a comment"));
+		assertEquals(Double.POSITIVE_INFINITY, EdnDecoder.DEFAULT.read("##Inf"));
+		assertEquals(ClojureRT.readString("{:a/x 1 :b 2 c 3}"), EdnDecoder.DEFAULT.read("#:a{:x 1 :_/b 2 _/c 3}"));
+		assertEquals(RT.map(Keyword.intern("tag"), Boolean.TRUE), ((IObj) EdnDecoder.DEFAULT.read("^:tag [1]")).meta());
+	}
+
+	@Test
+	public void testReaderAndTags() throws IOException
+	{
+		final StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < 5000; i++)
+		{
+			builder.append("{:id ").append(i).append(" :name \"record ").append(i).append("\"} ");
+		}
+		final String edn = builder.append(']').toString();
+		assertEquals(EdnDecoder.DEFAULT.read(edn), EdnDecoder.DEFAULT.read(new StringReader(edn)));
+
+		final EdnDecoder decoder = EdnDecoder.DEFAULT.withTagReader("app/upper", value -> ((String) value).toUpperCase());
+		assertEquals("ABC", decoder.read("#app/upper \"abc\""));
+		assertEquals(ImmutableList.create(1L, "two"), ImmutableList.fromString("[1 \"two\"]"));
+		assertEquals(ImmutableMap.refEmpty(), ImmutableMap.fromString(""));
+	}
+
+	@Test
+	public void testRatios()
+	{
+		final String edn = "[4/2 -4/2 +6/3 0/5 1/3 -2/6 36893488147419103232/2 36893488147419103232/3]";
+		assertEquals(ClojureRT.readString(edn), EdnDecoder.DEFAULT.read(edn));
+		assertEquals(2L, EdnDecoder.DEFAULT.read("4/2"));
+		assertEquals(-2L, EdnDecoder.DEFAULT.read("-4/2"));
+		assertEquals(ClojureRT.readString("-1/3"), EdnDecoder.DEFAULT.read("-2/6"));
+		assertEquals(ClojureRT.readString("18446744073709551616N"), EdnDecoder.DEFAULT.read("36893488147419103232/2"));
+	}
+
+	@Test
+	public void testIntegerForms()
+	{
+		final String edn = "[0x10N -0x10 017N 2r101 -2r101 36rN 36rM -24Rn 36rZz 16r7FFFFFFFFFFFFFFF 36rZZZZZZZZZZZZZ 10N +5 -0 0]";
+		assertEquals(ClojureRT.readString(edn), EdnDecoder.DEFAULT.read(edn));
+		assertEquals(BigInt.fromLong(16), EdnDecoder.DEFAULT.read("0x10N"));
+		assertEquals(23L, EdnDecoder.DEFAULT.read("36rN"));
+		assertEquals(5L, EdnDecoder.DEFAULT.read("2r101"));
+		assertEquals(-1295L, EdnDecoder.DEFAULT.read("-36rZZ"));
+		assertEquals(Long.MAX_VALUE, EdnDecoder.DEFAULT.read("16r7FFFFFFFFFFFFFFF"));
+		for (String invalid : new String[]{"1r0", "37r1", "0r1", "2r102", "0x-5", "2r-1", "2r101N", "1.5N", "1/2N", "09", "4/-2", "1/0"})
+		{
+			try
+			{
+				EdnDecoder.DEFAULT.read(invalid);
+				fail("Should reject " + invalid);
+			}
+			catch (EdnParseException e)
+			{
+				//success
+			}
+		}
+	}
+
+	@Test(expected = EdnParseException.class)
+	public void testNoEval()
+	{
+		EdnDecoder.DEFAULT.read("#=(java.lang.System/exit 1)");
+	}
+
+	@Test(expected = EdnParseException.class)
+	public void testUnknownTag()
+	{
+		EdnDecoder.DEFAULT.read("#app/upper \"abc\"");
+	}
+
+	@Test(expected = EdnParseException.class)
+	public void testDuplicateKey()
+	{
+		EdnDecoder.DEFAULT.read("{:a 1 :a 2}");
+	}
+
+	@Test(expected = EdnParseException.class)
+	public void testUnbalanced()
+	{
+		EdnDecoder.DEFAULT.read("{:a [1 2}");
+	}
+}
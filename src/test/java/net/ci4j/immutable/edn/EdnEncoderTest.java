@@ -0,0 +1,73 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.edn;
+
+import clojure.lang.RT;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.ImmutableSet;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class EdnEncoderTest
+{
+	private static final String EDN = "{:name \"edn \\\"quoted\\\"\\n\\tété\" :ns/count 42 :big 12345678901234567890N"
+		+ " :price 12.50M :ratio 1/3 :double -2500.0 :chars [\\a \\newline \\space \\\\]"
+		+ " \"nested\" {:tags #{:a :b} :items [1 2.5 nil true false sym ns/sym (1 (2)) []] [1 2] \"vector key\"}"
+		+ " :id #uuid \"3b8a31ed-fd89-4f1b-a00f-42e3d60cf5ce\" :at #inst \"2017-06-01T10:20:30.400-00:00\" :empty {}}";
+
+	@Test
+	public void testRoundTrip()
+	{
+		final Object value = EdnDecoder.DEFAULT.read(EDN);
+		final String edn = EdnEncoder.writeString(value);
+		assertEquals(value, EdnDecoder.DEFAULT.read(edn));
+		assertEquals(value, ClojureRT.readString(edn));
+		assertEquals("[##Inf ##-Inf]", EdnEncoder.writeString(ImmutableList.create(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY)));
+	}
+
+	@Test
+	public void testSameAsPrStr()
+	{
+		final Object value = ClojureRT.readString("[1 \"a\\\"b\" :k {:x [2 3]} #{} (4) \\c 1.5 2N 3M nil]");
+		assertEquals(RT.var("clojure.core", "pr-str").invoke(value), EdnEncoder.writeString(value));
+		final ImmutableList<Long> large = ImmutableList.<Long>refEmpty().withMutations(trans -> {
+			for (long i = 0; i < 1000; i++)
+			{
+				trans.cons(i);
+			}
+		});
+		assertEquals(RT.var("clojure.core", "pr-str").invoke(large.getRaw()), EdnEncoder.writeString(large));
+	}
+
+	@Test
+	public void testToEdn() throws IOException
+	{
+		final ImmutableMap<Object, Object> map = ImmutableMap.fromString(EDN);
+		final StringWriter writer = new StringWriter();
+		map.toEdn(writer);
+		assertEquals(map, ImmutableMap.fromString(writer.toString()));
+
+		final StringWriter setWriter = new StringWriter();
+		ImmutableSet.create("a").toEdn(setWriter);
+		assertEquals("#{\"a\"}", setWriter.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedValue()
+	{
+		EdnEncoder.writeString(ImmutableList.create(new Object()));
+	}
+}
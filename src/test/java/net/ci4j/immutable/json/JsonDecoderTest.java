@@ -0,0 +1,103 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.json;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.Keyword;
+import clojure.lang.Util;
+import net.ci4j.immutable.clojure_utils.ClojureJson;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.clojure_utils.JsonParseException;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class JsonDecoderTest
+{
+	private static final String JSON = "{\"name\":\"json\",\"count\":42,\"big\":3000000000,\"huge\":123456789012345678901234567890,"
+		+ "\"ratio\":0.25,\"flags\":[true,false,null],\"nested\":{\"items\":[1,[2,3],{}],\"unicode\":\"\\u00e9t\\u00e9\"},\"empty\":[]}";
+
+	@Test
+	public void testSameAsCheshire()
+	{
+		final Object parsed = JsonDecoder.DEFAULT.read(JSON);
+		assertEquals(ClojureJson.PARSE_STRING.invoke(JSON), parsed);
+		final APersistentMap map = (APersistentMap) parsed;
+		assertEquals(42, map.valAt("count"));
+		assertEquals(3000000000L, map.valAt("big"));
+		assertEquals(new BigInteger("123456789012345678901234567890"), map.valAt("huge"));
+		assertEquals(0.25, map.valAt("ratio"));
+		assertEquals("été", ((APersistentMap) map.valAt("nested")).valAt("unicode"));
+		assertNull(JsonDecoder.DEFAULT.read(""));
+		assertEquals("text", JsonDecoder.DEFAULT.read("\"text\""));
+	}
+
+	@Test
+	public void testOptions()
+	{
+		final APersistentMap keywords = (APersistentMap) JsonDecoder.DEFAULT.withKeywordKeys(true).read(JSON);
+		// numbers read by the EDN reader are longs, equivalent but not equal to the ints of JSON
+		assertTrue(Util.equiv(ClojureRT.readString("{:items [1 [2 3] {}] :unicode \"été\"}"), keywords.valAt(Keyword.intern("nested"))));
+
+		final APersistentMap decimals = (APersistentMap) JsonDecoder.DEFAULT.withBigDecimals(true).read(JSON);
+		assertEquals(new BigDecimal("0.25"), decimals.valAt("ratio"));
+
+		final Object internedKey = ((APersistentMap) JsonDecoder.DEFAULT.read("{\"interned\":1}")).keySet().iterator().next();
+		assertSame("interned", internedKey);
+		final JsonDecoder notInterned = JsonDecoder.DEFAULT.withInternedKeys(false);
+		final Object key = ((APersistentMap) notInterned.read("{\"not interned\":1}")).keySet().iterator().next();
+		assertNotSame("not interned", key);
+		assertEquals("not interned", key);
+	}
+
+	@Test
+	public void testSources() throws IOException
+	{
+		final Object expected = JsonDecoder.DEFAULT.read(JSON);
+		final byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+		assertEquals(expected, JsonDecoder.DEFAULT.read(new ByteArrayInputStream(bytes)));
+		assertEquals(expected, JsonDecoder.DEFAULT.read(new StringReader(JSON)));
+
+		final ByteBuffer heap = ByteBuffer.allocate(bytes.length + 2);
+		heap.put((byte) ' ').put(bytes).flip().position(1);
+		assertEquals(expected, JsonDecoder.DEFAULT.read(heap));
+		assertEquals(1, heap.position());
+		final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).flip();
+		assertEquals(expected, JsonDecoder.DEFAULT.read(direct));
+		assertEquals(0, direct.position());
+
+		assertEquals(ImmutableMap.fromJson(JSON), ImmutableMap.fromJson(new StringReader(JSON)));
+		assertEquals(ImmutableList.create(1, 2), ImmutableList.fromJSON(new ByteArrayInputStream("[1,2]".getBytes(StandardCharsets.UTF_8))));
+		assertTrue(ImmutableList.fromJSON("[]").isEmpty());
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testInvalidJson()
+	{
+		JsonDecoder.DEFAULT.read("{\"a\": [1, 2}");
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testInvalidJsonStream() throws IOException
+	{
+		JsonDecoder.DEFAULT.read(new StringReader("[1, 2"));
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.json;
+
+import clojure.lang.Keyword;
+import clojure.lang.RT;
+import com.fasterxml.jackson.core.JsonGenerationException;
+import net.ci4j.immutable.clojure_utils.ClojureJson;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.collections.ImmutableList;
+import net.ci4j.immutable.collections.ImmutableMap;
+import net.ci4j.immutable.collections.ImmutableSet;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class JsonEncoderTest
+{
+	private static final String EDN = "{:name \"json\" :ns/key 1 \"text\" 2.5 :ratio 1/4 :big 3000000000000000000000N"
+		+ " :decimal 1.5M :flags [true false nil] :set #{:a} :list (1 2) :char \\c :symbol sym"
+		+ " :nested {:items [1 [2 3] {}] :unicode \"été\"} :empty []}";
+
+	@Test
+	public void testSameAsCheshire()
+	{
+		final Object value = ClojureRT.readString(EDN);
+		final String json = JsonEncoder.DEFAULT.writeString(value);
+		assertEquals(JsonDecoder.DEFAULT.read((String) ClojureJson.GENERATE_STRING.invoke(value)), JsonDecoder.DEFAULT.read(json));
+		assertEquals("null", JsonEncoder.DEFAULT.writeString(null));
+		assertEquals("[\"a\",1]", JsonEncoder.DEFAULT.writeString(ImmutableList.create("a", 1)));
+	}
+
+	@Test
+	public void testFloats()
+	{
+		final Object value = RT.map("floats", RT.vector(0.1f, 1.5f, -3.25f));
+		assertEquals(ClojureJson.GENERATE_STRING.invoke(value), JsonEncoder.DEFAULT.writeString(value));
+		assertEquals("{\"floats\":[0.1,1.5,-3.25]}", JsonEncoder.DEFAULT.writeString(value));
+	}
+
+	@Test
+	public void testNullKey()
+	{
+		final Object value = RT.map(null, 1L, "a", 2L);
+		assertEquals(ClojureJson.GENERATE_STRING.invoke(value), JsonEncoder.DEFAULT.writeString(value));
+		assertEquals("{\"\":1,\"a\":2}", JsonEncoder.DEFAULT.writeString(value));
+	}
+
+	@Test
+	public void testLargeVector()
+	{
+		final ImmutableList<Long> list = ImmutableList.<Long>refEmpty().withMutations(t -> {
+			for (long i = 0; i < 1000; i++)
+			{
+				t.cons(i);
+			}
+		});
+		assertEquals(ClojureJson.GENERATE_STRING.invoke(list.getRaw()), JsonEncoder.DEFAULT.writeString(list));
+		final ImmutableList<Long> subList = (ImmutableList<Long>) list.subList(30, 970);
+		assertEquals(ClojureJson.GENERATE_STRING.invoke(subList.getRaw()), JsonEncoder.DEFAULT.writeString(subList));
+	}
+
+	@Test
+	public void testWriteJson() throws IOException
+	{
+		final ImmutableMap<Object, Object> map = ImmutableMap.fromString(EDN);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		map.writeJson(out);
+		final String expected = JsonEncoder.DEFAULT.writeString(map);
+		assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+		final StringWriter writer = new StringWriter();
+		map.writeJson(writer);
+		assertEquals(expected, writer.toString());
+
+		final StringWriter setWriter = new StringWriter();
+		ImmutableSet.create("a").writeJson(setWriter);
+		assertEquals("[\"a\"]", setWriter.toString());
+
+		final String pretty = JsonEncoder.DEFAULT.withPrettyPrint(true).writeString(map);
+		assertTrue(pretty.contains("\n"));
+		assertEquals(JsonDecoder.DEFAULT.read(expected), JsonDecoder.DEFAULT.read(pretty));
+	}
+
+	@Test
+	public void testCache()
+	{
+		final JsonCache cache = new JsonCache(2);
+		final JsonEncoder encoder = JsonEncoder.DEFAULT.withCache(cache);
+		final ImmutableMap<Object, Object> state = ImmutableMap.fromString(EDN);
+		assertEquals(JsonEncoder.DEFAULT.writeString(state), encoder.writeString(state));
+		// the state, :flags, :nested, :items and [2 3]; :set and :list are not maps nor vectors
+		assertEquals(5, cache.size());
+		final Object nested = state.get(Keyword.intern("nested"));
+		assertNotNull(cache.get(nested));
+
+		final ImmutableMap<Object, Object> next = state.assoc(Keyword.intern("name"), "changed");
+		assertEquals(JsonEncoder.DEFAULT.writeString(next), encoder.writeString(next));
+		assertEquals(6, cache.size());
+		assertEquals(JsonEncoder.DEFAULT.writeString(next), encoder.writeString(next));
+		assertEquals(6, cache.size());
+
+		final String pretty = encoder.withPrettyPrint(true).writeString(next);
+		assertEquals(JsonEncoder.DEFAULT.withPrettyPrint(true).writeString(next), pretty);
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get(nested));
+	}
+
+	@Test(expected = JsonGenerationException.class)
+	public void testUnsupportedValue() throws IOException
+	{
+		JsonEncoder.DEFAULT.write(ImmutableList.create(new Object()), new StringWriter());
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ *   Copyright (c) Zhizhi Deng. All rights reserved.
+ *   The use and distribution terms for this software are covered by the
+ *   Eclipse Public License 1.0 (http://opensource.org/licenses/eclipse-1.0.php)
+ *   which can be found in the file epl-v10.html at the root of this distribution.
+ *   By using this software in any fashion, you are agreeing to be bound by
+ * 	 the terms of this license.
+ *   You must not remove this notice, or any other, from this software.
+ **/
+package net.ci4j.immutable.object;
+
+import clojure.lang.APersistentMap;
+import clojure.lang.ArraySeq;
+import clojure.lang.Keyword;
+import net.ci4j.immutable.clojure_utils.ClojureRT;
+import net.ci4j.immutable.collections.ImmutableMap;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LensTest
+{
+	public enum Field
+	{
+		ACCOUNTS, MAIN
+	}
+
+	public static class Customer extends ImmutableBean<Customer>
+	{
+		public static final Customer EMPTY = create(Customer.class);
+
+		@Override
+		protected Class<Customer> getConcreteClass()
+		{
+			return Customer.class;
+		}
+
+		@Override
+		public Customer refEmpty()
+		{
+			return EMPTY;
+		}
+	}
+
+	private static final Lens BALANCE = Lens.ofEnums(Field.ACCOUNTS, Field.MAIN).then("balance");
+
+	@Test
+	public void testRawMap()
+	{
+		final APersistentMap state = (APersistentMap) ClojureRT.readString("{:user {:name \"a\" :tags [\"x\" \"y\"]} :count 1}");
+		final Keyword user = Keyword.intern("user");
+		final Lens name = Lens.of(user, Keyword.intern("name"));
+		final Lens secondTag = Lens.of(user).then(Lens.of(Keyword.intern("tags"), 1));
+
+		assertEquals("a", name.get(state));
+		assertEquals("y", secondTag.get(state));
+		assertNull(Lens.of(user, "missing", "deeper").get(state));
+		assertEquals("none", Lens.of(user, "missing").get(state, "none"));
+
+		final APersistentMap renamed = name.set(state, "b");
+		assertEquals(ClojureRT.ASSOC_IN.invoke(state, ArraySeq.create(user, Keyword.intern("name")), "b"), renamed);
+		assertEquals("a", name.get(state));
+		assertSame(state, name.set(state, name.get(state)));
+		assertEquals("z", secondTag.get(secondTag.set(state, "z")));
+		assertEquals(ClojureRT.ASSOC_IN.invoke(state, ArraySeq.create("a", "b"), 1), Lens.of("a", "b").set(state, 1));
+		assertEquals(Long.valueOf(2), Lens.of(Keyword.intern("count")).get(Lens.of(Keyword.intern("count")).update(state, (Long count) -> count + 1)));
+		assertEquals(Long.valueOf(1), Lens.of("new").get(Lens.of("new").update(state, (Long count) -> count == null ? 1L : count + 1)));
+	}
+
+	@Test
+	public void testImmutableMap()
+	{
+		final ImmutableMap<String, Object> state = ImmutableMap.create("inner", ImmutableMap.create("k", 1), "raw", ClojureRT.readString("{:k 1}"));
+		final Lens inner = Lens.of("inner", "k");
+		assertEquals(Integer.valueOf(1), inner.get(state));
+		final ImmutableMap<String, Object> updated = inner.update(state, (Integer k) -> k + 1);
+		assertTrue(updated.get("inner") instanceof ImmutableMap);
+		assertEquals(Integer.valueOf(2), inner.get(updated));
+		assertEquals(state.assocIn(2, "inner", "k"), updated);
+		assertSame(state, inner.set(state, 1));
+
+		final Lens raw = Lens.of("raw", Keyword.intern("k"));
+		assertEquals(state.assocIn(5, "raw", Keyword.intern("k")), raw.set(state, 5));
+	}
+
+	@Test
+	public void testImmutableBean()
+	{
+		final Customer customer = Customer.EMPTY.assocInWithEnum(10L, Field.ACCOUNTS, Field.MAIN, Field.MAIN);
+		assertNull(BALANCE.get(customer));
+		assertEquals(Long.valueOf(0), BALANCE.get(customer, 0L));
+
+		final Customer credited = BALANCE.set(customer, 100L);
+		assertEquals(Long.valueOf(100), credited.valIn(null, "ACCOUNTS", "MAIN", "balance"));
+		assertEquals(Long.valueOf(10), credited.optInEnum(Field.ACCOUNTS, Field.MAIN, Field.MAIN));
+		assertEquals(Long.valueOf(150), BALANCE.get(BALANCE.update(credited, (Long b) -> b + 50)));
+		assertSame(credited, BALANCE.set(credited, 100L));
+		assertNull(BALANCE.get(customer));
+
+		final Lens top = Lens.ofEnums(Field.MAIN);
+		assertEquals("x", top.get(top.set(customer, "x")));
+
+		final Customer batch = credited.withTransientMode(bean -> {
+			for (int i = 0; i < 10; i++)
+			{
+				assertSame(bean, BALANCE.update(bean, (Long b) -> b + 1));
+			}
+			assertSame(bean, top.set(bean, "t"));
+		});
+		assertTrue(batch.valImmutable());
+		assertEquals(Long.valueOf(110), BALANCE.get(batch));
+		assertEquals("t", top.get(batch));
+		assertEquals(Long.valueOf(100), BALANCE.get(credited));
+	}
+
+	@Test
+	public void testComposition()
+	{
+		assertEquals(Lens.of("ACCOUNTS", "MAIN", "balance"), BALANCE);
+		assertEquals(Lens.of("a", "b", "c").hashCode(), Lens.of("a").then("b").then(Lens.of("c")).hashCode());
+		assertEquals(3, BALANCE.depth());
+		assertEquals("Lens[ACCOUNTS, MAIN, balance]", BALANCE.toString());
+
+		final Object[] keys = {"a", "b"};
+		final Lens copied = Lens.of(keys);
+		keys[1] = "c";
+		assertEquals(Lens.of("a", "b"), copied);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyPath()
+	{
+		Lens.of();
+	}
+}